@@ -0,0 +1,96 @@
+package de.intarsys.tools.expression;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intarsys.tools.functor.Args;
+import de.intarsys.tools.functor.IFunctor;
+import de.intarsys.tools.functor.IFunctorRegistry;
+
+/**
+ * Compare compiled and interpreted evaluation in {@link ProcessingDecorator}.
+ * 
+ * Args are created per invocation, as recursive evaluation keeps its state
+ * there.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessingDecoratorBenchmark {
+
+	@Param({ "name", "name:?flag", "missing:!'fallback'", "name:?!flag:!name:#upper(x,y)", "greeting:*" })
+	private String expression;
+
+	private ProcessingDecorator compiled;
+
+	private ProcessingDecorator interpreted;
+
+	@Benchmark
+	public Object compiled() throws EvaluationException {
+		return compiled.evaluate(expression, Args.create());
+	}
+
+	@Benchmark
+	public Object interpreted() throws EvaluationException {
+		return interpreted.evaluate(expression, Args.create());
+	}
+
+	@Setup
+	public void setup() {
+		IFunctor<String> upper = call -> String.valueOf(call.getReceiver()).toUpperCase();
+		Map<String, IFunctor> functors = new HashMap<>();
+		functors.put("upper", upper);
+		ProcessingDecorator.setFormattingFunctors(new IFunctorRegistry() {
+			@Override
+			public IFunctor[] getFunctors() {
+				return functors.values().toArray(new IFunctor[functors.size()]);
+			}
+
+			@Override
+			public IFunctor lookupFunctor(String id) {
+				return functors.get(id);
+			}
+
+			@Override
+			public void registerFunctor(IFunctor service) {
+				// not supported
+			}
+
+			@Override
+			public void unregisterFunctor(IFunctor service) {
+				// not supported
+			}
+		});
+		MapResolver resolver = new MapResolver();
+		resolver.put("name", "intarsys");
+		resolver.put("flag", Boolean.TRUE);
+		resolver.put("greeting", "hello ${name}");
+		compiled = new ProcessingDecorator(resolver);
+		compiled.setRecursionEvaluator(new TaggedStringEvaluator(compiled, false));
+		interpreted = new ProcessingDecorator(resolver);
+		interpreted.setCompiled(false);
+		interpreted.setRecursionEvaluator(new TaggedStringEvaluator(interpreted, false));
+	}
+
+	@TearDown
+	public void tearDown() {
+		ProcessingDecorator.setFormattingFunctors(null);
+	}
+}
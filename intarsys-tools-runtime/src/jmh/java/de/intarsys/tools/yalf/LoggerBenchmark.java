@@ -0,0 +1,88 @@
+package de.intarsys.tools.yalf;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.api.Level;
+import de.intarsys.tools.yalf.api.Yalf;
+import de.intarsys.tools.yalf.handler.IMemoryHandler;
+import de.intarsys.tools.yalf.handler.IMemoryHandlerFactory;
+
+/**
+ * Compare disabled and enabled logging statements with fixed arity and varargs
+ * arguments.
+ * 
+ * The enabled logger writes to a memory handler, without parent handlers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoggerBenchmark {
+
+	private ILogger disabled;
+
+	private ILogger enabled;
+
+	private IMemoryHandler handler;
+
+	private Integer value = 4711;
+
+	@Benchmark
+	public void disabledFixed() {
+		disabled.debug("value {} of {}", value, "name");
+	}
+
+	@Benchmark
+	public boolean disabledGuard() {
+		return disabled.isLoggable(Level.DEBUG);
+	}
+
+	@Benchmark
+	public void disabledVarargs() {
+		disabled.debug("value {} of {} in {}", value, "name", "scope", "context", "more");
+	}
+
+	@Benchmark
+	public void enabledFixed() {
+		enabled.info("value {} of {}", value, "name");
+	}
+
+	@Benchmark
+	public void enabledVarargs() {
+		enabled.info("value {} of {} in {}", value, "name", "scope", "context", "more");
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		disabled = Yalf.get().getLogger("benchmark.disabled");
+		disabled.setLevel(Level.INFO);
+		IMemoryHandlerFactory factory = (IMemoryHandlerFactory) Yalf.get().getFactory(IMemoryHandler.class);
+		factory.setSize(16);
+		handler = (IMemoryHandler) factory.createHandler();
+		enabled = Yalf.get().getLogger("benchmark.enabled");
+		enabled.setLevel(Level.INFO);
+		enabled.addHandler(handler);
+		java.util.logging.Logger.getLogger("benchmark.enabled").setUseParentHandlers(false);
+	}
+
+	@TearDown
+	public void tearDown() {
+		enabled.removeHandler(handler);
+	}
+}
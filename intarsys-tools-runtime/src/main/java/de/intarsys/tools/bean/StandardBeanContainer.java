@@ -29,7 +29,6 @@
  */
 package de.intarsys.tools.bean;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -40,6 +39,8 @@ import javax.annotation.PreDestroy;
 
 import de.intarsys.tools.collection.ReverseListIterator;
 import de.intarsys.tools.proxy.IProxy;
+import de.intarsys.tools.reflect.ClassAccessors;
+import de.intarsys.tools.reflect.MemberAccessor;
 import de.intarsys.tools.yalf.api.ILogger;
 import de.intarsys.tools.yalf.api.Level;
 
@@ -138,15 +139,12 @@ public class StandardBeanContainer implements IBeanContainer {
 	}
 
 	protected void shutdown(Object object) {
-		Class clazz = object.getClass();
-		Method[] methods = clazz.getMethods();
-		for (Method method : methods) {
-			if (method.getAnnotation(PreDestroy.class) != null) {
-				try {
-					method.invoke(object);
-				} catch (Exception e) {
-					Log.log(Level.WARN, "exception when shutting down", e);
-				}
+		MemberAccessor[] accessors = ClassAccessors.get(object.getClass()).getMethodsAnnotatedWith(PreDestroy.class);
+		for (MemberAccessor accessor : accessors) {
+			try {
+				accessor.invoke(object);
+			} catch (Exception e) {
+				Log.log(Level.WARN, "exception when shutting down", e);
 			}
 		}
 	}
@@ -41,8 +41,13 @@ import de.intarsys.tools.component.ISynchronizable;
  * <p>
  * The cache strategy depends on the samples taken in the CacheEntry.
  * </p>
+ * 
+ * <p>
+ * All access is serialized and eviction is linear in the cache size. Use
+ * {@link ConcurrentCache} for larger caches shared among threads.
+ * </p>
  */
-public class Cache<T> implements ISynchronizable {
+public class Cache<T> implements ICache<T>, ISynchronizable {
 
 	/** Map for associative access to elements */
 	private final Map<Object, CacheEntry<T>> map = new HashMap<>();
@@ -68,6 +73,7 @@ public class Cache<T> implements ISynchronizable {
 	 * Clear all entries in the cache.
 	 * 
 	 */
+	@Override
 	public synchronized void clear() {
 		map.clear();
 		for (int i = 0; i < ptr; i++) {
@@ -84,6 +90,7 @@ public class Cache<T> implements ISynchronizable {
 	 * 
 	 * @return The object with the key "key" or null.
 	 */
+	@Override
 	public synchronized T get(Object key) {
 		CacheEntry<T> result = map.get(key);
 		if (result != null) {
@@ -116,6 +123,7 @@ public class Cache<T> implements ISynchronizable {
 	 * @param value
 	 *            The value to put in the cache.
 	 */
+	@Override
 	public synchronized void put(Object key, T value) {
 		CacheEntry<T> entry = new CacheEntry<>(key, value);
 		if (ptr >= elements.length) {
@@ -130,6 +138,7 @@ public class Cache<T> implements ISynchronizable {
 	 * 
 	 * @param key
 	 */
+	@Override
 	public synchronized void remove(Object key) {
 		CacheEntry<T> entry = map.remove(key);
 		for (int i = 0; i < ptr; i++) {
@@ -162,6 +171,7 @@ public class Cache<T> implements ISynchronizable {
 	 * 
 	 * @return The actual size of the cache.
 	 */
+	@Override
 	public synchronized int size() {
 		return ptr;
 	}
@@ -0,0 +1,527 @@
+package de.intarsys.tools.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.intarsys.tools.component.ISynchronizable;
+
+/**
+ * A cache implementation for concurrent use. The cache supports "null"
+ * entries.
+ *
+ * <p>
+ * Lookup is done without locking in a {@link ConcurrentHashMap}. The
+ * replacement strategy is "least recently used", maintained in a number of
+ * segments, each with its own lock and a doubly linked list of entries. Adding,
+ * touching and evicting an entry is O(1). A lookup only reorders the LRU list if
+ * the segment lock is uncontended, so under heavy load the recency information
+ * is approximate, in favor of never blocking readers.
+ * </p>
+ *
+ * <p>
+ * The capacity is expressed as a "weight". By default each entry has the
+ * weight 1, use {@link #setWeigher(ICacheWeigher)} to change this. The capacity
+ * is distributed evenly among the segments.
+ * </p>
+ *
+ * <p>
+ * Entries may expire after a given time since their creation or their last
+ * access.
+ * </p>
+ *
+ * <p>
+ * As in {@link Cache}, values implementing {@link ISynchronizable} that are out
+ * of synch are removed upon lookup.
+ * </p>
+ *
+ * <p>
+ * Weigher and expiration should be configured before the cache is used.
+ * </p>
+ */
+public class ConcurrentCache<T> implements ICache<T>, ISynchronizable {
+
+	/**
+	 * An entry in the cache. A new node is created for each {@link #put}, so
+	 * key and value never change.
+	 */
+	protected static class Node<T> {
+
+		protected final Object key;
+
+		protected final T value;
+
+		protected final int weight;
+
+		protected final long writeTime;
+
+		protected volatile long accessTime;
+
+		protected Node<T> previous;
+
+		protected Node<T> next;
+
+		protected Node(Object key, T value, int weight, long now) {
+			super();
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.writeTime = now;
+			this.accessTime = now;
+		}
+
+		protected boolean isLinked() {
+			return next != null;
+		}
+	}
+
+	/**
+	 * A segment of the cache. All structural changes are performed while
+	 * holding the segment lock.
+	 */
+	protected class Segment {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/** sentinel node, head.next is the most, head.previous the least recently used */
+		private final Node<T> head = new Node<>(null, null, 0, 0);
+
+		private final long maxWeight;
+
+		private long weight;
+
+		protected Segment(long maxWeight) {
+			super();
+			this.maxWeight = maxWeight;
+			head.next = head;
+			head.previous = head;
+		}
+
+		protected void clear() {
+			lock.lock();
+			try {
+				Node<T> node = head.next;
+				while (node != head) {
+					Node<T> next = node.next;
+					map.remove(node.key, node);
+					node.previous = null;
+					node.next = null;
+					node = next;
+				}
+				head.next = head;
+				head.previous = head;
+				weight = 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		protected void evict(long now) {
+			// expired entries first, as long as they are in LRU order
+			Node<T> node = head.previous;
+			while (node != head && isExpired(node, now)) {
+				Node<T> previous = node.previous;
+				if (map.remove(node.key, node)) {
+					expirationCount.increment();
+				}
+				unlink(node);
+				node = previous;
+			}
+			while (weight > maxWeight && head.previous != head) {
+				node = head.previous;
+				map.remove(node.key, node);
+				unlink(node);
+				evictionCount.increment();
+			}
+		}
+
+		protected void linkFirst(Node<T> node) {
+			node.next = head.next;
+			node.previous = head;
+			head.next.previous = node;
+			head.next = node;
+			weight += node.weight;
+		}
+
+		protected void put(Node<T> node) {
+			lock.lock();
+			try {
+				Node<T> old = map.put(node.key, node);
+				if (old != null) {
+					unlink(old);
+				}
+				linkFirst(node);
+				evict(node.writeTime);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		protected void remove(Object key) {
+			lock.lock();
+			try {
+				Node<T> node = map.remove(key);
+				if (node != null) {
+					unlink(node);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		protected boolean remove(Node<T> node) {
+			lock.lock();
+			try {
+				if (map.remove(node.key, node)) {
+					unlink(node);
+					return true;
+				}
+				return false;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		protected void touch(Node<T> node) {
+			if (!lock.tryLock()) {
+				return;
+			}
+			try {
+				if (node.isLinked() && head.next != node) {
+					node.previous.next = node.next;
+					node.next.previous = node.previous;
+					node.next = head.next;
+					node.previous = head;
+					head.next.previous = node;
+					head.next = node;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		protected void unlink(Node<T> node) {
+			if (!node.isLinked()) {
+				return;
+			}
+			node.previous.next = node.next;
+			node.next.previous = node.previous;
+			node.previous = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+	}
+
+	private static final int MIN_SEGMENT_WEIGHT = 16;
+
+	private static final Object NULL_KEY = new Object();
+
+	private static final ICacheWeigher<Object> SINGLETON_WEIGHER = (key, value) -> 1;
+
+	private final ConcurrentHashMap<Object, Node<T>> map = new ConcurrentHashMap<>();
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	private final long maxWeight;
+
+	private ICacheWeigher<? super T> weigher = SINGLETON_WEIGHER;
+
+	private long expireAfterWriteNanos;
+
+	private long expireAfterAccessNanos;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder expirationCount = new LongAdder();
+
+	/**
+	 * Create a cache with a maximum weight of maxWeight. With the default
+	 * weigher this is the maximum number of elements held in the cache.
+	 *
+	 * @param maxWeight
+	 *            The maximum weight of all elements held in the cache.
+	 */
+	public ConcurrentCache(long maxWeight) {
+		this(maxWeight, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a cache with a maximum weight of maxWeight, expecting about
+	 * concurrencyLevel threads modifying the cache at the same time.
+	 *
+	 * @param maxWeight
+	 *            The maximum weight of all elements held in the cache.
+	 * @param concurrencyLevel
+	 *            The estimated number of concurrently modifying threads.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentCache(long maxWeight, int concurrencyLevel) {
+		super();
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("maxWeight must not be negative");
+		}
+		this.maxWeight = maxWeight;
+		long limit = Math.max(1, Math.min(concurrencyLevel, maxWeight / MIN_SEGMENT_WEIGHT));
+		int count = 1;
+		while (count * 2L <= limit && count < (1 << 16)) {
+			count *= 2;
+		}
+		segments = new ConcurrentCache.Segment[count];
+		segmentMask = count - 1;
+		long segmentWeight = maxWeight / count;
+		long remainder = maxWeight % count;
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(segmentWeight + (i < remainder ? 1 : 0));
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public T get(Object key) {
+		Object mapKey = maskNull(key);
+		Node<T> node = map.get(mapKey);
+		if (node == null) {
+			missCount.increment();
+			return null;
+		}
+		Segment segment = segmentFor(mapKey);
+		long now = 0;
+		if (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0) {
+			now = now();
+			if (isExpired(node, now)) {
+				if (segment.remove(node)) {
+					// not yet counted by a concurrent eviction
+					expirationCount.increment();
+				}
+				missCount.increment();
+				return null;
+			}
+		}
+		if (node.value instanceof ISynchronizable && ((ISynchronizable) node.value).isOutOfSynch()) {
+			segment.remove(node);
+			missCount.increment();
+			return null;
+		}
+		if (expireAfterAccessNanos > 0) {
+			node.accessTime = now;
+		}
+		segment.touch(node);
+		hitCount.increment();
+		return node.value;
+	}
+
+	/**
+	 * The number of entries removed because of their expiration.
+	 *
+	 * @return The number of entries removed because of their expiration.
+	 */
+	public long getExpirationCount() {
+		return expirationCount.sum();
+	}
+
+	/**
+	 * The time in milliseconds after its last access when an entry expires or
+	 * 0.
+	 *
+	 * @return The time after its last access when an entry expires.
+	 */
+	public long getExpireAfterAccess() {
+		return TimeUnit.NANOSECONDS.toMillis(expireAfterAccessNanos);
+	}
+
+	/**
+	 * The time in milliseconds after its creation when an entry expires or 0.
+	 *
+	 * @return The time after its creation when an entry expires.
+	 */
+	public long getExpireAfterWrite() {
+		return TimeUnit.NANOSECONDS.toMillis(expireAfterWriteNanos);
+	}
+
+	/**
+	 * The number of entries removed to keep the cache weight within its
+	 * limit.
+	 *
+	 * @return The number of entries removed to keep the cache weight within
+	 *         its limit.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * The number of lookups that found a valid entry.
+	 *
+	 * @return The number of lookups that found a valid entry.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * The ratio of successful lookups, 1.0 if there was no lookup yet.
+	 *
+	 * @return The ratio of successful lookups.
+	 */
+	public double getHitRatio() {
+		long hits = hitCount.sum();
+		long total = hits + missCount.sum();
+		return total == 0 ? 1.0 : (double) hits / total;
+	}
+
+	/**
+	 * The maximum weight of all entries in the cache.
+	 *
+	 * @return The maximum weight of all entries in the cache.
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * The number of lookups that did not find a valid entry.
+	 *
+	 * @return The number of lookups that did not find a valid entry.
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * The current weight of all entries in the cache.
+	 *
+	 * @return The current weight of all entries in the cache.
+	 */
+	public long getWeight() {
+		long result = 0;
+		for (Segment segment : segments) {
+			segment.lock.lock();
+			try {
+				result += segment.weight;
+			} finally {
+				segment.lock.unlock();
+			}
+		}
+		return result;
+	}
+
+	public ICacheWeigher<? super T> getWeigher() {
+		return weigher;
+	}
+
+	protected boolean isExpired(Node<T> node, long now) {
+		if (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos) {
+			return true;
+		}
+		return expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos;
+	}
+
+	@Override
+	public boolean isOutOfSynch() {
+		return false;
+	}
+
+	protected Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+	/**
+	 * The current time in nanoseconds, as used for expiration.
+	 *
+	 * @return The current time in nanoseconds.
+	 */
+	protected long now() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void put(Object key, T value) {
+		Object mapKey = maskNull(key);
+		Segment segment = segmentFor(mapKey);
+		int weight = weigher.weigh(key, value);
+		if (weight < 0) {
+			throw new IllegalArgumentException("weight must not be negative");
+		}
+		if (weight > segment.maxWeight) {
+			// would evict everything including itself
+			segment.remove(mapKey);
+			return;
+		}
+		segment.put(new Node<>(mapKey, value, weight, now()));
+	}
+
+	@Override
+	public void remove(Object key) {
+		Object mapKey = maskNull(key);
+		segmentFor(mapKey).remove(mapKey);
+	}
+
+	/**
+	 * Reset the hit, miss, eviction and expiration counters.
+	 */
+	public void resetStatistics() {
+		hitCount.reset();
+		missCount.reset();
+		evictionCount.reset();
+		expirationCount.reset();
+	}
+
+	protected Segment segmentFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return segments[hash & segmentMask];
+	}
+
+	/**
+	 * Set the time after its last access when an entry expires. 0 disables
+	 * expiration after access.
+	 *
+	 * @param duration
+	 * @param unit
+	 */
+	public void setExpireAfterAccess(long duration, TimeUnit unit) {
+		this.expireAfterAccessNanos = unit.toNanos(duration);
+	}
+
+	/**
+	 * Set the time after its creation when an entry expires. 0 disables
+	 * expiration after write.
+	 *
+	 * @param duration
+	 * @param unit
+	 */
+	public void setExpireAfterWrite(long duration, TimeUnit unit) {
+		this.expireAfterWriteNanos = unit.toNanos(duration);
+	}
+
+	public void setWeigher(ICacheWeigher<? super T> weigher) {
+		this.weigher = weigher == null ? SINGLETON_WEIGHER : weigher;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public void synch() {
+		for (Node<T> node : map.values()) {
+			if (node.value instanceof ISynchronizable) {
+				((ISynchronizable) node.value).synch();
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package de.intarsys.tools.cache;
+
+/**
+ * A keyed cache for values of type T.
+ * 
+ * <p>
+ * Implementations may discard entries at any time according to their strategy.
+ * Values implementing {@link de.intarsys.tools.component.ISynchronizable} that
+ * report being out of synch are never returned, they are removed upon lookup.
+ * </p>
+ */
+public interface ICache<T> {
+
+	/**
+	 * Clear all entries in the cache.
+	 */
+	public void clear();
+
+	/**
+	 * The object with the key "key" or null.
+	 * 
+	 * @param key
+	 *            The key to be used for looking up the cache.
+	 * 
+	 * @return The object with the key "key" or null.
+	 */
+	public T get(Object key);
+
+	/**
+	 * Store the object "value" with the key "key" in the cache.
+	 * 
+	 * @param key
+	 *            The key to use for storing the object
+	 * @param value
+	 *            The value to put in the cache.
+	 */
+	public void put(Object key, T value);
+
+	/**
+	 * Remove an object from the cache.
+	 * 
+	 * @param key
+	 */
+	public void remove(Object key);
+
+	/**
+	 * The actual size of the cache.
+	 * 
+	 * @return The actual size of the cache.
+	 */
+	public int size();
+
+}
@@ -0,0 +1,20 @@
+package de.intarsys.tools.cache;
+
+/**
+ * Compute the weight of a cache entry. The weight is used by
+ * {@link ConcurrentCache} to decide if the cache capacity is exhausted.
+ */
+@FunctionalInterface
+public interface ICacheWeigher<T> {
+
+	/**
+	 * The weight of the entry with key and value. The weight must not be
+	 * negative and should not change while the entry is cached.
+	 * 
+	 * @param key
+	 * @param value
+	 * @return The weight of the entry.
+	 */
+	public int weigh(Object key, T value);
+
+}
@@ -1,17 +1,35 @@
 package de.intarsys.tools.component;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import de.intarsys.tools.component.TimingWheel.Entry;
 import de.intarsys.tools.concurrent.ThreadTools;
 import de.intarsys.tools.yalf.api.ILogger;
 
 /**
  * A tool component that will keep an eye on owners resources and detect
  * expiration conditions.
- * 
+ * <p>
+ * Resources registered using {@link #schedule(IExpirationSupport)} are kept
+ * in a {@link TimingWheel} by their {@link IExpirationSupport#getExpirationTime()}
+ * and examined only when due. The owner should report {@link #touch(IExpirationSupport)}
+ * and {@link #cancel(IExpirationSupport)} for these resources. A touch
+ * postponing the expiration is handled lazily when the old expiration time is
+ * reached. Resources with an unknown expiration time are polled in every
+ * cleanup, all resources of the owner are polled as long as the owner holds
+ * resources that are not scheduled.
+ * <p>
+ * The wheel advances once per cleanup interval, so a resource is expired at
+ * most about one interval late. The lag is available from
+ * {@link #getExpiryLagMax()} and {@link #getExpiryLagAverage()}.
+ *
  */
 public class ExpirationWatchdog {
 
@@ -35,22 +53,113 @@ public class ExpirationWatchdog {
 
 	private long cleanupInterval = 60000;
 
+	private TimingWheel<IExpirationSupport> wheel;
+
+	private final Map<IExpirationSupport, Entry<IExpirationSupport>> scheduled = new ConcurrentHashMap<>();
+
+	private final Set<IExpirationSupport> polled = ConcurrentHashMap.newKeySet();
+
+	private long examinedCount;
+
+	private long expiredCount;
+
+	private long lagCount;
+
+	private long lagTotal;
+
+	private long lagMax;
+
 	public ExpirationWatchdog(IResourceHolder owner) {
 		this.owner = owner;
+		this.wheel = new TimingWheel<>(cleanupInterval, System.currentTimeMillis());
+	}
+
+	protected void basicSchedule(Entry<IExpirationSupport> entry, long now) {
+		IExpirationSupport resource = entry.getItem();
+		long time = resource.getExpirationTime();
+		if (time == IExpirationSupport.EXPIRES_UNKNOWN) {
+			wheel.remove(entry);
+			polled.add(resource);
+			return;
+		}
+		polled.remove(resource);
+		if (time == IExpirationSupport.EXPIRES_NEVER) {
+			wheel.remove(entry);
+			return;
+		}
+		wheel.schedule(entry, Math.max(time, now));
+	}
+
+	/**
+	 * Remove a resource registered with {@link #schedule(IExpirationSupport)}.
+	 *
+	 * @param resource
+	 * @return true if the resource was scheduled
+	 */
+	public boolean cancel(IExpirationSupport resource) {
+		synchronized (lock) {
+			Entry<IExpirationSupport> entry = scheduled.remove(resource);
+			if (entry == null) {
+				return false;
+			}
+			wheel.remove(entry);
+			polled.remove(resource);
+			return true;
+		}
+	}
+
+	protected void check(IExpirationSupport resource, long deadline, long now) {
+		synchronized (lock) {
+			examinedCount++;
+		}
+		if (resource.isExpired()) {
+			if (!cancel(resource)) {
+				// canceled concurrently
+				return;
+			}
+			if (deadline != IExpirationSupport.EXPIRES_UNKNOWN) {
+				long lag = Math.max(0, now - deadline);
+				synchronized (lock) {
+					lagCount++;
+					lagTotal += lag;
+					lagMax = Math.max(lagMax, lag);
+				}
+			}
+			expire(resource);
+			return;
+		}
+		synchronized (lock) {
+			Entry<IExpirationSupport> entry = scheduled.get(resource);
+			if (entry != null) {
+				basicSchedule(entry, now);
+			}
+		}
 	}
 
 	protected void cleanup() {
 		try {
 			Log.debug("expiration watchdog cleanup");
-			List<IExpirationSupport> tempResources = getOwner().getResources();
-			for (IExpirationSupport resource : tempResources) {
-				if (resource.isExpired()) {
-					Log.debug("expiration watchdog expire {}", resource);
-					try {
-						getOwner().expire(resource);
-					} catch (Throwable e) {
-						// do not let the cleanup die...
-						Log.warn("expiration watchdog cleanup failed", e);
+			long now = System.currentTimeMillis();
+			List<Entry<IExpirationSupport>> due = new ArrayList<>();
+			synchronized (lock) {
+				wheel.advance(now, due);
+			}
+			for (Entry<IExpirationSupport> entry : due) {
+				check(entry.getItem(), entry.getDeadline(), now);
+			}
+			for (IExpirationSupport resource : polled) {
+				check(resource, IExpirationSupport.EXPIRES_UNKNOWN, now);
+			}
+			if (getOwner().getResourceCount() > scheduled.size()) {
+				// not all resources are scheduled, poll the others
+				for (IExpirationSupport resource : getOwner().getResources()) {
+					if (!scheduled.containsKey(resource)) {
+						synchronized (lock) {
+							examinedCount++;
+						}
+						if (resource.isExpired()) {
+							expire(resource);
+						}
 					}
 				}
 			}
@@ -61,16 +170,109 @@ public class ExpirationWatchdog {
 		}
 	}
 
+	protected void expire(IExpirationSupport resource) {
+		Log.debug("expiration watchdog expire {}", resource);
+		synchronized (lock) {
+			expiredCount++;
+		}
+		try {
+			getOwner().expire(resource);
+		} catch (Throwable e) {
+			// do not let the cleanup die...
+			Log.warn("expiration watchdog cleanup failed", e);
+		}
+	}
+
 	public long getCleanupInterval() {
 		return cleanupInterval;
 	}
 
+	/**
+	 * The number of resources examined for expiration.
+	 *
+	 * @return The number of resources examined
+	 */
+	public long getExaminedCount() {
+		synchronized (lock) {
+			return examinedCount;
+		}
+	}
+
+	/**
+	 * The number of resources expired.
+	 *
+	 * @return The number of resources expired
+	 */
+	public long getExpiredCount() {
+		synchronized (lock) {
+			return expiredCount;
+		}
+	}
+
+	/**
+	 * The average time in milliseconds between the expiration time of a
+	 * scheduled resource and its actual expiration.
+	 *
+	 * @return The average expiry lag
+	 */
+	public long getExpiryLagAverage() {
+		synchronized (lock) {
+			return lagCount == 0 ? 0 : lagTotal / lagCount;
+		}
+	}
+
+	/**
+	 * The maximum time in milliseconds between the expiration time of a
+	 * scheduled resource and its actual expiration.
+	 *
+	 * @return The maximum expiry lag
+	 */
+	public long getExpiryLagMax() {
+		synchronized (lock) {
+			return lagMax;
+		}
+	}
+
 	public IResourceHolder getOwner() {
 		return owner;
 	}
 
+	/**
+	 * The number of resources registered with
+	 * {@link #schedule(IExpirationSupport)}.
+	 *
+	 * @return The number of scheduled resources
+	 */
+	public int getScheduledCount() {
+		return scheduled.size();
+	}
+
+	/**
+	 * Register a resource to be examined when its
+	 * {@link IExpirationSupport#getExpirationTime()} is reached.
+	 *
+	 * @param resource
+	 */
+	public void schedule(IExpirationSupport resource) {
+		synchronized (lock) {
+			Entry<IExpirationSupport> entry = scheduled.computeIfAbsent(resource, Entry::new);
+			basicSchedule(entry, System.currentTimeMillis());
+		}
+		wake();
+	}
+
 	public void setCleanupInterval(long cleanupInterval) {
-		this.cleanupInterval = cleanupInterval;
+		synchronized (lock) {
+			this.cleanupInterval = cleanupInterval;
+			TimingWheel<IExpirationSupport> oldWheel = wheel;
+			wheel = new TimingWheel<>(cleanupInterval, System.currentTimeMillis());
+			for (Entry<IExpirationSupport> entry : scheduled.values()) {
+				long deadline = entry.getDeadline();
+				if (oldWheel.remove(entry)) {
+					wheel.schedule(entry, deadline);
+				}
+			}
+		}
 		if (cleanupExecutor != null) {
 			stop();
 			start();
@@ -95,6 +297,31 @@ public class ExpirationWatchdog {
 		cleanupExecutor = null;
 	}
 
+	/**
+	 * Report a touch of a resource registered with
+	 * {@link #schedule(IExpirationSupport)}.
+	 * <p>
+	 * Only a touch advancing the expiration (like with {@link ExpireUsage})
+	 * requires rescheduling, this is the only case where a lock is acquired.
+	 *
+	 * @param resource
+	 */
+	public void touch(IExpirationSupport resource) {
+		Entry<IExpirationSupport> entry = scheduled.get(resource);
+		if (entry == null) {
+			return;
+		}
+		long time = resource.getExpirationTime();
+		if (time == IExpirationSupport.EXPIRES_UNKNOWN ? polled.contains(resource) : time >= entry.getDeadline()) {
+			return;
+		}
+		synchronized (lock) {
+			if (scheduled.get(resource) == entry) {
+				basicSchedule(entry, System.currentTimeMillis());
+			}
+		}
+	}
+
 	public void wake() {
 		synchronized (lock) {
 			if (getOwner().getResourceCount() == 0) {
@@ -25,6 +25,11 @@ public class ExpireAfter extends ExpirationPredicate {
 		return created;
 	}
 
+	@Override
+	public long getExpirationTime() {
+		return getCreated() + getExpireAfter();
+	}
+
 	public long getExpireAfter() {
 		return expireAfter;
 	}
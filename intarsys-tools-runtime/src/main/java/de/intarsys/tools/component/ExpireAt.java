@@ -19,6 +19,11 @@ public class ExpireAt extends ExpirationPredicate {
 		return new ExpireAt(getExpireAt());
 	}
 
+	@Override
+	public long getExpirationTime() {
+		return getExpireAt();
+	}
+
 	public long getExpireAt() {
 		return expireAt;
 	}
@@ -11,6 +11,11 @@ public class ExpireNever extends ExpirationPredicate {
 		return new ExpireNever();
 	}
 
+	@Override
+	public long getExpirationTime() {
+		return EXPIRES_NEVER;
+	}
+
 	@Override
 	public String getType() {
 		return "never";
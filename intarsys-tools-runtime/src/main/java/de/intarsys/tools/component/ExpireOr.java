@@ -27,6 +27,16 @@ public class ExpireOr extends ExpirationPredicate {
 		return new ExpireOr(op1.copy(), op2.copy());
 	}
 
+	@Override
+	public long getExpirationTime() {
+		long time1 = op1.getExpirationTime();
+		long time2 = op2.getExpirationTime();
+		if (time1 == EXPIRES_UNKNOWN || time2 == EXPIRES_UNKNOWN) {
+			return EXPIRES_UNKNOWN;
+		}
+		return Math.min(time1, time2);
+	}
+
 	public ExpirationPredicate getOp1() {
 		return op1;
 	}
@@ -24,6 +24,14 @@ public class ExpireTimeout extends ExpirationPredicate {
 		return new ExpireTimeout(getExpireAfter());
 	}
 
+	@Override
+	public long getExpirationTime() {
+		if (getExpireAfter() <= 0) {
+			return EXPIRES_NEVER;
+		}
+		return getTouched() + getExpireAfter();
+	}
+
 	public long getExpireAfter() {
 		return expireAfter;
 	}
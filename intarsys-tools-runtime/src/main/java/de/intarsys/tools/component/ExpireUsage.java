@@ -23,6 +23,12 @@ public class ExpireUsage extends ExpirationPredicate {
 		return new ExpireUsage(getExpireMax());
 	}
 
+	@Override
+	public long getExpirationTime() {
+		// usage changes only upon touch
+		return isExpired() ? 0 : EXPIRES_NEVER;
+	}
+
 	public int getExpireMax() {
 		return expireMax;
 	}
@@ -9,6 +9,32 @@ package de.intarsys.tools.component;
  */
 public interface IExpirationSupport {
 
+	/**
+	 * {@link #getExpirationTime()} of a resource that does not expire by time.
+	 */
+	public static final long EXPIRES_NEVER = Long.MAX_VALUE;
+
+	/**
+	 * {@link #getExpirationTime()} of a resource whose expiration can't be
+	 * predicted.
+	 */
+	public static final long EXPIRES_UNKNOWN = -1;
+
+	/**
+	 * The time in milliseconds after which this resource will be expired
+	 * unless it is touched again.
+	 * <p>
+	 * This is {@link #EXPIRES_NEVER} if the resource does not expire by time
+	 * (it may still expire upon {@link #touch()}) and {@link #EXPIRES_UNKNOWN}
+	 * if the time can't be predicted and the resource must be polled using
+	 * {@link #isExpired()}.
+	 * 
+	 * @return The expiration time in milliseconds
+	 */
+	public default long getExpirationTime() {
+		return EXPIRES_UNKNOWN;
+	}
+
 	/**
 	 * true if this resource is no longer valid (has expired).
 	 * 
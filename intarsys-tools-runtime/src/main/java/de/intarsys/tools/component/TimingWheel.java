@@ -0,0 +1,234 @@
+package de.intarsys.tools.component;
+
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel.
+ * <p>
+ * Entries are hashed into slots by their deadline, so that adding, removing
+ * and expiring an entry is O(1) regardless of the number of entries. Each of
+ * the {@link #LEVELS} wheels has {@link #SLOTS} slots, a slot of the first
+ * wheel spans one tick, a slot of the next wheel spans all slots of the
+ * previous one. Entries in the higher wheels are moved down when their slot
+ * is reached. Deadlines beyond the last wheel are parked in its farthest slot
+ * and rescheduled when reached.
+ * <p>
+ * This object is not thread safe.
+ *
+ * @param <T>
+ */
+public class TimingWheel<T> {
+
+	/**
+	 * An entry in a {@link TimingWheel}.
+	 *
+	 * @param <T>
+	 */
+	public static class Entry<T> {
+
+		private final T item;
+
+		private volatile long deadline = Long.MAX_VALUE;
+
+		private long deadlineTick;
+
+		private Entry<T> previous;
+
+		private Entry<T> next;
+
+		private Entry<T>[] slots;
+
+		private int slot = -1;
+
+		public Entry(T item) {
+			this.item = item;
+		}
+
+		/**
+		 * The time in milliseconds this entry is due, {@link Long#MAX_VALUE}
+		 * if it is removed or was never scheduled.
+		 *
+		 * @return The deadline
+		 */
+		public long getDeadline() {
+			return deadline;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * true if the entry is currently scheduled in a {@link TimingWheel}.
+		 *
+		 * @return true if scheduled
+		 */
+		public boolean isScheduled() {
+			return slots != null;
+		}
+	}
+
+	public static final int SLOT_BITS = 6;
+
+	public static final int SLOTS = 1 << SLOT_BITS;
+
+	public static final int LEVELS = 4;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	private final long tickDuration;
+
+	private final Entry<T>[][] wheels;
+
+	private long currentTick;
+
+	private int size;
+
+	public TimingWheel(long tickDuration, long now) {
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("tick duration must be positive"); //$NON-NLS-1$
+		}
+		this.tickDuration = tickDuration;
+		this.wheels = new Entry[LEVELS][SLOTS];
+		this.currentTick = now / tickDuration;
+	}
+
+	/**
+	 * Advance the wheel to now and add all entries that became due to result.
+	 * The entries are no longer scheduled.
+	 *
+	 * @param now
+	 * @param result
+	 */
+	public void advance(long now, List<Entry<T>> result) {
+		long targetTick = now / tickDuration;
+		// the current tick is already processed
+		while (currentTick < targetTick) {
+			if (size == 0) {
+				currentTick = targetTick;
+				break;
+			}
+			currentTick++;
+			int index = (int) (currentTick & SLOT_MASK);
+			for (int level = 1; index == 0 && level < LEVELS; level++) {
+				index = (int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+				cascade(wheels[level], index);
+			}
+			Entry<T>[] slots = wheels[0];
+			index = (int) (currentTick & SLOT_MASK);
+			Entry<T> entry = slots[index];
+			while (entry != null) {
+				Entry<T> next = entry.next;
+				unlink(entry);
+				if (entry.deadlineTick > currentTick) {
+					// parked beyond the last wheel
+					link(entry, currentTick + 1);
+				} else {
+					result.add(entry);
+				}
+				entry = next;
+			}
+		}
+	}
+
+	protected void cascade(Entry<T>[] slots, int index) {
+		Entry<T> entry = slots[index];
+		while (entry != null) {
+			Entry<T> next = entry.next;
+			unlink(entry);
+			// the current tick is processed after cascading
+			link(entry, currentTick);
+			entry = next;
+		}
+	}
+
+	public long getTickDuration() {
+		return tickDuration;
+	}
+
+	protected void link(Entry<T> entry, long minTick) {
+		long tick = Math.max(entry.deadlineTick, minTick);
+		long delta = tick - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * SLOT_BITS)) {
+			level++;
+		}
+		if (level == LEVELS - 1 && delta >= 1L << (LEVELS * SLOT_BITS)) {
+			tick = currentTick + (1L << (LEVELS * SLOT_BITS)) - 1;
+		}
+		Entry<T>[] slots = wheels[level];
+		int index = (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+		Entry<T> head = slots[index];
+		entry.previous = null;
+		entry.next = head;
+		if (head != null) {
+			head.previous = entry;
+		}
+		slots[index] = entry;
+		entry.slots = slots;
+		entry.slot = index;
+		size++;
+	}
+
+	/**
+	 * Remove entry from the wheel.
+	 *
+	 * @param entry
+	 * @return true if the entry was scheduled
+	 */
+	public boolean remove(Entry<T> entry) {
+		entry.deadline = Long.MAX_VALUE;
+		if (!entry.isScheduled()) {
+			return false;
+		}
+		unlink(entry);
+		return true;
+	}
+
+	/**
+	 * Schedule entry at deadline (in milliseconds). An entry already
+	 * scheduled is moved. Deadlines not after the current tick are due with
+	 * the next tick.
+	 *
+	 * @param entry
+	 * @param deadline
+	 */
+	public void schedule(Entry<T> entry, long deadline) {
+		if (entry.isScheduled()) {
+			unlink(entry);
+		}
+		entry.deadline = deadline;
+		// round up, the entry must not be due before its deadline
+		long tick = deadline / tickDuration;
+		if (tick * tickDuration < deadline) {
+			tick++;
+		}
+		entry.deadlineTick = tick;
+		link(entry, currentTick + 1);
+	}
+
+	/**
+	 * The number of scheduled entries.
+	 *
+	 * @return The number of scheduled entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	protected void unlink(Entry<T> entry) {
+		if (entry.previous == null) {
+			entry.slots[entry.slot] = entry.next;
+		} else {
+			entry.previous.next = entry.next;
+		}
+		if (entry.next != null) {
+			entry.next.previous = entry.previous;
+		}
+		entry.previous = null;
+		entry.next = null;
+		entry.slots = null;
+		entry.slot = -1;
+		size--;
+	}
+}
@@ -30,10 +30,12 @@
 package de.intarsys.tools.converter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Double dispatch converter.
@@ -42,12 +44,15 @@ import java.util.Map;
  * {@link IConverter} that bundles all {@link IConverter} instances that can
  * create a dedicated target type. Amongst the sub-converters the one is
  * selected that most closely supports the source object type.
+ * <p>
+ * The converters applicable to a source class are cached, the cache is
+ * discarded when a converter is registered or unregistered.
  */
 public class DoubleDispatchConverter implements IConverter<Object, Object> {
 
-	private final Map<Class, List<IConverter>> registeredConverters = new HashMap<>();
+	private final Map<Class, List<IConverter>> registeredConverters = new ConcurrentHashMap<>();
 
-	private final Map<Class, List<IConverter>> cachedConverters = new HashMap<>();
+	private volatile Map<Class, List<IConverter>> cachedConverters = new ConcurrentHashMap<>();
 
 	private final Class targetType;
 
@@ -57,17 +62,21 @@ public class DoubleDispatchConverter implements IConverter<Object, Object> {
 	}
 
 	protected List<IConverter> computeConverters(Class clazz, ArrayList list) {
+		return computeConverters(cachedConverters, clazz, list);
+	}
+
+	protected List<IConverter> computeConverters(Map<Class, List<IConverter>> cache, Class clazz, ArrayList list) {
 		List<IConverter> result = registeredConverters.get(clazz);
 		if (result != null) {
 			list.addAll(result);
 		}
 		java.lang.Class<?>[] interfaces = clazz.getInterfaces();
 		for (int i = 0; i < interfaces.length; i++) {
-			list.addAll(lookupConverters(interfaces[i]));
+			list.addAll(lookupConverters(cache, interfaces[i]));
 		}
 		java.lang.Class<?> superClass = clazz.getSuperclass();
 		if (superClass != null) {
-			list.addAll(lookupConverters(superClass));
+			list.addAll(lookupConverters(cache, superClass));
 		}
 		list.sort(new Comparator<IConverter>() {
 			@Override
@@ -75,7 +84,7 @@ public class DoubleDispatchConverter implements IConverter<Object, Object> {
 				return o1.getPriority() - o2.getPriority();
 			}
 		});
-		return list;
+		return Collections.unmodifiableList(list);
 	}
 
 	@Override
@@ -104,6 +113,17 @@ public class DoubleDispatchConverter implements IConverter<Object, Object> {
 		return null;
 	}
 
+	/**
+	 * The converters applicable to instances of clazz, in the order they are
+	 * tried.
+	 *
+	 * @param clazz
+	 * @return The converters applicable to instances of clazz
+	 */
+	public List<IConverter> getConverters(Class<?> clazz) {
+		return lookupConverters(cachedConverters, clazz);
+	}
+
 	@Override
 	public Class<?> getSourceType() {
 		return Object.class;
@@ -114,25 +134,32 @@ public class DoubleDispatchConverter implements IConverter<Object, Object> {
 		return targetType;
 	}
 
-	private List<IConverter> lookupConverters(Class<?> clazz) {
-		List<IConverter> result = cachedConverters.get(clazz); // NOSONAR recursive!
+	private List<IConverter> lookupConverters(Map<Class, List<IConverter>> cache, Class<?> clazz) {
+		List<IConverter> result = cache.get(clazz); // NOSONAR recursive!
 		if (result == null) {
-			result = computeConverters(clazz, new ArrayList<>());
-			cachedConverters.put(clazz, result);
+			result = computeConverters(cache, clazz, new ArrayList<>());
+			// a cache discarded meanwhile is not used any longer
+			cache.put(clazz, result);
 		}
 		return result;
 	}
 
 	protected List<IConverter> lookupConverters(Object source) {
 		Class<?> clazz = (source == null) ? Undefined.class : source.getClass();
-		return lookupConverters(clazz);
+		return getConverters(clazz);
 	}
 
-	public void registerConverter(IConverter converter) {
-		registeredConverters.computeIfAbsent(converter.getSourceType(), c -> new ArrayList<>()).add(converter);
+	public synchronized void registerConverter(IConverter converter) {
+		registeredConverters.computeIfAbsent(converter.getSourceType(), c -> new CopyOnWriteArrayList<>())
+				.add(converter);
+		cachedConverters = new ConcurrentHashMap<>();
 	}
 
-	public void unregisterConverter(IConverter converter) {
-		registeredConverters.computeIfAbsent(converter.getSourceType(), c -> new ArrayList<>()).remove(converter);
+	public synchronized void unregisterConverter(IConverter converter) {
+		List<IConverter> list = registeredConverters.get(converter.getSourceType());
+		if (list != null) {
+			list.remove(converter);
+		}
+		cachedConverters = new ConcurrentHashMap<>();
 	}
 }
@@ -31,21 +31,76 @@ package de.intarsys.tools.converter;
 
 import static de.intarsys.tools.converter.PACKAGE.Log;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.intarsys.tools.exception.ExceptionTools;
 import de.intarsys.tools.provider.Providers;
 
 /**
  * Standard {@link IConverterRegistry} implementation.
+ * <p>
+ * For each combination of source class and target type a {@link Plan} is
+ * computed once: the converters to try, the detour via {@link Canonical} or
+ * the fact that there is no conversion at all. Conversion is a lookup of the
+ * plan without locking. The plans are discarded when converters are
+ * registered or unregistered.
  */
 public class StandardConverterRegistry implements IConverterRegistry {
 
-	private final Map<Class, IConverter> converters = new HashMap<>();
+	/**
+	 * The conversion of a source class to a target type.
+	 */
+	protected static class Plan {
 
-	private boolean initialized;
+		/**
+		 * The converters tried in order, the first result that is not null
+		 * wins.
+		 */
+		protected final IConverter[] converters;
+
+		/**
+		 * If not null convert to {@link Canonical} first using this plan, then
+		 * convert the result to the target type.
+		 */
+		protected final Plan canonical;
+
+		/**
+		 * true if a failure of the conversion from {@link Canonical} is
+		 * wrapped.
+		 */
+		protected final boolean wrap;
+
+		/**
+		 * true if there is no conversion
+		 */
+		protected final boolean failed;
+
+		protected Plan(IConverter[] converters, Plan canonical, boolean wrap, boolean failed) {
+			this.converters = converters;
+			this.canonical = canonical;
+			this.wrap = wrap;
+			this.failed = failed;
+		}
+	}
+
+	private static final IConverter[] NO_CONVERTERS = new IConverter[0];
+
+	private static final Plan NOT_CONVERTIBLE = new Plan(NO_CONVERTERS, null, false, true);
+
+	private final Map<Class, DoubleDispatchConverter> converters = new ConcurrentHashMap<>();
+
+	/**
+	 * The plans by target type and source class, replaced when the converters
+	 * change.
+	 */
+	private volatile Map<Class, Map<Class, Plan>> plans = new ConcurrentHashMap<>();
+
+	private volatile boolean initialized;
+
+	private boolean initializing;
 
 	private boolean lookupProviders = true;
 
@@ -61,70 +116,141 @@ public class StandardConverterRegistry implements IConverterRegistry {
 		if (targetType.isInstance(source)) {
 			return (T) source;
 		}
-		IConverter converter = lookupConverter(targetType);
-		if (converter == null) {
-			Object canonical = ConverterRegistry.get().convert(source, Canonical.class);
-			if (canonical == source) {
-				// break recursion
-				throw new ConversionException("can't convert " + source.getClass().getName() + " to " + targetType);
+		return (T) convert(source, targetType, getPlan(source.getClass(), targetType));
+	}
+
+	protected Object convert(Object source, Class targetType, Plan plan) throws ConversionException {
+		if (plan.failed) {
+			throw new ConversionException("can't convert " + source.getClass().getName() + " to " + targetType);
+		}
+		if (plan.canonical == null) {
+			for (IConverter converter : plan.converters) {
+				Object result = converter.convert(source);
+				if (result != null) {
+					return result;
+				}
 			}
-			try {
-				return ConverterRegistry.get().convert(canonical, targetType);
-			} catch (ConversionException e) {
-				throw new ConversionException("can't convert " + source.getClass().getName() + " to " + targetType, e);
+			return null;
+		}
+		Object canonical = convert(source, Canonical.class, plan.canonical);
+		if (canonical == source) {
+			// break recursion
+			throw new ConversionException("can't convert " + source.getClass().getName() + " to " + targetType);
+		}
+		if (!plan.wrap) {
+			return convert(canonical, targetType);
+		}
+		try {
+			return convert(canonical, targetType);
+		} catch (ConversionException e) {
+			throw new ConversionException("can't convert " + source.getClass().getName() + " to " + targetType, e);
+		}
+	}
+
+	protected Plan createPlan(Class sourceClass, Class targetType) {
+		DoubleDispatchConverter converter = converters.get(targetType);
+		if (converter != null) {
+			List<IConverter> list = converter.getConverters(sourceClass);
+			if (!list.isEmpty()) {
+				return new Plan(list.toArray(NO_CONVERTERS), null, false, false);
 			}
 		}
-		return (T) converter.convert(source);
+		if (targetType == Canonical.class || Canonical.class.isAssignableFrom(sourceClass)) {
+			return NOT_CONVERTIBLE;
+		}
+		Plan canonical = getPlan(sourceClass, Canonical.class);
+		if (canonical.failed) {
+			return NOT_CONVERTIBLE;
+		}
+		return new Plan(NO_CONVERTERS, canonical, converter == null, false);
 	}
 
 	protected Iterator<IConverter> findProviders() {
 		return Providers.get().lookupProviders(IConverter.class);
 	}
 
+	protected Plan getPlan(Class sourceClass, Class targetType) {
+		init();
+		Map<Class, Map<Class, Plan>> tempPlans = plans;
+		Map<Class, Plan> bySource = tempPlans.get(targetType);
+		if (bySource == null) {
+			bySource = tempPlans.computeIfAbsent(targetType, key -> new ConcurrentHashMap<>());
+		}
+		Plan plan = bySource.get(sourceClass);
+		if (plan == null) {
+			plan = createPlan(sourceClass, targetType);
+			// a map discarded meanwhile is not used any longer
+			Plan previous = bySource.putIfAbsent(sourceClass, plan);
+			if (previous != null) {
+				plan = previous;
+			}
+		}
+		return plan;
+	}
+
 	protected void init() {
-		if (!isLookupProviders() || initialized) {
+		if (initialized || !isLookupProviders()) {
 			return;
 		}
-		initialized = true;
-		Iterator<IConverter> ps = findProviders();
-		while (ps.hasNext()) {
+		synchronized (this) {
+			// initializing is true in case of reentrant calls from providers
+			if (initialized || initializing) {
+				return;
+			}
+			initializing = true;
 			try {
-				registerConverter(ps.next());
-			} catch (Throwable t) {
-				/*
-				 * findProviders() filters classes that are not there, but
-				 * register might still fail because of dependencies
-				 */
-				Log.warn("error creating converter ({})", ExceptionTools.getMessage(t));
+				Iterator<IConverter> ps = findProviders();
+				while (ps.hasNext()) {
+					try {
+						registerConverter(ps.next());
+					} catch (Throwable t) {
+						/*
+						 * findProviders() filters classes that are not there,
+						 * but register might still fail because of dependencies
+						 */
+						Log.warn("error creating converter ({})", ExceptionTools.getMessage(t));
+					}
+				}
+			} finally {
+				initialized = true;
+				initializing = false;
 			}
 		}
 	}
 
+	protected void invalidatePlans() {
+		plans = new ConcurrentHashMap<>();
+	}
+
 	public boolean isLookupProviders() {
 		return lookupProviders;
 	}
 
 	@Override
-	public synchronized IConverter lookupConverter(Class targetType) {
+	public IConverter lookupConverter(Class targetType) {
 		init();
 		return converters.get(targetType);
 	}
 
 	@Override
 	public synchronized void registerConverter(IConverter converter) {
-		IConverter dd = converters.computeIfAbsent(converter.getTargetType(), c -> new DoubleDispatchConverter(c));
-		((DoubleDispatchConverter) dd).registerConverter(converter);
+		DoubleDispatchConverter dd = converters.computeIfAbsent(converter.getTargetType(),
+				c -> new DoubleDispatchConverter(c));
+		dd.registerConverter(converter);
+		invalidatePlans();
 	}
 
 	public void setLookupProviders(boolean lookupProviders) {
 		this.lookupProviders = lookupProviders;
+		invalidatePlans();
 	}
 
 	@Override
 	public synchronized void unregisterConverter(IConverter converter) {
-		IConverter tempConverter = converters.get(converter.getTargetType());
-		if (tempConverter != null) {
-			((DoubleDispatchConverter) tempConverter).unregisterConverter(converter);
+		DoubleDispatchConverter dd = converters.get(converter.getTargetType());
+		if (dd != null) {
+			dd.unregisterConverter(converter);
 		}
+		invalidatePlans();
 	}
 }
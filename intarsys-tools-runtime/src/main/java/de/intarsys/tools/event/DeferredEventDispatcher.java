@@ -1,7 +1,13 @@
 package de.intarsys.tools.event;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Pluggable helper object for management and dispatching of events. This
@@ -14,16 +20,122 @@ import java.util.List;
  * <p>
  * Events are forwarded upon "flush" to all listeners in the thread of the
  * caller.
- * 
+ * <p>
+ * In coalescing mode, {@link AttributeChangedEvent} instances for the same
+ * source and attribute are collapsed into a single event at the position of
+ * the first one, with the old value of the first and the new value of the last
+ * event.
+ * <p>
+ * The number of pending events may be limited using
+ * {@link #setCapacity(int)}, the {@link OverflowPolicy} defines what happens
+ * when the limit is reached.
+ * <p>
+ * {@link IBatchNotificationListener} instances receive all pending events of
+ * their type with a single call upon "flush", after the other listeners.
+ *
  */
 public class DeferredEventDispatcher implements INotificationListener, INotificationSupport {
 
-	private final List<Event> events = new ArrayList<>();
+	protected static class BatchSubscription {
+
+		protected final EventType type;
+
+		protected final IBatchNotificationListener listener;
+
+		protected BatchSubscription(EventType type, IBatchNotificationListener listener) {
+			this.type = type;
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * The source and attribute of an {@link AttributeChangedEvent}.
+	 */
+	protected static class Key {
+
+		private final Object source;
+
+		private final Object attribute;
+
+		private final int hash;
+
+		protected Key(Object source, Object attribute) {
+			this.source = source;
+			this.attribute = attribute;
+			this.hash = System.identityHashCode(source) * 31 + Objects.hashCode(attribute);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return source == other.source && Objects.equals(attribute, other.attribute);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * The behavior when an event is added to a full queue.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Forward the pending events in the thread of the caller, then queue
+		 * the event.
+		 */
+		FLUSH,
+		/**
+		 * Discard the oldest pending event.
+		 */
+		DROP_OLDEST,
+		/**
+		 * Discard the new event.
+		 */
+		DROP_NEWEST,
+		/**
+		 * Throw an {@link IllegalStateException}.
+		 */
+		FAIL
+	}
+
+	/**
+	 * A pending event.
+	 */
+	protected static class Slot {
+
+		protected final Key key;
+
+		protected Event event;
+
+		protected Slot(Key key, Event event) {
+			this.key = key;
+			this.event = event;
+		}
+	}
+
+	private ArrayDeque<Slot> events = new ArrayDeque<>();
+
+	private Map<Key, Slot> coalesced = new HashMap<>();
 
 	private final EventDispatcher dispatcher;
 
+	private final List<BatchSubscription> batchSubscriptions = new CopyOnWriteArrayList<>();
+
 	private final Object lock = new Object();
 
+	private boolean coalescing;
+
+	private int capacity;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.FLUSH;
+
+	private long droppedCount;
+
 	public DeferredEventDispatcher(EventDispatcher dispatcher) {
 		this.dispatcher = dispatcher;
 	}
@@ -34,33 +146,198 @@ public class DeferredEventDispatcher implements INotificationListener, INotifica
 
 	@Override
 	public void addNotificationListener(EventType type, INotificationListener listener) {
+		if (listener instanceof IBatchNotificationListener) {
+			batchSubscriptions.add(new BatchSubscription(type, (IBatchNotificationListener) listener));
+			return;
+		}
 		dispatcher.addNotificationListener(type, listener);
 	}
 
+	protected void coalesce(Slot slot, AttributeChangedEvent event) {
+		AttributeChangedEvent first = (AttributeChangedEvent) slot.event;
+		slot.event = new AttributeChangedEvent(first.getSource(), first.getAttribute(), first.getOldValue(),
+				event.getNewValue());
+	}
+
+	protected void deliver(List<Event> tempEvents) {
+		for (Event event : tempEvents) {
+			dispatcher.handleEvent(event);
+		}
+		for (BatchSubscription subscription : batchSubscriptions) {
+			List<Event> batch;
+			if (subscription.type == EventType.ALWAYS) {
+				batch = tempEvents;
+			} else {
+				batch = new ArrayList<>();
+				for (Event event : tempEvents) {
+					if (event.getEventType() == subscription.type) {
+						batch.add(event);
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				subscription.listener.handleEvents(batch);
+			}
+		}
+	}
+
+	protected void enqueue(Key key, Event event) {
+		Slot slot = new Slot(key, event);
+		events.addLast(slot);
+		if (key != null) {
+			coalesced.put(key, slot);
+		}
+	}
+
 	public void flush() {
-		List<Event> tempEvents;
+		ArrayDeque<Slot> tempSlots;
 		synchronized (lock) {
-			tempEvents = new ArrayList<>(events);
-			events.clear();
+			if (events.isEmpty()) {
+				return;
+			}
+			tempSlots = events;
+			events = new ArrayDeque<>();
+			if (!coalesced.isEmpty()) {
+				coalesced = new HashMap<>();
+			}
 		}
-		for (Event event : tempEvents) {
-			dispatcher.handleEvent(event);
+		List<Event> tempEvents = new ArrayList<>(tempSlots.size());
+		for (Slot slot : tempSlots) {
+			tempEvents.add(slot.event);
+		}
+		deliver(Collections.unmodifiableList(tempEvents));
+	}
+
+	/**
+	 * The maximum number of pending events, 0 for no limit.
+	 *
+	 * @return The maximum number of pending events
+	 */
+	public int getCapacity() {
+		synchronized (lock) {
+			return capacity;
+		}
+	}
+
+	/**
+	 * The number of events discarded by {@link OverflowPolicy#DROP_OLDEST} or
+	 * {@link OverflowPolicy#DROP_NEWEST}.
+	 *
+	 * @return The number of discarded events
+	 */
+	public long getDroppedCount() {
+		synchronized (lock) {
+			return droppedCount;
+		}
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		synchronized (lock) {
+			return overflowPolicy;
 		}
 	}
 
 	@Override
 	public void handleEvent(Event event) {
-		synchronized (lock) {
-			events.add(event);
+		while (true) {
+			synchronized (lock) {
+				Key key = null;
+				if (coalescing && event instanceof AttributeChangedEvent) {
+					AttributeChangedEvent changedEvent = (AttributeChangedEvent) event;
+					key = new Key(changedEvent.getSource(), changedEvent.getAttribute());
+					Slot slot = coalesced.get(key);
+					if (slot != null) {
+						coalesce(slot, changedEvent);
+						return;
+					}
+				}
+				if (capacity <= 0 || events.size() < capacity) {
+					enqueue(key, event);
+					return;
+				}
+				if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+					droppedCount++;
+					return;
+				}
+				if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+					Slot oldest = events.pollFirst();
+					if (oldest.key != null && coalesced.get(oldest.key) == oldest) {
+						coalesced.remove(oldest.key);
+					}
+					droppedCount++;
+					enqueue(key, event);
+					return;
+				}
+				if (overflowPolicy == OverflowPolicy.FAIL) {
+					throw new IllegalStateException("event queue full (" + capacity + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			// OverflowPolicy.FLUSH, deliver outside the lock and try again
+			flush();
 		}
 	}
 
 	public boolean hasListener() {
-		return dispatcher.hasListener();
+		return dispatcher.hasListener() || !batchSubscriptions.isEmpty();
+	}
+
+	/**
+	 * true if {@link AttributeChangedEvent} instances for the same source and
+	 * attribute are collapsed.
+	 *
+	 * @return true if change events are collapsed
+	 */
+	public boolean isCoalescing() {
+		synchronized (lock) {
+			return coalescing;
+		}
 	}
 
 	@Override
 	public void removeNotificationListener(EventType type, INotificationListener listener) {
+		if (listener instanceof IBatchNotificationListener) {
+			for (BatchSubscription subscription : batchSubscriptions) {
+				if (subscription.type == type && subscription.listener == listener) {
+					batchSubscriptions.remove(subscription);
+					return;
+				}
+			}
+			return;
+		}
 		dispatcher.removeNotificationListener(type, listener);
 	}
+
+	/**
+	 * The maximum number of pending events, 0 for no limit.
+	 *
+	 * @param capacity
+	 */
+	public void setCapacity(int capacity) {
+		synchronized (lock) {
+			this.capacity = capacity;
+		}
+	}
+
+	public void setCoalescing(boolean coalescing) {
+		synchronized (lock) {
+			this.coalescing = coalescing;
+		}
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		synchronized (lock) {
+			this.overflowPolicy = overflowPolicy;
+		}
+	}
+
+	/**
+	 * The number of pending events.
+	 *
+	 * @return The number of pending events
+	 */
+	public int size() {
+		synchronized (lock) {
+			return events.size();
+		}
+	}
 }
@@ -29,7 +29,10 @@
  */
 package de.intarsys.tools.event;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -37,6 +40,9 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * <p>
  * Events are forwarded immediately on "handleEvent" to all listeners in the
  * thread of the caller.
+ * <p>
+ * The listeners are indexed by {@link EventType}, the index is rebuilt lazily
+ * after the subscriptions changed.
  * 
  */
 public class EventDispatcher implements INotificationSupport, INotificationListener {
@@ -53,10 +59,39 @@ public class EventDispatcher implements INotificationSupport, INotificationListe
 		}
 	}
 
+	/**
+	 * The subscriptions for each {@link EventType} in subscription order,
+	 * including those for {@link EventType#ALWAYS}.
+	 */
+	static class Index {
+
+		protected final int version;
+
+		protected final Map<EventType, Subscription[]> byType;
+
+		protected final Subscription[] always;
+
+		public Index(int version, Map<EventType, Subscription[]> byType, Subscription[] always) {
+			super();
+			this.version = version;
+			this.byType = byType;
+			this.always = always;
+		}
+	}
+
+	private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
 	private final Object owner;
 
 	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
 
+	private volatile Index index;
+
+	/**
+	 * Incremented after each change of the subscriptions.
+	 */
+	private volatile int version;
+
 	public EventDispatcher(Object pOwner) {
 		super();
 		owner = pOwner;
@@ -69,6 +104,7 @@ public class EventDispatcher implements INotificationSupport, INotificationListe
 			throw new NullPointerException("listener may not be null");
 		}
 		subscriptions.add(new Subscription(type, listener));
+		invalidate();
 	}
 
 	/**
@@ -87,6 +123,27 @@ public class EventDispatcher implements INotificationSupport, INotificationListe
 	 */
 	public void clear() {
 		subscriptions.clear();
+		invalidate();
+	}
+
+	protected Index createIndex(int tempVersion) {
+		Map<EventType, List<Subscription>> byType = new HashMap<>();
+		List<Subscription> always = new ArrayList<>();
+		for (Subscription subscription : subscriptions) {
+			if (subscription.type == EventType.ALWAYS) {
+				always.add(subscription);
+				for (List<Subscription> list : byType.values()) {
+					list.add(subscription);
+				}
+			} else {
+				byType.computeIfAbsent(subscription.type, key -> new ArrayList<>(always)).add(subscription);
+			}
+		}
+		Map<EventType, Subscription[]> tempByType = new HashMap<>();
+		for (Map.Entry<EventType, List<Subscription>> entry : byType.entrySet()) {
+			tempByType.put(entry.getKey(), entry.getValue().toArray(NO_SUBSCRIPTIONS));
+		}
+		return new Index(tempVersion, tempByType, always.toArray(NO_SUBSCRIPTIONS));
 	}
 
 	/**
@@ -104,13 +161,29 @@ public class EventDispatcher implements INotificationSupport, INotificationListe
 		return owner;
 	}
 
+	protected Index getIndex() {
+		int tempVersion = version;
+		Index result = index;
+		if (result == null || result.version != tempVersion) {
+			result = createIndex(tempVersion);
+			index = result;
+		}
+		return result;
+	}
+
+	protected synchronized void invalidate() {
+		version++;
+	}
+
 	@Override
 	public void handleEvent(Event event) {
-		for (Subscription subscription : subscriptions) {
-			Object type = event.getEventType();
-			if (subscription.type == type || subscription.type == EventType.ALWAYS) {
-				subscription.listener.handleEvent(event);
-			}
+		if (subscriptions.isEmpty()) {
+			return;
+		}
+		Index tempIndex = getIndex();
+		Subscription[] matching = tempIndex.byType.getOrDefault(event.getEventType(), tempIndex.always);
+		for (Subscription subscription : matching) {
+			subscription.listener.handleEvent(event);
 		}
 	}
 
@@ -130,6 +203,7 @@ public class EventDispatcher implements INotificationSupport, INotificationListe
 				subscriptions.remove(subscription);
 			}
 		}
+		invalidate();
 	}
 
 	public int size() {
@@ -0,0 +1,25 @@
+package de.intarsys.tools.event;
+
+import java.util.List;
+
+/**
+ * An {@link INotificationListener} that is able to receive a sequence of
+ * events at once.
+ *
+ * <p>
+ * Event sources that collect events (like {@link DeferredEventDispatcher})
+ * deliver them in a single call to {@link #handleEvents(List)} instead of
+ * calling {@link #handleEvent(Event)} for each event.
+ * </p>
+ */
+public interface IBatchNotificationListener<T extends Event> extends INotificationListener<T> {
+
+	/**
+	 * Called when a sequence of events is delivered.
+	 *
+	 * @param events
+	 *            The events in the order of their occurrence. The list must
+	 *            not be modified.
+	 */
+	public void handleEvents(List<T> events);
+}
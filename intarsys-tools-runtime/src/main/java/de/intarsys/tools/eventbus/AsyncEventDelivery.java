@@ -0,0 +1,220 @@
+package de.intarsys.tools.eventbus;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.intarsys.tools.event.Event;
+import de.intarsys.tools.event.INotificationListener;
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.common.LogTools;
+
+/**
+ * Forward events to a listener using an {@link Executor}.
+ * <p>
+ * The events are queued in a bounded queue and delivered one after the other
+ * in the order they were received, at most one thread is delivering at a time.
+ * When the queue is full, the publishing thread is blocked until the listener
+ * catches up. A thread delivering events for any {@link AsyncEventDelivery} is
+ * never blocked, as this may dead lock the executor. Instead the
+ * {@link AsyncOverflowPolicy} applies, {@link AsyncOverflowPolicy#SPILL} queues
+ * the event beyond the capacity.
+ * 
+ */
+public class AsyncEventDelivery implements INotificationListener {
+
+	private static final ILogger Log = LogTools.getLogger(AsyncEventDelivery.class);
+
+	/**
+	 * The maximum number of events delivered by a single task, to give other
+	 * listeners a chance on a busy executor.
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/**
+	 * The delivery performed by the current thread, if any
+	 */
+	private static final ThreadLocal<AsyncEventDelivery> Delivering = new ThreadLocal<>();
+
+	private final INotificationListener listener;
+
+	private final Executor executor;
+
+	private final Deque<Event> queue = new ArrayDeque<>();
+
+	private final int capacity;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notFull = lock.newCondition();
+
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	private final AsyncOverflowPolicy overflowPolicy;
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	public AsyncEventDelivery(INotificationListener listener, Executor executor, int capacity) {
+		this(listener, executor, capacity, AsyncOverflowPolicy.SPILL);
+	}
+
+	public AsyncEventDelivery(INotificationListener listener, Executor executor, int capacity,
+			AsyncOverflowPolicy overflowPolicy) {
+		super();
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive"); //$NON-NLS-1$
+		}
+		this.listener = listener;
+		this.executor = executor;
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	protected void deliver() {
+		AsyncEventDelivery previous = Delivering.get();
+		Delivering.set(this);
+		try {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				Event event = poll();
+				if (event == null) {
+					break;
+				}
+				deliver(event);
+			}
+		} finally {
+			if (previous == null) {
+				Delivering.remove();
+			} else {
+				Delivering.set(previous);
+			}
+			scheduled.set(false);
+			if (getQueueSize() > 0) {
+				schedule();
+			}
+		}
+	}
+
+	protected void deliver(Event event) {
+		try {
+			listener.handleEvent(event);
+		} catch (RuntimeException e) {
+			Log.warn("event delivery failed", e);
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The number of events discarded by {@link AsyncOverflowPolicy#DROP_OLDEST}
+	 * or {@link AsyncOverflowPolicy#DROP_NEWEST}.
+	 * 
+	 * @return The number of discarded events
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public INotificationListener getListener() {
+		return listener;
+	}
+
+	public AsyncOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * The number of events waiting for delivery. This may exceed the capacity
+	 * with {@link AsyncOverflowPolicy#SPILL}.
+	 * 
+	 * @return The number of events waiting for delivery.
+	 */
+	public int getQueueSize() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		lock.lock();
+		try {
+			if (Delivering.get() == null) {
+				while (queue.size() >= capacity) {
+					notFull.await();
+				}
+				queue.add(event);
+			} else if (queue.size() < capacity) {
+				queue.add(event);
+			} else if (!overflow(event)) {
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} finally {
+			lock.unlock();
+		}
+		schedule();
+	}
+
+	/**
+	 * Handle an event published by a delivering thread while the queue is
+	 * full. This is called with the queue locked.
+	 * 
+	 * @param event
+	 * @return true if the event is queued
+	 */
+	protected boolean overflow(Event event) {
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			queue.poll();
+			droppedCount.incrementAndGet();
+			queue.add(event);
+			return true;
+		case DROP_NEWEST:
+			droppedCount.incrementAndGet();
+			return false;
+		case FAIL:
+			throw new IllegalStateException("event queue full"); //$NON-NLS-1$
+		default:
+			// keep the order, the single consumer catches up
+			queue.add(event);
+			return true;
+		}
+	}
+
+	protected Event poll() {
+		lock.lock();
+		try {
+			Event event = queue.poll();
+			if (event != null && queue.size() < capacity) {
+				notFull.signal();
+			}
+			return event;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	protected void schedule() {
+		if (!scheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::deliver);
+		} catch (RejectedExecutionException e) {
+			scheduled.set(false);
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package de.intarsys.tools.eventbus;
+
+/**
+ * The behavior of an {@link AsyncEventDelivery} when a thread delivering
+ * events publishes to a full queue. Other threads are blocked until the queue
+ * has room.
+ */
+public enum AsyncOverflowPolicy {
+	/**
+	 * Queue the event beyond the capacity, delivery order is kept.
+	 */
+	SPILL,
+	/**
+	 * Discard the oldest queued event.
+	 */
+	DROP_OLDEST,
+	/**
+	 * Discard the new event.
+	 */
+	DROP_NEWEST,
+	/**
+	 * Throw an {@link IllegalStateException} to the publisher.
+	 */
+	FAIL
+}
@@ -38,4 +38,12 @@ public interface IEventBus extends INotificationListener {
 	 */
 	public void unregister(INotificationSupport ns);
 
+	/**
+	 * Stop informing listener about notifications of {@link EventType} type.
+	 * 
+	 * @param type
+	 * @param listener
+	 */
+	public void unsubscribe(EventType type, INotificationListener listener);
+
 }
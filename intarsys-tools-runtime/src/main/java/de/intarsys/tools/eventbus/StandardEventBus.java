@@ -1,9 +1,16 @@
 package de.intarsys.tools.eventbus;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+import de.intarsys.tools.component.IIdentifiable;
+import de.intarsys.tools.concurrent.ThreadTools;
 import de.intarsys.tools.event.Event;
 import de.intarsys.tools.event.EventType;
 import de.intarsys.tools.event.INotificationListener;
@@ -11,10 +18,68 @@ import de.intarsys.tools.event.INotificationSupport;
 
 /**
  * A simple standard implementation for the {@link IEventBus}.
- * 
+ * <p>
+ * The subscriptions are indexed by {@link EventType} and source class. For
+ * each combination the matching subscriptions are computed once, subscriptions
+ * using {@link EventSourceId} are looked up by the id of the source. Other
+ * {@link EventSourcePredicate} implementations are still evaluated for each
+ * event. The index is rebuilt when subscriptions change, the predicates are
+ * expected not to change after subscription.
+ * <p>
+ * With {@link #subscribeAsync(EventSourcePredicate, EventType, INotificationListener)}
+ * events are delivered to the listener in order by the executor, using a
+ * bounded queue per subscription (see {@link AsyncEventDelivery}).
+ *
  */
 public class StandardEventBus implements IEventBus {
 
+	/**
+	 * The subscriptions relevant for events of a given type and source class.
+	 */
+	protected static class Route {
+
+		/**
+		 * The subscriptions independent of the source id, in subscription
+		 * order.
+		 */
+		protected final Target[] common;
+
+		/**
+		 * The subscriptions by source id, in subscription order.
+		 */
+		protected final Map<String, Target[]> byId;
+
+		protected Route(Target[] common, Map<String, Target[]> byId) {
+			this.common = common;
+			this.byId = byId;
+		}
+	}
+
+	/**
+	 * A subscription within a {@link Route}.
+	 */
+	protected static class Target {
+
+		protected final int order;
+
+		protected final StandardEventSubscription subscription;
+
+		/**
+		 * true if the predicate must be evaluated for each event
+		 */
+		protected final boolean check;
+
+		protected Target(int order, StandardEventSubscription subscription, boolean check) {
+			this.order = order;
+			this.subscription = subscription;
+			this.check = check;
+		}
+	}
+
+	private static final Target[] NO_TARGETS = new Target[0];
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
 	private final List<StandardEventSubscription> subscriptions = new CopyOnWriteArrayList<>();
 
 	private final List<INotificationSupport> sources = new ArrayList<>();
@@ -28,16 +93,128 @@ public class StandardEventBus implements IEventBus {
 
 	private final Object lock = new Object();
 
-	@Override
-	public void handleEvent(Event event) {
+	/**
+	 * The routes by event type and source class, replaced when the
+	 * subscriptions change.
+	 */
+	private volatile Map<EventType, Map<Class<?>, Route>> routes = new ConcurrentHashMap<>();
+
+	private Executor executor;
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+	private AsyncOverflowPolicy overflowPolicy = AsyncOverflowPolicy.SPILL;
+
+	protected Route createRoute(EventType type, Class<?> sourceClass) {
+		List<Target> common = new ArrayList<>();
+		Map<String, List<Target>> byId = new HashMap<>();
+		boolean identifiable = IIdentifiable.class.isAssignableFrom(sourceClass);
+		int order = 0;
 		for (StandardEventSubscription subscription : subscriptions) {
-			if (subscription.getSourcePredicate().accepts(event.getSource())) {
-				if (event.getEventType() == subscription.getEventType()
-						|| subscription.getEventType() == EventType.ALWAYS) {
-					subscription.getListener().handleEvent(event);
+			order++;
+			if (subscription.getEventType() != type && subscription.getEventType() != EventType.ALWAYS) {
+				continue;
+			}
+			EventSourcePredicate predicate = subscription.getSourcePredicate();
+			if (predicate instanceof EventSourceAll) {
+				common.add(new Target(order, subscription, false));
+			} else if (predicate instanceof EventSourceClass) {
+				// there are no instances of Void, it stands for a null source
+				if (sourceClass != Void.class
+						&& ((EventSourceClass) predicate).getSourceClass().isAssignableFrom(sourceClass)) {
+					common.add(new Target(order, subscription, false));
 				}
+			} else if (predicate instanceof EventSourceId) {
+				String id = ((EventSourceId) predicate).getId();
+				if (identifiable && id != null) {
+					byId.computeIfAbsent(id, key -> new ArrayList<>()).add(new Target(order, subscription, false));
+				}
+			} else {
+				common.add(new Target(order, subscription, true));
+			}
+		}
+		Map<String, Target[]> tempById = null;
+		if (!byId.isEmpty()) {
+			tempById = new HashMap<>();
+			for (Map.Entry<String, List<Target>> entry : byId.entrySet()) {
+				tempById.put(entry.getKey(), entry.getValue().toArray(NO_TARGETS));
+			}
+		}
+		return new Route(common.toArray(NO_TARGETS), tempById);
+	}
+
+	protected void deliver(Target target, Event event) {
+		if (target.check && !target.subscription.getSourcePredicate().accepts(event.getSource())) {
+			return;
+		}
+		target.subscription.getListener().handleEvent(event);
+	}
+
+	/**
+	 * The {@link Executor} for asynchronous delivery. By default a fixed
+	 * number of daemon threads is used.
+	 *
+	 * @return The {@link Executor} for asynchronous delivery.
+	 */
+	public Executor getExecutor() {
+		synchronized (lock) {
+			if (executor == null) {
+				executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+						ThreadTools.newThreadFactoryDaemon("event bus")); //$NON-NLS-1$
+			}
+			return executor;
+		}
+	}
+
+	public AsyncOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	protected Route getRoute(EventType type, Object source) {
+		Class<?> sourceClass = source == null ? Void.class : source.getClass();
+		EventType tempType = type == null ? EventType.ALWAYS : type;
+		Map<EventType, Map<Class<?>, Route>> tempRoutes = routes;
+		Map<Class<?>, Route> byClass = tempRoutes.get(tempType);
+		if (byClass == null) {
+			byClass = tempRoutes.computeIfAbsent(tempType, key -> new ConcurrentHashMap<>());
+		}
+		Route route = byClass.get(sourceClass);
+		if (route == null) {
+			route = byClass.computeIfAbsent(sourceClass, key -> createRoute(tempType, key));
+		}
+		return route;
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		Object source = event.getSource();
+		Route route = getRoute(event.getEventType(), source);
+		Target[] common = route.common;
+		Target[] identified = NO_TARGETS;
+		if (route.byId != null) {
+			String id = ((IIdentifiable) source).getId();
+			if (id != null) {
+				identified = route.byId.getOrDefault(id, NO_TARGETS);
 			}
 		}
+		// merge in subscription order
+		int i = 0;
+		int j = 0;
+		while (i < common.length || j < identified.length) {
+			if (j >= identified.length || (i < common.length && common[i].order < identified[j].order)) {
+				deliver(common[i++], event);
+			} else {
+				deliver(identified[j++], event);
+			}
+		}
+	}
+
+	protected void invalidateRoutes() {
+		routes = new ConcurrentHashMap<>();
 	}
 
 	protected void onNotification(Event event) {
@@ -52,6 +229,31 @@ public class StandardEventBus implements IEventBus {
 		}
 	}
 
+	public void setExecutor(Executor executor) {
+		synchronized (lock) {
+			this.executor = executor;
+		}
+	}
+
+	/**
+	 * The behavior of an asynchronous subscription when a delivering thread
+	 * publishes to its full queue, see {@link AsyncEventDelivery}.
+	 *
+	 * @param overflowPolicy
+	 */
+	public void setOverflowPolicy(AsyncOverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * The capacity of the queue for each asynchronous subscription.
+	 *
+	 * @param queueCapacity
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
 	@Override
 	public void subscribe(EventSourcePredicate predicate, EventType type, INotificationListener listener) {
 		StandardEventSubscription subscription = new StandardEventSubscription();
@@ -59,6 +261,20 @@ public class StandardEventBus implements IEventBus {
 		subscription.setListener(listener);
 		subscription.setSourcePredicate(predicate);
 		subscriptions.add(subscription);
+		invalidateRoutes();
+	}
+
+	/**
+	 * Like {@link #subscribe(EventSourcePredicate, EventType, INotificationListener)},
+	 * but the events are delivered asynchronously in the order of publication.
+	 *
+	 * @param predicate
+	 * @param type
+	 * @param listener
+	 */
+	public void subscribeAsync(EventSourcePredicate predicate, EventType type, INotificationListener listener) {
+		subscribe(predicate, type, new AsyncEventDelivery(listener, getExecutor(), getQueueCapacity(),
+				getOverflowPolicy()));
 	}
 
 	@Override
@@ -69,4 +285,18 @@ public class StandardEventBus implements IEventBus {
 		}
 	}
 
+	@Override
+	public void unsubscribe(EventType type, INotificationListener listener) {
+		for (StandardEventSubscription subscription : subscriptions) {
+			INotificationListener subscribed = subscription.getListener();
+			if (subscribed instanceof AsyncEventDelivery) {
+				subscribed = ((AsyncEventDelivery) subscribed).getListener();
+			}
+			if (subscription.getEventType() == type && subscribed == listener) {
+				subscriptions.remove(subscription);
+			}
+		}
+		invalidateRoutes();
+	}
+
 }
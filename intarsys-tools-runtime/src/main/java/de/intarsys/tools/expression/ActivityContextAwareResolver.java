@@ -11,7 +11,7 @@ import de.intarsys.tools.session.IActivityContext;
  * @see ThreadContextAwareResolver
  * 
  */
-public class ActivityContextAwareResolver implements IStringEvaluator {
+public class ActivityContextAwareResolver implements IStringEvaluator, INamespaceAware {
 
 	private static final ActivityLocal<ScopedResolver> RESOLVER = new ActivityLocal<>();
 
@@ -41,4 +41,10 @@ public class ActivityContextAwareResolver implements IStringEvaluator {
 		return tempResolver.evaluate(expression, args);
 	}
 
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		ScopedResolver tempResolver = RESOLVER.get();
+		return tempResolver != null && tempResolver.isNamespaceAvailable(expression);
+	}
+
 }
@@ -1,41 +1,281 @@
 package de.intarsys.tools.expression;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
+import de.intarsys.tools.cache.ConcurrentCache;
 import de.intarsys.tools.functor.IArgs;
+import de.intarsys.tools.functor.IArgs.IBinding;
+import de.intarsys.tools.monitor.CacheMonitor;
+import de.intarsys.tools.monitor.MonitorRegistry;
 
 /**
  * Cache previous evaluation results.
- * 
+ *
  * This is very useful if we evaluate a template for a series of inputs where
  * the template contains dynamic expressions like "system.millis" that should
  * stay constant for the evaluation series.
- * 
+ *
+ * <p>
+ * The resolver may be shared between threads. The number of cached results is
+ * bounded, the least recently used results are dropped first. Results may
+ * expire after a time to live.
+ * </p>
+ *
+ * <p>
+ * By default results are cached by expression only, ignoring the
+ * {@link IArgs}. If the wrapped evaluator depends on the arguments, use
+ * {@link #setArgsSensitive(boolean)} to cache per argument values, or redefine
+ * {@link #createKey(String, IArgs)}.
+ * </p>
+ *
+ * <p>
+ * {@link EvaluationException} instances are not cached by default, see
+ * {@link #setNegativeTimeToLive(long, TimeUnit)}. A {@link NamespaceNotFound}
+ * is never cached, as it depends on the resolver context of the caller.
+ * </p>
  */
 public class CacheResolver implements IStringEvaluator {
 
+	/**
+	 * Key for results depending on the {@link IArgs} values.
+	 * <p>
+	 * The key holds a snapshot of the argument names and values, not the
+	 * {@link IArgs} itself. Arguments with equal values share their results, a
+	 * changed value in a reused {@link IArgs} is a new key.
+	 */
+	protected static class ArgsKey {
+
+		protected static Object[] snapshot(IArgs args) {
+			Object[] values = new Object[args.size() * 2];
+			int i = 0;
+			for (Iterator<IBinding> it = args.bindings(); it.hasNext();) {
+				IBinding binding = it.next();
+				if (!binding.isDefined()) {
+					continue;
+				}
+				Object value = binding.getValue();
+				if (value instanceof IArgs) {
+					value = snapshot((IArgs) value);
+				}
+				if (i == values.length) {
+					values = Arrays.copyOf(values, i + 2);
+				}
+				values[i++] = binding.getName();
+				values[i++] = value;
+			}
+			return i == values.length ? values : Arrays.copyOf(values, i);
+		}
+
+		private final String expression;
+
+		private final Object[] values;
+
+		private final int hash;
+
+		public ArgsKey(String expression, IArgs args) {
+			this.expression = expression;
+			this.values = args == null ? new Object[0] : snapshot(args);
+			this.hash = expression.hashCode() * 31 + Arrays.deepHashCode(values);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ArgsKey)) {
+				return false;
+			}
+			ArgsKey other = (ArgsKey) obj;
+			return hash == other.hash && expression.equals(other.expression)
+					&& Arrays.deepEquals(values, other.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * A cached {@link EvaluationException}.
+	 */
+	protected static class Failure {
+
+		private final EvaluationException exception;
+
+		private final long expires;
+
+		public Failure(EvaluationException exception, long expires) {
+			this.exception = exception;
+			this.expires = expires;
+		}
+	}
+
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
 	private final IStringEvaluator evaluator;
 
-	private final Map<String, Object> cache = new HashMap<>();
+	private final ConcurrentCache<Object> cache;
+
+	private boolean argsSensitive;
+
+	private long negativeTimeToLiveNanos;
 
 	public CacheResolver(IStringEvaluator evaluator) {
+		this(evaluator, DEFAULT_MAX_SIZE);
+	}
+
+	public CacheResolver(IStringEvaluator evaluator, int maxSize) {
 		super();
 		this.evaluator = evaluator;
+		this.cache = new ConcurrentCache<>(maxSize);
 	}
 
 	public void clear() {
 		cache.clear();
 	}
 
+	/**
+	 * Create a {@link CacheMonitor} for this resolver and register it with the
+	 * {@link MonitorRegistry}.
+	 *
+	 * @param name
+	 *            The monitor name
+	 * @return The new {@link CacheMonitor}
+	 */
+	public CacheMonitor createMonitor(String name) {
+		CacheMonitor monitor = new CacheMonitor(name, cache);
+		MonitorRegistry.get().registerMonitor(monitor);
+		return monitor;
+	}
+
+	/**
+	 * The cache key for evaluating expression with args. A null key means the
+	 * result is not cached at all.
+	 *
+	 * @param expression
+	 * @param args
+	 * @return The cache key or null
+	 */
+	protected Object createKey(String expression, IArgs args) {
+		if (expression == null) {
+			return null;
+		}
+		if (isArgsSensitive()) {
+			return new ArgsKey(expression, args);
+		}
+		return expression;
+	}
+
 	@Override
 	public Object evaluate(String expression, IArgs args) throws EvaluationException {
-		Object result = cache.get(expression); // NOSONAR bc of exception handling
+		Object key = createKey(expression, args);
+		if (key == null) {
+			return evaluator.evaluate(expression, args);
+		}
+		Object result = cache.get(key);
+		if (result instanceof Failure) {
+			Failure failure = (Failure) result;
+			if (now() - failure.expires < 0) {
+				throw failure.exception;
+			}
+			cache.remove(key);
+			result = null;
+		}
 		if (result == null) {
-			result = evaluator.evaluate(expression, args);
-			cache.put(expression, result);
+			try {
+				result = evaluator.evaluate(expression, args);
+			} catch (NamespaceNotFound e) {
+				throw e;
+			} catch (EvaluationException e) {
+				if (negativeTimeToLiveNanos > 0) {
+					cache.put(key, new Failure(e, now() + negativeTimeToLiveNanos));
+				}
+				throw e;
+			}
+			if (result != null) {
+				cache.put(key, result);
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * The underlying cache, for example to access its statistics.
+	 *
+	 * @return The underlying cache
+	 */
+	public ConcurrentCache<Object> getCache() {
+		return cache;
+	}
+
+	public IStringEvaluator getEvaluator() {
+		return evaluator;
+	}
+
+	/**
+	 * The time in milliseconds an {@link EvaluationException} is cached or 0.
+	 *
+	 * @return The time in milliseconds an {@link EvaluationException} is
+	 *         cached.
+	 */
+	public long getNegativeTimeToLive() {
+		return TimeUnit.NANOSECONDS.toMillis(negativeTimeToLiveNanos);
+	}
+
+	/**
+	 * The time in milliseconds a result is cached or 0.
+	 *
+	 * @return The time in milliseconds a result is cached.
+	 */
+	public long getTimeToLive() {
+		return cache.getExpireAfterWrite();
+	}
+
+	public boolean isArgsSensitive() {
+		return argsSensitive;
+	}
+
+	/**
+	 * The current time in nanoseconds, as used for negative caching.
+	 *
+	 * @return The current time in nanoseconds.
+	 */
+	protected long now() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Set to true if results depend on the {@link IArgs} and should be cached
+	 * per argument names and values. The values should implement equals and
+	 * hashCode by value and must not change while cached.
+	 *
+	 * @param argsSensitive
+	 */
+	public void setArgsSensitive(boolean argsSensitive) {
+		this.argsSensitive = argsSensitive;
+	}
+
+	/**
+	 * Set the time an {@link EvaluationException} is cached. 0 disables
+	 * negative caching. The negative time to live is in addition limited by
+	 * {@link #setTimeToLive(long, TimeUnit)}.
+	 *
+	 * @param duration
+	 * @param unit
+	 */
+	public void setNegativeTimeToLive(long duration, TimeUnit unit) {
+		this.negativeTimeToLiveNanos = unit.toNanos(duration);
+	}
+
+	/**
+	 * Set the time a result is cached. 0 disables expiration.
+	 *
+	 * @param duration
+	 * @param unit
+	 */
+	public void setTimeToLive(long duration, TimeUnit unit) {
+		cache.setExpireAfterWrite(duration, unit);
+	}
+
 }
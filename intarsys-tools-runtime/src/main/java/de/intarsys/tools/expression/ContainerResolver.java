@@ -45,7 +45,7 @@ import de.intarsys.tools.variable.IVariableNamespace;
  * The strict flag decides if we throw an error when an expression is encountered that can not be resolved or simply
  * return a default result value. The strict flag is true by default.
  */
-public abstract class ContainerResolver implements IStringEvaluator {
+public abstract class ContainerResolver implements IStringEvaluator, INamespaceAware {
 
 	public static final char PATH_SEPARATOR = '.';
 
@@ -179,6 +179,36 @@ public abstract class ContainerResolver implements IStringEvaluator {
 		return separator;
 	}
 
+	/**
+	 * <code>true</code> if the first level path segment <code>name</code> can
+	 * be resolved by {@link #basicEvaluate(String, IArgs)}.
+	 * 
+	 * This implementation is conservative and always answers <code>true</code>.
+	 * 
+	 * @param name
+	 * @return <code>true</code> if name can be resolved
+	 */
+	protected boolean isNamespaceDefined(String name) {
+		return true;
+	}
+
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		int pos = expression.indexOf(getSeparator());
+		if (pos == -1) {
+			// we never throw NamespaceNotFound for a simple name
+			return true;
+		}
+		if (isNamespaceDefined(expression.substring(0, pos))) {
+			return true;
+		}
+		if (exceptionResolver != null) {
+			return !(exceptionResolver instanceof INamespaceAware)
+					|| ((INamespaceAware) exceptionResolver).isNamespaceAvailable(expression);
+		}
+		return false;
+	}
+
 	public boolean isStrict() {
 		return strict;
 	}
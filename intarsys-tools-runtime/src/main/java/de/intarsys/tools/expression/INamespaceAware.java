@@ -0,0 +1,27 @@
+package de.intarsys.tools.expression;
+
+/**
+ * An optional capability of an {@link IStringEvaluator} to tell cheaply if it
+ * is responsible for the namespace of an expression.
+ * 
+ * Composite resolvers like {@link ScopedResolver} use this to skip resolvers
+ * that would fail with {@link NamespaceNotFound}, without the cost of creating
+ * and throwing the exception.
+ */
+public interface INamespaceAware {
+
+	/**
+	 * <code>false</code> if evaluating <code>expression</code> is sure to fail
+	 * with {@link NamespaceNotFound}.
+	 * 
+	 * Answering <code>true</code> is always safe, the evaluation may still
+	 * fail.
+	 * 
+	 * @param expression
+	 *            The expression to be evaluated.
+	 * @return <code>false</code> if the namespace of <code>expression</code> is
+	 *         not available.
+	 */
+	public boolean isNamespaceAvailable(String expression);
+
+}
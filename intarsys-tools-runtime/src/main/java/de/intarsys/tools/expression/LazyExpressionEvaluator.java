@@ -5,7 +5,7 @@ import de.intarsys.tools.functor.IArgs;
 /**
  * This {@link IStringEvaluator} forwards evaluation to the current {@link ExpressionEvaluator} singleton.
  */
-public class LazyExpressionEvaluator implements IStringEvaluator {
+public class LazyExpressionEvaluator implements IStringEvaluator, INamespaceAware {
 	private Mode mode;
 
 	public LazyExpressionEvaluator(Mode mode) {
@@ -21,4 +21,13 @@ public class LazyExpressionEvaluator implements IStringEvaluator {
 		}
 		return current.evaluate(expression, args);
 	}
+
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		IStringEvaluator current = ExpressionEvaluator.get(mode);
+		if (current == this) {
+			return false;
+		}
+		return !(current instanceof INamespaceAware) || ((INamespaceAware) current).isNamespaceAvailable(expression);
+	}
 }
\ No newline at end of file
@@ -5,7 +5,7 @@ import de.intarsys.tools.functor.IArgs;
 /**
  * This {@link IStringEvaluator} forwards evaluation to the current {@link TemplateEvaluator} singleton.
  */
-public class LazyTemplateEvaluator implements IStringEvaluator {
+public class LazyTemplateEvaluator implements IStringEvaluator, INamespaceAware {
 	private Mode mode;
 
 	public LazyTemplateEvaluator(Mode mode) {
@@ -20,4 +20,13 @@ public class LazyTemplateEvaluator implements IStringEvaluator {
 		}
 		return current.evaluate(expression, args);
 	}
+
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		IStringEvaluator current = TemplateEvaluator.get(mode);
+		if (current == this) {
+			return false;
+		}
+		return !(current instanceof INamespaceAware) || ((INamespaceAware) current).isNamespaceAvailable(expression);
+	}
 }
\ No newline at end of file
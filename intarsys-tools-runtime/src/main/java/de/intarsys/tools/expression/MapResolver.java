@@ -140,6 +140,11 @@ public class MapResolver extends ContainerResolver {
 		return variables.get(key);
 	}
 
+	@Override
+	protected boolean isNamespaceDefined(String name) {
+		return !isStrict() || variables.containsKey(name);
+	}
+
 	public MapResolver put(String key, Object value) {
 		variables.put(key, value);
 		return this;
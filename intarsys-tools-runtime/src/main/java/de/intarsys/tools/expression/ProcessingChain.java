@@ -0,0 +1,365 @@
+package de.intarsys.tools.expression;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.intarsys.tools.cache.ConcurrentCache;
+import de.intarsys.tools.functor.FunctorInternalException;
+import de.intarsys.tools.functor.IArgs;
+import de.intarsys.tools.functor.IFunctor;
+import de.intarsys.tools.functor.IFunctorRegistry;
+import de.intarsys.tools.string.StringTools;
+
+/**
+ * The compiled form of a {@link ProcessingDecorator} expression.
+ *
+ * The expression is parsed once into the value part and a chain of
+ * {@link Instruction} objects. All string scanning and the lookup of formatting
+ * functors is done while compiling, evaluation simply walks the chain. Each
+ * instruction delegates the decoded parts to the corresponding
+ * {@link ProcessingDecorator} hook.
+ *
+ * Compiled chains do not depend on a specific {@link ProcessingDecorator} and
+ * are cached by expression. The cache is flushed when the formatting functors
+ * change, see {@link #flush()}.
+ */
+final class ProcessingChain {
+
+	/**
+	 * Apply the condition to the value.
+	 */
+	static class Conditional extends Instruction {
+
+		private final String expression;
+
+		private final boolean negate;
+
+		protected Conditional(String expression, boolean negate) {
+			this.expression = expression;
+			this.negate = negate;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			return decorator.evaluateCondition(value, args, expression, negate);
+		}
+	}
+
+	/**
+	 * Recursively evaluate the value.
+	 */
+	static class DeepRecursion extends Instruction {
+
+		private final String instruction;
+
+		protected DeepRecursion(String instruction) {
+			this.instruction = instruction;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			return decorator.evaluateDeepRecursion(value, args, instruction);
+		}
+	}
+
+	/**
+	 * Evaluate the default expression if the value is missing. The default
+	 * expression itself is compiled only when needed.
+	 */
+	static class DefaultValue extends Instruction {
+
+		private final String expression;
+
+		protected DefaultValue(String expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			return decorator.evaluateDefault(value, ex, args, expression);
+		}
+	}
+
+	/**
+	 * Fail with the error detected at compile time.
+	 */
+	static class Failure extends Instruction {
+
+		private final String message;
+
+		protected Failure(String message) {
+			this.message = message;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			throw new EvaluationException(new FunctorInternalException(message));
+		}
+	}
+
+	/**
+	 * Format the value.
+	 */
+	static class Format extends Instruction {
+
+		private final String format;
+
+		protected Format(String format) {
+			this.format = format;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			return StringTools.format(value, format);
+		}
+	}
+
+	/**
+	 * Apply a formatting functor, resolved at compile time.
+	 */
+	static class Functor extends Instruction {
+
+		private final IFunctor formatter;
+
+		private final String[] argStrings;
+
+		protected Functor(IFunctor formatter, String[] argStrings) {
+			this.formatter = formatter;
+			this.argStrings = argStrings;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			return decorator.evaluateFunctor(value, args, formatter, argStrings);
+		}
+	}
+
+	/**
+	 * Keep the value, there are no formatting functors.
+	 */
+	static class Identity extends Instruction {
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			return value;
+		}
+	}
+
+	/**
+	 * A step in the processing chain.
+	 */
+	abstract static class Instruction {
+
+		protected abstract Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex,
+				IArgs args) throws EvaluationException;
+	}
+
+	/**
+	 * Navigate from the value.
+	 */
+	static class Reflection extends Instruction {
+
+		private final String path;
+
+		protected Reflection(String path) {
+			this.path = path;
+		}
+
+		@Override
+		protected Object evaluate(ProcessingDecorator decorator, Object value, EvaluationException ex, IArgs args)
+				throws EvaluationException {
+			decorator.propagateException(ex);
+			return decorator.evaluatePath(value, args, path);
+		}
+	}
+
+	private static final int CACHE_SIZE = 1024;
+
+	private static final ConcurrentCache<ProcessingChain> CACHE = new ConcurrentCache<>(CACHE_SIZE);
+
+	/**
+	 * Incremented with each {@link #flush()}, chains of an older generation
+	 * are compiled again.
+	 */
+	private static final AtomicInteger Generation = new AtomicInteger();
+
+	private static final Instruction DEFAULT_FORMAT = new Format("");
+
+	private static final Instruction IDENTITY = new Identity();
+
+	private static final Instruction[] NO_INSTRUCTIONS = new Instruction[0];
+
+	/**
+	 * The {@link ProcessingChain} for expression, looked up in the cache and
+	 * compiled if necessary.
+	 *
+	 * @param expression
+	 * @return The {@link ProcessingChain} for expression
+	 * @throws IOException
+	 */
+	static ProcessingChain compile(String expression) throws IOException {
+		ProcessingChain result = CACHE.get(expression);
+		int generation = Generation.get();
+		if (result == null || result.generation != generation) {
+			result = create(expression, generation);
+			CACHE.put(expression, result);
+		}
+		return result;
+	}
+
+	protected static Instruction compileFunctor(String format) {
+		IFunctorRegistry registry = ProcessingDecorator.getFormattingFunctors();
+		if (registry == null) {
+			return IDENTITY;
+		}
+		String formatterId = ProcessingDecorator.getFormatterId(format);
+		IFunctor formatter = registry.lookupFunctor(formatterId);
+		if (formatter == null) {
+			return new Failure("formatter '" + formatterId + "' not found"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return new Functor(formatter, ProcessingDecorator.getFormatterArgs(format));
+	}
+
+	protected static Instruction compileInstruction(Expression expr) {
+		if (expr == null) {
+			return DEFAULT_FORMAT;
+		}
+		if (expr.isString()) {
+			return compileInstruction(((StringLiteral) expr).getValue());
+		}
+		if (expr.isToken() || expr.isFunction()) {
+			return compileInstruction(expr.getCode());
+		}
+		if (expr.isParantheses()) {
+			return compileInstruction(((Parantheses) expr).getNested());
+		}
+		return DEFAULT_FORMAT;
+	}
+
+	protected static Instruction compileInstruction(String instruction) {
+		char c = instruction.charAt(0);
+		if (c == ProcessingDecorator.CODE_DEFAULTVALUE) {
+			return new DefaultValue(instruction.substring(1));
+		} else if (c == ProcessingDecorator.CODE_DEEPRECURSION || c == ProcessingDecorator.CODE_SHALLOWRECURSION) {
+			return new DeepRecursion(instruction);
+		} else if (c == ProcessingDecorator.CODE_FUNCTOR) {
+			return compileFunctor(instruction.substring(1));
+		} else if (c == ProcessingDecorator.CODE_CONDITIONAL) {
+			String expression = instruction.substring(1).trim();
+			if (expression.startsWith("!")) { //$NON-NLS-1$
+				return new Conditional(expression.substring(1).trim(), true);
+			}
+			return new Conditional(expression, false);
+		} else if (c == ProcessingDecorator.CODE_REFLECTION) {
+			return new Reflection(instruction.substring(1));
+		} else {
+			return new Format(instruction);
+		}
+	}
+
+	/**
+	 * Create a new {@link ProcessingChain}, bypassing the cache.
+	 *
+	 * @param expression
+	 * @return The new {@link ProcessingChain}
+	 * @throws IOException
+	 */
+	static ProcessingChain create(String expression, int generation) throws IOException {
+		List<Expression> exprs = new ArrayList<>(2);
+		ExpressionParser parser = new ExpressionParser(ProcessingDecorator.PROCESSING_SEPARATOR);
+		StringReader reader = new StringReader(expression);
+		Expression parsed = parser.parse(reader);
+		while (parsed != null) {
+			exprs.add(parsed);
+			parsed = parser.parse(reader);
+		}
+		if (exprs.isEmpty()) {
+			return new ProcessingChain(generation, null, null, NO_INSTRUCTIONS);
+		}
+		Expression expr = exprs.get(0);
+		Instruction[] instructions = new Instruction[exprs.size() - 1];
+		for (int i = 1; i < exprs.size(); i++) {
+			instructions[i - 1] = compileInstruction(exprs.get(i));
+		}
+		if (expr.isString()) {
+			return new ProcessingChain(generation, ((StringLiteral) expr).getValue(), null, instructions);
+		}
+		return new ProcessingChain(generation, null, expr.getCode().trim(), instructions);
+	}
+
+	/**
+	 * Discard all compiled chains, they may have resolved outdated formatting
+	 * functors.
+	 */
+	static void flush() {
+		Generation.incrementAndGet();
+		CACHE.clear();
+	}
+
+	private final int generation;
+
+	/**
+	 * The constant value if {@link #valueExpression} is null
+	 */
+	private final String constant;
+
+	/**
+	 * The expression for the initial value
+	 */
+	private final String valueExpression;
+
+	private final Instruction[] instructions;
+
+	private ProcessingChain(int generation, String constant, String valueExpression, Instruction[] instructions) {
+		super();
+		this.generation = generation;
+		this.constant = constant;
+		this.valueExpression = valueExpression;
+		this.instructions = instructions;
+	}
+
+	protected Object evaluate(ProcessingDecorator decorator, IArgs args) throws EvaluationException {
+		if (constant == null && valueExpression == null) {
+			throw new EvaluationException("empty expression");
+		}
+		Object value = constant;
+		EvaluationException ex = null;
+		if (valueExpression != null) {
+			try {
+				value = decorator.getEvaluator().evaluate(valueExpression, args);
+			} catch (NamespaceNotFound e) {
+				// do not compute default value
+				// most probably we have multiple evaluation rounds with different resolver context
+				throw e;
+			} catch (EvaluationException e) {
+				ex = e;
+			}
+		}
+		for (Instruction instruction : instructions) {
+			try {
+				value = instruction.evaluate(decorator, value, ex, args);
+				ex = null;
+			} catch (EvaluationException e) {
+				ex = e;
+			}
+		}
+		decorator.propagateException(ex);
+		return value;
+	}
+}
@@ -31,11 +31,17 @@ package de.intarsys.tools.expression;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import de.intarsys.tools.converter.ConversionException;
 import de.intarsys.tools.converter.ConverterRegistry;
+import de.intarsys.tools.event.Event;
+import de.intarsys.tools.event.EventType;
+import de.intarsys.tools.event.INotificationListener;
+import de.intarsys.tools.event.INotificationSupport;
 import de.intarsys.tools.functor.Args;
 import de.intarsys.tools.functor.FunctorCall;
 import de.intarsys.tools.functor.FunctorException;
@@ -104,43 +110,123 @@ public class ProcessingDecorator implements IStringEvaluator {
 
 	public static final char CODE_DEFAULTVALUE = '!';
 
-	private static IFunctorRegistry FormattingFunctors;
+	private static volatile IFunctorRegistry FormattingFunctors;
 
 	private static final String ARG_RECURSION = "de.intarsys.tools.expression.ProcessingDecorator.recursion";
 
+	private static final INotificationListener<Event> ListenFunctorsChanged = event -> formattingFunctorsChanged();
+
+	/**
+	 * The hooks decoding the instruction string. A subclass overriding one of
+	 * them is not compiled by default.
+	 */
+	private static final Method[] INTERPRETED_HOOKS = new Method[] { //
+			getHook("evaluateConditional", Object.class, IArgs.class, String.class), //$NON-NLS-1$
+			getHook("evaluateDefaultValue", Object.class, EvaluationException.class, IArgs.class, String.class), //$NON-NLS-1$
+			getHook("evaluateFunctor", Object.class, IArgs.class, String.class), //$NON-NLS-1$
+			getHook("evaluateInstruction", Object.class, EvaluationException.class, IArgs.class, Expression.class), //$NON-NLS-1$
+			getHook("evaluateInstruction", Object.class, EvaluationException.class, IArgs.class, String.class), //$NON-NLS-1$
+			getHook("evaluateInterpreted", String.class, IArgs.class), //$NON-NLS-1$
+			getHook("evaluateReflection", Object.class, IArgs.class, String.class), //$NON-NLS-1$
+			getHook("parse", List.class, StringReader.class), //$NON-NLS-1$
+			getHook("parse", String.class), //$NON-NLS-1$
+	};
+
+	private static final ClassValue<Boolean> Compilable = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			for (Class<?> current = type; current != ProcessingDecorator.class; current = current.getSuperclass()) {
+				for (Method method : current.getDeclaredMethods()) {
+					for (Method hook : INTERPRETED_HOOKS) {
+						if (hook.getName().equals(method.getName())
+								&& Arrays.equals(hook.getParameterTypes(), method.getParameterTypes())) {
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}
+	};
+
+	protected static Object formatFunctor(Object value, IFunctor formatter, String[] argStrings)
+			throws FunctorException {
+		Args args = Args.createIndexed(value, argStrings);
+		IFunctorCall call = new FunctorCall(value, args);
+		return formatter.perform(call);
+	}
+
 	protected static Object formatFunctor(Object value, String format) throws FunctorException {
 		IFunctorRegistry registry = getFormattingFunctors();
 		if (registry == null) {
 			return value;
 		}
+		String formatterId = getFormatterId(format);
+		IFunctor formatter = registry.lookupFunctor(formatterId);
+		if (formatter == null) {
+			throw new FunctorInternalException("formatter '" + formatterId //$NON-NLS-1$
+					+ "' not found"); //$NON-NLS-1$
+		}
+		return formatFunctor(value, formatter, getFormatterArgs(format));
+	}
+
+	/**
+	 * Notify about a change of the formatting functors registry contents.
+	 * <p>
+	 * Compiled expressions resolve their functors once. A registry
+	 * implementing {@link INotificationSupport} is observed, for other
+	 * registries this must be called after registering or unregistering a
+	 * functor.
+	 */
+	public static void formattingFunctorsChanged() {
+		ProcessingChain.flush();
+	}
+
+	protected static String[] getFormatterArgs(String format) {
 		int openBrace = format.indexOf(OPEN_BRACE);
 		if (openBrace == -1) {
 			openBrace = format.length();
 		}
 		int closeBrace = format.indexOf(CLOSE_BRACE);
-		String formatterId = format.substring(0, openBrace);
-		String[] argStrings;
 		if (openBrace < closeBrace) {
-			argStrings = format.substring(openBrace + 1, closeBrace).split(ARG_SEPARATOR);
+			return format.substring(openBrace + 1, closeBrace).split(ARG_SEPARATOR);
 		} else {
-			argStrings = new String[0];
+			return new String[0];
 		}
-		IFunctor formatter = registry.lookupFunctor(formatterId);
-		if (formatter == null) {
-			throw new FunctorInternalException("formatter '" + formatterId //$NON-NLS-1$
-					+ "' not found"); //$NON-NLS-1$
+	}
+
+	protected static String getFormatterId(String format) {
+		int openBrace = format.indexOf(OPEN_BRACE);
+		if (openBrace == -1) {
+			openBrace = format.length();
 		}
-		Args args = Args.createIndexed(value, argStrings);
-		IFunctorCall call = new FunctorCall(value, args);
-		return formatter.perform(call);
+		return format.substring(0, openBrace);
 	}
 
 	public static IFunctorRegistry getFormattingFunctors() {
 		return FormattingFunctors;
 	}
 
-	public static void setFormattingFunctors(IFunctorRegistry formattingFunctors) {
+	private static Method getHook(String name, Class<?>... parameterTypes) {
+		try {
+			return ProcessingDecorator.class.getDeclaredMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static synchronized void setFormattingFunctors(IFunctorRegistry formattingFunctors) {
+		IFunctorRegistry oldFunctors = FormattingFunctors;
+		if (oldFunctors instanceof INotificationSupport) {
+			((INotificationSupport) oldFunctors).removeNotificationListener(EventType.ALWAYS, ListenFunctorsChanged);
+		}
 		ProcessingDecorator.FormattingFunctors = formattingFunctors;
+		if (formattingFunctors instanceof INotificationSupport) {
+			((INotificationSupport) formattingFunctors).addNotificationListener(EventType.ALWAYS,
+					ListenFunctorsChanged);
+		}
+		// compiled instructions have resolved their functors
+		formattingFunctorsChanged();
 	}
 
 	private IStringEvaluator evaluator;
@@ -151,6 +237,8 @@ public class ProcessingDecorator implements IStringEvaluator {
 
 	private IStringEvaluator recursionEvaluator;
 
+	private Boolean compiled;
+
 	public ProcessingDecorator(IStringEvaluator evaluator) {
 		this.evaluator = evaluator;
 		this.recursionEvaluator = evaluator;
@@ -158,50 +246,30 @@ public class ProcessingDecorator implements IStringEvaluator {
 
 	@Override
 	public Object evaluate(String expression, IArgs args) throws EvaluationException {
-		try {
-			List<Expression> exprs = parse(expression);
-			if (exprs.isEmpty()) {
-				throw new EvaluationException("empty expression");
-			}
-			Object value = null;
-			EvaluationException ex = null;
-			Expression expr = exprs.get(0);
+		if (isCompiled()) {
 			try {
-				if (expr.isString()) {
-					value = ((StringLiteral) expr).getValue();
-				} else {
-					String valueExpression = expr.getCode().trim();
-					value = evaluator.evaluate(valueExpression, args);
-				}
-			} catch (NamespaceNotFound e) {
-				// do not compute default value
-				// most probably we have multiple evaluation rounds with different resolver context
-				throw e;
-			} catch (EvaluationException e) {
-				ex = e;
+				return ProcessingChain.compile(expression).evaluate(this, args);
+			} catch (IOException e) {
+				throw new EvaluationException(e);
 			}
-			for (int i = 1; i < exprs.size(); i++) {
-				try {
-					value = evaluateInstruction(value, ex, args, exprs.get(i));
-					ex = null;
-				} catch (EvaluationException e) {
-					ex = e;
-				}
-			}
-			propagateException(ex);
-			return value;
-		} catch (IOException e) {
-			throw new EvaluationException(e);
 		}
+		return evaluateInterpreted(expression, args);
 	}
 
-	protected Object evaluateConditional(Object value, IArgs args, String instruction) throws EvaluationException {
-		String expression = instruction.substring(1).trim();
-		boolean negate = false;
-		if (expression.startsWith("!")) {
-			negate = true;
-			expression = expression.substring(1).trim();
-		}
+	/**
+	 * Return value if the condition expression evaluates to true.
+	 * 
+	 * @param value
+	 * @param args
+	 * @param expression
+	 *            The decoded condition expression
+	 * @param negate
+	 *            true to return value if the condition is false
+	 * @return value or null
+	 * @throws EvaluationException
+	 */
+	protected Object evaluateCondition(Object value, IArgs args, String expression, boolean negate)
+			throws EvaluationException {
 		Object instructionValue = evaluator.evaluate(expression, args);
 		try {
 			boolean ok = Boolean.TRUE.equals(ConverterRegistry.get().convert(instructionValue, Boolean.class));
@@ -211,6 +279,16 @@ public class ProcessingDecorator implements IStringEvaluator {
 		}
 	}
 
+	protected Object evaluateConditional(Object value, IArgs args, String instruction) throws EvaluationException {
+		String expression = instruction.substring(1).trim();
+		boolean negate = false;
+		if (expression.startsWith("!")) {
+			negate = true;
+			expression = expression.substring(1).trim();
+		}
+		return evaluateCondition(value, args, expression, negate);
+	}
+
 	protected Object evaluateDeepRecursion(Object value, IArgs args, String instruction) throws EvaluationException {
 		int depth = (Integer) args.get(ARG_RECURSION, 10);
 		if (depth == -1) {
@@ -230,14 +308,54 @@ public class ProcessingDecorator implements IStringEvaluator {
 		}
 	}
 
-	protected Object evaluateDefaultValue(Object value, EvaluationException ex, IArgs args, String instruction)
+	/**
+	 * Evaluate the default expression if value is missing.
+	 * 
+	 * @param value
+	 * @param ex
+	 *            The exception evaluating value or null
+	 * @param args
+	 * @param expression
+	 *            The decoded default expression
+	 * @return value or the default value
+	 * @throws EvaluationException
+	 */
+	protected Object evaluateDefault(Object value, EvaluationException ex, IArgs args, String expression)
 			throws EvaluationException {
 		if (ex != null || value == null || ((value instanceof String) && StringTools.isEmpty((String) value))) {
-			return evaluate(instruction.substring(1), args);
+			return evaluate(expression, args);
 		}
 		return value;
 	}
 
+	protected Object evaluateDefaultValue(Object value, EvaluationException ex, IArgs args, String instruction)
+			throws EvaluationException {
+		return evaluateDefault(value, ex, args, instruction.substring(1));
+	}
+
+	/**
+	 * Apply the formatter to the value.
+	 * 
+	 * @param value
+	 *            The argument to the functor
+	 * @param args
+	 *            The original args
+	 * @param formatter
+	 *            The functor resolved from {@link #getFormattingFunctors()}
+	 * @param argStrings
+	 *            The decoded functor arguments
+	 * @return The functor result
+	 * @throws EvaluationException
+	 */
+	protected Object evaluateFunctor(Object value, IArgs args, IFunctor formatter, String[] argStrings)
+			throws EvaluationException {
+		try {
+			return formatFunctor(value, formatter, argStrings);
+		} catch (FunctorException e) {
+			throw new EvaluationException(e.getCause() == null ? e : e.getCause());
+		}
+	}
+
 	/**
 	 * Apply functor "instruction" to the value.
 	 * 
@@ -251,11 +369,18 @@ public class ProcessingDecorator implements IStringEvaluator {
 	 * @throws EvaluationException
 	 */
 	protected Object evaluateFunctor(Object value, IArgs args, String instruction) throws EvaluationException {
-		try {
-			return formatFunctor(value, instruction.substring(1));
-		} catch (FunctorException e) {
-			throw new EvaluationException(e.getCause() == null ? e : e.getCause());
+		IFunctorRegistry registry = getFormattingFunctors();
+		if (registry == null) {
+			return value;
+		}
+		String format = instruction.substring(1);
+		String formatterId = getFormatterId(format);
+		IFunctor formatter = registry.lookupFunctor(formatterId);
+		if (formatter == null) {
+			throw new EvaluationException(new FunctorInternalException("formatter '" + formatterId //$NON-NLS-1$
+					+ "' not found")); //$NON-NLS-1$
 		}
+		return evaluateFunctor(value, args, formatter, getFormatterArgs(format));
 	}
 
 	protected Object evaluateInstruction(Object value, EvaluationException ex, IArgs args, Expression expr)
@@ -305,9 +430,69 @@ public class ProcessingDecorator implements IStringEvaluator {
 		}
 	}
 
-	protected Object evaluateReflection(Object value, IArgs args, String instruction) throws EvaluationException {
+	/**
+	 * The interpreted evaluation. The expression is parsed and all
+	 * instructions are decoded each time.
+	 * 
+	 * @param expression
+	 * @param args
+	 * @return The evaluation result
+	 * @throws EvaluationException
+	 */
+	protected Object evaluateInterpreted(String expression, IArgs args) throws EvaluationException {
+		try {
+			List<Expression> exprs = parse(expression);
+			if (exprs.isEmpty()) {
+				throw new EvaluationException("empty expression");
+			}
+			Object value = null;
+			EvaluationException ex = null;
+			Expression expr = exprs.get(0);
+			try {
+				if (expr.isString()) {
+					value = ((StringLiteral) expr).getValue();
+				} else {
+					String valueExpression = expr.getCode().trim();
+					value = evaluator.evaluate(valueExpression, args);
+				}
+			} catch (NamespaceNotFound e) {
+				// do not compute default value
+				// most probably we have multiple evaluation rounds with different resolver context
+				throw e;
+			} catch (EvaluationException e) {
+				ex = e;
+			}
+			for (int i = 1; i < exprs.size(); i++) {
+				try {
+					value = evaluateInstruction(value, ex, args, exprs.get(i));
+					ex = null;
+				} catch (EvaluationException e) {
+					ex = e;
+				}
+			}
+			propagateException(ex);
+			return value;
+		} catch (IOException e) {
+			throw new EvaluationException(e);
+		}
+	}
+
+	/**
+	 * Navigate the decoded path from value.
+	 * 
+	 * @param value
+	 * @param args
+	 * @param path
+	 * @return The value at path
+	 * @throws EvaluationException
+	 */
+	protected Object evaluatePath(Object value, IArgs args, String path) throws EvaluationException {
 		ReflectiveResolver reflector = new ReflectiveResolver(value);
-		return reflector.evaluate(instruction.substring(1), args);
+		return reflector.evaluate(path, args);
+	}
+
+	protected Object evaluateReflection(Object value, IArgs args, String instruction) throws EvaluationException {
+		return evaluatePath(value, args, instruction.substring(1));
 	}
 
 	public IStringEvaluator getEvaluator() {
@@ -326,6 +511,27 @@ public class ProcessingDecorator implements IStringEvaluator {
 		return separatorString;
 	}
 
+	/**
+	 * <code>true</code> if the expression is compiled to an instruction chain
+	 * that is cached by expression.
+	 * <p>
+	 * The compiled chain decodes the instructions once and calls the hooks
+	 * taking the decoded parts, like
+	 * {@link #evaluateFunctor(Object, IArgs, IFunctor, String[])}. The
+	 * interpreted evaluation calls the same hooks after decoding. If not set
+	 * explicitly, a subclass overriding one of the hooks that take the
+	 * instruction string, like {@link #parse(String)} or
+	 * {@link #evaluateFunctor(Object, IArgs, String)}, is interpreted.
+	 * 
+	 * @return <code>true</code> if the expression is compiled
+	 */
+	public boolean isCompiled() {
+		if (compiled == null) {
+			return Compilable.get(getClass());
+		}
+		return compiled;
+	}
+
 	protected void parse(List<Expression> exprs, StringReader reader) throws IOException {
 		ExpressionParser parser = new ExpressionParser(':');
 		Expression expr = parser.parse(reader);
@@ -360,6 +566,10 @@ public class ProcessingDecorator implements IStringEvaluator {
 		}
 	}
 
+	public void setCompiled(boolean compiled) {
+		this.compiled = compiled;
+	}
+
 	public void setRecursionEvaluator(IStringEvaluator recursionEvaluator) {
 		this.recursionEvaluator = recursionEvaluator;
 	}
@@ -32,6 +32,8 @@ package de.intarsys.tools.expression;
 import java.lang.reflect.Method;
 
 import de.intarsys.tools.functor.IArgs;
+import de.intarsys.tools.reflect.ClassAccessors;
+import de.intarsys.tools.reflect.MemberAccessor;
 import de.intarsys.tools.reflect.ObjectTools;
 
 /**
@@ -43,8 +45,6 @@ public class ReflectiveResolver extends ContainerResolver {
 
 	private final Object object;
 
-	private Method resolveAny;
-
 	public ReflectiveResolver(Object object) {
 		super(PATH_SEPARATOR, false, null);
 		this.object = object;
@@ -52,27 +52,20 @@ public class ReflectiveResolver extends ContainerResolver {
 
 	@Override
 	protected Object basicEvaluate(String expression, IArgs args) throws EvaluationException {
-		Class<?> clazz = object.getClass();
-		Method[] methods = clazz.getMethods();
+		ClassAccessors accessors = ClassAccessors.get(object.getClass());
+		MemberAccessor[] methods = accessors.getMethodsAnnotatedWith(ResolveProperty.class);
 		for (int index = methods.length - 1; index >= 0; index--) {
-			Method method = methods[index];
-			ResolveProperty annotProperty = method.getAnnotation(ResolveProperty.class);
-			if (annotProperty != null) {
-				String property = annotProperty.property();
-				if (expression.equals(property)) {
-					try {
-						return method.invoke(object);
-					} catch (Exception e) {
-						throw new EvaluationException("can't evaluate '" + expression + "' (" + method + ")", e);
-					}
-				}
-			} else if (resolveAny == null) {
-				ResolveAny annotAny = method.getAnnotation(ResolveAny.class);
-				if (annotAny != null) {
-					resolveAny = method;
+			Method method = methods[index].getMethod();
+			String property = method.getAnnotation(ResolveProperty.class).property();
+			if (expression.equals(property)) {
+				try {
+					return methods[index].invoke(object);
+				} catch (Exception e) {
+					throw new EvaluationException("can't evaluate '" + expression + "' (" + method + ")", e);
 				}
 			}
 		}
+		MemberAccessor resolveAny = getResolveAny(accessors);
 		if (resolveAny != null) {
 			try {
 				return resolveAny.invoke(object, expression, args);
@@ -86,4 +79,14 @@ public class ReflectiveResolver extends ContainerResolver {
 			throw new EvaluationException("can't evaluate '" + expression + "'"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 	}
+
+	protected MemberAccessor getResolveAny(ClassAccessors accessors) {
+		MemberAccessor[] methods = accessors.getMethodsAnnotatedWith(ResolveAny.class);
+		for (int index = methods.length - 1; index >= 0; index--) {
+			if (methods[index].getMethod().getAnnotation(ResolveProperty.class) == null) {
+				return methods[index];
+			}
+		}
+		return null;
+	}
 }
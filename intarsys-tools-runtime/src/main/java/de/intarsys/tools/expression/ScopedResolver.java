@@ -39,8 +39,12 @@ import de.intarsys.tools.functor.IArgs;
 /**
  * An {@link IStringEvaluator} that supports a list of other resolvers that are
  * each asked in turn for evaluating the result.
+ * <p>
+ * Resolvers implementing {@link INamespaceAware} are skipped if they do not
+ * provide the namespace of the expression. All other resolvers are asked and
+ * may signal a missing namespace by throwing {@link NamespaceNotFound}.
  */
-public class ScopedResolver implements IStringEvaluator {
+public class ScopedResolver implements IStringEvaluator, INamespaceAware {
 
 	public static class Install {
 
@@ -86,7 +90,14 @@ public class ScopedResolver implements IStringEvaluator {
 		return scopedResolver;
 	}
 
-	private List<IStringEvaluator> resolvers = new ArrayList<>();
+	private static final IStringEvaluator[] EMPTY = new IStringEvaluator[0];
+
+	private final List<IStringEvaluator> resolvers = new ArrayList<>();
+
+	/**
+	 * Copy of {@link #resolvers} for iteration without locking
+	 */
+	private volatile IStringEvaluator[] resolverArray = EMPTY;
 
 	/**
 	 * Add a new resolver at the end of the search sequence.
@@ -94,15 +105,19 @@ public class ScopedResolver implements IStringEvaluator {
 	 * @param resolver the resolver to add
 	 * @return this
 	 */
-	public ScopedResolver addResolver(IStringEvaluator resolver) {
+	public synchronized ScopedResolver addResolver(IStringEvaluator resolver) {
 		resolvers.add(resolver);
+		updateResolverArray();
 		return this;
 	}
 
 	@Override
 	public Object evaluate(String expression, IArgs args) throws EvaluationException {
 		EvaluationException last = null;
-		for (IStringEvaluator resolver : resolvers) {
+		for (IStringEvaluator resolver : resolverArray) {
+			if (resolver instanceof INamespaceAware && !((INamespaceAware) resolver).isNamespaceAvailable(expression)) {
+				continue;
+			}
 			try {
 				return resolver.evaluate(expression, args);
 			} catch (NamespaceNotFound e) {
@@ -119,14 +134,26 @@ public class ScopedResolver implements IStringEvaluator {
 	}
 
 	public boolean isEmpty() {
-		return resolvers.isEmpty();
+		return resolverArray.length == 0;
 	}
 
-	public IStringEvaluator popResolver() {
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		for (IStringEvaluator resolver : resolverArray) {
+			if (!(resolver instanceof INamespaceAware) || ((INamespaceAware) resolver).isNamespaceAvailable(expression)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized IStringEvaluator popResolver() {
 		if (resolvers.isEmpty()) {
 			return null;
 		}
-		return resolvers.remove(0);
+		IStringEvaluator result = resolvers.remove(0);
+		updateResolverArray();
+		return result;
 	}
 
 	/**
@@ -134,11 +161,17 @@ public class ScopedResolver implements IStringEvaluator {
 	 *
 	 * @param resolver resolve to add
 	 */
-	public void pushResolver(IStringEvaluator resolver) {
+	public synchronized void pushResolver(IStringEvaluator resolver) {
 		resolvers.add(0, resolver);
+		updateResolverArray();
 	}
 
-	public void removeResolver(IStringEvaluator resolver) {
+	public synchronized void removeResolver(IStringEvaluator resolver) {
 		resolvers.remove(resolver);
+		updateResolverArray();
+	}
+
+	protected void updateResolverArray() {
+		resolverArray = resolvers.toArray(new IStringEvaluator[resolvers.size()]);
 	}
 }
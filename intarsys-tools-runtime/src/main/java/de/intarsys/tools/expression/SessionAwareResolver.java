@@ -11,7 +11,7 @@ import de.intarsys.tools.session.SessionLocal;
  * @see ThreadContextAwareResolver
  * 
  */
-public class SessionAwareResolver implements IStringEvaluator {
+public class SessionAwareResolver implements IStringEvaluator, INamespaceAware {
 
 	private static final SessionLocal<ScopedResolver> RESOLVER = new SessionLocal<>();
 
@@ -52,4 +52,10 @@ public class SessionAwareResolver implements IStringEvaluator {
 		return tempResolver.evaluate(expression, args);
 	}
 
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		ScopedResolver tempResolver = RESOLVER.get();
+		return tempResolver != null && tempResolver.isNamespaceAvailable(expression);
+	}
+
 }
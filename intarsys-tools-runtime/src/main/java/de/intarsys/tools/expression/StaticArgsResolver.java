@@ -69,4 +69,13 @@ public class StaticArgsResolver extends ContainerResolver {
 		}
 		return notFound(expression);
 	}
+
+	@Override
+	protected boolean isNamespaceDefined(String name) {
+		if (!isStrict() || args.isDefined(name)) {
+			return true;
+		}
+		// may be an index
+		return !name.isEmpty() && Character.isDigit(name.charAt(0));
+	}
 }
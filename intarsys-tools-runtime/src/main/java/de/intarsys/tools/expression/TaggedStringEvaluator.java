@@ -30,15 +30,9 @@
 package de.intarsys.tools.expression;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
 
 import de.intarsys.tools.exception.ExceptionTools;
 import de.intarsys.tools.functor.IArgs;
-import de.intarsys.tools.reader.DirectTagReader;
-import de.intarsys.tools.reader.IDirectTagHandler;
-import de.intarsys.tools.reader.ILocationProvider;
-import de.intarsys.tools.stream.StreamTools;
 import de.intarsys.tools.yalf.api.ILogger;
 
 /**
@@ -49,7 +43,8 @@ import de.intarsys.tools.yalf.api.ILogger;
  * </code>,
  * 
  * This implementation is literally copying all chars outside the "${ }" tags and expanding all tagged
- * content using the supplied {@link IStringEvaluator}.
+ * content using the supplied {@link IStringEvaluator}. The template is compiled once to a
+ * {@link TaggedStringTemplate} and shared between evaluations.
  * 
  * If strict is true, expansion will fail if an exception rises while expanding. If it is false, the expression that
  * failed is simply copied literally in the output. This is useful when expansion is applied multiple times with
@@ -59,6 +54,12 @@ public class TaggedStringEvaluator implements IStringEvaluator {
 
 	private static final ILogger Log = PACKAGE.Log;
 
+	private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	private static final int MAX_BUILDER_CAPACITY = 64 * 1024;
+
+	private static final Object UNUSED = new Object();
+
 	/**
 	 * Create a {@link TaggedStringEvaluator} using all {@link IStringEvaluator}
 	 * resolver scopes (most significant first).
@@ -100,23 +101,6 @@ public class TaggedStringEvaluator implements IStringEvaluator {
 	 */
 	private final IStringEvaluator evaluator;
 
-	private final IDirectTagHandler handler = new IDirectTagHandler() {
-		@Override
-		public Object endTag(String tagContent, Object context) throws IOException {
-			return evaluateExpression(tagContent, (IArgs) context);
-		}
-
-		@Override
-		public void setLocationProvider(ILocationProvider location) {
-			// ignore
-		}
-
-		@Override
-		public void startTag() {
-			//
-		}
-	};
-
 	private boolean strict = true;
 
 	protected TaggedStringEvaluator(IStringEvaluator resolver) {
@@ -134,24 +118,8 @@ public class TaggedStringEvaluator implements IStringEvaluator {
 		if (expression.indexOf('$') < 0) {
 			return expression;
 		}
-		Reader base = new StringReader(expression);
-		DirectTagReader reader = new DirectTagReader(base, handler, args, isEscape());
 		try {
-			reader.setForceToString(false);
-			int length = expression.length() * 2;
-			StringBuilder sb = new StringBuilder(length);
-			char[] c = new char[length];
-			int i = reader.read(c);
-			while (i != -1) {
-				sb.append(c, 0, i);
-				i = reader.read(c);
-			}
-			if (sb.length() == 0) {
-				if (reader.hasResolvedObject()) {
-					return reader.getResolvedObject();
-				}
-			}
-			return sb.toString();
+			return evaluateTemplate(TaggedStringTemplate.compile(expression, isEscape()), args);
 		} catch (IOException e) {
 			if (isStrict()) {
 				throw new EvaluationException(e);
@@ -159,8 +127,6 @@ public class TaggedStringEvaluator implements IStringEvaluator {
 				Log.warn("error evaluating {}, '{}'", expression, ExceptionTools.getMessage(e));
 				return expression;
 			}
-		} finally {
-			StreamTools.close(reader);
 		}
 	}
 
@@ -176,6 +142,54 @@ public class TaggedStringEvaluator implements IStringEvaluator {
 		}
 	}
 
+	/**
+	 * Evaluate a precompiled template.
+	 * 
+	 * A template consisting of a single expression returns the expression result unchanged. Otherwise the string
+	 * representation of all parts is concatenated, where null contributes nothing.
+	 * 
+	 * @param template
+	 * @param args
+	 * @return The evaluation result
+	 * @throws IOException
+	 */
+	protected Object evaluateTemplate(TaggedStringTemplate template, IArgs args) throws IOException {
+		if (template.isSingleExpression()) {
+			return evaluateExpression(template.getExpression(0), args);
+		}
+		StringBuilder sb = BUILDER.get();
+		if (sb == null) {
+			// recursive evaluation, the shared builder is in use
+			sb = new StringBuilder(template.getLength() * 2);
+		} else {
+			BUILDER.set(null);
+			sb.setLength(0);
+		}
+		try {
+			Object value = UNUSED;
+			for (int i = 0; i < template.size(); i++) {
+				if (template.isExpression(i)) {
+					value = evaluateExpression(template.getExpression(i), args);
+					if (value != null) {
+						sb.append(value);
+					}
+				} else {
+					sb.append(template.getLiteral(i));
+				}
+			}
+			if (sb.length() == 0 && value != UNUSED) {
+				// compatible to DirectTagReader: the last resolved object
+				return value;
+			}
+			return sb.toString();
+		} finally {
+			if (sb.capacity() > MAX_BUILDER_CAPACITY) {
+				sb = new StringBuilder(256);
+			}
+			BUILDER.set(sb);
+		}
+	}
+
 	public IStringEvaluator getEvaluator() {
 		return evaluator;
 	}
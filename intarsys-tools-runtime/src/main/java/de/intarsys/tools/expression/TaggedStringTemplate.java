@@ -0,0 +1,168 @@
+package de.intarsys.tools.expression;
+
+import java.io.IOException;
+import java.util.List;
+
+import de.intarsys.tools.cache.ConcurrentCache;
+
+/**
+ * The compiled, immutable form of a tagged string.
+ *
+ * A template is parsed once using {@link TaggedStringParser} into a sequence of literal and expression parts. These
+ * can then be evaluated any number of times with different arguments, without scanning the template again.
+ *
+ * Templates are shared, {@link #compile(String, boolean)} keeps a bounded cache of the most recently used ones.
+ */
+public final class TaggedStringTemplate {
+
+	private static final int CACHE_SIZE = 1024;
+
+	private static final ConcurrentCache<TaggedStringTemplate> CACHE = new ConcurrentCache<>(CACHE_SIZE);
+
+	private static final ConcurrentCache<TaggedStringTemplate> CACHE_ESCAPE = new ConcurrentCache<>(CACHE_SIZE);
+
+	/**
+	 * The {@link TaggedStringTemplate} for expression. The result is looked up in the cache and created if necessary.
+	 *
+	 * @param expression
+	 * @param escape
+	 *            true if the template supports escaped characters
+	 * @return The {@link TaggedStringTemplate} for expression
+	 * @throws IOException
+	 *             If the template is malformed, for example if an end tag is missing.
+	 */
+	public static TaggedStringTemplate compile(String expression, boolean escape) throws IOException {
+		ConcurrentCache<TaggedStringTemplate> cache = escape ? CACHE_ESCAPE : CACHE;
+		TaggedStringTemplate result = cache.get(expression);
+		if (result == null) {
+			result = create(expression, escape);
+			cache.put(expression, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Create a new {@link TaggedStringTemplate} for expression, bypassing the cache.
+	 *
+	 * @param expression
+	 * @param escape
+	 *            true if the template supports escaped characters
+	 * @return The new {@link TaggedStringTemplate}
+	 * @throws IOException
+	 */
+	public static TaggedStringTemplate create(String expression, boolean escape) throws IOException {
+		List<TaggedStringNode> nodes = new TaggedStringParser(escape).parse(expression);
+		String[] parts = new String[nodes.size()];
+		boolean[] expressions = new boolean[nodes.size()];
+		for (int i = 0; i < parts.length; i++) {
+			TaggedStringNode node = nodes.get(i);
+			if (node instanceof TaggedStringExpression) {
+				parts[i] = ((TaggedStringExpression) node).getExpression();
+				expressions[i] = true;
+			} else {
+				parts[i] = ((TaggedStringLiteral) node).getText();
+			}
+		}
+		return new TaggedStringTemplate(parts, expressions);
+	}
+
+	/**
+	 * The literal text or the expression content, in template order
+	 */
+	private final String[] parts;
+
+	/**
+	 * true where the part is an expression
+	 */
+	private final boolean[] expressions;
+
+	/**
+	 * The estimated result size
+	 */
+	private final int length;
+
+	private TaggedStringTemplate(String[] parts, boolean[] expressions) {
+		super();
+		this.parts = parts;
+		this.expressions = expressions;
+		int tempLength = 0;
+		for (String part : parts) {
+			tempLength += part.length();
+		}
+		this.length = tempLength;
+	}
+
+	/**
+	 * The expression at index or null if this is a literal part.
+	 *
+	 * @param index
+	 * @return The expression at index or null
+	 */
+	public String getExpression(int index) {
+		return expressions[index] ? parts[index] : null;
+	}
+
+	/**
+	 * The literal text at index or null if this is an expression part.
+	 *
+	 * @param index
+	 * @return The literal text at index or null
+	 */
+	public String getLiteral(int index) {
+		return expressions[index] ? null : parts[index];
+	}
+
+	/**
+	 * An estimate of the size of an expanded template.
+	 *
+	 * @return An estimate of the size of an expanded template.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * true if the part at index is an expression.
+	 *
+	 * @param index
+	 * @return true if the part at index is an expression.
+	 */
+	public boolean isExpression(int index) {
+		return expressions[index];
+	}
+
+	/**
+	 * true if the template is a single expression, so that the result of the expression evaluation may be returned
+	 * unchanged.
+	 *
+	 * @return true if the template is a single expression
+	 */
+	public boolean isSingleExpression() {
+		return parts.length == 1 && expressions[0];
+	}
+
+	/**
+	 * The number of literal and expression parts.
+	 *
+	 * @return The number of literal and expression parts.
+	 */
+	public int size() {
+		return parts.length;
+	}
+
+	/**
+	 * Recreate the template source (with escaping resolved).
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(length + parts.length * 3);
+		for (int i = 0; i < parts.length; i++) {
+			if (expressions[i]) {
+				sb.append("${").append(parts[i]).append('}'); //$NON-NLS-1$
+			} else {
+				sb.append(parts[i]);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -6,7 +6,7 @@ import de.intarsys.tools.functor.IArgs;
  * Ask an {@link IStringEvaluator} attached to the current thread to resolve.
  *
  */
-public class ThreadContextAwareResolver implements IStringEvaluator {
+public class ThreadContextAwareResolver implements IStringEvaluator, INamespaceAware {
 
 	private static final ThreadLocal<ScopedResolver> RESOLVER = new ThreadLocal<>();
 
@@ -49,4 +49,10 @@ public class ThreadContextAwareResolver implements IStringEvaluator {
 		return tempResolver.evaluate(expression, args);
 	}
 
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		ScopedResolver tempResolver = RESOLVER.get();
+		return tempResolver != null && tempResolver.isNamespaceAvailable(expression);
+	}
+
 }
@@ -0,0 +1,323 @@
+package de.intarsys.tools.functor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import de.intarsys.tools.cache.ConcurrentCache;
+
+/**
+ * The compiled form of a "." separated sequence of arg names, as used by
+ * {@link ArgTools#getPath(IArgs, String)} and friends.
+ *
+ * The path string is parsed once into its segments, each segment either an
+ * index (if it starts with a digit) or a name. {@link ArgPath} objects are
+ * immutable and shared, use {@link #compile(String)} to lookup the instance for a
+ * path.
+ *
+ * The segments are derived the same way as with "path.split("\\.")", for
+ * example "a..b" has an empty name as its second segment and trailing
+ * separators are ignored. The empty path and "." denote args itself.
+ */
+public final class ArgPath {
+
+	private static final int CACHE_SIZE = 4096;
+
+	private static final ConcurrentCache<ArgPath> CACHE = new ConcurrentCache<>(CACHE_SIZE);
+
+	/**
+	 * The {@link ArgPath} for path. The result is looked up in the cache and
+	 * created if necessary.
+	 *
+	 * @param path
+	 * @return The {@link ArgPath} for path
+	 */
+	public static ArgPath compile(String path) {
+		ArgPath result = CACHE.get(path);
+		if (result == null) {
+			result = create(path);
+			CACHE.put(path, result);
+		}
+		return result;
+	}
+
+	protected static int parseIndex(String name) {
+		if (name.length() > 0 && Character.isDigit(name.charAt(0))) {
+			try {
+				return Integer.parseInt(name.trim());
+			} catch (NumberFormatException e) {
+				// not an index
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Create a new {@link ArgPath}, bypassing the cache.
+	 *
+	 * @param path
+	 * @return The new {@link ArgPath}
+	 */
+	public static ArgPath create(String path) {
+		if (path == null) {
+			return new ArgPath(null, new String[0], true);
+		}
+		List<String> segments = new ArrayList<>();
+		int start = 0;
+		int end = path.indexOf('.');
+		while (end >= 0) {
+			segments.add(path.substring(start, end));
+			start = end + 1;
+			end = path.indexOf('.', start);
+		}
+		segments.add(path.substring(start));
+		// same as String.split, remove trailing empty segments
+		int size = segments.size();
+		while (size > 0 && segments.get(size - 1).isEmpty()) {
+			size--;
+		}
+		if (size == 0 && path.isEmpty()) {
+			// "".split() is [""]
+			size = 1;
+		}
+		boolean root = path.isEmpty() || ".".equals(path);
+		return new ArgPath(path, segments.subList(0, size).toArray(new String[size]), root);
+	}
+
+	private final String path;
+
+	/**
+	 * The segment names
+	 */
+	private final String[] names;
+
+	/**
+	 * The segment index or -1 if the segment is a name
+	 */
+	private final int[] indices;
+
+	/**
+	 * true if this path denotes the args itself when reading.
+	 */
+	private final boolean root;
+
+	private ArgPath(String path, String[] names, boolean root) {
+		super();
+		this.path = path;
+		this.names = names;
+		this.root = root;
+		this.indices = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			indices[i] = parseIndex(names[i]);
+		}
+	}
+
+	protected Object basicGet(IArgs args, int segment) {
+		int index = indices[segment];
+		if (index >= 0) {
+			return args.get(index);
+		}
+		return args.get(names[segment]);
+	}
+
+	protected boolean basicIsDefined(IArgs args, int segment) {
+		int index = indices[segment];
+		if (index >= 0) {
+			return args.isDefined(index);
+		}
+		return args.isDefined(names[segment]);
+	}
+
+	protected void basicPut(IArgs args, int segment, Object value) {
+		int index = indices[segment];
+		if (index >= 0) {
+			args.put(index, value);
+		} else {
+			args.put(names[segment], value);
+		}
+	}
+
+	protected void checkWritable() {
+		if (names.length == 0) {
+			throw new IllegalArgumentException("path '" + path + "' has no segments"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Descend the tree of {@link IArgs} objects and return the value in the
+	 * leaf {@link IArgs} instance or <code>null</code>.
+	 *
+	 * @param args
+	 * @return The argument value in args at this path
+	 */
+	public Object get(IArgs args) {
+		if (args == null) {
+			return null;
+		}
+		if (root) {
+			return args;
+		}
+		int last = names.length - 1;
+		for (int i = 0; i < last; i++) {
+			args = ArgTools.toArgs(basicGet(args, i));
+			if (args == null) {
+				return null;
+			}
+		}
+		return basicGet(args, last);
+	}
+
+	/**
+	 * The leaf name of the path.
+	 *
+	 * @return The leaf name of the path.
+	 */
+	public String getLeafName() {
+		return names.length == 0 ? null : names[names.length - 1];
+	}
+
+	/**
+	 * The {@link IArgs} containing the leaf binding or null.
+	 *
+	 * @param args
+	 * @return The {@link IArgs} containing the leaf binding.
+	 */
+	public IArgs getParent(IArgs args) {
+		int last = names.length - 1;
+		for (int i = 0; args != null && i < last; i++) {
+			args = ArgTools.toArgs(basicGet(args, i));
+		}
+		return args;
+	}
+
+	/**
+	 * The path string.
+	 *
+	 * @return The path string.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * The number of segments in this path.
+	 *
+	 * @return The number of segments in this path.
+	 */
+	public int getSegmentCount() {
+		return names.length;
+	}
+
+	/**
+	 * Descend the tree of {@link IArgs} objects and lazy create the
+	 * intermediate {@link IArgs} instances. Intermediate values that are not
+	 * {@link IArgs} are converted and replaced.
+	 *
+	 * @param args
+	 * @return The {@link IArgs} to contain the leaf binding.
+	 */
+	protected IArgs getParentCreate(IArgs args) {
+		int last = names.length - 1;
+		for (int i = 0; i < last; i++) {
+			Object tempValue = basicGet(args, i);
+			if (!(tempValue instanceof IArgs)) {
+				tempValue = ArgTools.toArgs(tempValue);
+				if (tempValue == null) {
+					tempValue = Args.create();
+				}
+				basicPut(args, i, tempValue);
+			}
+			args = (IArgs) tempValue;
+		}
+		return args;
+	}
+
+	/**
+	 * Descend the tree of {@link IArgs} objects and return true if all bindings
+	 * in the path are defined.
+	 *
+	 * @param args
+	 * @return true if all bindings are defined.
+	 */
+	public boolean isDefined(IArgs args) {
+		if (root) {
+			return true;
+		}
+		int last = names.length - 1;
+		for (int i = 0; i < last; i++) {
+			if (!basicIsDefined(args, i)) {
+				return false;
+			}
+			args = ArgTools.toArgs(basicGet(args, i));
+			if (args == null) {
+				return false;
+			}
+		}
+		return basicIsDefined(args, last);
+	}
+
+	/**
+	 * Descend (and lazy create) the tree of {@link IArgs} objects and set value
+	 * in the leaf {@link IArgs} instance.
+	 *
+	 * @param args
+	 * @param value
+	 * @return The {@link IArgs} containing the leaf binding.
+	 */
+	public IArgs put(IArgs args, Object value) {
+		checkWritable();
+		IArgs parent = getParentCreate(args);
+		basicPut(parent, names.length - 1, value);
+		return parent;
+	}
+
+	/**
+	 * Descend (and lazy create) the tree of {@link IArgs} objects and set the
+	 * value from supplier in the leaf {@link IArgs} instance if and only if
+	 * the leaf binding is not yet defined. A supplied value of
+	 * {@link ArgTools#UNDEFINED} is ignored.
+	 *
+	 * @param args
+	 * @param supplier
+	 * @return The {@link IArgs} containing the leaf binding.
+	 */
+	public IArgs putIfAbsent(IArgs args, Supplier<?> supplier) {
+		checkWritable();
+		IArgs parent = getParentCreate(args);
+		int last = names.length - 1;
+		if (!basicIsDefined(parent, last)) {
+			Object newValue = supplier.get();
+			if (newValue != ArgTools.UNDEFINED) {
+				basicPut(parent, last, newValue);
+			}
+		}
+		return parent;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	/**
+	 * Descend the tree of {@link IArgs} objects and undefine the leaf binding.
+	 *
+	 * @param args
+	 */
+	public void undefine(IArgs args) {
+		if (names.length == 0) {
+			return;
+		}
+		IArgs parent = getParent(args);
+		if (parent == null) {
+			return;
+		}
+		int last = names.length - 1;
+		int index = indices[last];
+		if (index >= 0) {
+			parent.undefine(index);
+		} else {
+			parent.undefine(names[last]);
+		}
+	}
+}
@@ -1188,24 +1188,7 @@ public final class ArgTools {
 	 * @return The argument value in args at path
 	 */
 	public static Object getPath(IArgs args, String path) {
-		if (args == null) {
-			return null;
-		}
-		if (StringTools.isEmpty(path) || ".".equals(path)) {
-			return args;
-		}
-		String[] segments = path.split("\\.");
-		int position = 0;
-		while (position < segments.length - 1) {
-			Object tempValue = basicGet(args, segments[position]);
-			// we are not at a leaf yet - convert
-			args = toArgs(tempValue);
-			if (args == null) {
-				return null;
-			}
-			position++;
-		}
-		return basicGet(args, segments[position]);
+		return ArgPath.compile(path).get(args);
 	}
 
 	/**
@@ -1458,25 +1441,7 @@ public final class ArgTools {
 	 * @return true if all bindings are defined.
 	 */
 	public static boolean isDefined(IArgs args, String path) {
-		if (StringTools.isEmpty(path) || ".".equals(path)) {
-			return true;
-		}
-		String[] segments = path.split("\\.");
-		int position = 0;
-		String name;
-		Object tempValue;
-		while (position < segments.length - 1) {
-			name = segments[position];
-			tempValue = basicGetOrUndefined(args, name);
-			args = toArgs(tempValue);
-			if (args == null) {
-				return false;
-			}
-			position++;
-		}
-		name = segments[position];
-		tempValue = basicGetOrUndefined(args, name);
-		return tempValue != UNDEFINED;
+		return ArgPath.compile(path).isDefined(args);
 	}
 
 	/**
@@ -1814,59 +1779,7 @@ public final class ArgTools {
 	 * @return The modified input parameter args.
 	 */
 	public static IArgs putPath(IArgs args, String path, Object value) {
-		String[] segments = path.split("\\."); //$NON-NLS-1$
-		int position = 0;
-		String name;
-		int index;
-		while (position < segments.length - 1) {
-			name = segments[position];
-			Object tempValue;
-			try {
-				if (name.length() > 0 && Character.isDigit(name.charAt(0))) {
-					index = Integer.parseInt(name.trim());
-					tempValue = args.get(index);
-					if (!(tempValue instanceof IArgs)) {
-						tempValue = toArgs(tempValue);
-						if (tempValue == null) {
-							tempValue = Args.create();
-						}
-						args.put(index, tempValue);
-					}
-				} else {
-					tempValue = args.get(name);
-					if (!(tempValue instanceof IArgs)) {
-						tempValue = toArgs(tempValue);
-						if (tempValue == null) {
-							tempValue = Args.create();
-						}
-						args.put(name, tempValue);
-					}
-				}
-			} catch (NumberFormatException e) {
-				tempValue = args.get(name);
-				if (!(tempValue instanceof IArgs)) {
-					tempValue = toArgs(tempValue);
-					if (tempValue == null) {
-						tempValue = Args.create();
-					}
-					args.put(name, tempValue);
-				}
-			}
-			args = (IArgs) tempValue;
-			position++;
-		}
-		name = segments[position];
-		try {
-			if (name.length() > 0 && Character.isDigit(name.charAt(0))) {
-				index = Integer.parseInt(name.trim());
-				args.put(index, value);
-			} else {
-				args.put(name, value);
-			}
-		} catch (NumberFormatException e) {
-			args.put(name, value);
-		}
-		return args;
+		return ArgPath.compile(path).put(args, value);
 	}
 
 	/**
@@ -1893,54 +1806,7 @@ public final class ArgTools {
 	 * @return The modified input parameter args.
 	 */
 	public static IArgs putPathIfAbsent(IArgs args, String path, Supplier<?> supplier) {
-		String[] segments = path.split("\\."); //$NON-NLS-1$
-		int position = 0;
-		String name;
-		int index;
-		while (position < segments.length - 1) {
-			name = segments[position];
-			Object tempValue;
-			try {
-				index = Integer.parseInt(name.trim());
-				tempValue = args.get(index);
-				if (!(tempValue instanceof IArgs)) {
-					tempValue = toArgs(tempValue);
-					if (tempValue == null) {
-						tempValue = Args.create();
-					}
-					args.put(index, tempValue);
-				}
-			} catch (NumberFormatException e) {
-				tempValue = args.get(name);
-				if (!(tempValue instanceof IArgs)) {
-					tempValue = toArgs(tempValue);
-					if (tempValue == null) {
-						tempValue = Args.create();
-					}
-					args.put(name, tempValue);
-				}
-			}
-			args = (IArgs) tempValue;
-			position++;
-		}
-		name = segments[position];
-		try {
-			index = Integer.parseInt(name.trim());
-			if (!args.isDefined(index)) {
-				Object newValue = supplier.get();
-				if (newValue != UNDEFINED) {
-					args.put(index, newValue);
-				}
-			}
-		} catch (NumberFormatException e) {
-			if (!args.isDefined(name)) {
-				Object newValue = supplier.get();
-				if (newValue != UNDEFINED) {
-					args.put(name, newValue);
-				}
-			}
-		}
-		return args;
+		return ArgPath.compile(path).putIfAbsent(args, supplier);
 	}
 
 	/**
@@ -2525,23 +2391,7 @@ public final class ArgTools {
 		if (StringTools.isEmpty(path)) {
 			return;
 		}
-		String name;
-		int lastIndex = path.lastIndexOf('.');
-		if (lastIndex > 0) {
-			name = path.substring(lastIndex + 1);
-			args = toArgs(getPath(args, path.substring(0, lastIndex)));
-			if (args == null) {
-				return;
-			}
-		} else {
-			name = path;
-		}
-		try {
-			int index = Integer.parseInt(name.trim());
-			args.undefine(index);
-		} catch (NumberFormatException e) {
-			args.undefine(name);
-		}
+		ArgPath.compile(path).undefine(args);
 	}
 
 	/**
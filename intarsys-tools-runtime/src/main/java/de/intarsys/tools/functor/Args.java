@@ -82,6 +82,7 @@ public class Args implements IArgs {
 	static class Binding implements IBinding {
 		protected String name;
 		protected Object value;
+		protected Args owner;
 
 		protected Binding(String name) {
 			super();
@@ -113,6 +114,9 @@ public class Args implements IArgs {
 		@Override
 		public void setName(String name) {
 			this.name = name;
+			if (owner != null) {
+				owner.indexRenamed();
+			}
 		}
 
 		@Override
@@ -128,6 +132,12 @@ public class Args implements IArgs {
 
 	private static final Binding[] EMPTY = new Binding[0];
 
+	/**
+	 * Above this number of bindings, names are resolved using a hash index
+	 * instead of a linear scan.
+	 */
+	protected static final int INDEX_THRESHOLD = 8;
+
 	private static final Object UNDEFINED = new Object();
 
 	public static Args create() {
@@ -171,6 +181,17 @@ public class Args implements IArgs {
 		return args;
 	}
 
+	/**
+	 * true if name is a reserved "xyzArgs" name.
+	 * 
+	 * @param name
+	 * @return true if name is a reserved "xyzArgs" name.
+	 */
+	protected static boolean isInstanceSpecArgsName(String name) {
+		int length = name.length();
+		return length > 4 && name.charAt(length - 1) == 's' && name.endsWith("Args");
+	}
+
 	protected static boolean isInstanceSpec(Object oldValue) {
 		if (oldValue instanceof InstanceSpec) {
 			return true;
@@ -198,6 +219,19 @@ public class Args implements IArgs {
 
 	private int ptr;
 
+	/**
+	 * Open addressing hash index from name to position + 1 in entries, 0 marks
+	 * a free slot. This is maintained by the mutating methods once the number
+	 * of bindings exceeds INDEX_THRESHOLD, so read only access to a shared
+	 * instance never writes.
+	 */
+	private int[] nameIndex;
+
+	/**
+	 * The number of names in index.
+	 */
+	private int indexSize;
+
 	public Args() {
 		super();
 	}
@@ -218,6 +252,10 @@ public class Args implements IArgs {
 				} else {
 					entries[i] = new Binding(tempEntry.name, value);
 				}
+				entries[i].owner = this;
+			}
+			if (ptr > INDEX_THRESHOLD) {
+				indexRebuild();
 			}
 		}
 	}
@@ -247,6 +285,7 @@ public class Args implements IArgs {
 	public IBinding add(Object object) {
 		ensureCapacity(ptr);
 		Binding tempBinding = new Binding(null, object);
+		tempBinding.owner = this;
 		entries[ptr++] = tempBinding;
 		return tempBinding;
 	}
@@ -259,9 +298,11 @@ public class Args implements IArgs {
 	@Override
 	public void clear() {
 		for (int i = 0; i < ptr; i++) {
+			entries[i].owner = null;
 			entries[i] = null;
 		}
 		ptr = 0;
+		nameIndex = null;
 	}
 
 	@Override
@@ -271,7 +312,7 @@ public class Args implements IArgs {
 
 	@Override
 	public IBinding declare(String name) {
-		if (name.endsWith("Args") && name.length() > 4) {
+		if (isInstanceSpecArgsName(name)) {
 			IArgs spec = getAsInstanceSpecArgs(name);
 			return spec.declare(ARG_ARGS);
 		} else {
@@ -283,7 +324,7 @@ public class Args implements IArgs {
 			for (int i = 0; i < ptr; i++) {
 				tempBinding = entries[i];
 				if (tempBinding.name == null) {
-					tempBinding.name = name;
+					tempBinding.setName(name);
 					return tempBinding;
 				}
 			}
@@ -294,7 +335,8 @@ public class Args implements IArgs {
 
 	protected void ensureCapacity(int min) {
 		if (min >= entries.length) {
-			Binding[] newEntries = new Binding[min + 4];
+			// grow linear while small, then geometric
+			Binding[] newEntries = new Binding[Math.max(min + 4, entries.length + (entries.length >> 1))];
 			System.arraycopy(entries, 0, newEntries, 0, entries.length);
 			entries = newEntries;
 		}
@@ -349,7 +391,7 @@ public class Args implements IArgs {
 
 	@Override
 	public Object get(String name) {
-		if (name.endsWith("Args") && name.length() > 4) {
+		if (isInstanceSpecArgsName(name)) {
 			// restructure InstanceSpec type
 			String tempName = name.substring(0, name.length() - 4);
 			Binding entry = getBinding(tempName);
@@ -384,11 +426,35 @@ public class Args implements IArgs {
 	}
 
 	protected Binding getBinding(String name) {
-		for (int i = 0; i < ptr; i++) {
-			Binding entry = entries[i];
+		if (ptr <= INDEX_THRESHOLD) {
+			for (int i = 0; i < ptr; i++) {
+				Binding entry = entries[i];
+				if (name.equals(entry.name)) {
+					return entry;
+				}
+			}
+			return null;
+		}
+		int[] table = nameIndex;
+		if (table == null) {
+			// no named bindings above the threshold yet
+			for (int i = 0; i < ptr; i++) {
+				Binding entry = entries[i];
+				if (name.equals(entry.name)) {
+					return entry;
+				}
+			}
+			return null;
+		}
+		int mask = table.length - 1;
+		int slot = indexHash(name) & mask;
+		int position;
+		while ((position = table[slot]) != 0) {
+			Binding entry = entries[position - 1];
 			if (name.equals(entry.name)) {
 				return entry;
 			}
+			slot = (slot + 1) & mask;
 		}
 		return null;
 	}
@@ -409,6 +475,82 @@ public class Args implements IArgs {
 		return sb.toString().hashCode();
 	}
 
+	/**
+	 * Add the binding at position to the index, if not yet present. The first
+	 * binding for a name wins, as with the linear scan.
+	 * 
+	 * @param position
+	 */
+	protected void indexAdd(int position) {
+		String name = entries[position].name;
+		if (name == null) {
+			return;
+		}
+		if ((indexSize + 1) * 2 > nameIndex.length) {
+			indexRebuild();
+			return;
+		}
+		indexInsert(nameIndex, position);
+	}
+
+	/**
+	 * Add the binding at position to the index, creating the index when the
+	 * number of bindings exceeds INDEX_THRESHOLD.
+	 * 
+	 * @param position
+	 */
+	protected void indexAdded(int position) {
+		if (nameIndex != null) {
+			indexAdd(position);
+		} else if (ptr > INDEX_THRESHOLD) {
+			indexRebuild();
+		}
+	}
+
+	protected int indexHash(String name) {
+		int hash = name.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	protected void indexInsert(int[] table, int position) {
+		String name = entries[position].name;
+		int mask = table.length - 1;
+		int slot = indexHash(name) & mask;
+		int other;
+		while ((other = table[slot]) != 0) {
+			if (name.equals(entries[other - 1].name)) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = position + 1;
+		indexSize++;
+	}
+
+	protected void indexRebuild() {
+		int capacity = 16;
+		while (capacity < ptr * 4) {
+			capacity <<= 1;
+		}
+		int[] table = new int[capacity];
+		indexSize = 0;
+		for (int i = 0; i < ptr; i++) {
+			if (entries[i].name != null) {
+				indexInsert(table, i);
+			}
+		}
+		nameIndex = table;
+	}
+
+	/**
+	 * A binding was renamed, the first binding for a name may have changed.
+	 */
+	protected void indexRenamed() {
+		if (nameIndex != null || ptr > INDEX_THRESHOLD) {
+			indexRebuild();
+		}
+	}
+
 	@Override
 	public boolean isDefined(int index) {
 		if (index < 0 || index >= ptr) {
@@ -419,7 +561,7 @@ public class Args implements IArgs {
 
 	@Override
 	public boolean isDefined(String name) {
-		if (name.endsWith("Args") && name.length() > 4) {
+		if (isInstanceSpecArgsName(name)) {
 			// restructure InstanceSpec type
 			String tempName = name.substring(0, name.length() - 4);
 			Binding entry = getBinding(tempName);
@@ -477,9 +619,11 @@ public class Args implements IArgs {
 			ensureCapacity(index);
 			for (int i = ptr; i < index; i++) {
 				entries[i] = new Binding(null);
+				entries[i].owner = this;
 			}
 			tempBinding = new Binding(null, value);
 			entries[index] = tempBinding;
+			tempBinding.owner = this;
 			ptr = index + 1;
 		} else {
 			tempBinding = entries[index];
@@ -490,7 +634,7 @@ public class Args implements IArgs {
 
 	@Override
 	public IBinding put(String name, Object value) {
-		if (name.endsWith("Args") && name.length() > 4) {
+		if (isInstanceSpecArgsName(name)) {
 			IArgs spec = getAsInstanceSpecArgs(name);
 			return spec.put(ARG_ARGS, value);
 		} else {
@@ -510,7 +654,9 @@ public class Args implements IArgs {
 			}
 			ensureCapacity(ptr);
 			binding = new Binding(name, value);
+			binding.owner = this;
 			entries[ptr++] = binding;
+			indexAdded(ptr - 1);
 			return binding;
 		}
 	}
@@ -534,7 +680,7 @@ public class Args implements IArgs {
 
 	@Override
 	public void undefine(String name) {
-		if (name.endsWith("Args") && name.length() > 4) {
+		if (isInstanceSpecArgsName(name)) {
 			IArgs spec = getAsInstanceSpecArgs(name);
 			spec.undefine(ARG_ARGS);
 		} else {
@@ -29,6 +29,8 @@
  */
 package de.intarsys.tools.ipc;
 
+import java.lang.ref.Reference;
+
 import de.intarsys.tools.exception.InvalidRequestException;
 
 /**
@@ -47,6 +49,17 @@ public class IPCHandle {
 
 	private Object object;
 
+	/**
+	 * The object, if it is referenced weakly
+	 */
+	private Reference<Object> reference;
+
+	/**
+	 * The time of the last export or import, if the scope uses a time to
+	 * live
+	 */
+	private volatile long lastAccess;
+
 	protected IPCHandle(StandardIPCScope heap, Object object, String id) {
 		super();
 		this.scope = heap;
@@ -65,8 +78,17 @@ public class IPCHandle {
 		return id;
 	}
 
+	protected long getLastAccess() {
+		return lastAccess;
+	}
+
 	public Object getObject() {
-		return object;
+		Reference<Object> tempReference = reference;
+		return tempReference == null ? object : tempReference.get();
+	}
+
+	protected Reference<Object> getReference() {
+		return reference;
 	}
 
 	protected StandardIPCScope getScope() {
@@ -85,6 +107,20 @@ public class IPCHandle {
 		getScope().resolve(this);
 	}
 
+	protected void setLastAccess(long lastAccess) {
+		this.lastAccess = lastAccess;
+	}
+
+	/**
+	 * Reference the resolved object weakly.
+	 * 
+	 * @param pReference
+	 */
+	protected void setReference(Reference<Object> pReference) {
+		this.reference = pReference;
+		this.object = null;
+	}
+
 	@Override
 	public String toString() {
 		return getId();
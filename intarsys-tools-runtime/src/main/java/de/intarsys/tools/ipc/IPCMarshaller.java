@@ -1,12 +1,18 @@
 package de.intarsys.tools.ipc;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
 
 import de.intarsys.tools.collection.ConversionIterator;
 import de.intarsys.tools.converter.ConversionException;
@@ -16,8 +22,54 @@ import de.intarsys.tools.functor.Args;
 import de.intarsys.tools.functor.IArgs;
 import de.intarsys.tools.functor.IArgs.IBinding;
 
+/**
+ * Marshal values to and from the transport layer.
+ * <p>
+ * Containers ({@link IArgs}, {@link Map}, arrays and {@link Collection}) are
+ * traversed, a copy is created only when an element changes. Containers
+ * reachable more than once are processed once, cycles are left as they are.
+ * Immutable JDK values (strings, boxed primitives, {@link BigDecimal} and
+ * {@link BigInteger}) are passed without conversion. The kind of each class is
+ * determined only once.
+ */
 public class IPCMarshaller {
 
+	/**
+	 * How values of a class are marshaled.
+	 */
+	protected enum Kind {
+		ARGS, MAP, ARRAY, COLLECTION, ITERATOR, STRING, LEAF, OTHER
+	}
+
+	private static final Set<Class<?>> LEAF_CLASSES = Set.of(Boolean.class, Character.class, Byte.class,
+			Short.class, Integer.class, Long.class, Float.class, Double.class, BigDecimal.class, BigInteger.class);
+
+	private static final ClassValue<Kind> KINDS = new ClassValue<Kind>() {
+		@Override
+		protected Kind computeValue(Class<?> type) {
+			if (IArgs.class.isAssignableFrom(type)) {
+				return Kind.ARGS;
+			} else if (Map.class.isAssignableFrom(type)) {
+				return Kind.MAP;
+			} else if (Object[].class.isAssignableFrom(type)) {
+				return Kind.ARRAY;
+			} else if (Collection.class.isAssignableFrom(type)) {
+				return Kind.COLLECTION;
+			} else if (Iterator.class.isAssignableFrom(type)) {
+				return Kind.ITERATOR;
+			} else if (type == String.class) {
+				return Kind.STRING;
+			} else if (LEAF_CLASSES.contains(type)) {
+				return Kind.LEAF;
+			}
+			return Kind.OTHER;
+		}
+	};
+
+	protected static Kind getKind(Object value) {
+		return KINDS.get(value.getClass());
+	}
+
 	public IPCMarshaller() {
 		super();
 	}
@@ -27,67 +79,108 @@ public class IPCMarshaller {
 	}
 
 	public Object marshal(Object value) throws IOException {
-		if (value instanceof IArgs) {
-			return marshalArgs((IArgs) value);
-		} else if (value instanceof Map) {
-			return marshalMap((Map) value);
-		} else if (value instanceof Object[]) {
-			return marshalArray((Object[]) value);
-		} else if (value instanceof Collection) {
-			return marshalCollection((Collection) value);
-		} else if (value instanceof Iterator) {
+		return marshal(value, null);
+	}
+
+	protected Object marshal(Object value, Map<Object, Object> visited) throws IOException {
+		if (value == null) {
+			return null;
+		}
+		Kind kind = getKind(value);
+		switch (kind) {
+		case STRING:
+		case LEAF:
+			return value;
+		case OTHER:
+			return marshalObject(value);
+		case ITERATOR:
 			return marshalIterator((Iterator) value);
+		default:
+			break;
 		}
-		// todo should use more explicit conversion
-		try {
-			value = ConverterRegistry.get().convert(value, IPCObject.class);
-		} catch (ConversionException e) {
-			throw new IOException(e);
+		Map<Object, Object> tempVisited = visited == null ? new IdentityHashMap<>() : visited;
+		Object result = tempVisited.get(value);
+		if (result != null) {
+			// done or in progress
+			return result;
 		}
-		return value;
+		tempVisited.put(value, value);
+		if (kind == Kind.ARGS) {
+			result = marshalArgs((IArgs) value, tempVisited);
+		} else if (kind == Kind.MAP) {
+			result = marshalMap((Map) value, tempVisited);
+		} else if (kind == Kind.ARRAY) {
+			result = marshalArray((Object[]) value, tempVisited);
+		} else {
+			result = marshalCollection((Collection) value, tempVisited);
+		}
+		tempVisited.put(value, result);
+		return result;
 	}
 
 	protected Object marshalArgs(IArgs args) throws IOException {
-		IArgs tempCopy = Args.create();
-		boolean touched = false;
-		for (Iterator<IBinding> it = args.bindings(); it.hasNext();) {
+		return marshalArgs(args, new IdentityHashMap<>());
+	}
+
+	protected Object marshalArgs(IArgs args, Map<Object, Object> visited) throws IOException {
+		IArgs tempCopy = null;
+		int index = 0;
+		for (Iterator<IBinding> it = args.bindings(); it.hasNext(); index++) {
 			IBinding binding = it.next();
-			String name = binding.getName();
 			Object value = binding.getValue();
-			Object newValue = marshal(value);
-			tempCopy.add(newValue).setName(name);
-			if (newValue != value) {
-				touched = true;
+			Object newValue = marshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = Args.create();
+				Iterator<IBinding> itPrevious = args.bindings();
+				for (int i = 0; i < index; i++) {
+					IBinding previous = itPrevious.next();
+					tempCopy.add(previous.getValue()).setName(previous.getName());
+				}
+			}
+			if (tempCopy != null) {
+				tempCopy.add(newValue).setName(binding.getName());
 			}
 		}
-		return touched ? tempCopy : args;
+		return tempCopy == null ? args : tempCopy;
 	}
 
 	protected Object marshalArray(Object[] array) throws IOException {
-		Object[] tempCopy = new Object[array.length];
-		boolean touched = false;
+		return marshalArray(array, new IdentityHashMap<>());
+	}
+
+	protected Object marshalArray(Object[] array, Map<Object, Object> visited) throws IOException {
+		Object[] tempCopy = null;
 		for (int i = 0; i < array.length; i++) {
 			Object value = array[i];
-			Object newValue = marshal(value);
-			tempCopy[i] = newValue;
-			if (newValue != value) {
-				touched = true;
+			Object newValue = marshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = Arrays.copyOf(array, array.length, Object[].class);
+			}
+			if (tempCopy != null) {
+				tempCopy[i] = newValue;
 			}
 		}
-		return touched ? tempCopy : array;
+		return tempCopy == null ? array : tempCopy;
 	}
 
 	protected Object marshalCollection(Collection collection) throws IOException {
-		List<Object> tempCopy = new ArrayList<>(collection.size());
-		boolean touched = false;
+		return marshalCollection(collection, new IdentityHashMap<>());
+	}
+
+	protected Object marshalCollection(Collection collection, Map<Object, Object> visited) throws IOException {
+		List<Object> tempCopy = null;
+		int index = 0;
 		for (Object value : collection) {
-			Object newValue = marshal(value);
-			tempCopy.add(newValue);
-			if (newValue != value) {
-				touched = true;
+			Object newValue = marshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = createListPrefix(collection, index);
 			}
+			if (tempCopy != null) {
+				tempCopy.add(newValue);
+			}
+			index++;
 		}
-		return touched ? tempCopy : collection;
+		return tempCopy == null ? collection : tempCopy;
 	}
 
 	protected Object marshalIterator(Iterator iterator) {
@@ -118,19 +211,69 @@ public class IPCMarshaller {
 	}
 
 	protected Object marshalMap(Map map) throws IOException {
-		Map tempCopy = new HashMap(map.size());
-		boolean touched = false;
-		for (Iterator<Map.Entry> it = map.entrySet().iterator(); it.hasNext();) {
+		return marshalMap(map, new IdentityHashMap<>());
+	}
+
+	protected Object marshalMap(Map map, Map<Object, Object> visited) throws IOException {
+		Map tempCopy = null;
+		int index = 0;
+		for (Iterator<Map.Entry> it = map.entrySet().iterator(); it.hasNext(); index++) {
 			Map.Entry entry = it.next();
-			Object key = entry.getKey();
 			Object value = entry.getValue();
-			Object newValue = marshal(value);
-			tempCopy.put(key, newValue);
-			if (newValue != value) {
-				touched = true;
+			Object newValue = marshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = createMapPrefix(map, index);
+			}
+			if (tempCopy != null) {
+				tempCopy.put(entry.getKey(), newValue);
 			}
 		}
-		return touched ? tempCopy : map;
+		return tempCopy == null ? map : tempCopy;
+	}
+
+	/**
+	 * Marshal a value that is neither a container nor an immutable JDK value.
+	 *
+	 * @param value
+	 * @return The marshaled value
+	 * @throws IOException
+	 */
+	protected Object marshalObject(Object value) throws IOException {
+		// todo should use more explicit conversion
+		try {
+			return ConverterRegistry.get().convert(value, IPCObject.class);
+		} catch (ConversionException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * A copy of the first count elements of collection.
+	 */
+	protected List<Object> createListPrefix(Collection collection, int count) {
+		List<Object> result = new ArrayList<>(collection.size());
+		if (collection instanceof List && collection instanceof RandomAccess) {
+			result.addAll(((List) collection).subList(0, count));
+			return result;
+		}
+		Iterator it = collection.iterator();
+		for (int i = 0; i < count; i++) {
+			result.add(it.next());
+		}
+		return result;
+	}
+
+	/**
+	 * A copy of the first count entries of map.
+	 */
+	protected Map createMapPrefix(Map map, int count) {
+		Map result = new HashMap(map.size());
+		Iterator<Map.Entry> it = map.entrySet().iterator();
+		for (int i = 0; i < count; i++) {
+			Map.Entry entry = it.next();
+			result.put(entry.getKey(), entry.getValue());
+		}
+		return result;
 	}
 
 	/**
@@ -138,63 +281,104 @@ public class IPCMarshaller {
 	 * <p>
 	 * ATTENTION: Currently this method must unmarshal its {@link IArgs}
 	 * in-place!
-	 * 
+	 *
 	 * @param value
 	 * @return
 	 * @throws IOException
 	 */
 	public Object unmarshal(Object value) throws IOException {
-		if (value instanceof IArgs) {
-			return unmarshalArgs((IArgs) value);
-		} else if (value instanceof Map) {
-			return unmarshalMap((Map) value);
-		} else if (value instanceof Object[]) {
-			return unmarshalArray((Object[]) value);
-		} else if (value instanceof Collection) {
-			return unmarshalCollection((Collection) value);
-		} else if (value instanceof Iterator) {
-			return unmarshalIterator((Iterator) value);
-		} else if (value instanceof String) {
+		return unmarshal(value, null);
+	}
+
+	protected Object unmarshal(Object value, Map<Object, Object> visited) throws IOException {
+		if (value == null) {
+			return null;
+		}
+		Kind kind = getKind(value);
+		switch (kind) {
+		case STRING:
 			return unmarshalString((String) value);
+		case LEAF:
+		case OTHER:
+			return value;
+		case ITERATOR:
+			return unmarshalIterator((Iterator) value);
+		default:
+			break;
 		}
-		return value;
+		Map<Object, Object> tempVisited = visited == null ? new IdentityHashMap<>() : visited;
+		Object result = tempVisited.get(value);
+		if (result != null) {
+			// done or in progress
+			return result;
+		}
+		tempVisited.put(value, value);
+		if (kind == Kind.ARGS) {
+			result = unmarshalArgs((IArgs) value, tempVisited);
+		} else if (kind == Kind.MAP) {
+			result = unmarshalMap((Map) value, tempVisited);
+		} else if (kind == Kind.ARRAY) {
+			result = unmarshalArray((Object[]) value, tempVisited);
+		} else {
+			result = unmarshalCollection((Collection) value, tempVisited);
+		}
+		tempVisited.put(value, result);
+		return result;
 	}
 
 	protected Object unmarshalArgs(IArgs args) throws IOException {
+		return unmarshalArgs(args, new IdentityHashMap<>());
+	}
+
+	protected Object unmarshalArgs(IArgs args, Map<Object, Object> visited) throws IOException {
 		for (Iterator<IBinding> it = args.bindings(); it.hasNext();) {
 			IBinding binding = it.next();
 			Object value = binding.getValue();
-			Object newValue = unmarshal(value);
-			binding.setValue(newValue);
+			Object newValue = unmarshal(value, visited);
+			if (newValue != value) {
+				binding.setValue(newValue);
+			}
 		}
 		return args;
 	}
 
 	protected Object unmarshalArray(Object[] array) throws IOException {
-		Object[] tempCopy = new Object[array.length];
-		boolean touched = false;
+		return unmarshalArray(array, new IdentityHashMap<>());
+	}
+
+	protected Object unmarshalArray(Object[] array, Map<Object, Object> visited) throws IOException {
+		Object[] tempCopy = null;
 		for (int i = 0; i < array.length; i++) {
 			Object value = array[i];
-			Object newValue = unmarshal(value);
-			tempCopy[i] = newValue;
-			if (newValue != value) {
-				touched = true;
+			Object newValue = unmarshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = Arrays.copyOf(array, array.length, Object[].class);
+			}
+			if (tempCopy != null) {
+				tempCopy[i] = newValue;
 			}
 		}
-		return touched ? tempCopy : array;
+		return tempCopy == null ? array : tempCopy;
 	}
 
 	protected Object unmarshalCollection(Collection collection) throws IOException {
-		List<Object> tempCopy = new ArrayList<>(collection.size());
-		boolean touched = false;
+		return unmarshalCollection(collection, new IdentityHashMap<>());
+	}
+
+	protected Object unmarshalCollection(Collection collection, Map<Object, Object> visited) throws IOException {
+		List<Object> tempCopy = null;
+		int index = 0;
 		for (Object value : collection) {
-			Object newValue = unmarshal(value);
-			tempCopy.add(newValue);
-			if (newValue != value) {
-				touched = true;
+			Object newValue = unmarshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = createListPrefix(collection, index);
 			}
+			if (tempCopy != null) {
+				tempCopy.add(newValue);
+			}
+			index++;
 		}
-		return touched ? tempCopy : collection;
+		return tempCopy == null ? collection : tempCopy;
 	}
 
 	protected Object unmarshalIterator(Iterator iterator) {
@@ -220,19 +404,24 @@ public class IPCMarshaller {
 	}
 
 	protected Object unmarshalMap(Map map) throws IOException {
-		Map tempCopy = new HashMap(map.size());
-		boolean touched = false;
-		for (Iterator<Map.Entry> it = map.entrySet().iterator(); it.hasNext();) {
+		return unmarshalMap(map, new IdentityHashMap<>());
+	}
+
+	protected Object unmarshalMap(Map map, Map<Object, Object> visited) throws IOException {
+		Map tempCopy = null;
+		int index = 0;
+		for (Iterator<Map.Entry> it = map.entrySet().iterator(); it.hasNext(); index++) {
 			Map.Entry entry = it.next();
-			Object key = entry.getKey();
 			Object value = entry.getValue();
-			Object newValue = unmarshal(value);
-			tempCopy.put(key, newValue);
-			if (newValue != value) {
-				touched = true;
+			Object newValue = unmarshal(value, visited);
+			if (tempCopy == null && newValue != value) {
+				tempCopy = createMapPrefix(map, index);
+			}
+			if (tempCopy != null) {
+				tempCopy.put(entry.getKey(), newValue);
 			}
 		}
-		return touched ? tempCopy : map;
+		return tempCopy == null ? map : tempCopy;
 	}
 
 	protected Object unmarshalString(String value) throws IOException {
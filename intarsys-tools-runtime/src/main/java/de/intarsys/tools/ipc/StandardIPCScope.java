@@ -29,85 +29,332 @@
  */
 package de.intarsys.tools.ipc;
 
-import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.SecureRandom;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.intarsys.tools.component.IDisposable;
 
 /**
- * The heap of available {@link IPCHandle} instances.
+ * The standard {@link IIPCScope} implementation.
  * <p>
- * 
+ * The handles are kept in concurrent tables by id and by object identity. Ids
+ * consist of a random prefix, created once per scope, and a counter.
+ * <p>
+ * By default a handle lives until the scope is disposed. With
+ * {@link #setWeak(boolean)} the scope references resolved objects weakly,
+ * their handles are released when the object is garbage collected. With
+ * {@link #setTimeToLive(long)} handles not exported or imported for the given
+ * time are released. Released handles are purged upon export and import. Weak
+ * referencing applies to handles created or resolved afterwards.
  */
 public class StandardIPCScope implements IIPCScope, IDisposable {
 
-	private static int Counter;
-	private final Map<String, IPCHandle> handlesByKey = new HashMap<>();
-	private final Map<Object, IPCHandle> handlesByObject = new IdentityHashMap<>();
+	/**
+	 * The weak reference to an object of a handle.
+	 */
+	protected static class HandleReference extends WeakReference<Object> {
+
+		protected final String id;
+
+		protected final ObjectKey key;
+
+		protected HandleReference(Object object, String id, ReferenceQueue<Object> queue) {
+			super(object, queue);
+			this.id = id;
+			this.key = new ObjectKey(this, System.identityHashCode(object));
+		}
+	}
+
+	/**
+	 * The identity of an object, referenced strongly or by a
+	 * {@link HandleReference}.
+	 */
+	protected static class ObjectKey {
+
+		private final Object object;
+
+		private final int hash;
+
+		protected ObjectKey(Object object) {
+			this.object = object;
+			this.hash = System.identityHashCode(object);
+		}
+
+		protected ObjectKey(HandleReference reference, int hash) {
+			this.object = reference;
+			this.hash = hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ObjectKey)) {
+				return false;
+			}
+			ObjectKey other = (ObjectKey) obj;
+			Object value = get();
+			// a cleared reference is only equal to itself
+			return value == other.get() && (value != null || (!isWeak() && !other.isWeak()));
+		}
+
+		protected Object get() {
+			return isWeak() ? ((HandleReference) object).get() : object;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		protected boolean isWeak() {
+			return object instanceof HandleReference;
+		}
+	}
+
+	private static final AtomicInteger Counter = new AtomicInteger();
+
+	private static final String ID_PREFIX = "ipc://resolve/";
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	protected static String createPrefix() {
+		byte[] bytes = new byte[16];
+		synchronized (RANDOM) {
+			RANDOM.nextBytes(bytes);
+		}
+		StringBuilder sb = new StringBuilder(ID_PREFIX);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		sb.append('-');
+		return sb.toString();
+	}
+
+	private final Map<String, IPCHandle> handlesByKey = new ConcurrentHashMap<>();
+
+	private final Map<ObjectKey, IPCHandle> handlesByObject = new ConcurrentHashMap<>();
+
 	private final int id;
-	private final Object lock = new Object();
+
+	private final String prefix = createPrefix();
+
+	private final AtomicLong idCounter = new AtomicLong();
+
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	private final AtomicLong releasedCount = new AtomicLong();
+
+	private volatile boolean weak;
+
+	private volatile long timeToLive;
+
+	private volatile long nextSweep;
 
 	public StandardIPCScope() {
-		id = Counter++;
+		id = Counter.getAndIncrement();
 	}
 
 	protected IPCHandle createHandle(Object object) {
 		IPCHandle handle = new IPCHandle(this, object, createId());
+		// not to be swept before it is published
+		touch(handle);
 		return handle;
 	}
 
 	protected IPCHandle createHandle(String id) {
 		IPCHandle handle = new IPCHandle(this, id);
+		touch(handle);
 		return handle;
 	}
 
 	protected String createId() {
-		return "ipc://resolve/" + UUID.randomUUID().toString();
+		return prefix + Long.toString(idCounter.incrementAndGet(), Character.MAX_RADIX);
 	}
 
 	@Override
 	public void dispose() {
-		synchronized (lock) {
-			handlesByKey.clear();
-			handlesByObject.clear();
+		handlesByKey.clear();
+		handlesByObject.clear();
+	}
+
+	/**
+	 * Purge the handles released since the last call.
+	 */
+	public void expunge() {
+		Reference<?> reference;
+		while ((reference = queue.poll()) != null) {
+			HandleReference handleReference = (HandleReference) reference;
+			handlesByObject.remove(handleReference.key);
+			IPCHandle handle = handlesByKey.get(handleReference.id);
+			if (handle != null && handle.getReference() == handleReference
+					&& handlesByKey.remove(handleReference.id, handle)) {
+				releasedCount.incrementAndGet();
+			}
+		}
+		long tempTimeToLive = timeToLive;
+		if (tempTimeToLive > 0) {
+			long now = System.currentTimeMillis();
+			if (now >= nextSweep) {
+				nextSweep = now + Math.max(tempTimeToLive / 2, 1);
+				sweep(now - tempTimeToLive);
+			}
 		}
 	}
 
 	@Override
 	public IPCHandle exportObject(Object object) {
-		synchronized (lock) {
-			return handlesByObject.computeIfAbsent(object, (key) -> {
-				IPCHandle handle = createHandle(object);
-				handlesByKey.put(handle.getId(), handle);
+		expunge();
+		ObjectKey key = new ObjectKey(object);
+		while (true) {
+			IPCHandle handle = handlesByObject.get(key);
+			if (handle == null) {
+				IPCHandle newHandle = createHandle(object);
+				ObjectKey newKey = register(newHandle, object);
+				// a published handle is always registered by its id
+				handlesByKey.put(newHandle.getId(), newHandle);
+				handle = handlesByObject.putIfAbsent(newKey, newHandle);
+				if (handle == null) {
+					return newHandle;
+				}
+				handlesByKey.remove(newHandle.getId(), newHandle);
+			}
+			touch(handle);
+			if (handlesByKey.get(handle.getId()) == handle) {
 				return handle;
-			});
+			}
+			// released by a concurrent sweep
+			handlesByObject.remove(key, handle);
 		}
 	}
 
+	/**
+	 * The number of handles for local objects or resolved imports.
+	 * 
+	 * @return The number of handles with an object
+	 */
+	public int getObjectCount() {
+		return handlesByObject.size();
+	}
+
 	public int getId() {
 		return id;
 	}
 
+	/**
+	 * The number of handles released because their object was garbage
+	 * collected or their time to live elapsed.
+	 * 
+	 * @return The number of released handles
+	 */
+	public long getReleasedCount() {
+		return releasedCount.get();
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
 	@Override
 	public IPCHandle importHandle(String id) {
-		synchronized (lock) {
-			return handlesByKey.computeIfAbsent(id, (key) -> createHandle(id));
+		expunge();
+		while (true) {
+			IPCHandle handle = handlesByKey.get(id);
+			if (handle == null) {
+				handle = handlesByKey.computeIfAbsent(id, (key) -> createHandle(id));
+			}
+			touch(handle);
+			// not released by a concurrent sweep
+			if (handlesByKey.get(id) == handle) {
+				return handle;
+			}
 		}
 	}
 
-	protected void resolve(IPCHandle handle) {
-		synchronized (lock) {
-			handlesByObject.put(handle.getObject(), handle);
+	public boolean isWeak() {
+		return weak;
+	}
+
+	/**
+	 * Create the key for the identity table, referencing the object weakly if
+	 * requested.
+	 * 
+	 * @param handle
+	 * @param object
+	 * @return The key for handle
+	 */
+	protected ObjectKey register(IPCHandle handle, Object object) {
+		if (!weak || object == null) {
+			return new ObjectKey(object);
 		}
+		HandleReference reference = new HandleReference(object, handle.getId(), queue);
+		handle.setReference(reference);
+		return reference.key;
+	}
+
+	protected void resolve(IPCHandle handle) {
+		Object object = handle.getObject();
+		handlesByObject.put(register(handle, object), handle);
 	}
 
+	/**
+	 * Reference objects weakly.
+	 * 
+	 * @param weak
+	 */
+	public void setWeak(boolean weak) {
+		this.weak = weak;
+	}
+
+	/**
+	 * Release handles that were not exported or imported for timeToLive
+	 * milliseconds, 0 for no time limit. A time to live may be set at any
+	 * time.
+	 * 
+	 * @param timeToLive
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+		this.nextSweep = 0;
+	}
+
+	/**
+	 * The number of handles in the scope, including unresolved imports.
+	 */
 	@Override
 	public int size() {
-		synchronized (lock) {
-			return handlesByKey.size();
+		return handlesByKey.size();
+	}
+
+	protected void sweep(long threshold) {
+		for (Iterator<IPCHandle> it = handlesByKey.values().iterator(); it.hasNext();) {
+			IPCHandle handle = it.next();
+			if (handle.getLastAccess() >= threshold) {
+				continue;
+			}
+			if (!handlesByKey.remove(handle.getId(), handle)) {
+				continue;
+			}
+			Reference<Object> reference = handle.getReference();
+			if (reference instanceof HandleReference) {
+				handlesByObject.remove(((HandleReference) reference).key, handle);
+			} else if (handle.isResolved()) {
+				handlesByObject.remove(new ObjectKey(handle.getObject()), handle);
+			}
+			releasedCount.incrementAndGet();
 		}
 	}
 
+	protected void touch(IPCHandle handle) {
+		handle.setLastAccess(System.currentTimeMillis());
+	}
 }
@@ -0,0 +1,709 @@
+package de.intarsys.tools.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pull style streaming parser for JSON.
+ *
+ * <p>
+ * In contrast to {@link JsonReader} the input is not materialized into
+ * {@link JsonObject} and {@link JsonArray} instances. The client requests one
+ * {@link JsonToken} after the other using {@link #next()} and inspects the
+ * current value with the accessors. Numbers are available as primitives,
+ * strings are only created for names and string values. Input is read in
+ * chunks into a fixed buffer, so the memory used is independent of the
+ * document size.
+ * </p>
+ *
+ * <p>
+ * The syntax accepted is the same as for {@link JsonReader}, including single
+ * quoted strings and unquoted tokens. The values reported match the values
+ * created by {@link JsonReader}, for example an unquoted token that is not a
+ * valid number is reported as {@link JsonToken#VALUE_STRING}.
+ * </p>
+ *
+ * <p>
+ * {@link #readValue()} allows to materialize a single value, for example when
+ * iterating over the elements of a large array.
+ * </p>
+ */
+public class JsonParser implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int CONTEXT_ROOT = 0;
+
+	private static final int CONTEXT_OBJECT = 1;
+
+	private static final int CONTEXT_ARRAY = 2;
+
+	/** Nothing read yet in this context */
+	private static final int STATE_START = 0;
+
+	/** A name was read, the value is next */
+	private static final int STATE_NAME = 1;
+
+	/** A value was read, a separator or end is next */
+	private static final int STATE_VALUE = 2;
+
+	/**
+	 * true for the characters that terminate an unquoted token.
+	 */
+	private static final boolean[] DELIMITERS = new boolean[128];
+
+	static {
+		for (int i = 0; i <= ' '; i++) {
+			DELIMITERS[i] = true;
+		}
+		for (char c : ",:]}/\\\"[{;=#".toCharArray()) { //$NON-NLS-1$
+			DELIMITERS[c] = true;
+		}
+	}
+
+	private final Reader reader;
+
+	private final char[] buffer;
+
+	private int pos;
+
+	private int limit;
+
+	/** The number of characters before the current buffer content */
+	private long offset;
+
+	private long line = 1;
+
+	/** The offset of the first character in the current line */
+	private long lineStart;
+
+	private boolean eof;
+
+	private int[] contexts = new int[16];
+
+	private int[] states = new int[16];
+
+	private String[] names = new String[16];
+
+	private int depth;
+
+	private JsonToken token;
+
+	private String text;
+
+	/** Characters for tokens spanning multiple reads */
+	private char[] chars = new char[64];
+
+	private int charsLength;
+
+	private long longValue;
+
+	private double doubleValue;
+
+	public JsonParser(InputStream inputStream) {
+		this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+	}
+
+	public JsonParser(Reader reader) {
+		this(reader, BUFFER_SIZE);
+	}
+
+	public JsonParser(Reader reader, int bufferSize) {
+		super();
+		this.reader = reader;
+		this.buffer = new char[bufferSize];
+	}
+
+	public JsonParser(String s) {
+		this(new StringReader(s), Math.max(16, Math.min(s.length(), BUFFER_SIZE)));
+	}
+
+	protected void appendChar(char c) {
+		if (charsLength == chars.length) {
+			char[] newChars = new char[chars.length * 2];
+			System.arraycopy(chars, 0, newChars, 0, charsLength);
+			chars = newChars;
+		}
+		chars[charsLength++] = c;
+	}
+
+	protected void appendChars(int start, int end) {
+		int length = end - start;
+		if (charsLength + length > chars.length) {
+			char[] newChars = new char[Math.max(chars.length * 2, charsLength + length)];
+			System.arraycopy(chars, 0, newChars, 0, charsLength);
+			chars = newChars;
+		}
+		System.arraycopy(buffer, start, chars, charsLength, length);
+		charsLength += length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	protected IOException error(String message) {
+		return new IOException(message + getPosition());
+	}
+
+	protected boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		int count;
+		do {
+			count = reader.read(buffer, 0, buffer.length);
+		} while (count == 0);
+		if (count < 0) {
+			eof = true;
+			return false;
+		}
+		limit = count;
+		return true;
+	}
+
+	/**
+	 * The name of the current field if the parser is within an object, after
+	 * {@link JsonToken#FIELD_NAME} up to the end of its value.
+	 *
+	 * @return The name of the current field.
+	 */
+	public String getCurrentName() {
+		return names[depth];
+	}
+
+	/**
+	 * The current token or null before the first and after the last token.
+	 *
+	 * @return The current token.
+	 */
+	public JsonToken getCurrentToken() {
+		return token;
+	}
+
+	/**
+	 * The nesting depth of the current token, 0 for root values.
+	 *
+	 * @return The nesting depth.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * The current number value as a double.
+	 *
+	 * @return The current number value as a double.
+	 */
+	public double getDoubleValue() {
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return longValue;
+		}
+		if (token != JsonToken.VALUE_NUMBER_FLOAT) {
+			throw new IllegalStateException("not a number");
+		}
+		return doubleValue;
+	}
+
+	/**
+	 * The current number value as an int, truncated if necessary.
+	 *
+	 * @return The current number value as an int.
+	 */
+	public int getIntValue() {
+		return (int) getLongValue();
+	}
+
+	/**
+	 * The current number value as a long, truncated if necessary.
+	 *
+	 * @return The current number value as a long.
+	 */
+	public long getLongValue() {
+		if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+			return (long) doubleValue;
+		}
+		if (token != JsonToken.VALUE_NUMBER_INT) {
+			throw new IllegalStateException("not a number");
+		}
+		return longValue;
+	}
+
+	protected String getPosition() {
+		long index = offset + pos;
+		return " at " + index + " [" + line + ", " + (index - lineStart) + " ]";
+	}
+
+	/**
+	 * The text of the current token. For names and strings this is the
+	 * unescaped content, for numbers and literals the source text.
+	 *
+	 * @return The text of the current token.
+	 */
+	public String getText() {
+		if (token == null) {
+			return null;
+		}
+		switch (token) {
+		case FIELD_NAME:
+		case VALUE_STRING:
+			return text;
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+		case VALUE_TRUE:
+		case VALUE_FALSE:
+		case VALUE_NULL:
+			if (text == null) {
+				text = new String(chars, 0, charsLength);
+			}
+			return text;
+		case START_OBJECT:
+			return "{";
+		case END_OBJECT:
+			return "}";
+		case START_ARRAY:
+			return "[";
+		case END_ARRAY:
+			return "]";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * true if the current number is within the range of int.
+	 *
+	 * @return true if the current number is within the range of int.
+	 */
+	public boolean isIntValue() {
+		return token == JsonToken.VALUE_NUMBER_INT && longValue == (int) longValue;
+	}
+
+	/**
+	 * Advance to the next token.
+	 *
+	 * @return The next token or null at the end of input.
+	 * @throws IOException
+	 */
+	public JsonToken next() throws IOException {
+		text = null;
+		int c = readNonWS();
+		int context = contexts[depth];
+		int state = states[depth];
+		if (context == CONTEXT_OBJECT) {
+			if (state == STATE_NAME) {
+				states[depth] = STATE_VALUE;
+				return token = readValueToken(c);
+			}
+			if (c == '}') {
+				return token = pop(JsonToken.END_OBJECT);
+			}
+			if (state == STATE_VALUE) {
+				if (c != ',') {
+					throw error("',' or '}' expected");
+				}
+				c = readNonWS();
+			}
+			readName(c);
+			c = readNonWS();
+			if (c != ':') {
+				throw error("':' expected");
+			}
+			states[depth] = STATE_NAME;
+			return token = JsonToken.FIELD_NAME;
+		}
+		if (context == CONTEXT_ARRAY) {
+			if (c == ']') {
+				return token = pop(JsonToken.END_ARRAY);
+			}
+			if (state == STATE_VALUE) {
+				if (c != ',') {
+					throw error("',' or ']' expected");
+				}
+				c = readNonWS();
+			}
+			states[depth] = STATE_VALUE;
+			return token = readValueToken(c);
+		}
+		if (c == -1) {
+			return token = null;
+		}
+		return token = readValueToken(c);
+	}
+
+	protected JsonToken pop(JsonToken end) {
+		names[depth] = null;
+		depth--;
+		return end;
+	}
+
+	protected void push(int context) {
+		depth++;
+		if (depth == contexts.length) {
+			int[] newContexts = new int[depth * 2];
+			System.arraycopy(contexts, 0, newContexts, 0, depth);
+			contexts = newContexts;
+			int[] newStates = new int[depth * 2];
+			System.arraycopy(states, 0, newStates, 0, depth);
+			states = newStates;
+			String[] newNames = new String[depth * 2];
+			System.arraycopy(names, 0, newNames, 0, depth);
+			names = newNames;
+		}
+		contexts[depth] = context;
+		states[depth] = STATE_START;
+	}
+
+	protected int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos++];
+	}
+
+	protected int readHex() throws IOException {
+		int result = 0;
+		for (int i = 0; i < 4; i++) {
+			int c = read();
+			int digit = Character.digit(c, 16);
+			if (c == -1 || digit < 0) {
+				throw error("illegal unicode escape");
+			}
+			result = (result << 4) | digit;
+		}
+		return result;
+	}
+
+	protected JsonArray readJsonArray() throws IOException {
+		JsonArray result = new JsonArray();
+		JsonToken next;
+		while ((next = next()) != JsonToken.END_ARRAY) {
+			result.basicAdd(toValue(next));
+		}
+		return result;
+	}
+
+	protected JsonObject readJsonObject() throws IOException {
+		JsonObject result = new JsonObject();
+		while (next() != JsonToken.END_OBJECT) {
+			String name = text;
+			result.basicPut(name, toValue(next()));
+		}
+		return result;
+	}
+
+	protected void readName(int c) throws IOException {
+		if (c == '"' || c == '\'') {
+			readString(c);
+		} else {
+			readUnquoted(c);
+			text = new String(chars, 0, charsLength);
+		}
+		names[depth] = text;
+	}
+
+	protected int readNonWS() throws IOException {
+		for (;;) {
+			if (pos == limit && !fill()) {
+				if (depth > 0) {
+					throw error("unexpected end of input");
+				}
+				return -1;
+			}
+			char c = buffer[pos++];
+			if (c > ' ') {
+				return c;
+			}
+			if (c == '\n') {
+				line++;
+				lineStart = offset + pos;
+			}
+		}
+	}
+
+	protected void readString(int quote) throws IOException {
+		// fast path, the whole string without escapes is in the buffer
+		int start = pos;
+		while (pos < limit) {
+			char c = buffer[pos];
+			if (c == quote) {
+				text = new String(buffer, start, pos - start);
+				pos++;
+				return;
+			}
+			if (c == '\\' || c == '\n' || c == '\r') {
+				break;
+			}
+			pos++;
+		}
+		charsLength = 0;
+		appendChars(start, pos);
+		for (;;) {
+			int c = read();
+			switch (c) {
+			case -1:
+			case '\n':
+			case '\r':
+				throw error("string not terminated");
+			case '\\':
+				c = read();
+				switch (c) {
+				case 'b':
+					appendChar('\b');
+					break;
+				case 't':
+					appendChar('\t');
+					break;
+				case 'n':
+					appendChar('\n');
+					break;
+				case 'f':
+					appendChar('\f');
+					break;
+				case 'r':
+					appendChar('\r');
+					break;
+				case 'u':
+					appendChar((char) readHex());
+					break;
+				case '"':
+				case '\'':
+				case '\\':
+				case '/':
+					appendChar((char) c);
+					break;
+				default:
+					throw error("illegal escape code '\\" + (char) c + "'");
+				}
+				break;
+			default:
+				if (c == quote) {
+					text = new String(chars, 0, charsLength);
+					return;
+				}
+				appendChar((char) c);
+			}
+		}
+	}
+
+	protected void readUnquoted(int c) throws IOException {
+		charsLength = 0;
+		if (c >= 128 || !DELIMITERS[c]) {
+			appendChar((char) c);
+			for (;;) {
+				int start = pos;
+				while (pos < limit) {
+					char next = buffer[pos];
+					if (next < 128 && DELIMITERS[next]) {
+						break;
+					}
+					pos++;
+				}
+				appendChars(start, pos);
+				if (pos < limit || !fill()) {
+					break;
+				}
+			}
+		}
+		if (charsLength == 0) {
+			if (c == -1) {
+				throw error("unexpected end of input");
+			}
+			throw error("unexpected char '" + (char) c + "'");
+		}
+	}
+
+	/**
+	 * Advance to the next token and materialize the value starting there. A
+	 * structured value is returned as {@link JsonObject} or {@link JsonArray},
+	 * leaving the parser at its end token.
+	 *
+	 * @return The next value or null at the end of input or of the current
+	 *         container.
+	 * @throws IOException
+	 */
+	public Object readValue() throws IOException {
+		JsonToken next = next();
+		if (next == null || next == JsonToken.END_ARRAY || next == JsonToken.END_OBJECT) {
+			return null;
+		}
+		if (next == JsonToken.FIELD_NAME) {
+			next = next();
+		}
+		return toValue(next);
+	}
+
+	protected JsonToken readValueToken(int c) throws IOException {
+		switch (c) {
+		case -1:
+			throw error("unexpected end of input");
+		case '{':
+			push(CONTEXT_OBJECT);
+			return JsonToken.START_OBJECT;
+		case '[':
+			push(CONTEXT_ARRAY);
+			return JsonToken.START_ARRAY;
+		case '"':
+		case '\'':
+			readString(c);
+			return JsonToken.VALUE_STRING;
+		default:
+			readUnquoted(c);
+			return toToken();
+		}
+	}
+
+	/**
+	 * Skip the children of the current START_OBJECT or START_ARRAY token, the
+	 * parser is left at the matching end token. Does nothing for other
+	 * tokens.
+	 *
+	 * @throws IOException
+	 */
+	public void skipChildren() throws IOException {
+		if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+			return;
+		}
+		int target = depth - 1;
+		while (next() != null && depth > target) {
+			// skip
+		}
+	}
+
+	protected boolean textEquals(String value) {
+		if (charsLength != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < charsLength; i++) {
+			if (Character.toLowerCase(chars[i]) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Classify the unquoted token in chars like
+	 * {@link JsonReader#tokenToValue(String)}.
+	 *
+	 * @return The token type
+	 */
+	protected JsonToken toToken() {
+		if (textEquals("true")) { //$NON-NLS-1$
+			return JsonToken.VALUE_TRUE;
+		}
+		if (textEquals("false")) { //$NON-NLS-1$
+			return JsonToken.VALUE_FALSE;
+		}
+		if (textEquals("null")) { //$NON-NLS-1$
+			return JsonToken.VALUE_NULL;
+		}
+		char b = chars[0];
+		if ((b >= '0' && b <= '9') || b == '-' || b == '.') {
+			boolean floating = false;
+			for (int i = 0; i < charsLength; i++) {
+				char c = chars[i];
+				if (c == '.' || c == 'e' || c == 'E') {
+					floating = true;
+					break;
+				}
+			}
+			if (floating) {
+				text = new String(chars, 0, charsLength);
+				try {
+					double d = Double.parseDouble(text);
+					if (!Double.isInfinite(d) && !Double.isNaN(d)) {
+						doubleValue = d;
+						return JsonToken.VALUE_NUMBER_FLOAT;
+					}
+				} catch (NumberFormatException e) {
+					// not a number
+				}
+				return JsonToken.VALUE_STRING;
+			} else if (toLong()) {
+				return JsonToken.VALUE_NUMBER_INT;
+			}
+		}
+		text = new String(chars, 0, charsLength);
+		return JsonToken.VALUE_STRING;
+	}
+
+	/**
+	 * Parse chars as a canonical integer (no leading zeros, no "-0"), as
+	 * accepted by {@link JsonReader}.
+	 *
+	 * @return true if chars is a canonical long.
+	 */
+	protected boolean toLong() {
+		int i = 0;
+		boolean negative = chars[0] == '-';
+		if (negative) {
+			i++;
+		}
+		int digits = charsLength - i;
+		if (digits == 0 || digits > 19) {
+			return false;
+		}
+		if (chars[i] == '0' && (digits > 1 || negative)) {
+			return false;
+		}
+		// accumulate negative to cover Long.MIN_VALUE
+		long result = 0;
+		for (; i < charsLength; i++) {
+			int digit = chars[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return false;
+			}
+			if (result < (Long.MIN_VALUE + digit) / 10) {
+				return false;
+			}
+			result = result * 10 - digit;
+		}
+		if (!negative) {
+			if (result == Long.MIN_VALUE) {
+				return false;
+			}
+			result = -result;
+		}
+		longValue = result;
+		return true;
+	}
+
+	protected Object toValue(JsonToken current) throws IOException {
+		if (current == null) {
+			return null;
+		}
+		switch (current) {
+		case START_OBJECT:
+			return readJsonObject();
+		case START_ARRAY:
+			return readJsonArray();
+		case VALUE_STRING:
+			return text;
+		case VALUE_NUMBER_INT:
+			if (isIntValue()) {
+				return Integer.valueOf((int) longValue);
+			}
+			return Long.valueOf(longValue);
+		case VALUE_NUMBER_FLOAT:
+			return Double.valueOf(doubleValue);
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NULL:
+			return null;
+		default:
+			throw error("unexpected token " + current);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package de.intarsys.tools.json;
+
+/**
+ * The tokens reported by {@link JsonParser}.
+ */
+public enum JsonToken {
+	START_OBJECT,
+
+	END_OBJECT,
+
+	START_ARRAY,
+
+	END_ARRAY,
+
+	/**
+	 * A name within an object, the value follows as the next token.
+	 */
+	FIELD_NAME,
+
+	VALUE_STRING,
+
+	/**
+	 * An integral number within the range of long.
+	 */
+	VALUE_NUMBER_INT,
+
+	VALUE_NUMBER_FLOAT,
+
+	VALUE_TRUE,
+
+	VALUE_FALSE,
+
+	VALUE_NULL
+}
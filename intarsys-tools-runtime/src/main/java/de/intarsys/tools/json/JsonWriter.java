@@ -1,68 +1,72 @@
 package de.intarsys.tools.json;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
 public class JsonWriter {
 
+	/**
+	 * The escape sequence for the characters below 128 or null.
+	 */
+	private static final String[] ESCAPES = new String[128];
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final String SPACES = "                                "; //$NON-NLS-1$
+
+	static {
+		for (int i = 0; i < ' '; i++) {
+			ESCAPES[i] = unicodeEscape((char) i);
+		}
+		ESCAPES['\\'] = "\\\\"; //$NON-NLS-1$
+		ESCAPES['"'] = "\\\""; //$NON-NLS-1$
+		ESCAPES['\b'] = "\\b"; //$NON-NLS-1$
+		ESCAPES['\t'] = "\\t"; //$NON-NLS-1$
+		ESCAPES['\n'] = "\\n"; //$NON-NLS-1$
+		ESCAPES['\f'] = "\\f"; //$NON-NLS-1$
+		ESCAPES['\r'] = "\\r"; //$NON-NLS-1$
+	}
+
 	public static void quote(String string, Writer w) throws IOException {
 		if (string == null || string.length() == 0) {
 			w.write("\"\"");
 			return;
 		}
-
-		char b;
-		char c = 0;
-		String hhhh;
-		int i;
 		int len = string.length();
-
+		int start = 0;
 		w.write('"');
-		for (i = 0; i < len; i += 1) {
-			b = c;
-			c = string.charAt(i);
-			switch (c) {
-			case '\\':
-			case '"':
-				w.write('\\');
-				w.write(c);
-				break;
-			case '/':
-				if (b == '<') {
-					w.write('\\');
+		for (int i = 0; i < len; i++) {
+			char c = string.charAt(i);
+			String escape;
+			if (c < 128) {
+				escape = ESCAPES[c];
+				if (c == '/' && i > 0 && string.charAt(i - 1) == '<') {
+					escape = "\\/"; //$NON-NLS-1$
 				}
-				w.write(c);
-				break;
-			case '\b':
-				w.write("\\b");
-				break;
-			case '\t':
-				w.write("\\t");
-				break;
-			case '\n':
-				w.write("\\n");
-				break;
-			case '\f':
-				w.write("\\f");
-				break;
-			case '\r':
-				w.write("\\r");
-				break;
-			default:
-				if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
-					w.write("\\u");
-					hhhh = Integer.toHexString(c);
-					w.write("0000", 0, 4 - hhhh.length());
-					w.write(hhhh);
-				} else {
-					w.write(c);
+			} else if ((c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+				escape = unicodeEscape(c);
+			} else {
+				continue;
+			}
+			if (escape != null) {
+				if (i > start) {
+					w.write(string, start, i - start);
 				}
+				w.write(escape);
+				start = i + 1;
 			}
 		}
+		if (start < len) {
+			w.write(string, start, len - start);
+		}
 		w.write('"');
 	}
 
@@ -72,20 +76,58 @@ public class JsonWriter {
 		return sw.toString();
 	}
 
+	protected static String unicodeEscape(char c) {
+		String hhhh = Integer.toHexString(c);
+		return "\\u" + "0000".substring(hhhh.length()) + hhhh; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	private final Writer writer;
 
+	/**
+	 * Create a {@link JsonWriter} writing UTF-8 to os, using a buffer. Call
+	 * {@link #flush()} when done.
+	 * 
+	 * @param os
+	 */
+	public JsonWriter(OutputStream os) {
+		this(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
 	public JsonWriter(Writer w) {
 		super();
 		this.writer = w;
 	}
 
+	/**
+	 * Create a {@link JsonWriter} with its own buffer of bufferSize characters
+	 * in front of w. Call {@link #flush()} when done.
+	 * 
+	 * @param w
+	 * @param bufferSize
+	 */
+	public JsonWriter(Writer w, int bufferSize) {
+		super();
+		this.writer = new BufferedWriter(w, bufferSize);
+	}
+
+	/**
+	 * Flush the buffered output to the underlying writer.
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
 	protected Writer getWriter() {
 		return writer;
 	}
 
 	protected void indent(Writer writer, int indent) throws IOException {
-		for (int i = 0; i < indent; i += 1) {
-			writer.write(' ');
+		while (indent > 0) {
+			int count = Math.min(indent, SPACES.length());
+			writer.write(SPACES, 0, count);
+			indent -= count;
 		}
 	}
 
@@ -100,6 +142,8 @@ public class JsonWriter {
 			writeArray((JsonArray) value, indentFactor, indent);
 		} else if (value instanceof Collection) {
 			writeCollection((Collection) value, indentFactor, indent);
+		} else if (value instanceof Integer || value instanceof Long) {
+			getWriter().write(value.toString());
 		} else if (value instanceof Number) {
 			getWriter().write(Json.numberToString((Number) value));
 		} else if (value instanceof Boolean) {
@@ -177,7 +221,7 @@ public class JsonWriter {
 
 		if (length == 1) {
 			String key = itNames.next();
-			writer.write(Json.quote(key));
+			quote(key, writer);
 			writer.write(':');
 			if (indentFactor > 0) {
 				writer.write(' ');
@@ -194,7 +238,7 @@ public class JsonWriter {
 					writer.write('\n');
 				}
 				indent(writer, newindent);
-				writer.write(Json.quote(key));
+				quote(key, writer);
 				writer.write(':');
 				if (indentFactor > 0) {
 					writer.write(' ');
@@ -218,7 +262,7 @@ public class JsonWriter {
 
 		if (length == 1) {
 			String key = itNames.next();
-			writer.write(Json.quote(key));
+			quote(key, writer);
 			writer.write(':');
 			if (indentFactor > 0) {
 				writer.write(' ');
@@ -235,7 +279,7 @@ public class JsonWriter {
 					writer.write('\n');
 				}
 				indent(writer, newindent);
-				writer.write(Json.quote(key));
+				quote(key, writer);
 				writer.write(':');
 				if (indentFactor > 0) {
 					writer.write(' ');
@@ -50,8 +50,11 @@ import de.intarsys.tools.file.PathTools;
 import de.intarsys.tools.locking.ILock;
 import de.intarsys.tools.locking.ILockLevel;
 import de.intarsys.tools.locking.ILockSupport;
+import de.intarsys.tools.randomaccess.EnumRandomAccessMode;
 import de.intarsys.tools.randomaccess.IRandomAccess;
 import de.intarsys.tools.randomaccess.RandomAccessFile;
+import de.intarsys.tools.randomaccess.RandomAccessFileChannel;
+import de.intarsys.tools.randomaccess.RandomAccessMappedFile;
 import de.intarsys.tools.stream.StreamTools;
 import de.intarsys.tools.stream.TempFileOutputStream;
 import de.intarsys.tools.string.StringTools;
@@ -87,6 +90,9 @@ public class FileLocator extends CommonLocator implements ILockSupport, ICharset
 
 	private static final ILogger Log = LogTools.getLogger(FileLocator.class);
 
+	private static EnumRandomAccessMode DefaultRandomAccessMode = EnumRandomAccessMode.META
+			.getItemOrDefault(System.getProperty("de.intarsys.tools.locator.randomaccess")); //$NON-NLS-1$
+
 	private static File createFile(String fileNameOrUri) {
 		try {
 			return new File(new URI(fileNameOrUri));
@@ -96,6 +102,21 @@ public class FileLocator extends CommonLocator implements ILockSupport, ICharset
 		return new File(fileNameOrUri);
 	}
 
+	/**
+	 * The {@link IRandomAccess} implementation used when not set explicitly.
+	 * Initialized from the system property
+	 * "de.intarsys.tools.locator.randomaccess".
+	 * 
+	 * @return The default {@link EnumRandomAccessMode}
+	 */
+	public static EnumRandomAccessMode getDefaultRandomAccessMode() {
+		return DefaultRandomAccessMode;
+	}
+
+	public static void setDefaultRandomAccessMode(EnumRandomAccessMode mode) {
+		DefaultRandomAccessMode = mode == null ? EnumRandomAccessMode.META.getDefault() : mode;
+	}
+
 	private final boolean append;
 
 	private File canonicalFile;
@@ -127,6 +148,12 @@ public class FileLocator extends CommonLocator implements ILockSupport, ICharset
 	 */
 	private boolean useTempFile;
 
+	/**
+	 * The implementation used for {@link #getRandomAccess()}, the default if
+	 * null.
+	 */
+	private EnumRandomAccessMode randomAccessMode;
+
 	/**
 	 * Create a {@link FileLocator} to a {@link File}
 	 * 
@@ -159,6 +186,28 @@ public class FileLocator extends CommonLocator implements ILockSupport, ICharset
 		this(createFile(fileNameOrUri));
 	}
 
+	/**
+	 * The {@link IRandomAccess} implementation for file, selected by
+	 * {@link #getRandomAccessMode()} or the global default.
+	 * 
+	 * @param pFile
+	 * @return A new {@link IRandomAccess}
+	 * @throws IOException
+	 */
+	protected IRandomAccess createRandomAccess(File pFile) throws IOException {
+		EnumRandomAccessMode mode = getRandomAccessMode();
+		if (mode == null) {
+			mode = getDefaultRandomAccessMode();
+		}
+		if (mode == EnumRandomAccessMode.MAPPED) {
+			return new RandomAccessMappedFile(pFile);
+		}
+		if (mode == EnumRandomAccessMode.CHANNEL) {
+			return new RandomAccessFileChannel(pFile);
+		}
+		return new RandomAccessFile(pFile);
+	}
+
 	@Override
 	public void delete() throws IOException {
 		FileTools.deleteRecursivly(getFile());
@@ -292,7 +341,11 @@ public class FileLocator extends CommonLocator implements ILockSupport, ICharset
 		if (isUseTempFile()) {
 			throw new UnsupportedOperationException("no random access to temp file");
 		}
-		return new RandomAccessFile(getFile());
+		return createRandomAccess(getFile());
+	}
+
+	public EnumRandomAccessMode getRandomAccessMode() {
+		return randomAccessMode;
 	}
 
 	@Override
@@ -456,6 +509,15 @@ public class FileLocator extends CommonLocator implements ILockSupport, ICharset
 		this.charset = charset;
 	}
 
+	/**
+	 * @param randomAccessMode
+	 *            The implementation for {@link #getRandomAccess()}, null for
+	 *            the default.
+	 */
+	public void setRandomAccessMode(EnumRandomAccessMode randomAccessMode) {
+		this.randomAccessMode = randomAccessMode;
+	}
+
 	/**
 	 * @param synchSynchronous
 	 */
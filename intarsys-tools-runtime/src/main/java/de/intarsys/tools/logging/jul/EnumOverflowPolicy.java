@@ -0,0 +1,38 @@
+package de.intarsys.tools.logging.jul;
+
+import de.intarsys.tools.enumeration.EnumItem;
+import de.intarsys.tools.enumeration.EnumMeta;
+
+/**
+ * The behavior of an asynchronous {@link FileHandler} when its queue is full.
+ * <p>
+ * <ul>
+ * <li>{@link #BLOCK}: the publishing thread waits for the writer</li>
+ * <li>{@link #DROP}: records below the overflow level are dropped, all others
+ * wait</li>
+ * <li>{@link #SAMPLE}: like {@link #DROP}, but records below the overflow level
+ * are already sampled when the queue is half full</li>
+ * </ul>
+ */
+public class EnumOverflowPolicy extends EnumItem {
+
+	/**
+	 * The meta data for the enumeration.
+	 */
+	public static final EnumMeta<EnumOverflowPolicy> META = getMeta(EnumOverflowPolicy.class);
+
+	public static final EnumOverflowPolicy BLOCK = new EnumOverflowPolicy("block");
+
+	public static final EnumOverflowPolicy DROP = new EnumOverflowPolicy("drop");
+
+	public static final EnumOverflowPolicy SAMPLE = new EnumOverflowPolicy("sample");
+
+	static {
+		BLOCK.setDefault();
+	}
+
+	public EnumOverflowPolicy(String id) {
+		super(id);
+	}
+
+}
@@ -33,6 +33,10 @@ import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.ErrorManager;
 import java.util.logging.Filter;
 import java.util.logging.Formatter;
@@ -104,8 +108,38 @@ import de.intarsys.tools.functor.Args;
  * <li>   &lt;handler-name&gt;.maxLocks
  *        specifies the maximum number of concurrent locks held by
  *        FileHandler (defaults to 100). </li>
+ * <li>   &lt;handler-name&gt;.async
+ *        specifies whether records are written by a background thread
+ *        (defaults to false). </li>
+ * <li>   &lt;handler-name&gt;.queueSize
+ *        the number of records queued for the background thread
+ *        (defaults to 8192). </li>
+ * <li>   &lt;handler-name&gt;.overflow
+ *        what to do if the queue is full, "block", "drop" or "sample"
+ *        (defaults to "block"). See {@link EnumOverflowPolicy}. </li>
+ * <li>   &lt;handler-name&gt;.overflowLevel
+ *        records below this level may be dropped on overflow
+ *        (defaults to {@code Level.WARNING}). </li>
+ * <li>   &lt;handler-name&gt;.sampleRate
+ *        keep one out of this number of droppable records when sampling
+ *        (defaults to 10). </li>
+ * <li>   &lt;handler-name&gt;.flushSize
+ *        the number of bytes written before flushing (defaults to 65536). </li>
+ * <li>   &lt;handler-name&gt;.flushInterval
+ *        the maximum number of milliseconds output stays unflushed
+ *        (defaults to 1000). </li>
+ * <li>   &lt;handler-name&gt;.flushLevel
+ *        records at or above this level are flushed immediately
+ *        (defaults to {@code Level.SEVERE}). </li>
  * </ul>
  * <p>
+ * In asynchronous mode, {@link #publish(LogRecord)} only adds the record to a
+ * bounded lock free queue. A single background thread formats and writes the
+ * records and flushes the output when one of the flush thresholds is reached.
+ * The caller information of a record is determined before it is queued, the
+ * message parameters are formatted later and should not be changed after
+ * logging. {@link #close()} writes all queued records.
+ * <p>
  * For example, the properties for {@code FileHandler} would be:
  * <ul>
  * <li>   java.util.logging.FileHandler.level=INFO </li>
@@ -167,6 +201,66 @@ public class FileHandler extends StreamHandler {
 		}
 	}
 
+	/**
+	 * A bounded multi producer, single consumer ring buffer.
+	 */
+	private static class RecordRing {
+		final AtomicReferenceArray<LogRecord> slots;
+		final AtomicLongArray sequences;
+		final int mask;
+		final AtomicLong tail = new AtomicLong();
+		final AtomicLong head = new AtomicLong();
+
+		RecordRing(int size) {
+			int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+			slots = new AtomicReferenceArray<>(capacity);
+			sequences = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++) {
+				sequences.set(i, i);
+			}
+			mask = capacity - 1;
+		}
+
+		int capacity() {
+			return mask + 1;
+		}
+
+		boolean offer(LogRecord record) {
+			for (;;) {
+				long t = tail.get();
+				int index = (int) t & mask;
+				long diff = sequences.get(index) - t;
+				if (diff == 0) {
+					if (tail.compareAndSet(t, t + 1)) {
+						slots.set(index, record);
+						sequences.set(index, t + 1);
+						return true;
+					}
+				} else if (diff < 0) {
+					return false;
+				}
+			}
+		}
+
+		// only called by the writer thread
+		LogRecord poll() {
+			long h = head.get();
+			int index = (int) h & mask;
+			if (sequences.get(index) != h + 1) {
+				return null;
+			}
+			LogRecord record = slots.get(index);
+			slots.set(index, null);
+			sequences.set(index, h + mask + 1);
+			head.lazySet(h + 1);
+			return record;
+		}
+
+		int size() {
+			return (int) Math.max(0, tail.get() - head.get());
+		}
+	}
+
     /**
      * A metered stream is a subclass of OutputStream that
      * (a) forwards all its output to a target stream
@@ -175,6 +269,8 @@ public class FileHandler extends StreamHandler {
 	private class MeteredStream extends OutputStream {
 		OutputStream out;
 		int written;
+		int flushed;
+		boolean hold;
 
 		MeteredStream(OutputStream out, int written) {
 			this.out = out;
@@ -188,7 +284,12 @@ public class FileHandler extends StreamHandler {
 
 		@Override
 		public void flush() throws IOException {
+			if (hold) {
+				// the output is only moved to our buffer
+				return;
+			}
 			out.flush();
+			flushed = written;
 		}
 
 		@Override
@@ -212,6 +313,18 @@ public class FileHandler extends StreamHandler {
 
 	private static final int MAX_LOCKS = 100;
 
+	private static final int DEFAULT_QUEUE_SIZE = 8192;
+
+	private static final int DEFAULT_FLUSH_SIZE = 64 * 1024;
+
+	private static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+	private static final int DEFAULT_SAMPLE_RATE = 10;
+
+	private static final int MAX_BATCH = 256;
+
+	private static final long BLOCK_WAIT_NANOS = 100_000;
+
 	private static java.util.HashMap<String, String> locks = new java.util.HashMap<>();
 
 	// Private native method to check if we are in a set UID program.
@@ -229,6 +342,21 @@ public class FileHandler extends StreamHandler {
 
 	private File files[];
 
+	private boolean async;
+	private int queueSize;
+	private RecordRing queue;
+	private Thread writer;
+	private volatile boolean writerWaiting;
+	private volatile boolean closing;
+	private volatile EnumOverflowPolicy overflowPolicy;
+	private volatile Level overflowLevel;
+	private volatile int sampleRate;
+	private volatile Level flushLevel;
+	private volatile long flushInterval;
+	private volatile int flushSize;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong sampled = new AtomicLong();
+
     /**
      * Construct a default {@code FileHandler}.  This will be configured
      * entirely from {@code LogManager} properties (or their default values).
@@ -374,6 +502,43 @@ public class FileHandler extends StreamHandler {
 		openFiles();
 	}
 
+	/**
+	 * Initialize a {@code FileHandler} to write to a set of files with optional
+	 * append and optional asynchronous writing.
+	 * <p>
+	 * The {@code FileHandler} is configured as in
+	 * {@link #FileHandler(String, int, int, boolean)}, the asynchronous mode is
+	 * set to the given {@code async} argument.
+	 *
+	 * @param pattern
+	 *            the pattern for naming the output file
+	 * @param limit
+	 *            the maximum number of bytes to write to any one file
+	 * @param count
+	 *            the number of files to use
+	 * @param append
+	 *            specifies append mode
+	 * @param async
+	 *            specifies asynchronous mode
+	 * @throws IOException
+	 *             if there are IO problems opening the files.
+	 * @throws IllegalArgumentException
+	 *             if {@code limit < 0}, or {@code count < 1}.
+	 */
+	public FileHandler(String pattern, int limit, int count, boolean append, boolean async)
+			throws IOException, SecurityException {
+		if (limit < 0 || count < 1 || pattern.length() < 1) {
+			throw new IllegalArgumentException();
+		}
+		configure();
+		this.pattern = pattern;
+		this.limit = limit;
+		this.count = count;
+		this.append = append;
+		this.async = async;
+		openFiles();
+	}
+
     /**
      * Close all the files.
      *
@@ -381,7 +546,12 @@ public class FileHandler extends StreamHandler {
      *             the caller does not have {@code LoggingPermission("control")}.
      */
 	@Override
-	public synchronized void close() throws SecurityException {
+	public void close() throws SecurityException {
+		stopWriter();
+		closeFiles();
+	}
+
+	private synchronized void closeFiles() {
 		super.close();
 		// Unlock any lock file.
 		if (lockFileName == null) {
@@ -424,6 +594,17 @@ public class FileHandler extends StreamHandler {
 			count = 1;
 		}
 		append = getBooleanProperty(cname + ".append", false);
+		async = getBooleanProperty(cname + ".async", false);
+		queueSize = getIntProperty(cname + ".queueSize", DEFAULT_QUEUE_SIZE);
+		if (queueSize < 1) {
+			queueSize = DEFAULT_QUEUE_SIZE;
+		}
+		overflowPolicy = EnumOverflowPolicy.META.getItemOrDefault(getStringProperty(cname + ".overflow", null));
+		overflowLevel = getLevelProperty(cname + ".overflowLevel", Level.WARNING);
+		sampleRate = Math.max(1, getIntProperty(cname + ".sampleRate", DEFAULT_SAMPLE_RATE));
+		flushSize = Math.max(0, getIntProperty(cname + ".flushSize", DEFAULT_FLUSH_SIZE));
+		flushInterval = Math.max(0, getIntProperty(cname + ".flushInterval", DEFAULT_FLUSH_INTERVAL));
+		flushLevel = getLevelProperty(cname + ".flushLevel", Level.SEVERE);
 		setLevel(getLevelProperty(cname + ".level", Level.ALL));
 		setFilter(getFilterProperty(cname + ".filter", null));
 		setFormatter(getFormatterProperty(cname + ".formatter", new XMLFormatter()));
@@ -439,6 +620,29 @@ public class FileHandler extends StreamHandler {
 		}
 	}
 
+	private void enqueue(LogRecord record) {
+		// the caller can only be inferred in the publishing thread
+		record.getSourceClassName();
+		boolean droppable = overflowPolicy != EnumOverflowPolicy.BLOCK
+				&& record.getLevel().intValue() < overflowLevel.intValue();
+		if (droppable && overflowPolicy == EnumOverflowPolicy.SAMPLE && queue.size() > queue.capacity() / 2
+				&& sampled.incrementAndGet() % sampleRate != 0) {
+			dropped.incrementAndGet();
+			return;
+		}
+		while (!queue.offer(record)) {
+			if (droppable || closing || Thread.currentThread() == writer) {
+				dropped.incrementAndGet();
+				return;
+			}
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+		}
+		if (writerWaiting) {
+			LockSupport.unpark(writer);
+		}
+	}
+
 	// Generate a filename from a pattern.
 	private File generate(String pattern, int generation, int unique) throws IOException {
 		File file = null;
@@ -515,6 +719,58 @@ public class FileHandler extends StreamHandler {
 		return file;
 	}
 
+	/**
+	 * The number of records dropped in asynchronous mode because of overflow or
+	 * sampling.
+	 *
+	 * @return The number of dropped records
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	public int getFlushInterval() {
+		return (int) flushInterval;
+	}
+
+	public Level getFlushLevel() {
+		return flushLevel;
+	}
+
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	public Level getOverflowLevel() {
+		return overflowLevel;
+	}
+
+	public EnumOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * The maximum number of records queued in asynchronous mode.
+	 *
+	 * @return The queue capacity or 0 if not asynchronous
+	 */
+	public int getQueueCapacity() {
+		return queue == null ? 0 : queue.capacity();
+	}
+
+	/**
+	 * The number of records currently queued in asynchronous mode.
+	 *
+	 * @return The number of queued records
+	 */
+	public int getQueueDepth() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
 	protected boolean getBooleanProperty(String name, boolean defaultValue) {
 		String val = LogManager.getLogManager().getProperty(name);
 		if (val == null) {
@@ -596,7 +852,13 @@ public class FileHandler extends StreamHandler {
 			len = (int) fname.length();
 		}
 		FileOutputStream fout = new FileOutputStream(fname.toString(), append);
-		BufferedOutputStream bout = new BufferedOutputStream(fout);
+		BufferedOutputStream bout;
+		if (async && flushSize > 0) {
+			// flushing is done by the writer, buffer a complete batch
+			bout = new BufferedOutputStream(fout, flushSize);
+		} else {
+			bout = new BufferedOutputStream(fout);
+		}
 		meter = new MeteredStream(bout, len);
 		setOutputStream(meter);
 	}
@@ -694,6 +956,10 @@ public class FileHandler extends StreamHandler {
 
 		// Install the normal default ErrorManager.
 		setErrorManager(new ErrorManager());
+
+		if (async) {
+			startWriter();
+		}
 	}
 
     /**
@@ -703,12 +969,23 @@ public class FileHandler extends StreamHandler {
      *                 silently ignored and is not published
      */
 	@Override
-	public synchronized void publish(LogRecord record) {
+	public void publish(LogRecord record) {
 		if (!isLoggable(record)) {
 			return;
 		}
-		super.publish(record);
-		flush();
+		if (queue != null) {
+			enqueue(record);
+			return;
+		}
+		synchronized (this) {
+			super.publish(record);
+			flush();
+			rotateIfRequired();
+		}
+	}
+
+	// Rotate if the file size limit is reached
+	private void rotateIfRequired() {
 		if (limit > 0 && meter.written >= limit) {
 			// We performed access checks in the "init" method to make sure
 			// we are only initialized from trusted code. So we assume
@@ -728,7 +1005,11 @@ public class FileHandler extends StreamHandler {
 	// Rotate the set of output files
 	private synchronized void rotate() {
 		Level oldLevel = getLevel();
-		setLevel(Level.OFF);
+		if (queue == null) {
+			// in asynchronous mode, publishing threads must not see the
+			// temporary level; recursive log records are only queued
+			setLevel(Level.OFF);
+		}
 
 		super.close();
 		for (int i = count - 2; i >= 0; i--) {
@@ -749,6 +1030,125 @@ public class FileHandler extends StreamHandler {
 			reportError(null, e, ErrorManager.OPEN_FAILURE);
 
 		}
-		setLevel(oldLevel);
+		if (queue == null) {
+			setLevel(oldLevel);
+		}
+	}
+
+	// The background writer in asynchronous mode
+	private void runWriter() {
+		boolean dirty = false;
+		long dirtySince = 0;
+		for (;;) {
+			LogRecord record = queue.poll();
+			if (record != null) {
+				try {
+					synchronized (this) {
+						int batch = 0;
+						do {
+							super.publish(record);
+							// move the encoded record to the stream buffer to
+							// keep the byte count for rotation exact
+							meter.hold = true;
+							try {
+								flush();
+							} finally {
+								meter.hold = false;
+							}
+							if (!dirty) {
+								dirty = true;
+								dirtySince = System.nanoTime();
+							}
+							if (record.getLevel().intValue() >= flushLevel.intValue()
+									|| meter.written - meter.flushed >= flushSize) {
+								flush();
+								dirty = false;
+							}
+							rotateIfRequired();
+							record = ++batch < MAX_BATCH ? queue.poll() : null;
+						} while (record != null);
+					}
+				} catch (RuntimeException e) {
+					// the writer must survive, publishing threads may wait
+					reportError(null, e, ErrorManager.WRITE_FAILURE);
+					record = null;
+				}
+			}
+			long waitNanos = Long.MAX_VALUE;
+			if (dirty) {
+				long intervalNanos = flushInterval * 1_000_000L;
+				long elapsed = System.nanoTime() - dirtySince;
+				if (elapsed >= intervalNanos) {
+					flush();
+					dirty = false;
+				} else {
+					waitNanos = intervalNanos - elapsed;
+				}
+			}
+			if (record != null || queue.size() > 0) {
+				continue;
+			}
+			if (closing) {
+				break;
+			}
+			writerWaiting = true;
+			if (queue.size() == 0 && !closing) {
+				if (waitNanos == Long.MAX_VALUE) {
+					LockSupport.park(this);
+				} else {
+					LockSupport.parkNanos(this, waitNanos);
+				}
+			}
+			writerWaiting = false;
+		}
+		flush();
+	}
+
+	public void setFlushInterval(int flushInterval) {
+		this.flushInterval = Math.max(0, flushInterval);
+	}
+
+	public void setFlushLevel(Level flushLevel) {
+		this.flushLevel = flushLevel;
+	}
+
+	public void setFlushSize(int flushSize) {
+		this.flushSize = Math.max(0, flushSize);
+	}
+
+	public void setOverflowLevel(Level overflowLevel) {
+		this.overflowLevel = overflowLevel;
+	}
+
+	public void setOverflowPolicy(EnumOverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = Math.max(1, sampleRate);
+	}
+
+	private void startWriter() {
+		queue = new RecordRing(queueSize);
+		writer = new Thread(this::runWriter, "log writer " + pattern);
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	// Write all queued records and stop the background writer
+	private void stopWriter() {
+		if (writer == null || closing) {
+			return;
+		}
+		closing = true;
+		LockSupport.unpark(writer);
+		if (Thread.currentThread() == writer) {
+			return;
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 }
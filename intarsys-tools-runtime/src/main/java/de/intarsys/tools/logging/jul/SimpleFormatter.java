@@ -32,8 +32,10 @@ package de.intarsys.tools.logging.jul;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.text.Format;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.logging.Formatter;
 import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
@@ -55,12 +57,80 @@ import de.intarsys.tools.yalf.api.Yalf;
  * show context: %X
  * show thread: %t
  * </pre>
+ * 
+ * The configuration is compiled to a list of {@link IFieldWriter} instances on
+ * first use. Records are rendered to a thread local {@link StringBuilder}, the
+ * date prefix up to the seconds is cached.
  */
 public class SimpleFormatter extends Formatter {
 
+	/**
+	 * Renders a single field of a {@link LogRecord}.
+	 */
+	protected interface IFieldWriter {
+		void write(LogRecord event, StringBuilder sb);
+	}
+
+	/**
+	 * The formatted date up to the seconds.
+	 */
+	private static class DatePrefix {
+		final long second;
+		final String prefix;
+
+		DatePrefix(long second, String prefix) {
+			this.second = second;
+			this.prefix = prefix;
+		}
+	}
+
 	/** The line separator. */
 	private static final String LF = StringTools.LS;
 
+	private static final String SPACES = "                                ";
+
+	private static final int WIDTH_DATE = 24;
+
+	/**
+	 * Larger buffers are not kept for the thread.
+	 */
+	private static final int MAX_CACHED_CAPACITY = 16 * 1024;
+
+	private static final ThreadLocal<StringBuilder> Builder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	protected static void pad(StringBuilder sb, int count) {
+		while (count > 0) {
+			int chunk = Math.min(count, SPACES.length());
+			sb.append(SPACES, 0, chunk);
+			count -= chunk;
+		}
+	}
+
+	/**
+	 * Append value to sb as a bracketed field, padded to width. If
+	 * <code>truncate</code>, only the trailing part of a longer value is used.
+	 * 
+	 * @param sb
+	 * @param value
+	 * @param width
+	 * @param truncate
+	 */
+	protected static void writeField(StringBuilder sb, String value, int width, boolean truncate) {
+		sb.append('[');
+		int length = value.length();
+		if (truncate && length > width) {
+			if (width < 3) {
+				sb.append(StringTools.getTrailing(value, width));
+			} else {
+				sb.append("...").append(value, length - width + 3, length);
+			}
+		} else {
+			sb.append(value);
+			pad(sb, width - length);
+		}
+		sb.append(']');
+	}
+
 	static {
 		// force classloading - strange problems may arise when logging within
 		// classloader
@@ -140,6 +210,10 @@ public class SimpleFormatter extends Formatter {
 
 	private int widthThread = 15;
 
+	private volatile IFieldWriter[] writers;
+
+	private volatile DatePrefix datePrefix;
+
 	/**
 	 * 
 	 */
@@ -165,68 +239,76 @@ public class SimpleFormatter extends Formatter {
 		setWidthName(getIntProperty(cname + ".name.width", getWidthName()));
 	}
 
-	@Override
-	public String format(LogRecord event) {
-		return format(event, new StringBuffer()).toString();
-	}
-
-	public StringBuffer format(Object obj, StringBuffer sb) {
-		LogRecord event = (LogRecord) obj;
+	/**
+	 * Compile the current configuration to a list of {@link IFieldWriter}
+	 * instances, rendering the fields before the message.
+	 * 
+	 * @return The field writers
+	 */
+	protected IFieldWriter[] compile() {
+		List<IFieldWriter> result = new ArrayList<>();
 		if (isShowDate()) {
-			sb.append("[");
-			int index = sb.length();
-			dateFormat.format(new Date(event.getMillis()), sb, null);
-			for (int i = sb.length() - index; i < 24; i++) {
-				sb.append(' ');
-			}
-			sb.append("]");
+			result.add(this::writeDate);
 		}
 		if (isShowLevel()) {
-			sb.append("[");
-			String levelString = event.getLevel().toString();
-			sb.append(levelString);
-			for (int i = levelString.length(); i < widthLevel; i++) {
-				sb.append(' ');
-			}
-			sb.append("]");
+			int width = getWidthLevel();
+			result.add((event, sb) -> writeField(sb, event.getLevel().toString(), width, false));
 		}
 		if (isShowName()) {
-			String loggerString = event.getLoggerName();
-			if (loggerString == null) {
-				loggerString = "<unknown>";
-			}
-			if (loggerString.length() > widthName) {
-				loggerString = StringTools.getTrailing(loggerString, widthName);
-			}
-			sb.append("[");
-			sb.append(loggerString);
-			for (int i = loggerString.length(); i < widthName; i++) {
-				sb.append(' ');
-			}
-			sb.append("]");
+			int width = getWidthName();
+			result.add((event, sb) -> {
+				String loggerString = event.getLoggerName();
+				if (loggerString == null) {
+					loggerString = "<unknown>";
+				}
+				writeField(sb, loggerString, width, true);
+			});
 		}
 		if (isShowThread()) {
-			String threadString = Thread.currentThread().getName();
-			if (threadString.length() > widthThread) {
-				threadString = StringTools.getTrailing(threadString, widthThread);
-			}
-			sb.append("[");
-			sb.append(threadString);
-			for (int i = threadString.length(); i < widthThread; i++) {
-				sb.append(' ');
-			}
-			sb.append("]");
+			int width = getWidthThread();
+			result.add((event, sb) -> writeField(sb, Thread.currentThread().getName(), width, true));
 		}
 		if (isShowSDC()) {
-			sb.append("[");
-			String sdcString = String.valueOf(Yalf.get().getMDC().get("sdc"));
-			sb.append(sdcString);
-			for (int i = sdcString.length(); i < widthSDC; i++) {
-				sb.append(' ');
+			int width = getWidthSDC();
+			result.add((event, sb) -> writeField(sb, String.valueOf(Yalf.get().getMDC().get("sdc")), width, false));
+		}
+		return result.toArray(new IFieldWriter[result.size()]);
+	}
+
+	@Override
+	public String format(LogRecord event) {
+		StringBuilder sb = Builder.get();
+		if (sb.length() > 0) {
+			// recursive logging while formatting the message
+			sb = new StringBuilder();
+		}
+		try {
+			return format(event, sb).toString();
+		} finally {
+			sb.setLength(0);
+			if (sb.capacity() > MAX_CACHED_CAPACITY) {
+				Builder.remove();
 			}
-			sb.append("]");
 		}
-		sb.append(" ");
+	}
+
+	/**
+	 * Append the formatted event to sb.
+	 * 
+	 * @param event
+	 * @param sb
+	 * @return sb
+	 */
+	public StringBuilder format(LogRecord event, StringBuilder sb) {
+		IFieldWriter[] tempWriters = writers;
+		if (tempWriters == null) {
+			tempWriters = compile();
+			writers = tempWriters;
+		}
+		for (IFieldWriter writer : tempWriters) {
+			writer.write(event, sb);
+		}
+		sb.append(' ');
 		sb.append(formatMessage(event));
 		sb.append(LF);
 		if (event.getThrown() != null) {
@@ -244,6 +326,10 @@ public class SimpleFormatter extends Formatter {
 		return sb;
 	}
 
+	public StringBuffer format(Object obj, StringBuffer sb) {
+		return sb.append(format((LogRecord) obj, new StringBuilder()));
+	}
+
 	protected boolean getBooleanProperty(String name, boolean defaultValue) {
 		LogManager manager = LogManager.getLogManager();
 		String property = manager.getProperty(name);
@@ -266,6 +352,13 @@ public class SimpleFormatter extends Formatter {
 		}
 	}
 
+	/**
+	 * Invalidate the compiled field writers after a configuration change.
+	 */
+	protected void invalidate() {
+		writers = null;
+	}
+
 	public int getWidthLevel() {
 		return widthLevel;
 	}
@@ -304,37 +397,77 @@ public class SimpleFormatter extends Formatter {
 
 	public void setShowDate(boolean showDate) {
 		this.showDate = showDate;
+		invalidate();
 	}
 
 	public void setShowLevel(boolean showLevel) {
 		this.showLevel = showLevel;
+		invalidate();
 	}
 
 	public void setShowName(boolean showName) {
 		this.showName = showName;
+		invalidate();
 	}
 
 	public void setShowSDC(boolean showSDC) {
 		this.showSDC = showSDC;
+		invalidate();
 	}
 
 	public void setShowThread(boolean showThread) {
 		this.showThread = showThread;
+		invalidate();
 	}
 
 	public void setWidthLevel(int widthLevel) {
 		this.widthLevel = widthLevel;
+		invalidate();
 	}
 
 	public void setWidthName(int widthLoggername) {
 		this.widthName = widthLoggername;
+		invalidate();
 	}
 
 	public void setWidthSDC(int widthSDC) {
 		this.widthSDC = widthSDC;
+		invalidate();
 	}
 
 	public void setWidthThread(int widthThread) {
 		this.widthThread = widthThread;
+		invalidate();
+	}
+
+	/**
+	 * Write the date field, using the cached prefix for the current second.
+	 * 
+	 * @param event
+	 * @param sb
+	 */
+	protected void writeDate(LogRecord event, StringBuilder sb) {
+		long millis = event.getMillis();
+		long second = Math.floorDiv(millis, 1000);
+		DatePrefix prefix = datePrefix;
+		if (prefix == null || prefix.second != second) {
+			StringBuffer buffer = new StringBuffer();
+			dateFormat.format(new Date(second * 1000), buffer, null);
+			// strip the milliseconds
+			prefix = new DatePrefix(second, buffer.substring(0, buffer.length() - 3));
+			datePrefix = prefix;
+		}
+		sb.append('[');
+		sb.append(prefix.prefix);
+		int ms = Math.floorMod(millis, 1000);
+		if (ms < 100) {
+			sb.append('0');
+		}
+		if (ms < 10) {
+			sb.append('0');
+		}
+		sb.append(ms);
+		pad(sb, WIDTH_DATE - prefix.prefix.length() - 3);
+		sb.append(']');
 	}
 }
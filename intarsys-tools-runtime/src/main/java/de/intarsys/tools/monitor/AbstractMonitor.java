@@ -32,6 +32,7 @@ package de.intarsys.tools.monitor;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.intarsys.tools.component.ConfigurationException;
 import de.intarsys.tools.infoset.ElementTools;
@@ -89,7 +90,7 @@ public abstract class AbstractMonitor implements IMonitor, IElementConfigurable
 
 	private int logCycle = LOG_CYCLE;
 
-	private int traceCount;
+	private final AtomicInteger traceCount = new AtomicInteger();
 
 	/**
 	 * The current IMonitorTrace. The monitor may be used from different
@@ -149,6 +150,14 @@ public abstract class AbstractMonitor implements IMonitor, IElementConfigurable
 	 */
 	protected abstract AbstractMonitorTrace createMonitorTrace();
 
+	/**
+	 * Get informed that "logCycle" traces have been finished. The monitor is
+	 * logged and reset.
+	 */
+	protected void cycleCompleted() {
+		reset();
+	}
+
 	@Override
 	public final void detach() {
 		AbstractMonitorTrace trace = (AbstractMonitorTrace) getCurrentTrace();
@@ -206,7 +215,7 @@ public abstract class AbstractMonitor implements IMonitor, IElementConfigurable
 	public void reset() {
 		traceLog();
 		traces = new LinkedList();
-		traceCount = 0;
+		traceCount.set(0);
 	}
 
 	public void setCollectAll(int count) {
@@ -261,19 +270,22 @@ public abstract class AbstractMonitor implements IMonitor, IElementConfigurable
 	 * @param trace
 	 *            The trace that is finished.
 	 */
-	protected synchronized void stopped(ITrace trace) {
+	protected void stopped(ITrace trace) {
 		Trace.unregisterTrace(trace);
 		if (getCollectAll() > 0) {
-			getBasicTraces().add(trace);
-			tracePerThread.set(createMonitorTrace());
+			synchronized (this) {
+				getBasicTraces().add(trace);
+				tracePerThread.set(createMonitorTrace());
 
-			if (getCollectAll() < getBasicTraces().size()) {
-				getBasicTraces().removeFirst();
+				if (getCollectAll() < getBasicTraces().size()) {
+					getBasicTraces().removeFirst();
+				}
 			}
 		}
-		traceCount++;
-		if (getLogCycle() != -1 && traceCount >= getLogCycle()) {
-			reset();
+		int count = traceCount.incrementAndGet();
+		// only one of the concurrent traces completes the cycle
+		if (getLogCycle() != -1 && count >= getLogCycle() && traceCount.compareAndSet(count, 0)) {
+			cycleCompleted();
 		}
 	}
 
@@ -0,0 +1,129 @@
+package de.intarsys.tools.monitor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.intarsys.tools.cache.ConcurrentCache;
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.api.Level;
+import de.intarsys.tools.yalf.common.LogTools;
+
+/**
+ * A monitor publishing the statistics of a {@link ConcurrentCache}.
+ *
+ * The cache keeps its own counters, so there are no traces to take. The
+ * monitor simply reports the current state in {@link #getData()}.
+ */
+public class CacheMonitor implements IMonitor {
+
+	public static final String ATTR_NAME = "name";
+
+	public static final String ATTR_HITS = "hits";
+
+	public static final String ATTR_MISSES = "misses";
+
+	public static final String ATTR_HITRATIO = "hitratio";
+
+	public static final String ATTR_EVICTIONS = "evictions";
+
+	public static final String ATTR_EXPIRATIONS = "expirations";
+
+	public static final String ATTR_SIZE = "size";
+
+	private final String name;
+
+	private final ConcurrentCache<?> cache;
+
+	private final ITrace nullTrace = new ITrace() {
+		@Override
+		public ISample sample(Level level, String description) {
+			return null;
+		}
+
+		@Override
+		public void stop() {
+			// not required
+		}
+
+		@Override
+		public void tag(String key, Object tag) {
+			// not required
+		}
+	};
+
+	public CacheMonitor(String name, ConcurrentCache<?> cache) {
+		super();
+		this.name = name;
+		this.cache = cache;
+	}
+
+	@Override
+	public ITrace attach() {
+		return nullTrace;
+	}
+
+	@Override
+	public void detach() {
+		// no traces
+	}
+
+	public ConcurrentCache<?> getCache() {
+		return cache;
+	}
+
+	@Override
+	public ITrace getCurrentTrace() {
+		return nullTrace;
+	}
+
+	@Override
+	public Map getData() {
+		Map attributes = new HashMap();
+		attributes.put(ATTR_NAME, getName());
+		attributes.put(ATTR_HITS, Long.valueOf(cache.getHitCount()));
+		attributes.put(ATTR_MISSES, Long.valueOf(cache.getMissCount()));
+		attributes.put(ATTR_HITRATIO, Double.valueOf(cache.getHitRatio()));
+		attributes.put(ATTR_EVICTIONS, Long.valueOf(cache.getEvictionCount()));
+		attributes.put(ATTR_EXPIRATIONS, Long.valueOf(cache.getExpirationCount()));
+		attributes.put(ATTR_SIZE, Long.valueOf(cache.size()));
+		return attributes;
+	}
+
+	@Override
+	public Map getFormattedData() {
+		Map attributes = new HashMap();
+		Map data = getData();
+		for (Object key : data.keySet()) {
+			attributes.put(key, String.valueOf(data.get(key)));
+		}
+		attributes.put(ATTR_HITRATIO, String.format("%.2f%%", cache.getHitRatio() * 100)); //$NON-NLS-1$
+		return attributes;
+	}
+
+	@Override
+	public ILogger getLogger() {
+		return LogTools.getLogger(name);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public List<ITrace> getTraces() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void reset() {
+		cache.resetStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " " + getFormattedData(); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,290 @@
+package de.intarsys.tools.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram of non negative long values with log linear buckets.
+ *
+ * <p>
+ * Each power of 2 is divided into 2^precision linear buckets, the relative
+ * error of a value derived from the histogram is below 2^-precision. Values
+ * below 2^(precision+1) are recorded exactly.
+ * </p>
+ *
+ * <p>
+ * Recording does not lock. Each thread records into one of a set of stripes,
+ * the stripes are merged when a {@link Snapshot} is taken. {@link #reset()}
+ * and {@link #getIntervalSnapshot()} do not clear the counters but remember a
+ * baseline that is subtracted from later snapshots.
+ * </p>
+ */
+public class Histogram {
+
+	/**
+	 * An immutable copy of the histogram counters.
+	 */
+	public static class Snapshot {
+
+		private final Histogram histogram;
+
+		private final long[] counts;
+
+		private final long count;
+
+		private final long total;
+
+		protected Snapshot(Histogram histogram, long[] counts, long total) {
+			this.histogram = histogram;
+			this.counts = counts;
+			long tempCount = 0;
+			for (long value : counts) {
+				tempCount += value;
+			}
+			this.count = tempCount;
+			this.total = total;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * The largest value recorded, within the histogram precision.
+		 *
+		 * @return The largest value recorded or 0
+		 */
+		public long getMax() {
+			for (int i = counts.length - 1; i >= 0; i--) {
+				if (counts[i] > 0) {
+					return histogram.highestValue(i);
+				}
+			}
+			return 0;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double) total / count;
+		}
+
+		/**
+		 * The smallest value recorded, within the histogram precision.
+		 *
+		 * @return The smallest value recorded or 0
+		 */
+		public long getMin() {
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					return histogram.lowestValue(i);
+				}
+			}
+			return 0;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		/**
+		 * The value below or equal to which percentile percent of the values
+		 * fall, within the histogram precision.
+		 *
+		 * @param percentile
+		 *            The percentile between 0 and 100
+		 * @return The value at percentile or 0
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			double tempPercentile = Math.min(Math.max(percentile, 0), 100);
+			long rank = Math.max(1, (long) Math.ceil(tempPercentile / 100 * count));
+			long sum = 0;
+			for (int i = 0; i < counts.length; i++) {
+				sum += counts[i];
+				if (sum >= rank) {
+					return histogram.highestValue(i);
+				}
+			}
+			return getMax();
+		}
+
+		/**
+		 * The snapshot of the values recorded after previous.
+		 *
+		 * @param previous
+		 *            An earlier snapshot of the same histogram
+		 * @return The difference between this and previous
+		 */
+		public Snapshot minus(Snapshot previous) {
+			if (previous == null) {
+				return this;
+			}
+			long[] tempCounts = new long[counts.length];
+			for (int i = 0; i < counts.length; i++) {
+				tempCounts[i] = counts[i] - previous.counts[i];
+			}
+			return new Snapshot(histogram, tempCounts, total - previous.total);
+		}
+	}
+
+	/**
+	 * The counters of a set of threads.
+	 */
+	private static class Stripe {
+
+		protected final AtomicLongArray counts;
+
+		protected final AtomicLong total = new AtomicLong();
+
+		protected Stripe(int length) {
+			this.counts = new AtomicLongArray(length);
+		}
+	}
+
+	public static final int DEFAULT_PRECISION = 5;
+
+	private static final int STRIPES;
+
+	static {
+		int processors = Runtime.getRuntime().availableProcessors();
+		STRIPES = Integer.highestOneBit(Math.max(1, Math.min(processors, 64)) * 2 - 1);
+	}
+
+	private final int precision;
+
+	private final int subBuckets;
+
+	private final int length;
+
+	private final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<>(STRIPES);
+
+	private volatile Snapshot baseline;
+
+	private Snapshot interval;
+
+	public Histogram() {
+		this(DEFAULT_PRECISION);
+	}
+
+	/**
+	 * @param precision
+	 *            The number of bits used for the linear buckets within a power
+	 *            of 2, between 1 and 10
+	 */
+	public Histogram(int precision) {
+		if (precision < 1 || precision > 10) {
+			throw new IllegalArgumentException("precision must be between 1 and 10");
+		}
+		this.precision = precision;
+		this.subBuckets = 1 << precision;
+		this.length = (64 - precision) * subBuckets;
+	}
+
+	protected int bucketIndex(long value) {
+		if (value < subBuckets) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - precision;
+		return (shift + 1) * subBuckets + (int) (value >>> shift) - subBuckets;
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * The values recorded since the last call to this method (or the last
+	 * {@link #reset()}).
+	 *
+	 * @return The values recorded since the last interval
+	 */
+	public synchronized Snapshot getIntervalSnapshot() {
+		Snapshot current = takeSnapshot();
+		Snapshot previous = interval == null ? baseline : interval;
+		interval = current;
+		return current.minus(previous);
+	}
+
+	/**
+	 * The values recorded since the last {@link #reset()}.
+	 *
+	 * @return The values recorded since the last reset
+	 */
+	public Snapshot getSnapshot() {
+		return takeSnapshot().minus(baseline);
+	}
+
+	protected Stripe getStripe() {
+		long id = Thread.currentThread().getId();
+		int index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & (STRIPES - 1);
+		Stripe stripe = stripes.get(index);
+		if (stripe == null) {
+			stripe = new Stripe(length);
+			if (!stripes.compareAndSet(index, null, stripe)) {
+				stripe = stripes.get(index);
+			}
+		}
+		return stripe;
+	}
+
+	protected long highestValue(int index) {
+		if (index < 2 * subBuckets) {
+			return index;
+		}
+		int shift = index / subBuckets - 1;
+		long mantissa = index % subBuckets + subBuckets;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	protected long lowestValue(int index) {
+		if (index < 2 * subBuckets) {
+			return index;
+		}
+		int shift = index / subBuckets - 1;
+		long mantissa = index % subBuckets + subBuckets;
+		return mantissa << shift;
+	}
+
+	/**
+	 * Record value. Negative values are recorded as 0.
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		long tempValue = Math.max(0, value);
+		Stripe stripe = getStripe();
+		stripe.counts.incrementAndGet(bucketIndex(tempValue));
+		stripe.total.addAndGet(tempValue);
+	}
+
+	/**
+	 * Start over with an empty histogram.
+	 */
+	public synchronized void reset() {
+		baseline = takeSnapshot();
+		interval = null;
+	}
+
+	/**
+	 * Merge the counters of all stripes.
+	 *
+	 * @return The values recorded since creation
+	 */
+	protected Snapshot takeSnapshot() {
+		long[] counts = new long[length];
+		long total = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			Stripe stripe = stripes.get(i);
+			if (stripe == null) {
+				continue;
+			}
+			for (int j = 0; j < length; j++) {
+				counts[j] += stripe.counts.get(j);
+			}
+			total += stripe.total.get();
+		}
+		return new Snapshot(this, counts, total);
+	}
+}
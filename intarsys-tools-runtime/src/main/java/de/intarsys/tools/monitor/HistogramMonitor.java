@@ -0,0 +1,285 @@
+package de.intarsys.tools.monitor;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.intarsys.tools.component.ConfigurationException;
+import de.intarsys.tools.infoset.ElementTools;
+import de.intarsys.tools.infoset.IElement;
+import de.intarsys.tools.string.StringTools;
+
+/**
+ * A {@link TimeMonitor} collecting the durations in a {@link Histogram}.
+ *
+ * <p>
+ * Durations are taken in nanoseconds and recorded without locking the
+ * monitor. In addition to the {@link TimeMonitor} attributes (in
+ * milliseconds), {@link #getData()} contains the percentiles
+ * {@link #ATTR_P50}, {@link #ATTR_P90}, {@link #ATTR_P99} and
+ * {@link #ATTR_P999} in (fractional) milliseconds.
+ * {@link #getIntervalData()} returns the same attributes for the traces
+ * finished since its last call. The log cycle does not reset the statistics,
+ * only {@link #reset()} does.
+ * </p>
+ *
+ * <p>
+ * The monitor may replace a {@link TimeMonitor} in a monitor configuration.
+ * The additional attribute "precision" defines the number of linear buckets
+ * per power of 2 (see {@link Histogram#Histogram(int)}).
+ * </p>
+ */
+public class HistogramMonitor extends TimeMonitor {
+
+	/**
+	 * The histogram for the samples of a given description.
+	 */
+	protected static class SampleHistogram {
+
+		protected final String description;
+
+		protected final int index;
+
+		protected final Histogram histogram;
+
+		protected SampleHistogram(String description, int index, Histogram histogram) {
+			this.description = description;
+			this.index = index;
+			this.histogram = histogram;
+		}
+	}
+
+	public static final String ATTR_P50 = "p50";
+
+	public static final String ATTR_P90 = "p90";
+
+	public static final String ATTR_P99 = "p99";
+
+	public static final String ATTR_P999 = "p999";
+
+	private static final String ATTR_PRECISION = "precision";
+
+	private static final double NANOS_PER_MILLI = 1000000d;
+
+	private int precision = Histogram.DEFAULT_PRECISION;
+
+	private volatile Histogram histogram = new Histogram(precision);
+
+	private final Map<String, SampleHistogram> sampleHistograms = new ConcurrentHashMap<>();
+
+	public HistogramMonitor() {
+		super();
+		// set by the first trace
+		first = -1L;
+	}
+
+	/**
+	 * Create a HistogramMonitor
+	 *
+	 * @param name
+	 *            monitor name
+	 */
+	public HistogramMonitor(String name) {
+		super(name);
+		first = -1L;
+	}
+
+	@Override
+	public void configure(IElement element) throws ConfigurationException {
+		super.configure(element);
+		setPrecision(ElementTools.getPathInt(element, ATTR_PRECISION, Histogram.DEFAULT_PRECISION));
+	}
+
+	@Override
+	protected HistogramMonitorTrace createMonitorTrace() {
+		return new HistogramMonitorTrace(this);
+	}
+
+	protected Map<String, Object> createData(Histogram.Snapshot snapshot) {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(ATTR_NAME, getName());
+		attributes.put(ATTR_FIRST, Long.valueOf(first));
+		attributes.put(ATTR_LAST, Long.valueOf(last));
+		attributes.put(ATTR_MIN, Long.valueOf(toMillis(snapshot.getMin())));
+		attributes.put(ATTR_MAX, Long.valueOf(toMillis(snapshot.getMax())));
+		attributes.put(ATTR_COUNT, Long.valueOf(snapshot.getCount()));
+		attributes.put(ATTR_EFFECTIVE, Long.valueOf(toMillis(snapshot.getTotal())));
+		attributes.put(ATTR_AVG, Long.valueOf((long) (snapshot.getMean() / NANOS_PER_MILLI)));
+		attributes.put(ATTR_P50, Double.valueOf(snapshot.getValueAtPercentile(50) / NANOS_PER_MILLI));
+		attributes.put(ATTR_P90, Double.valueOf(snapshot.getValueAtPercentile(90) / NANOS_PER_MILLI));
+		attributes.put(ATTR_P99, Double.valueOf(snapshot.getValueAtPercentile(99) / NANOS_PER_MILLI));
+		attributes.put(ATTR_P999, Double.valueOf(snapshot.getValueAtPercentile(99.9) / NANOS_PER_MILLI));
+		return attributes;
+	}
+
+	@Override
+	protected void cycleCompleted() {
+		// log, but keep the statistics
+		traceLog();
+	}
+
+	@Override
+	protected void doCalculation(MonitorTrace trace) {
+		long start = trace.getStart();
+		histogram.record(trace.getDifference());
+		List<?> samples = trace.getSamples();
+		if (samples != null) {
+			int i = 0;
+			for (Object object : samples) {
+				MonitorSample sample = (MonitorSample) object;
+				getSampleHistogram(sample.getDescription(), i).histogram.record(sample.getValue() - start);
+				start = sample.getValue();
+				i++;
+			}
+		}
+	}
+
+	@Override
+	public Map<String, Object> getData() {
+		return createData(histogram.getSnapshot());
+	}
+
+	@Override
+	public Map<String, Object> getFormattedData() {
+		Map<String, Object> attributes = new HashMap<>();
+		for (Map.Entry<String, Object> entry : getData().entrySet()) {
+			attributes.put(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		attributes.put(ATTR_FIRST, getFormat().format(Long.valueOf(first)));
+		attributes.put(ATTR_LAST, getFormat().format(Long.valueOf(last)));
+		return attributes;
+	}
+
+	/**
+	 * The histogram of the trace durations in nanoseconds.
+	 *
+	 * @return The histogram of the trace durations
+	 */
+	public Histogram getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * The statistic attributes for the traces finished since the last call.
+	 *
+	 * @return The statistic attributes since the last call
+	 */
+	public Map<String, Object> getIntervalData() {
+		return createData(histogram.getIntervalSnapshot());
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	protected SampleHistogram getSampleHistogram(String description, int index) {
+		SampleHistogram result = sampleHistograms.get(description);
+		if (result == null) {
+			result = sampleHistograms.computeIfAbsent(description,
+					key -> new SampleHistogram(key, index, new Histogram(precision)));
+		}
+		return result;
+	}
+
+	@Override
+	protected void record(MonitorTrace trace) {
+		last = System.currentTimeMillis();
+		doCalculation(trace);
+	}
+
+	@Override
+	public synchronized void reset() {
+		super.reset();
+		histogram.reset();
+		for (SampleHistogram sampleHistogram : sampleHistograms.values()) {
+			sampleHistogram.histogram.reset();
+		}
+	}
+
+	/**
+	 * The number of bits for the linear buckets within a power of 2. Changing
+	 * the precision discards the statistics.
+	 *
+	 * @param precision
+	 */
+	public synchronized void setPrecision(int precision) {
+		if (this.precision == precision) {
+			return;
+		}
+		Histogram tempHistogram = new Histogram(precision);
+		this.precision = precision;
+		this.histogram = tempHistogram;
+		sampleHistograms.clear();
+	}
+
+	@Override
+	protected void started(ITrace trace) {
+		if (first == -1L) {
+			first = System.currentTimeMillis();
+		}
+	}
+
+	protected long toMillis(long nanos) {
+		return nanos / 1000000L;
+	}
+
+	protected void toTableRow(StringWriter sw, String description, Histogram.Snapshot snapshot) {
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(toFormattedString(description, COLWIDTH_LABEL));
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(toFormattedString(String.valueOf(snapshot.getCount()), COLWIDTH_NUMBER));
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(toFormattedString(String.valueOf(toMillis(snapshot.getTotal())), COLWIDTH_NUMBER));
+		long[] values = new long[] { snapshot.getMin(), snapshot.getMax(), (long) snapshot.getMean(),
+				snapshot.getValueAtPercentile(50), snapshot.getValueAtPercentile(99) };
+		for (long value : values) {
+			sw.write(TXT_VER_SEPARATOR);
+			sw.write(toFormattedString(String.format("%.3f", value / NANOS_PER_MILLI), COLWIDTH_NUMBER)); //$NON-NLS-1$
+		}
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(StringTools.LS);
+	}
+
+	protected void toTableSeparator(StringWriter sw) {
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(toFormattedString(TXT_HOR_SEPARATOR, COLWIDTH_LABEL));
+		for (int i = 0; i < 7; i++) {
+			sw.write(TXT_VER_SEPARATOR);
+			sw.write(toFormattedString(TXT_HOR_SEPARATOR, COLWIDTH_NUMBER));
+		}
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(StringTools.LS);
+	}
+
+	@Override
+	public String toTableString() {
+		StringWriter sw = new StringWriter();
+		sw.write(StringTools.LS);
+		sw.write("   ");
+		sw.write(getName());
+		sw.write(StringTools.LS);
+		sw.write(StringTools.LS);
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(toFormattedString("description", COLWIDTH_LABEL));
+		String[] labels = new String[] { "count", "total", "min", "max", "avg", ATTR_P50, ATTR_P99 };
+		for (String label : labels) {
+			sw.write(TXT_VER_SEPARATOR);
+			sw.write(toFormattedString(label, COLWIDTH_NUMBER));
+		}
+		sw.write(TXT_VER_SEPARATOR);
+		sw.write(StringTools.LS);
+		toTableSeparator(sw);
+		List<SampleHistogram> sampleHistogramList = new ArrayList<>(sampleHistograms.values());
+		sampleHistogramList.sort(Comparator.comparingInt(sampleHistogram -> sampleHistogram.index));
+		for (SampleHistogram sampleHistogram : sampleHistogramList) {
+			toTableRow(sw, sampleHistogram.description, sampleHistogram.histogram.getSnapshot());
+		}
+		toTableSeparator(sw);
+		toTableRow(sw, "", histogram.getSnapshot());
+		return sw.toString();
+	}
+}
@@ -0,0 +1,32 @@
+package de.intarsys.tools.monitor;
+
+import java.text.Format;
+
+import de.intarsys.tools.format.TrivialIntegerFormat;
+
+/**
+ * A trace for taking nanosecond time samples while executing.
+ */
+public class HistogramMonitorTrace extends TimeMonitorTrace {
+
+	/**
+	 * Create a HistogramMonitorTrace
+	 * 
+	 * @param owner
+	 *            monitor owning the trace
+	 */
+	public HistogramMonitorTrace(HistogramMonitor owner) {
+		super(owner);
+	}
+
+	@Override
+	protected long createSampleValue() {
+		return System.nanoTime();
+	}
+
+	@Override
+	protected Format getFormat() {
+		// nano time is no date
+		return TrivialIntegerFormat.getInstance();
+	}
+}
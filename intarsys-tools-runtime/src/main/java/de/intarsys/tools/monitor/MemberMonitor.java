@@ -35,6 +35,8 @@ import java.lang.reflect.Method;
 import de.intarsys.tools.component.ConfigurationException;
 import de.intarsys.tools.infoset.ElementTools;
 import de.intarsys.tools.infoset.IElement;
+import de.intarsys.tools.reflect.ClassAccessors;
+import de.intarsys.tools.reflect.MemberAccessor;
 
 /**
  * A monitor for taking time samples in the application.
@@ -43,9 +45,8 @@ public class MemberMonitor extends Monitor {
 	// the clas we monitor
 	private Class clazz;
 
-	private Method method;
-
-	private Field field;
+	// the field or method sampled
+	private MemberAccessor accessor;
 
 	public MemberMonitor() {
 		super();
@@ -64,13 +65,13 @@ public class MemberMonitor extends Monitor {
 	public MemberMonitor(String name, Class clazz, Field field) {
 		super(name);
 		this.clazz = clazz;
-		this.field = field;
+		this.accessor = MemberAccessor.forField(field);
 	}
 
 	public MemberMonitor(String name, Class clazz, Method method) {
 		super(name);
 		this.clazz = clazz;
-		this.method = method;
+		this.accessor = MemberAccessor.forMethod(method);
 	}
 
 	@Override
@@ -89,31 +90,26 @@ public class MemberMonitor extends Monitor {
 		} catch (IllegalArgumentException e) {
 			throw new ConfigurationException(className + " not instantiable");
 		}
+		ClassAccessors accessors = ClassAccessors.get(clazz);
+		accessor = null;
+		String fieldName = ElementTools.getPathString(element, "monitoredfield", null);
+		if (fieldName != null) {
+			accessor = accessors.getField(fieldName);
+			if (accessor == null) {
+				throw new ConfigurationException(fieldName + " not found");
+			}
+		}
 		String methodName = ElementTools.getPathString(element, "monitoredmethod", null);
 		if (methodName != null) {
-			try {
-				method = getClazz().getMethod(methodName);
-			} catch (SecurityException e) {
-				throw new ConfigurationException(methodName + " not permitted");
-			} catch (IllegalArgumentException e) {
-				throw new ConfigurationException(methodName + " not instantiable");
-			} catch (NoSuchMethodException e) {
+			MemberAccessor methodAccessor = accessors.findMethod(methodName);
+			if (methodAccessor == null) {
 				throw new ConfigurationException(methodName + " not found");
 			}
-		}
-		String fieldName = ElementTools.getPathString(element, "monitoredfield", null);
-		if (fieldName != null) {
-			try {
-				field = getClazz().getField(fieldName);
-			} catch (SecurityException e) {
-				throw new ConfigurationException(fieldName + " not permitted");
-			} catch (IllegalArgumentException e) {
-				throw new ConfigurationException(fieldName + " not instantiable");
-			} catch (NoSuchFieldException e) {
-				throw new ConfigurationException(fieldName + " not found");
+			if (accessor == null) {
+				accessor = methodAccessor;
 			}
 		}
-		if ((field == null) && (method == null)) {
+		if (accessor == null) {
 			throw new ConfigurationException("field or method must be set");
 		}
 	}
@@ -146,15 +142,24 @@ public class MemberMonitor extends Monitor {
 		statistic.count++;
 	}
 
+	/**
+	 * The accessor for the monitored field or method.
+	 *
+	 * @return The accessor
+	 */
+	protected MemberAccessor getAccessor() {
+		return accessor;
+	}
+
 	protected Class getClazz() {
 		return clazz;
 	}
 
 	protected Field getField() {
-		return field;
+		return accessor != null && accessor.isField() ? accessor.getField() : null;
 	}
 
 	protected Method getMethod() {
-		return method;
+		return accessor != null && !accessor.isField() ? accessor.getMethod() : null;
 	}
 }
@@ -29,8 +29,7 @@
  */
 package de.intarsys.tools.monitor;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import de.intarsys.tools.reflect.MemberAccessor;
 
 /**
  * Access a field or method member of a class to take the sample.
@@ -44,17 +43,9 @@ public class MemberMonitorTrace extends MonitorTrace {
 
 	@Override
 	protected long createSampleValue() {
-		Field field = getField();
-		if (field != null) {
-			return createSampleValueField(field);
-		} else {
-			return createSampleValueMethod(getMethod());
-		}
-	}
-
-	protected long createSampleValueField(Field field) {
+		MemberAccessor accessor = getAccessor();
 		try {
-			Object result = field.get(null);
+			Object result = accessor.isField() ? accessor.get(null) : accessor.invoke(null);
 			return ((Number) result).intValue();
 		} catch (Exception e) {
 			// ignore exceptions
@@ -62,21 +53,7 @@ public class MemberMonitorTrace extends MonitorTrace {
 		return 0;
 	}
 
-	protected long createSampleValueMethod(Method method) {
-		try {
-			Object result = method.invoke(null);
-			return ((Number) result).intValue();
-		} catch (Exception e) {
-			// ignore exceptions
-		}
-		return 0;
-	}
-
-	protected Field getField() {
-		return ((MemberMonitor) getOwner()).getField();
-	}
-
-	protected Method getMethod() {
-		return ((MemberMonitor) getOwner()).getMethod();
+	protected MemberAccessor getAccessor() {
+		return ((MemberMonitor) getOwner()).getAccessor();
 	}
 }
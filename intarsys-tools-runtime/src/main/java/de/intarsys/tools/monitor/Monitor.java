@@ -191,6 +191,17 @@ public abstract class Monitor extends AbstractMonitor {
 		return relative;
 	}
 
+	/**
+	 * Add the results of a finished trace to the statistics.
+	 * 
+	 * @param trace
+	 *            The trace that is finished.
+	 */
+	protected synchronized void record(MonitorTrace trace) {
+		last = trace.getStop();
+		doCalculation(trace);
+	}
+
 	/**
 	 * Reset the relevant internal state of the monitor to reuse it.
 	 */
@@ -228,11 +239,8 @@ public abstract class Monitor extends AbstractMonitor {
 	 *            The trace that is finished.
 	 */
 	@Override
-	protected synchronized void stopped(ITrace trace) {
-		last = ((MonitorTrace) trace).getStop();
-
-		doCalculation((MonitorTrace) trace);
-
+	protected void stopped(ITrace trace) {
+		record((MonitorTrace) trace);
 		super.stopped(trace);
 	}
 
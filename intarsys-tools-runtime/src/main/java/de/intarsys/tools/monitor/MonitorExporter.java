@@ -0,0 +1,564 @@
+package de.intarsys.tools.monitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+
+import com.sun.net.httpserver.HttpServer;
+
+import de.intarsys.tools.concurrent.ThreadTools;
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.common.LogTools;
+
+/**
+ * Export the numeric data of all monitors in an {@link IMonitorRegistry}.
+ *
+ * <p>
+ * On a fixed schedule the {@link IMonitor#getData()} of every registered
+ * monitor is collected into a preallocated buffer of doubles. The buffer layout
+ * is only rebuilt when the set of monitors or their attributes changes.
+ * </p>
+ *
+ * <p>
+ * The latest values are published
+ * <ul>
+ * <li>as a JMX MBean per monitor (see {@link #setJmx(boolean)})</li>
+ * <li>in the Prometheus text format to a file (see {@link #setFile(File)})</li>
+ * <li>in the Prometheus text format on a local HTTP endpoint (see
+ * {@link #setPort(int)})</li>
+ * </ul>
+ * Reading the values does not touch the monitors at all, the cost of a scrape
+ * is linear in the number of exported values.
+ * </p>
+ */
+public class MonitorExporter {
+
+	/**
+	 * The arrangement of the exported values.
+	 */
+	protected static class Layout {
+
+		protected final IMonitor[] monitors;
+
+		/**
+		 * The number of numeric attributes per monitor when the layout was
+		 * created
+		 */
+		protected final int[] attributeCounts;
+
+		protected final Map[] data;
+
+		/**
+		 * The index of the monitor for each value
+		 */
+		protected final int[] monitorIndex;
+
+		protected final String[] keys;
+
+		protected final String[] metricNames;
+
+		protected final String[] labels;
+
+		/**
+		 * The values collected in the current cycle
+		 */
+		protected final double[] collected;
+
+		/**
+		 * The values published
+		 */
+		protected final double[] values;
+
+		protected Layout(IMonitor[] monitors, int[] attributeCounts, int[] monitorIndex, String[] keys,
+				String[] metricNames, String[] labels) {
+			this.monitors = monitors;
+			this.attributeCounts = attributeCounts;
+			this.data = new Map[monitors.length];
+			this.monitorIndex = monitorIndex;
+			this.keys = keys;
+			this.metricNames = metricNames;
+			this.labels = labels;
+			this.collected = new double[keys.length];
+			this.values = new double[keys.length];
+		}
+	}
+
+	private static final ILogger Log = LogTools.getLogger(MonitorExporter.class);
+
+	public static final String DEFAULT_PREFIX = "intarsys_monitor";
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"; //$NON-NLS-1$
+
+	protected static int countNumeric(Map data) {
+		int count = 0;
+		for (Object value : data.values()) {
+			if (value instanceof Number) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	protected static String escapeLabel(String value) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				sb.append('\\').append(c);
+			} else if (c == '\n') {
+				sb.append("\\n");
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	protected static String sanitize(String value) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9' && i > 0) || c == '_') {
+				sb.append(c);
+			} else {
+				sb.append('_');
+			}
+		}
+		return sb.toString();
+	}
+
+	private final IMonitorRegistry registry;
+
+	private String prefix = DEFAULT_PREFIX;
+
+	private long interval = 10000;
+
+	private File file;
+
+	private int port = -1;
+
+	private boolean jmx;
+
+	private final Object lock = new Object();
+
+	private Layout layout;
+
+	private long timestamp;
+
+	private final Map<String, MonitorMBeanSupport> mbeans = new HashMap<>();
+
+	private ScheduledExecutorService executor;
+
+	private HttpServer server;
+
+	public MonitorExporter() {
+		this(MonitorRegistry.get());
+	}
+
+	public MonitorExporter(IMonitorRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Collect the values of all monitors and publish them.
+	 */
+	public void export() {
+		try {
+			snapshot();
+			if (jmx) {
+				publishMBeans();
+			}
+			if (file != null) {
+				writeFile(file);
+			}
+		} catch (Throwable e) {
+			// do not let the export die...
+			Log.warn("monitor export failed", e);
+		}
+	}
+
+	protected Layout createLayout(List<IMonitor> monitors) {
+		IMonitor[] tempMonitors = monitors.toArray(new IMonitor[monitors.size()]);
+		int[] attributeCounts = new int[tempMonitors.length];
+		// sorted by metric name and monitor, as required by the text format
+		TreeMap<String, Object[]> series = new TreeMap<>();
+		for (int i = 0; i < tempMonitors.length; i++) {
+			IMonitor monitor = tempMonitors[i];
+			Map data = monitor.getData();
+			attributeCounts[i] = countNumeric(data);
+			for (Object entryObject : data.entrySet()) {
+				Map.Entry entry = (Map.Entry) entryObject;
+				if (!(entry.getValue() instanceof Number)) {
+					continue;
+				}
+				String key = String.valueOf(entry.getKey());
+				String metricName = prefix + "_" + sanitize(key);
+				series.put(metricName + "\u0000" + monitor.getName() + "\u0000" + i,
+						new Object[] { Integer.valueOf(i), key, metricName });
+			}
+		}
+		int size = series.size();
+		int[] monitorIndex = new int[size];
+		String[] keys = new String[size];
+		String[] metricNames = new String[size];
+		String[] labels = new String[size];
+		int j = 0;
+		for (Object[] value : series.values()) {
+			int i = ((Integer) value[0]).intValue();
+			monitorIndex[j] = i;
+			keys[j] = (String) value[1];
+			metricNames[j] = (String) value[2];
+			labels[j] = "{monitor=\"" + escapeLabel(tempMonitors[i].getName()) + "\"}";
+			j++;
+		}
+		return new Layout(tempMonitors, attributeCounts, monitorIndex, keys, metricNames, labels);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * The names of the monitors exported.
+	 *
+	 * @return The names of the monitors exported.
+	 */
+	public List<String> getMonitorNames() {
+		List<String> result = new ArrayList<>();
+		synchronized (lock) {
+			if (layout != null) {
+				for (IMonitor monitor : layout.monitors) {
+					result.add(monitor.getName());
+				}
+			}
+		}
+		return result;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public IMonitorRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * The time of the last snapshot.
+	 *
+	 * @return The time of the last snapshot in milliseconds
+	 */
+	public long getTimestamp() {
+		synchronized (lock) {
+			return timestamp;
+		}
+	}
+
+	/**
+	 * The value exported for attribute key of monitorName.
+	 *
+	 * @param monitorName
+	 * @param key
+	 * @return The value exported or NaN
+	 */
+	public double getValue(String monitorName, String key) {
+		synchronized (lock) {
+			if (layout == null) {
+				return Double.NaN;
+			}
+			for (int i = 0; i < layout.keys.length; i++) {
+				if (layout.keys[i].equals(key) && layout.monitors[layout.monitorIndex[i]].getName().equals(monitorName)) {
+					return layout.values[i];
+				}
+			}
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * The attribute values exported for monitorName.
+	 *
+	 * @param monitorName
+	 * @return The attribute values exported for monitorName.
+	 */
+	public Map<String, Double> getValues(String monitorName) {
+		Map<String, Double> result = new TreeMap<>();
+		synchronized (lock) {
+			if (layout != null) {
+				for (int i = 0; i < layout.keys.length; i++) {
+					if (layout.monitors[layout.monitorIndex[i]].getName().equals(monitorName)) {
+						result.put(layout.keys[i], Double.valueOf(layout.values[i]));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	public boolean isJmx() {
+		return jmx;
+	}
+
+	/**
+	 * <code>true</code> if layout does no longer match the monitors.
+	 *
+	 * @param tempLayout
+	 * @param monitors
+	 * @return <code>true</code> if layout does no longer match the monitors.
+	 */
+	protected boolean isStale(Layout tempLayout, List<IMonitor> monitors) {
+		if (tempLayout == null || tempLayout.monitors.length != monitors.size()) {
+			return true;
+		}
+		for (int i = 0; i < tempLayout.monitors.length; i++) {
+			if (tempLayout.monitors[i] != monitors.get(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected void publishMBeans() throws JMException {
+		List<String> names = getMonitorNames();
+		for (String name : names) {
+			if (!mbeans.containsKey(name)) {
+				MonitorMBeanSupport support = new MonitorMBeanSupport(this, name);
+				support.mbeanPublish();
+				mbeans.put(name, support);
+			}
+		}
+		for (String name : new ArrayList<>(mbeans.keySet())) {
+			if (!names.contains(name)) {
+				mbeans.remove(name).mbeanUnpublish();
+			}
+		}
+	}
+
+	public void setFile(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * The time between two exports in milliseconds.
+	 *
+	 * @param interval
+	 */
+	public void setInterval(long interval) {
+		synchronized (lock) {
+			this.interval = interval;
+			if (executor != null) {
+				stopExecutor();
+				startExecutor();
+			}
+		}
+	}
+
+	/**
+	 * <code>true</code> to register an MBean for each exported monitor.
+	 *
+	 * @param jmx
+	 */
+	public void setJmx(boolean jmx) {
+		this.jmx = jmx;
+	}
+
+	/**
+	 * The local port for the HTTP endpoint "/metrics". 0 selects a free port,
+	 * a negative value disables the endpoint.
+	 *
+	 * @param port
+	 */
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * The prefix for the metric names in the text format.
+	 *
+	 * @param prefix
+	 */
+	public void setPrefix(String prefix) {
+		synchronized (lock) {
+			this.prefix = prefix;
+			layout = null;
+		}
+	}
+
+	/**
+	 * Collect the values of all monitors into the buffer.
+	 */
+	public synchronized void snapshot() {
+		List<IMonitor> monitors = registry.getMonitors();
+		Layout tempLayout;
+		synchronized (lock) {
+			tempLayout = layout;
+		}
+		if (isStale(tempLayout, monitors)) {
+			tempLayout = createLayout(monitors);
+		} else {
+			for (int i = 0; i < tempLayout.monitors.length; i++) {
+				Map data = tempLayout.monitors[i].getData();
+				if (countNumeric(data) != tempLayout.attributeCounts[i]) {
+					// attributes changed
+					tempLayout = createLayout(monitors);
+					break;
+				}
+				tempLayout.data[i] = data;
+			}
+		}
+		for (int i = 0; i < tempLayout.monitors.length; i++) {
+			if (tempLayout.data[i] == null) {
+				tempLayout.data[i] = tempLayout.monitors[i].getData();
+			}
+		}
+		for (int i = 0; i < tempLayout.keys.length; i++) {
+			Object value = tempLayout.data[tempLayout.monitorIndex[i]].get(tempLayout.keys[i]);
+			tempLayout.collected[i] = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+		}
+		Arrays.fill(tempLayout.data, null);
+		synchronized (lock) {
+			System.arraycopy(tempLayout.collected, 0, tempLayout.values, 0, tempLayout.values.length);
+			layout = tempLayout;
+			timestamp = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Start the scheduled export and the HTTP endpoint, if any.
+	 *
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+		synchronized (lock) {
+			startExecutor();
+			if (port >= 0 && server == null) {
+				server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+				server.createContext("/metrics", exchange -> {
+					try {
+						byte[] bytes = toPrometheus().getBytes(StandardCharsets.UTF_8);
+						exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE); //$NON-NLS-1$
+						exchange.sendResponseHeaders(200, bytes.length);
+						try (OutputStream os = exchange.getResponseBody()) {
+							os.write(bytes);
+						}
+					} finally {
+						exchange.close();
+					}
+				});
+				server.start();
+				port = server.getAddress().getPort();
+			}
+		}
+	}
+
+	protected void startExecutor() {
+		if (executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(ThreadTools.newThreadFactoryDaemon("monitor export")); //$NON-NLS-1$
+		executor.scheduleWithFixedDelay(this::export, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop exporting, remove the MBeans and the HTTP endpoint.
+	 */
+	public void stop() {
+		synchronized (lock) {
+			stopExecutor();
+			if (server != null) {
+				server.stop(0);
+				server = null;
+			}
+		}
+		for (MonitorMBeanSupport support : mbeans.values()) {
+			try {
+				support.mbeanUnpublish();
+			} catch (JMException e) {
+				Log.debug("monitor mbean unpublish failed", e);
+			}
+		}
+		mbeans.clear();
+	}
+
+	protected void stopExecutor() {
+		if (executor == null) {
+			return;
+		}
+		executor.shutdown();
+		executor = null;
+	}
+
+	/**
+	 * The last snapshot in the Prometheus text format.
+	 *
+	 * @return The last snapshot in the Prometheus text format.
+	 */
+	public String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+		synchronized (lock) {
+			writePrometheus(sb);
+		}
+		return sb.toString();
+	}
+
+	protected void writeFile(File target) throws IOException {
+		File temp = new File(target.getPath() + ".tmp"); //$NON-NLS-1$
+		try (Writer writer = new OutputStreamWriter(Files.newOutputStream(temp.toPath()), StandardCharsets.UTF_8)) {
+			writer.write(toPrometheus());
+		}
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	protected void writePrometheus(StringBuilder sb) {
+		if (layout == null) {
+			return;
+		}
+		String previous = null;
+		for (int i = 0; i < layout.values.length; i++) {
+			String metricName = layout.metricNames[i];
+			if (!metricName.equals(previous)) {
+				sb.append("# TYPE ").append(metricName).append(" gauge\n"); //$NON-NLS-1$
+				previous = metricName;
+			}
+			sb.append(metricName).append(layout.labels[i]).append(' ');
+			double value = layout.values[i];
+			if (value == (long) value && Math.abs(value) < (1L << 53)) {
+				sb.append((long) value);
+			} else if (Double.isNaN(value)) {
+				sb.append("NaN"); //$NON-NLS-1$
+			} else if (Double.isInfinite(value)) {
+				sb.append(value > 0 ? "+Inf" : "-Inf"); //$NON-NLS-1$ //$NON-NLS-2$
+			} else {
+				sb.append(value);
+			}
+			sb.append(' ').append(timestamp).append('\n');
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package de.intarsys.tools.monitor;
+
+import java.util.Hashtable;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import de.intarsys.tools.jmx.MBeanSupport;
+
+/**
+ * Publish the values exported by a {@link MonitorExporter} for a single monitor
+ * as a read only MBean.
+ */
+public class MonitorMBeanSupport extends MBeanSupport {
+
+	/**
+	 * The MBean, each exported attribute is a read only attribute of type
+	 * double.
+	 */
+	public class MonitorMBean extends NotificationBroadcasterSupport implements DynamicMBean {
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			double value = exporter.getValue(monitorName, attribute);
+			if (Double.isNaN(value) && !exporter.getValues(monitorName).containsKey(attribute)) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return Double.valueOf(value);
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Double> values = exporter.getValues(monitorName);
+			AttributeList result = new AttributeList();
+			for (String attribute : attributes) {
+				Double value = values.get(attribute);
+				if (value != null) {
+					result.add(new Attribute(attribute, value));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			Map<String, Double> values = exporter.getValues(monitorName);
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+			int i = 0;
+			for (String key : values.keySet()) {
+				attributes[i++] = new MBeanAttributeInfo(key, "double", key, true, false, false); //$NON-NLS-1$
+			}
+			return new MBeanInfo(MonitorMBean.class.getName(), "monitor " + monitorName, attributes, null, null, //$NON-NLS-1$
+					null);
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature)
+				throws MBeanException, ReflectionException {
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("read only " + attribute.getName());
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+	}
+
+	private final MonitorExporter exporter;
+
+	private final String monitorName;
+
+	public MonitorMBeanSupport(MonitorExporter exporter, String monitorName) {
+		super();
+		this.exporter = exporter;
+		this.monitorName = monitorName;
+	}
+
+	public String getMonitorName() {
+		return monitorName;
+	}
+
+	@Override
+	protected NotificationBroadcasterSupport mbeanCreate() {
+		return new MonitorMBean();
+	}
+
+	@Override
+	protected void mbeanDeclareProperties(Hashtable<String, String> properties) { // NOSONAR
+		properties.put("type", "Monitor"); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("name", ObjectName.quote(monitorName)); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,145 @@
+package de.intarsys.tools.monitor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.intarsys.tools.pool.BoundedPool;
+import de.intarsys.tools.pool.IPool;
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.api.Level;
+import de.intarsys.tools.yalf.common.LogTools;
+
+/**
+ * A monitor publishing the statistics of a {@link BoundedPool}.
+ *
+ * The pool keeps its own counters, so there are no traces to take. The monitor
+ * simply reports the current state in {@link #getData()}.
+ */
+public class PoolMonitor implements IMonitor {
+
+	public static final String ATTR_NAME = "name";
+
+	public static final String ATTR_IDLE = "idle";
+
+	public static final String ATTR_MAX_BORROWED = "maxBorrowed";
+
+	public static final String ATTR_MEAN_WAIT_TIME = "meanWaitTime";
+
+	public static final String ATTR_MAX_WAIT_TIME = "maxWaitTime";
+
+	public static final String ATTR_TIMEOUTS = "timeouts";
+
+	public static final String ATTR_CREATED = "created";
+
+	public static final String ATTR_DESTROYED = "destroyed";
+
+	public static final String ATTR_UTILIZATION = "utilization";
+
+	private final String name;
+
+	private final BoundedPool<?> pool;
+
+	private final ITrace nullTrace = new ITrace() {
+		@Override
+		public ISample sample(Level level, String description) {
+			return null;
+		}
+
+		@Override
+		public void stop() {
+			// not required
+		}
+
+		@Override
+		public void tag(String key, Object tag) {
+			// not required
+		}
+	};
+
+	public PoolMonitor(String name, BoundedPool<?> pool) {
+		super();
+		this.name = name;
+		this.pool = pool;
+	}
+
+	@Override
+	public ITrace attach() {
+		return nullTrace;
+	}
+
+	@Override
+	public void detach() {
+		// no traces
+	}
+
+	@Override
+	public ITrace getCurrentTrace() {
+		return nullTrace;
+	}
+
+	@Override
+	public Map getData() {
+		Map attributes = new HashMap();
+		attributes.put(ATTR_NAME, getName());
+		attributes.put(IPool.ATTR_POOL_SIZE, Integer.valueOf(pool.getSize()));
+		attributes.put(IPool.ATTR_MAX_POOL_SIZE, Integer.valueOf(pool.getMaxSize()));
+		attributes.put(IPool.ATTR_ACTIVE, Integer.valueOf(pool.getBorrowedCount()));
+		attributes.put(IPool.ATTR_PENDING, Integer.valueOf(pool.getWaitingCount()));
+		attributes.put(IPool.ATTR_TOTAL_CHECKOUT_TASKS, Long.valueOf(pool.getCheckoutCount()));
+		attributes.put(IPool.ATTR_MEAN_CHECKOUT_TIME, Double.valueOf(pool.getMeanCheckoutTime()));
+		attributes.put(ATTR_IDLE, Integer.valueOf(pool.getIdleCount()));
+		attributes.put(ATTR_MAX_BORROWED, Integer.valueOf(pool.getMaxBorrowedCount()));
+		attributes.put(ATTR_MEAN_WAIT_TIME, Double.valueOf(pool.getMeanWaitTime()));
+		attributes.put(ATTR_MAX_WAIT_TIME, Double.valueOf(pool.getMaxWaitTime()));
+		attributes.put(ATTR_TIMEOUTS, Long.valueOf(pool.getTimeoutCount()));
+		attributes.put(ATTR_CREATED, Long.valueOf(pool.getCreatedCount()));
+		attributes.put(ATTR_DESTROYED, Long.valueOf(pool.getDestroyedCount()));
+		attributes.put(ATTR_UTILIZATION, Double.valueOf(pool.getUtilization()));
+		return attributes;
+	}
+
+	@Override
+	public Map getFormattedData() {
+		Map attributes = new HashMap();
+		Map data = getData();
+		for (Object key : data.keySet()) {
+			attributes.put(key, String.valueOf(data.get(key)));
+		}
+		attributes.put(IPool.ATTR_MEAN_CHECKOUT_TIME, String.format("%.3fms", pool.getMeanCheckoutTime())); //$NON-NLS-1$
+		attributes.put(ATTR_MEAN_WAIT_TIME, String.format("%.3fms", pool.getMeanWaitTime())); //$NON-NLS-1$
+		attributes.put(ATTR_MAX_WAIT_TIME, String.format("%.3fms", pool.getMaxWaitTime())); //$NON-NLS-1$
+		attributes.put(ATTR_UTILIZATION, String.format("%.2f%%", pool.getUtilization() * 100)); //$NON-NLS-1$
+		return attributes;
+	}
+
+	@Override
+	public ILogger getLogger() {
+		return LogTools.getLogger(name);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	public BoundedPool<?> getPool() {
+		return pool;
+	}
+
+	@Override
+	public List<ITrace> getTraces() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void reset() {
+		pool.resetStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " " + getFormattedData(); //$NON-NLS-1$
+	}
+}
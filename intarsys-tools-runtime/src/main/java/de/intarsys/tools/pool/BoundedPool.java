@@ -0,0 +1,730 @@
+package de.intarsys.tools.pool;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.intarsys.tools.concurrent.ThreadTools;
+import de.intarsys.tools.exception.InvalidRequestException;
+import de.intarsys.tools.monitor.MonitorRegistry;
+import de.intarsys.tools.monitor.PoolMonitor;
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.common.LogTools;
+
+/**
+ * An {@link IPool} with a maximum number of objects.
+ * <p>
+ * At most "maxSize" objects exist at any time. A checkout waits for an object
+ * to become available as long as requested by its timeout and fails with a
+ * {@link TimeoutException} otherwise.
+ * <p>
+ * A thread first tries to get back the object it checked in most recently,
+ * then takes any idle object from a shared lock free queue and finally creates
+ * a new one. Objects idle longer than "idleTimeout" are destroyed in the
+ * background, keeping at least "minSize" objects. If the factory implements
+ * {@link IPoolObjectValidator} (or a validator is set), idle objects are
+ * validated on checkout and by the eviction.
+ * <p>
+ * The pool keeps statistics on checkout latency, wait time and utilization,
+ * see {@link #createMonitor(String)}.
+ */
+public class BoundedPool<T> implements IPool<T> {
+
+	/**
+	 * The pool state of an object.
+	 */
+	protected static class Entry<T> {
+
+		static final int IDLE = 0;
+
+		static final int BORROWED = 1;
+
+		static final int REMOVED = 2;
+
+		protected final T object;
+
+		protected final AtomicInteger state = new AtomicInteger(BORROWED);
+
+		/**
+		 * true if the entry is (or may be) contained in the idle queue
+		 */
+		protected final AtomicBoolean queued = new AtomicBoolean();
+
+		protected volatile long lastUsed;
+
+		protected Entry(T object) {
+			this.object = object;
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Pooled objects are looked up by identity.
+	 */
+	private static final class IdentityKey {
+
+		private final Object object;
+
+		public IdentityKey(Object object) {
+			this.object = object;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey) obj).object == object;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object);
+		}
+	}
+
+	private static final ILogger Log = LogTools.getLogger(BoundedPool.class);
+
+	public static final int DEFAULT_MAX_SIZE = 8;
+
+	public static final long DEFAULT_IDLE_TIMEOUT = 300000;
+
+	public static final long DEFAULT_EVICTION_INTERVAL = 60000;
+
+	private final IPoolObjectFactory<T> objectFactory;
+
+	private IPoolObjectValidator<T> objectValidator;
+
+	private final int minSize;
+
+	private final int maxSize;
+
+	/**
+	 * One permit for each object that may be checked out.
+	 */
+	private final Semaphore permits;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final AtomicInteger borrowed = new AtomicInteger();
+
+	private final ConcurrentLinkedDeque<Entry<T>> idle = new ConcurrentLinkedDeque<>();
+
+	private final ConcurrentHashMap<IdentityKey, Entry<T>> entries = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<Entry<T>> lastEntry = new ThreadLocal<>();
+
+	private volatile boolean closed;
+
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	private long evictionInterval = DEFAULT_EVICTION_INTERVAL;
+
+	private boolean validateOnCheckout = true;
+
+	private final Object lock = new Object();
+
+	private volatile ScheduledExecutorService evictionExecutor;
+
+	private final LongAdder checkouts = new LongAdder();
+
+	private final LongAdder localCheckouts = new LongAdder();
+
+	private final LongAdder timeouts = new LongAdder();
+
+	private final LongAdder created = new LongAdder();
+
+	private final LongAdder destroyed = new LongAdder();
+
+	private final LongAdder checkoutNanos = new LongAdder();
+
+	private final LongAdder waitNanos = new LongAdder();
+
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private final AtomicInteger maxBorrowed = new AtomicInteger();
+
+	public BoundedPool(IPoolObjectFactory<T> objectFactory) {
+		this(objectFactory, 0, DEFAULT_MAX_SIZE);
+	}
+
+	public BoundedPool(IPoolObjectFactory<T> objectFactory, int minSize, int maxSize) {
+		super();
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("max size must be positive");
+		}
+		if (minSize < 0 || minSize > maxSize) {
+			throw new IllegalArgumentException("min size must be between 0 and max size");
+		}
+		this.objectFactory = objectFactory;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+		if (objectFactory instanceof IPoolObjectValidator) {
+			// a factory validates the objects it creates
+			@SuppressWarnings("unchecked")
+			IPoolObjectValidator<T> validator = (IPoolObjectValidator<T>) objectFactory;
+			this.objectValidator = validator;
+		}
+	}
+
+	protected boolean acquire(long timeout) throws InterruptedException {
+		if (timeout < 0) {
+			permits.acquire();
+			return true;
+		}
+		if (timeout == 0) {
+			return permits.tryAcquire();
+		}
+		return permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	protected void activateObject(T object) throws Exception {
+		if (objectFactory == null) {
+			return;
+		}
+		objectFactory.activateObject(object);
+	}
+
+	protected void assertOpen() {
+		if (closed) {
+			throw new InvalidRequestException("pool closed");
+		}
+	}
+
+	/**
+	 * Take an object for a caller holding a permit.
+	 *
+	 * @return The activated object
+	 * @throws Exception
+	 */
+	protected T borrow() throws Exception {
+		while (true) {
+			Entry<T> entry = pollIdle();
+			boolean fresh = false;
+			if (entry == null) {
+				entry = create();
+				if (entry == null) {
+					// lost a race with the eviction filling up min size
+					Thread.yield();
+					continue;
+				}
+				fresh = true;
+			} else if (validateOnCheckout && !validate(entry)) {
+				destroyEntry(entry);
+				continue;
+			}
+			try {
+				activateObject(entry.object);
+			} catch (Exception e) {
+				destroyEntry(entry);
+				if (fresh) {
+					throw e;
+				}
+				Log.debug("pool object activation failed", e);
+				continue;
+			}
+			return entry.object;
+		}
+	}
+
+	@Override
+	public void checkin(T object) throws Exception {
+		Entry<T> entry = entries.get(new IdentityKey(object));
+		if (entry == null || entry.state.get() != Entry.BORROWED) {
+			throw new IllegalArgumentException("object not checked out from this pool");
+		}
+		try {
+			deactivateObject(object);
+		} catch (Exception e) {
+			if (entry.state.compareAndSet(Entry.BORROWED, Entry.REMOVED)) {
+				destroyEntry(entry);
+				release();
+			}
+			throw e;
+		}
+		if (closed) {
+			if (entry.state.compareAndSet(Entry.BORROWED, Entry.REMOVED)) {
+				destroyEntry(entry);
+				release();
+			}
+			return;
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		if (!entry.state.compareAndSet(Entry.BORROWED, Entry.IDLE)) {
+			// concurrent checkin of the same object
+			throw new IllegalArgumentException("object not checked out from this pool");
+		}
+		lastEntry.set(entry);
+		if (entry.queued.compareAndSet(false, true)) {
+			idle.offerFirst(entry);
+		}
+		release();
+	}
+
+	@Override
+	public T checkout(long timeout) throws Exception {
+		assertOpen();
+		long start = System.nanoTime();
+		if (!acquire(timeout)) {
+			timeouts.increment();
+			throw new TimeoutException("no pool object available within " + timeout + " ms");
+		}
+		long acquired = System.nanoTime();
+		T result;
+		try {
+			assertOpen();
+			result = borrow();
+		} catch (Exception | Error e) {
+			permits.release();
+			throw e;
+		}
+		int current = borrowed.incrementAndGet();
+		maxBorrowed.accumulateAndGet(current, Math::max);
+		long wait = acquired - start;
+		waitNanos.add(wait);
+		maxWaitNanos.accumulateAndGet(wait, Math::max);
+		checkoutNanos.add(System.nanoTime() - start);
+		checkouts.increment();
+		startEviction();
+		return result;
+	}
+
+	@Override
+	public void close() throws Exception {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			stopEviction();
+		}
+		for (Entry<T> entry : entries.values()) {
+			if (entry.state.compareAndSet(Entry.IDLE, Entry.REMOVED)) {
+				destroyEntry(entry);
+			}
+		}
+		idle.clear();
+		// wake up waiting threads, they will fail
+		permits.release(maxSize);
+	}
+
+	/**
+	 * Create a new entry if the size allows.
+	 *
+	 * @return The new entry or null
+	 * @throws Exception
+	 */
+	protected Entry<T> create() throws Exception {
+		int current;
+		do {
+			current = size.get();
+			if (current >= maxSize) {
+				return null;
+			}
+		} while (!size.compareAndSet(current, current + 1));
+		T object;
+		try {
+			object = createObject();
+		} catch (Exception | Error e) {
+			size.decrementAndGet();
+			throw e;
+		}
+		created.increment();
+		Entry<T> entry = new Entry<>(object);
+		entries.put(new IdentityKey(object), entry);
+		return entry;
+	}
+
+	/**
+	 * Create a {@link PoolMonitor} for this pool and register it with the
+	 * {@link MonitorRegistry}.
+	 *
+	 * @param name
+	 *            The monitor name
+	 * @return The new {@link PoolMonitor}
+	 */
+	public PoolMonitor createMonitor(String name) {
+		PoolMonitor monitor = new PoolMonitor(name, this);
+		MonitorRegistry.get().registerMonitor(monitor);
+		return monitor;
+	}
+
+	protected T createObject() throws Exception {
+		if (objectFactory == null) {
+			throw new IllegalStateException("no object factory");
+		}
+		return objectFactory.createObject();
+	}
+
+	protected void deactivateObject(T object) throws Exception {
+		if (objectFactory == null) {
+			return;
+		}
+		objectFactory.deactivateObject(object);
+	}
+
+	@Override
+	public void destroy(T object) throws Exception {
+		Entry<T> entry = entries.get(new IdentityKey(object));
+		if (entry == null || !entry.state.compareAndSet(Entry.BORROWED, Entry.REMOVED)) {
+			throw new IllegalArgumentException("object not checked out from this pool");
+		}
+		try {
+			destroyEntry(entry);
+		} finally {
+			release();
+		}
+	}
+
+	protected void destroyEntry(Entry<T> entry) {
+		entry.state.set(Entry.REMOVED);
+		if (entries.remove(new IdentityKey(entry.object)) == null) {
+			return;
+		}
+		size.decrementAndGet();
+		destroyed.increment();
+		try {
+			destroyObject(entry.object);
+		} catch (Exception e) {
+			Log.debug("pool object destruction failed", e);
+		}
+	}
+
+	protected void destroyObject(T object) throws Exception {
+		if (objectFactory == null) {
+			return;
+		}
+		objectFactory.destroyObject(object);
+	}
+
+	/**
+	 * Destroy objects idle longer than "idleTimeout" or found to be invalid,
+	 * keeping at least "minSize" objects, and create objects up to "minSize".
+	 * <p>
+	 * This is performed regularly in the background, see
+	 * {@link #setEvictionInterval(long)}.
+	 */
+	public void evict() {
+		if (closed) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (Entry<T> entry : entries.values()) {
+			if (!entry.state.compareAndSet(Entry.IDLE, Entry.BORROWED)) {
+				continue;
+			}
+			boolean expired = idleTimeout >= 0 && now - entry.lastUsed > idleTimeout && size.get() > minSize;
+			if (expired || !validate(entry)) {
+				Log.debug("pool evict {}", entry.object);
+				destroyEntry(entry);
+			} else {
+				entry.state.set(Entry.IDLE);
+				if (entry.queued.compareAndSet(false, true)) {
+					idle.offerLast(entry);
+				}
+			}
+		}
+		try {
+			fill();
+		} catch (Exception e) {
+			Log.warn("pool object creation failed", e);
+		}
+	}
+
+	/**
+	 * Create idle objects up to "minSize".
+	 *
+	 * @throws Exception
+	 */
+	public void fill() throws Exception {
+		while (!closed && size.get() < minSize) {
+			Entry<T> entry = create();
+			if (entry == null) {
+				return;
+			}
+			entry.state.set(Entry.IDLE);
+			entry.queued.set(true);
+			idle.offerLast(entry);
+		}
+	}
+
+	/**
+	 * The number of objects currently checked out.
+	 *
+	 * @return The number of objects currently checked out.
+	 */
+	public int getBorrowedCount() {
+		return borrowed.get();
+	}
+
+	public long getCheckoutCount() {
+		return checkouts.sum();
+	}
+
+	public long getCreatedCount() {
+		return created.sum();
+	}
+
+	public long getDestroyedCount() {
+		return destroyed.sum();
+	}
+
+	public long getEvictionInterval() {
+		return evictionInterval;
+	}
+
+	/**
+	 * The number of objects available for checkout without creation.
+	 *
+	 * @return The number of idle objects
+	 */
+	public int getIdleCount() {
+		return Math.max(0, size.get() - borrowed.get());
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * The number of checkouts served by the object most recently checked in
+	 * by the same thread.
+	 *
+	 * @return The number of thread local checkouts
+	 */
+	public long getLocalCheckoutCount() {
+		return localCheckouts.sum();
+	}
+
+	/**
+	 * The maximum number of objects checked out at the same time.
+	 *
+	 * @return The maximum number of objects checked out at the same time.
+	 */
+	public int getMaxBorrowedCount() {
+		return maxBorrowed.get();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * The maximum time a checkout had to wait for an object in milliseconds.
+	 *
+	 * @return The maximum wait time in milliseconds
+	 */
+	public double getMaxWaitTime() {
+		return maxWaitNanos.get() / 1000000d;
+	}
+
+	/**
+	 * The mean time of a checkout in milliseconds, including waiting, creation
+	 * and activation of the object.
+	 *
+	 * @return The mean checkout time in milliseconds
+	 */
+	public double getMeanCheckoutTime() {
+		long count = checkouts.sum();
+		return count == 0 ? 0 : checkoutNanos.sum() / 1000000d / count;
+	}
+
+	/**
+	 * The mean time a checkout had to wait for an object in milliseconds.
+	 *
+	 * @return The mean wait time in milliseconds
+	 */
+	public double getMeanWaitTime() {
+		long count = checkouts.sum();
+		return count == 0 ? 0 : waitNanos.sum() / 1000000d / count;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public IPoolObjectFactory<T> getObjectFactory() {
+		return objectFactory;
+	}
+
+	public IPoolObjectValidator<T> getObjectValidator() {
+		return objectValidator;
+	}
+
+	/**
+	 * The number of objects currently created by the pool.
+	 *
+	 * @return The number of objects currently created by the pool.
+	 */
+	public int getSize() {
+		return size.get();
+	}
+
+	/**
+	 * The number of checkouts that failed because no object was available in
+	 * time.
+	 *
+	 * @return The number of timed out checkouts
+	 */
+	public long getTimeoutCount() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * The ratio of checked out objects to the maximum size.
+	 *
+	 * @return The current utilization between 0 and 1
+	 */
+	public double getUtilization() {
+		return (double) borrowed.get() / maxSize;
+	}
+
+	/**
+	 * An estimate of the number of threads waiting for an object.
+	 *
+	 * @return The number of waiting threads
+	 */
+	public int getWaitingCount() {
+		return permits.getQueueLength();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public boolean isValidateOnCheckout() {
+		return validateOnCheckout;
+	}
+
+	/**
+	 * Claim an idle entry, preferring the one most recently checked in by the
+	 * current thread.
+	 *
+	 * @return The claimed entry or null
+	 */
+	protected Entry<T> pollIdle() {
+		Entry<T> entry = lastEntry.get();
+		if (entry != null && entry.state.compareAndSet(Entry.IDLE, Entry.BORROWED)) {
+			localCheckouts.increment();
+			return entry;
+		}
+		while ((entry = idle.pollFirst()) != null) {
+			entry.queued.set(false);
+			// entries claimed elsewhere are simply dropped from the queue
+			if (entry.state.compareAndSet(Entry.IDLE, Entry.BORROWED)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	protected void release() {
+		borrowed.decrementAndGet();
+		permits.release();
+	}
+
+	/**
+	 * Reset the checkout, timeout and wait statistics.
+	 */
+	public void resetStatistics() {
+		checkouts.reset();
+		localCheckouts.reset();
+		timeouts.reset();
+		created.reset();
+		destroyed.reset();
+		checkoutNanos.reset();
+		waitNanos.reset();
+		maxWaitNanos.set(0);
+		maxBorrowed.set(borrowed.get());
+	}
+
+	/**
+	 * The interval between background evictions in milliseconds. A value <= 0
+	 * disables background eviction.
+	 *
+	 * @param evictionInterval
+	 */
+	public void setEvictionInterval(long evictionInterval) {
+		synchronized (lock) {
+			this.evictionInterval = evictionInterval;
+			if (evictionExecutor != null) {
+				stopEviction();
+				startEviction();
+			}
+		}
+	}
+
+	/**
+	 * The time in milliseconds after which an idle object is destroyed. A
+	 * negative value keeps idle objects forever.
+	 *
+	 * @param idleTimeout
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public void setObjectValidator(IPoolObjectValidator<T> objectValidator) {
+		this.objectValidator = objectValidator;
+	}
+
+	public void setValidateOnCheckout(boolean validateOnCheckout) {
+		this.validateOnCheckout = validateOnCheckout;
+	}
+
+	protected void startEviction() {
+		if (evictionExecutor != null) {
+			return;
+		}
+		synchronized (lock) {
+			if (evictionExecutor != null || closed || evictionInterval <= 0) {
+				return;
+			}
+			evictionExecutor = Executors
+					.newSingleThreadScheduledExecutor(ThreadTools.newThreadFactoryDaemon("pool eviction")); //$NON-NLS-1$
+			evictionExecutor.scheduleWithFixedDelay(() -> {
+				try {
+					evict();
+				} catch (Throwable e) {
+					// do not let the eviction die...
+					Log.warn("pool eviction failed", e);
+				}
+			}, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	protected void stopEviction() {
+		synchronized (lock) {
+			if (evictionExecutor == null) {
+				return;
+			}
+			evictionExecutor.shutdown();
+			evictionExecutor = null;
+		}
+	}
+
+	/**
+	 * <code>true</code> if the object in entry is still valid.
+	 *
+	 * @param entry
+	 * @return <code>true</code> if the object in entry is still valid.
+	 */
+	protected boolean validate(Entry<T> entry) {
+		IPoolObjectValidator<T> validator = objectValidator;
+		if (validator == null) {
+			return true;
+		}
+		try {
+			return validator.validateObject(entry.object);
+		} catch (Exception e) {
+			Log.debug("pool object validation failed", e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package de.intarsys.tools.pool;
+
+/**
+ * Optional validation of pooled objects.
+ * 
+ * An {@link IPoolObjectFactory} may implement this interface to have its
+ * objects validated by pools supporting it.
+ * 
+ */
+public interface IPoolObjectValidator<T> {
+
+	/**
+	 * <code>true</code> if obj is still usable. Invalid objects are destroyed.
+	 * 
+	 * @param obj
+	 *            The object to be validated.
+	 * @return <code>true</code> if obj is still usable
+	 * @throws Exception
+	 */
+	public boolean validateObject(T obj) throws Exception;
+}
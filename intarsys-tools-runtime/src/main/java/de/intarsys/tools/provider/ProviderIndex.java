@@ -0,0 +1,145 @@
+package de.intarsys.tools.provider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary form of one or more "META-INF/provider/provider.list" files.
+ * <p>
+ * The index is created at build time (see {@link #main(String[])}) and stored
+ * as "META-INF/provider/provider.idx" next to the provider list. When present,
+ * {@link Providers} reads the index instead of parsing the list of the same
+ * classpath root.
+ * <p>
+ * The format is a magic number and version, followed by the number of
+ * services and for each service its name, the number of providers and their
+ * class names.
+ */
+public class ProviderIndex {
+
+	public static final int MAGIC = 0x50524F56;
+
+	public static final int VERSION = 1;
+
+	/**
+	 * Write the index for the provider lists in args[1..n] to the file
+	 * args[0].
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: ProviderIndex <index file> <provider list>..."); //$NON-NLS-1$
+			System.exit(1);
+		}
+		Map<String, List<String>> services = new LinkedHashMap<>();
+		for (int i = 1; i < args.length; i++) {
+			try (InputStream is = new FileInputStream(args[i])) {
+				parse(is, services);
+			}
+		}
+		File file = new File(args[0]);
+		File parent = file.getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		try (OutputStream os = new FileOutputStream(file)) {
+			write(services, os);
+		}
+	}
+
+	/**
+	 * Add the service/provider pairs of a provider list to services.
+	 *
+	 * @param is
+	 * @param services
+	 * @throws IOException
+	 */
+	public static void parse(InputStream is, Map<String, List<String>> services) throws IOException {
+		BufferedReader r = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+		String ln;
+		while ((ln = r.readLine()) != null) {
+			String[] parts = Providers.parseLine(ln);
+			if (parts == null) {
+				continue;
+			}
+			List<String> providers = services.computeIfAbsent(parts[0], key -> new ArrayList<>());
+			if (!providers.contains(parts[1])) {
+				providers.add(parts[1]);
+			}
+		}
+	}
+
+	/**
+	 * Read an index.
+	 *
+	 * @param is
+	 * @return The provider class names by service name, in the order of the
+	 *         provider list
+	 * @throws IOException
+	 */
+	public static Map<String, List<String>> read(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a provider index"); //$NON-NLS-1$
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported provider index version " + version); //$NON-NLS-1$
+		}
+		int serviceCount = in.readInt();
+		Map<String, List<String>> services = new LinkedHashMap<>(serviceCount * 2);
+		for (int i = 0; i < serviceCount; i++) {
+			String serviceName = in.readUTF();
+			int providerCount = in.readInt();
+			List<String> providers = new ArrayList<>(providerCount);
+			for (int j = 0; j < providerCount; j++) {
+				providers.add(in.readUTF());
+			}
+			services.put(serviceName, providers);
+		}
+		return services;
+	}
+
+	/**
+	 * Write an index.
+	 *
+	 * @param services
+	 *            The provider class names by service name
+	 * @param os
+	 * @throws IOException
+	 */
+	public static void write(Map<String, List<String>> services, OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(services.size());
+		for (Map.Entry<String, List<String>> entry : services.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue().size());
+			for (String provider : entry.getValue()) {
+				out.writeUTF(provider);
+			}
+		}
+		out.flush();
+	}
+
+	private ProviderIndex() {
+	}
+}
@@ -14,14 +14,20 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import de.intarsys.tools.exception.ExceptionTools;
 import de.intarsys.tools.stream.StreamTools;
@@ -40,6 +46,16 @@ import de.intarsys.tools.yalf.common.LogTools;
  * enumerate service/implementation pairs. Each service is listed on a line of
  * its own. The service is followed by a ";", then followed by the
  * implementation class. Empty lines are ignored.
+ * <p>
+ * The providers are indexed by service name. A binary
+ * "META-INF/provider/provider.idx" created at build time by
+ * {@link ProviderIndex} is used instead of the provider list of the same
+ * classpath root.
+ * <p>
+ * Providers are instantiated upon first iteration. The providers of selected
+ * services may be instantiated in parallel beforehand using
+ * {@link #preload(Executor, Class...)} or by listing the service names in the
+ * system property "de.intarsys.tools.provider.preload" (comma separated).
  */
 public class Providers {
 
@@ -57,6 +73,10 @@ public class Providers {
 
 	private static final String PROVIDERLIST = "META-INF/provider/provider.list";
 
+	private static final String PROVIDERINDEX = "META-INF/provider/provider.idx";
+
+	private static final String PROPERTY_PRELOAD = "de.intarsys.tools.provider.preload";
+
 	private static final ILogger Log = LogTools.getLogger("de.intarsys.tools.provider");
 
 	public static Providers get() {
@@ -71,9 +91,36 @@ public class Providers {
 		return PROVIDERS.computeIfAbsent(classloader, (key) -> new Providers(classloader));
 	}
 
+	/**
+	 * Parse a line of a provider list.
+	 *
+	 * @param line
+	 * @return The service and provider name or null if the line does not
+	 *         define a provider
+	 */
+	protected static String[] parseLine(String line) {
+		String ln = line;
+		int ci = ln.indexOf(COMMENT);
+		if (ci >= 0) {
+			ln = ln.substring(0, ci);
+		}
+		ln = ln.trim();
+		if (ln.length() == 0) {
+			return null;
+		}
+		String[] parts = ln.split(SEPARATOR);
+		if (parts.length < 2) {
+			return null;
+		}
+		return new String[] { parts[0].trim(), parts[1].trim() };
+	}
+
 	private ClassLoader loader;
 
-	private List<ProviderEntry> entries = new ArrayList<>();
+	/**
+	 * The provider entries by service name, in the order of registration.
+	 */
+	private final Map<String, List<ProviderEntry>> services = new ConcurrentHashMap<>();
 
 	protected Providers(ClassLoader cl) {
 		loader = cl;
@@ -82,26 +129,77 @@ public class Providers {
 		} catch (IOException e) {
 			Log.log(Level.WARN, "loading provider definitions failed ({})", ExceptionTools.getMessage(e));
 		}
+		String preload = System.getProperty(PROPERTY_PRELOAD);
+		if (preload != null && !preload.isBlank()) {
+			List<String> serviceNames = new ArrayList<>();
+			for (String serviceName : preload.split(",")) {
+				serviceNames.add(serviceName.trim());
+			}
+			preload(ForkJoinPool.commonPool(), serviceNames);
+		}
 	}
 
-	protected void addProvider(ProviderEntry entry) {
+	protected synchronized void addProvider(ProviderEntry entry) {
+		List<ProviderEntry> entries = services.computeIfAbsent(entry.serviceName,
+				key -> new CopyOnWriteArrayList<>());
 		for (ProviderEntry temp : entries) {
-			if (temp.serviceName.equals(entry.serviceName) && temp.providerName.equals(entry.providerName)) {
+			if (temp.providerName.equals(entry.providerName)) {
 				return;
 			}
 		}
 		entries.add(entry);
 	}
 
-	private void init() throws IOException {
-		Enumeration<URL> providerlistUrls;
+	protected void addProvider(String serviceName, String providerName) {
+		ProviderEntry entry = new ProviderEntry();
+		entry.serviceName = serviceName;
+		entry.providerName = providerName;
+		addProvider(entry);
+	}
+
+	protected String getBase(URL url, String name) {
+		String external = url.toExternalForm();
+		return external.substring(0, external.length() - name.length());
+	}
+
+	/**
+	 * The names of the services with at least one provider.
+	 *
+	 * @return The names of the services with at least one provider.
+	 */
+	public Set<String> getServiceNames() {
+		return Collections.unmodifiableSet(services.keySet());
+	}
+
+	protected Enumeration<URL> getResources(String name) throws IOException {
 		if (loader == null) {
-			providerlistUrls = ClassLoader.getSystemResources(PROVIDERLIST);
-		} else {
-			providerlistUrls = loader.getResources(PROVIDERLIST);
+			return ClassLoader.getSystemResources(name);
 		}
+		return loader.getResources(name);
+	}
+
+	private void init() throws IOException {
+		Set<String> indexed = new HashSet<>();
+		Enumeration<URL> indexUrls = getResources(PROVIDERINDEX);
+		while (indexUrls.hasMoreElements()) {
+			URL indexUrl = indexUrls.nextElement();
+			InputStream is = null;
+			try {
+				is = indexUrl.openStream();
+				registerIndex(is);
+				indexed.add(getBase(indexUrl, PROVIDERINDEX));
+			} catch (IOException e) {
+				Log.log(Level.WARN, "loading provider index {} failed ({})", indexUrl, ExceptionTools.getMessage(e));
+			} finally {
+				StreamTools.close(is);
+			}
+		}
+		Enumeration<URL> providerlistUrls = getResources(PROVIDERLIST);
 		while (providerlistUrls.hasMoreElements()) {
 			URL providerlistUrl = providerlistUrls.nextElement();
+			if (indexed.contains(getBase(providerlistUrl, PROVIDERLIST))) {
+				continue;
+			}
 			InputStream is = null;
 			try {
 				is = providerlistUrl.openStream();
@@ -112,13 +210,33 @@ public class Providers {
 		}
 	}
 
+	protected Object instantiate(ProviderEntry providerEntry) {
+		if (!providerEntry.provider.isDone()) {
+			synchronized (providerEntry) {
+				if (!providerEntry.provider.isDone()) {
+					try {
+						providerEntry.provider.complete(Class.forName(providerEntry.providerName, true, loader)
+								.getDeclaredConstructor().newInstance());
+					} catch (Throwable t) {
+						Log.log(Level.WARN, "loading provider for {} failed ({})", providerEntry.serviceName,
+								ExceptionTools.getMessage(t));
+						providerEntry.provider.completeExceptionally(t);
+					}
+				}
+			}
+		}
+		if (providerEntry.provider.isCompletedExceptionally()) {
+			return null;
+		}
+		return ExceptionTools.futureSimpleGet(providerEntry.provider);
+	}
+
 	public <S> Iterator<S> lookupProviders(final Class<S> service) {
+		final List<ProviderEntry> entries = services.getOrDefault(service.getName(), Collections.emptyList());
 		return new Iterator<S>() {
 
 			private Object current;
 
-			private String serviceName = service.getName();
-
 			private Iterator<ProviderEntry> it = entries.iterator();
 
 			@Override
@@ -127,23 +245,9 @@ public class Providers {
 					return true;
 				}
 				while (it.hasNext()) {
-					ProviderEntry providerEntry = it.next();
-					if (serviceName.equals(providerEntry.serviceName)) {
-						if (!providerEntry.provider.isDone()) {
-							try {
-								providerEntry.provider.complete(
-										Class.forName(providerEntry.providerName, true, loader).getDeclaredConstructor()
-												.newInstance());
-							} catch (Throwable t) {
-								Log.log(Level.WARN, "loading provider for {} failed ({})", providerEntry.serviceName,
-										ExceptionTools.getMessage(t));
-								providerEntry.provider.completeExceptionally(t);
-							}
-						}
-						if (!providerEntry.provider.isCompletedExceptionally()) {
-							current = ExceptionTools.futureSimpleGet(providerEntry.provider);
-							return true;
-						}
+					current = instantiate(it.next());
+					if (current != null) {
+						return true;
 					}
 				}
 				return false;
@@ -166,6 +270,31 @@ public class Providers {
 		};
 	}
 
+	/**
+	 * Instantiate the providers of services in parallel, using executor.
+	 *
+	 * @param executor
+	 * @param services
+	 * @return A future completed when all providers are instantiated
+	 */
+	public CompletableFuture<Void> preload(Executor executor, Class<?>... services) {
+		List<String> serviceNames = new ArrayList<>();
+		for (Class<?> service : services) {
+			serviceNames.add(service.getName());
+		}
+		return preload(executor, serviceNames);
+	}
+
+	protected CompletableFuture<Void> preload(Executor executor, List<String> serviceNames) {
+		List<CompletableFuture<?>> futures = new ArrayList<>();
+		for (String serviceName : serviceNames) {
+			for (ProviderEntry entry : services.getOrDefault(serviceName, Collections.emptyList())) {
+				futures.add(CompletableFuture.runAsync(() -> instantiate(entry), executor));
+			}
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+	}
+
 	public void register(InputStream is) throws IOException {
 		BufferedReader r = null;
 		try {
@@ -178,27 +307,31 @@ public class Providers {
 		}
 	}
 
+	/**
+	 * Register the providers from a binary index created by
+	 * {@link ProviderIndex}.
+	 *
+	 * @param is
+	 * @throws IOException
+	 */
+	public void registerIndex(InputStream is) throws IOException {
+		Map<String, List<String>> index = ProviderIndex.read(is);
+		for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+			for (String providerName : entry.getValue()) {
+				addProvider(entry.getKey(), providerName);
+			}
+		}
+	}
+
 	protected boolean registerLine(BufferedReader r) throws IOException {
 		String ln = r.readLine();
 		if (ln == null) {
 			return false;
 		}
-		int ci = ln.indexOf(COMMENT);
-		if (ci >= 0) {
-			ln = ln.substring(0, ci);
-		}
-		ln = ln.trim();
-		if (ln.length() == 0) {
-			return true;
-		}
-		String[] parts = ln.split(SEPARATOR);
-		if (parts.length < 2) {
-			return true;
+		String[] parts = parseLine(ln);
+		if (parts != null) {
+			addProvider(parts[0], parts[1]);
 		}
-		ProviderEntry entry = new ProviderEntry();
-		entry.serviceName = parts[0].trim();
-		entry.providerName = parts[1].trim();
-		addProvider(entry);
 		return true;
 	}
 }
@@ -0,0 +1,38 @@
+package de.intarsys.tools.randomaccess;
+
+import de.intarsys.tools.enumeration.EnumItem;
+import de.intarsys.tools.enumeration.EnumMeta;
+
+/**
+ * The implementation used for random access to a file.
+ * <p>
+ * <ul>
+ * <li>{@link #FILE}: {@link RandomAccessFile}, based on
+ * {@link java.io.RandomAccessFile}</li>
+ * <li>{@link #CHANNEL}: {@link RandomAccessFileChannel}, positional reads and
+ * writes on a {@link java.nio.channels.FileChannel}</li>
+ * <li>{@link #MAPPED}: {@link RandomAccessMappedFile}, memory mapped pages</li>
+ * </ul>
+ */
+public class EnumRandomAccessMode extends EnumItem {
+
+	/**
+	 * The meta data for the enumeration.
+	 */
+	public static final EnumMeta<EnumRandomAccessMode> META = getMeta(EnumRandomAccessMode.class);
+
+	public static final EnumRandomAccessMode FILE = new EnumRandomAccessMode("file");
+
+	public static final EnumRandomAccessMode CHANNEL = new EnumRandomAccessMode("channel");
+
+	public static final EnumRandomAccessMode MAPPED = new EnumRandomAccessMode("mapped");
+
+	static {
+		FILE.setDefault();
+	}
+
+	public EnumRandomAccessMode(String id) {
+		super(id);
+	}
+
+}
@@ -0,0 +1,500 @@
+package de.intarsys.tools.randomaccess;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Provide buffering for a wrapped {@link IRandomAccess} using multiple pages.
+ *
+ * <p>
+ * In contrast to {@link BufferedRandomAccess}, a number of fixed size pages are
+ * kept in least recently used order. Access alternating between distant
+ * regions (like a trailer at the end and objects at the start of a file) does
+ * not throw away the buffered data on every seek.
+ * </p>
+ *
+ * <p>
+ * When pages are requested in ascending order, the following pages are read
+ * ahead. Changed pages are written to the wrapped {@link IRandomAccess} when
+ * evicted, on {@link #flush()} and on {@link #close()}.
+ * </p>
+ *
+ * <p>
+ * This object is not thread safe.
+ * </p>
+ */
+public class PagedRandomAccess extends AbstractRandomAccess {
+
+	/**
+	 * A buffered region of the wrapped {@link IRandomAccess}.
+	 */
+	protected static class Page {
+
+		protected long index;
+
+		protected long start;
+
+		protected final byte[] bytes;
+
+		protected boolean dirty;
+
+		protected Page(int pageSize) {
+			this.bytes = new byte[pageSize];
+		}
+	}
+
+	private static final int HIGH_BYTE = 0xff;
+
+	public static final int DEFAULT_PAGE_SIZE = 8 * 1024;
+
+	public static final int DEFAULT_PAGE_COUNT = 64;
+
+	public static final int DEFAULT_READ_AHEAD = 4;
+
+	/**
+	 * The buffered random access delegate
+	 */
+	protected final IRandomAccess randomAccess;
+
+	private final int pageShift;
+
+	private final int pageSize;
+
+	private final int maxPages;
+
+	private final LinkedHashMap<Long, Page> pages;
+
+	private int readAhead = DEFAULT_READ_AHEAD;
+
+	/**
+	 * The most recently used page, a shortcut for sequential access.
+	 */
+	private Page current;
+
+	/**
+	 * The index of the last page read from the wrapped random access.
+	 */
+	private long lastLoaded = -2;
+
+	private long totalOffset;
+
+	private long totalLength;
+
+	/**
+	 * The length of the wrapped random access, as far as we know.
+	 */
+	private long wrappedLength;
+
+	private boolean closed;
+
+	private long hits;
+
+	private long misses;
+
+	private long readAheads;
+
+	private long evictions;
+
+	public PagedRandomAccess(IRandomAccess randomAccess) throws IOException {
+		this(randomAccess, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_COUNT);
+	}
+
+	/**
+	 * @param randomAccess
+	 *            The wrapped {@link IRandomAccess}
+	 * @param pageSize
+	 *            The size of a page, a power of 2
+	 * @param maxPages
+	 *            The maximum number of pages kept
+	 * @throws IOException
+	 */
+	public PagedRandomAccess(IRandomAccess randomAccess, int pageSize, int maxPages) throws IOException {
+		if (pageSize <= 0 || Integer.bitCount(pageSize) != 1) {
+			throw new IllegalArgumentException("page size must be a power of 2");
+		}
+		if (maxPages < 1) {
+			throw new IllegalArgumentException("at least one page required");
+		}
+		this.randomAccess = randomAccess;
+		this.pageSize = pageSize;
+		this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+		this.maxPages = maxPages;
+		this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true);
+		this.totalLength = randomAccess.getLength();
+		this.wrappedLength = totalLength;
+	}
+
+	protected void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("random access closed");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		flushPages();
+		randomAccess.close();
+		pages.clear();
+		current = null;
+		closed = true;
+	}
+
+	/**
+	 * Get a page for a new index, evicting the least recently used one if
+	 * necessary.
+	 *
+	 * @param index
+	 * @return A page not yet filled
+	 * @throws IOException
+	 */
+	protected Page createPage(long index) throws IOException {
+		Page page;
+		if (pages.size() >= maxPages) {
+			Iterator<Page> it = pages.values().iterator();
+			page = it.next();
+			it.remove();
+			if (page == current) {
+				current = null;
+			}
+			writePage(page);
+			evictions++;
+		} else {
+			page = new Page(pageSize);
+		}
+		page.index = index;
+		page.start = index << pageShift;
+		page.dirty = false;
+		pages.put(index, page);
+		return page;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		flushPages();
+		randomAccess.flush();
+	}
+
+	protected void flushPages() throws IOException {
+		List<Page> dirty = new ArrayList<>();
+		for (Page page : pages.values()) {
+			if (page.dirty) {
+				dirty.add(page);
+			}
+		}
+		// write in ascending order, the wrapped random access may grow
+		dirty.sort(Comparator.comparingLong(p -> p.index));
+		for (Page page : dirty) {
+			writePage(page);
+		}
+	}
+
+	/**
+	 * The number of pages evicted to make room for a new one.
+	 *
+	 * @return The number of evicted pages
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * The number of page lookups served from the cache, including pages read
+	 * ahead.
+	 *
+	 * @return The number of page hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		checkOpen();
+		return totalLength;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	/**
+	 * The number of pages that had to be read on demand.
+	 *
+	 * @return The number of page misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public long getOffset() throws IOException {
+		checkOpen();
+		return totalOffset;
+	}
+
+	/**
+	 * The page containing the current offset, loaded if necessary.
+	 *
+	 * @return The current page
+	 * @throws IOException
+	 */
+	protected Page getPage() throws IOException {
+		long index = totalOffset >>> pageShift;
+		Page page = current;
+		if (page != null && page.index == index) {
+			return page;
+		}
+		page = pages.get(index);
+		if (page == null) {
+			misses++;
+			page = createPage(index);
+			loadPage(page);
+			if (index == lastLoaded + 1) {
+				readAhead(index + 1);
+			}
+			lastLoaded = index;
+		} else {
+			hits++;
+		}
+		current = page;
+		return page;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public IRandomAccess getRandomAccess() {
+		return randomAccess;
+	}
+
+	public int getReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * The number of pages read ahead after a sequential access was detected.
+	 *
+	 * @return The number of pages read ahead
+	 */
+	public long getReadAheads() {
+		return readAheads;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return randomAccess.isReadOnly();
+	}
+
+	/**
+	 * Fill page with the data from the wrapped random access.
+	 *
+	 * @param page
+	 * @throws IOException
+	 */
+	protected void loadPage(Page page) throws IOException {
+		int count = 0;
+		if (page.start < wrappedLength) {
+			int size = (int) Math.min(pageSize, wrappedLength - page.start);
+			randomAccess.seek(page.start);
+			while (count < size) {
+				int read = randomAccess.read(page.bytes, count, size - count);
+				if (read < 0) {
+					break;
+				}
+				count += read;
+			}
+		}
+		// data not (yet) in the wrapped random access is zero
+		Arrays.fill(page.bytes, count, pageSize, (byte) 0);
+	}
+
+	@Override
+	public int read() throws IOException {
+		checkOpen();
+		if (totalOffset >= totalLength) {
+			return -1;
+		}
+		Page page = getPage();
+		return page.bytes[(int) (totalOffset++ - page.start)] & HIGH_BYTE;
+	}
+
+	@Override
+	public int read(byte[] buffer) throws IOException {
+		return read(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public int read(byte[] buffer, int start, int numBytes) throws IOException {
+		checkOpen();
+		if (numBytes == 0) {
+			return 0;
+		}
+		if (totalOffset >= totalLength) {
+			return -1;
+		}
+		int total = (int) Math.min(numBytes, totalLength - totalOffset);
+		int remaining = total;
+		while (remaining > 0) {
+			Page page = getPage();
+			int pageOffset = (int) (totalOffset - page.start);
+			int count = Math.min(remaining, pageSize - pageOffset);
+			System.arraycopy(page.bytes, pageOffset, buffer, start, count);
+			totalOffset += count;
+			start += count;
+			remaining -= count;
+		}
+		return total;
+	}
+
+	/**
+	 * Read pages following a sequential access, as long as they are not yet
+	 * available and the cache is large enough.
+	 *
+	 * @param index
+	 * @throws IOException
+	 */
+	protected void readAhead(long index) throws IOException {
+		int count = Math.min(readAhead, maxPages / 2);
+		for (int i = 0; i < count; i++, index++) {
+			long start = index << pageShift;
+			if (start >= wrappedLength) {
+				break;
+			}
+			if (pages.containsKey(index)) {
+				continue;
+			}
+			Page page = createPage(index);
+			loadPage(page);
+			lastLoaded = index;
+			readAheads++;
+		}
+	}
+
+	/**
+	 * Reset the hit, miss, read ahead and eviction counters.
+	 */
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		readAheads = 0;
+		evictions = 0;
+	}
+
+	@Override
+	public void seek(long offset) throws IOException {
+		checkOpen();
+		if (offset < 0) {
+			throw new IOException("negative offset");
+		}
+		totalOffset = offset;
+	}
+
+	@Override
+	public void seekBy(long delta) throws IOException {
+		seek(totalOffset + delta);
+	}
+
+	@Override
+	public void setLength(long newLength) throws IOException {
+		checkOpen();
+		if (newLength < totalLength) {
+			Iterator<Page> it = pages.values().iterator();
+			while (it.hasNext()) {
+				Page page = it.next();
+				if (page.start >= newLength) {
+					it.remove();
+					if (page == current) {
+						current = null;
+					}
+				} else if (page.start + pageSize > newLength) {
+					// a later extension must not reveal the truncated data
+					Arrays.fill(page.bytes, (int) (newLength - page.start), pageSize, (byte) 0);
+				}
+			}
+			if (totalOffset > newLength) {
+				totalOffset = newLength;
+			}
+		}
+		totalLength = newLength;
+		randomAccess.setLength(newLength);
+		wrappedLength = newLength;
+	}
+
+	/**
+	 * The number of pages read ahead when sequential access is detected. The
+	 * number is limited to half of the maximum number of pages.
+	 *
+	 * @param readAhead
+	 */
+	public void setReadAhead(int readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	@Override
+	public void write(byte[] buffer) throws IOException {
+		write(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public void write(byte[] buffer, int start, int numBytes) throws IOException {
+		checkOpen();
+		int remaining = numBytes;
+		while (remaining > 0) {
+			Page page = getPage();
+			int pageOffset = (int) (totalOffset - page.start);
+			int count = Math.min(remaining, pageSize - pageOffset);
+			System.arraycopy(buffer, start, page.bytes, pageOffset, count);
+			page.dirty = true;
+			totalOffset += count;
+			start += count;
+			remaining -= count;
+			// keep up to date, the page may be written back on the next lookup
+			if (totalOffset > totalLength) {
+				totalLength = totalOffset;
+			}
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkOpen();
+		Page page = getPage();
+		page.bytes[(int) (totalOffset++ - page.start)] = (byte) b;
+		page.dirty = true;
+		if (totalOffset > totalLength) {
+			totalLength = totalOffset;
+		}
+	}
+
+	/**
+	 * Write page to the wrapped random access if changed.
+	 *
+	 * @param page
+	 * @throws IOException
+	 */
+	protected void writePage(Page page) throws IOException {
+		if (!page.dirty) {
+			return;
+		}
+		int size = (int) Math.min(pageSize, totalLength - page.start);
+		if (size > 0) {
+			if (page.start > wrappedLength) {
+				randomAccess.setLength(page.start);
+			}
+			randomAccess.seek(page.start);
+			randomAccess.write(page.bytes, 0, size);
+			wrappedLength = Math.max(wrappedLength, page.start + size);
+		}
+		page.dirty = false;
+	}
+}
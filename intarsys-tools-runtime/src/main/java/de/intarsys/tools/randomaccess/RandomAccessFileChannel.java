@@ -0,0 +1,200 @@
+package de.intarsys.tools.randomaccess;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import de.intarsys.tools.file.FileTools;
+
+/**
+ * Implements random access to a file using positional reads and writes on a
+ * {@link FileChannel}.
+ *
+ * The current offset is maintained here, a {@link #seek(long)} does not access
+ * the file at all. Single byte access still reaches the file each time, wrap
+ * with {@link BufferedRandomAccess} for this kind of usage.
+ */
+public class RandomAccessFileChannel extends AbstractRandomAccess {
+
+	private FileChannel channel;
+
+	private boolean readOnly;
+
+	/**
+	 * The current offset
+	 */
+	protected long offset;
+
+	private final ByteBuffer single = ByteBuffer.allocate(1);
+
+	/**
+	 * @param file
+	 *            to open for random access
+	 * @throws FileNotFoundException
+	 *             if file was not found or the file is locked by a different
+	 *             process
+	 */
+	public RandomAccessFileChannel(File file) throws IOException {
+		this(file, true);
+	}
+
+	/**
+	 * @param file
+	 *            to open for random access
+	 * @param create
+	 *            true if a missing file should be created
+	 * @throws FileNotFoundException
+	 *             if file was not found or the file is locked by a different
+	 *             process
+	 */
+	public RandomAccessFileChannel(File file, boolean create) throws IOException {
+		if (create && !file.exists()) {
+			File dir = file.getParentFile();
+			FileTools.mkdirs(dir);
+			file.createNewFile(); // NOSONAR
+		}
+		if (!file.exists()) {
+			throw new FileNotFoundException("file does not exist or can't be created");
+		}
+		if (file.canWrite()) {
+			try {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				return;
+			} catch (IOException e) {
+				// canWrite() doesn't check for user permissions
+				// try again with readonly
+			}
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		readOnly = true;
+	}
+
+	protected void checkWritable() throws IOException {
+		if (readOnly) {
+			throw new IOException("random access is read only");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (!readOnly) {
+			channel.force(true);
+		}
+	}
+
+	protected FileChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public long getOffset() throws IOException {
+		return offset;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	@Override
+	public int read() throws IOException {
+		single.clear();
+		int count = channel.read(single, offset);
+		if (count <= 0) {
+			return -1;
+		}
+		offset++;
+		return single.get(0) & 0xff;
+	}
+
+	@Override
+	public int read(byte[] buffer) throws IOException {
+		return read(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public int read(byte[] buffer, int start, int numBytes) throws IOException {
+		if (numBytes == 0) {
+			return 0;
+		}
+		ByteBuffer target = ByteBuffer.wrap(buffer, start, numBytes);
+		int total = 0;
+		while (target.hasRemaining()) {
+			int count = channel.read(target, offset + total);
+			if (count < 0) {
+				break;
+			}
+			total += count;
+		}
+		if (total == 0) {
+			return -1;
+		}
+		offset += total;
+		return total;
+	}
+
+	@Override
+	public void seek(long pOffset) throws IOException {
+		if (pOffset < 0) {
+			throw new IOException("negative seek offset");
+		}
+		this.offset = pOffset;
+	}
+
+	@Override
+	public void seekBy(long delta) throws IOException {
+		seek(offset + delta);
+	}
+
+	@Override
+	public void setLength(long newLength) throws IOException {
+		checkWritable();
+		long length = channel.size();
+		if (newLength < length) {
+			channel.truncate(newLength);
+		} else if (newLength > length) {
+			channel.write(ByteBuffer.allocate(1), newLength - 1);
+		}
+		if (offset > newLength) {
+			offset = newLength;
+		}
+	}
+
+	@Override
+	public void write(byte[] buffer) throws IOException {
+		write(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public void write(byte[] buffer, int start, int numBytes) throws IOException {
+		checkWritable();
+		ByteBuffer source = ByteBuffer.wrap(buffer, start, numBytes);
+		while (source.hasRemaining()) {
+			offset += channel.write(source, offset);
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkWritable();
+		single.clear();
+		single.put(0, (byte) b);
+		while (channel.write(single, offset) == 0) {
+			// retry
+		}
+		offset++;
+	}
+}
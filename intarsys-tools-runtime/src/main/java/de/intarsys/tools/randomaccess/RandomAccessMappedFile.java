@@ -0,0 +1,281 @@
+package de.intarsys.tools.randomaccess;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Implements random access to a file using memory mapped pages.
+ *
+ * <p>
+ * The file is mapped in pages of a fixed size (default 1 GB), each mapped on
+ * first access. This allows files larger than the 2 GB limit of a single
+ * {@link MappedByteBuffer}. Reading and writing within the file is done in
+ * memory without any system call.
+ * </p>
+ *
+ * <p>
+ * Writing past the end grows the file and its mapping in chunks, doubling up
+ * to the page size. The file may be longer than {@link #getLength()} until it
+ * is truncated to the logical length by {@link #flush()} or {@link #close()}.
+ * </p>
+ *
+ * <p>
+ * The file length is read once when opening, changes by other processes are
+ * not recognized. Mapped pages are released by the garbage collector only, on
+ * some platforms this prevents the file from being truncated or deleted for
+ * some time after {@link #close()}.
+ * </p>
+ */
+public class RandomAccessMappedFile extends RandomAccessFileChannel {
+
+	public static final int DEFAULT_PAGE_SIZE = 1 << 30;
+
+	public static final int MIN_GROWTH = 1 << 16;
+
+	private static final MappedByteBuffer[] NO_PAGES = new MappedByteBuffer[0];
+
+	private final int pageShift;
+
+	private final long pageMask;
+
+	private MappedByteBuffer[] pages = NO_PAGES;
+
+	/**
+	 * The logical length
+	 */
+	private long length;
+
+	/**
+	 * The physical file size, at least length
+	 */
+	private long capacity;
+
+	private int mapCount;
+
+	/**
+	 * @param file
+	 *            to open for random access
+	 * @throws FileNotFoundException
+	 *             if file was not found or the file is locked by a different
+	 *             process
+	 */
+	public RandomAccessMappedFile(File file) throws IOException {
+		this(file, true, DEFAULT_PAGE_SIZE);
+	}
+
+	/**
+	 * @param file
+	 *            to open for random access
+	 * @param create
+	 *            true if a missing file should be created
+	 * @param pageSize
+	 *            The size of the mapped pages, a power of 2 up to 1 GB
+	 * @throws FileNotFoundException
+	 *             if file was not found or the file is locked by a different
+	 *             process
+	 */
+	public RandomAccessMappedFile(File file, boolean create, int pageSize) throws IOException {
+		super(file, create);
+		if (pageSize <= 0 || Integer.bitCount(pageSize) != 1 || pageSize > DEFAULT_PAGE_SIZE) {
+			close();
+			throw new IllegalArgumentException("page size must be a power of 2 up to 1 GB");
+		}
+		this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+		this.pageMask = pageSize - 1L;
+		this.length = getChannel().size();
+		this.capacity = length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (getChannel().isOpen() && !isReadOnly()) {
+				trim();
+			}
+		} finally {
+			pages = NO_PAGES;
+			super.close();
+		}
+	}
+
+	/**
+	 * Drop the mappings beyond newCapacity.
+	 *
+	 * @param newCapacity
+	 */
+	protected void discardPages(long newCapacity) {
+		int count = (int) ((newCapacity + pageMask) >>> pageShift);
+		if (count < pages.length) {
+			MappedByteBuffer[] newPages = new MappedByteBuffer[count];
+			System.arraycopy(pages, 0, newPages, 0, count);
+			pages = newPages;
+		}
+		if (count > 0 && (newCapacity & pageMask) != 0) {
+			// last page is remapped when accessed
+			pages[count - 1] = null;
+		}
+	}
+
+	/**
+	 * Make the file at least newLength bytes long.
+	 *
+	 * @param newLength
+	 * @throws IOException
+	 */
+	protected void extend(long newLength) throws IOException {
+		if (newLength <= length) {
+			return;
+		}
+		if (newLength > capacity) {
+			long growth = Math.min(Math.max(capacity, MIN_GROWTH), pageMask + 1);
+			long newCapacity = Math.max(newLength, capacity + growth);
+			getChannel().write(ByteBuffer.allocate(1), newCapacity - 1);
+			capacity = newCapacity;
+		}
+		length = newLength;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (isReadOnly()) {
+			return;
+		}
+		for (MappedByteBuffer page : pages) {
+			if (page != null) {
+				page.force();
+			}
+		}
+		trim();
+	}
+
+	@Override
+	public long getLength() throws IOException {
+		return length;
+	}
+
+	/**
+	 * The number of mappings created so far.
+	 *
+	 * @return The number of mappings
+	 */
+	protected int getMapCount() {
+		return mapCount;
+	}
+
+	/**
+	 * The page containing position, mapped if necessary.
+	 *
+	 * @param position
+	 * @return The page containing position
+	 * @throws IOException
+	 */
+	protected MappedByteBuffer getPage(long position) throws IOException {
+		int index = (int) (position >>> pageShift);
+		if (index >= pages.length) {
+			MappedByteBuffer[] newPages = new MappedByteBuffer[index + 1];
+			System.arraycopy(pages, 0, newPages, 0, pages.length);
+			pages = newPages;
+		}
+		long start = (long) index << pageShift;
+		int size = (int) Math.min(pageMask + 1, capacity - start);
+		MappedByteBuffer page = pages[index];
+		if (page == null || page.capacity() < size) {
+			// not yet mapped or file was extended
+			MapMode mode = isReadOnly() ? MapMode.READ_ONLY : MapMode.READ_WRITE;
+			page = getChannel().map(mode, start, size);
+			pages[index] = page;
+			mapCount++;
+		}
+		return page;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (offset >= length) {
+			return -1;
+		}
+		int b = getPage(offset).get((int) (offset & pageMask)) & 0xff;
+		offset++;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int start, int numBytes) throws IOException {
+		if (numBytes == 0) {
+			return 0;
+		}
+		if (offset >= length) {
+			return -1;
+		}
+		int total = (int) Math.min(numBytes, length - offset);
+		int remaining = total;
+		while (remaining > 0) {
+			int pageOffset = (int) (offset & pageMask);
+			int count = (int) Math.min(remaining, pageMask + 1 - pageOffset);
+			getPage(offset).get(pageOffset, buffer, start, count);
+			offset += count;
+			start += count;
+			remaining -= count;
+		}
+		return total;
+	}
+
+	@Override
+	public void setLength(long newLength) throws IOException {
+		checkWritable();
+		if (newLength < length) {
+			// the bytes beyond the logical length must read as zero when
+			// extended again
+			discardPages(newLength);
+			getChannel().truncate(newLength);
+			capacity = newLength;
+			length = newLength;
+		} else {
+			extend(newLength);
+		}
+		if (offset > newLength) {
+			offset = newLength;
+		}
+	}
+
+	/**
+	 * Truncate the file to the logical length.
+	 *
+	 * @throws IOException
+	 */
+	protected void trim() throws IOException {
+		if (capacity <= length) {
+			return;
+		}
+		discardPages(length);
+		getChannel().truncate(length);
+		capacity = length;
+	}
+
+	@Override
+	public void write(byte[] buffer, int start, int numBytes) throws IOException {
+		checkWritable();
+		extend(offset + numBytes);
+		int remaining = numBytes;
+		while (remaining > 0) {
+			int pageOffset = (int) (offset & pageMask);
+			int count = (int) Math.min(remaining, pageMask + 1 - pageOffset);
+			getPage(offset).put(pageOffset, buffer, start, count);
+			offset += count;
+			start += count;
+			remaining -= count;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkWritable();
+		extend(offset + 1);
+		getPage(offset).put((int) (offset & pageMask), (byte) b);
+		offset++;
+	}
+}
@@ -0,0 +1,337 @@
+package de.intarsys.tools.reflect;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of {@link MemberAccessor} instances for a class.
+ * <p>
+ * Methods are looked up by name and arity, properties by name. Failed lookups
+ * are cached as well, up to {@link #MAX_NEGATIVE} per kind.
+ */
+public class ClassAccessors {
+
+	/**
+	 * A method annotated with {@link InvocableMethod} with its argument
+	 * declarations.
+	 */
+	public static class Invocable {
+
+		private final MemberAccessor accessor;
+
+		private final InvocableArgument[] arguments;
+
+		protected Invocable(MemberAccessor accessor, InvocableArgument[] arguments) {
+			this.accessor = accessor;
+			this.arguments = arguments;
+		}
+
+		public MemberAccessor getAccessor() {
+			return accessor;
+		}
+
+		public InvocableArgument[] getArguments() {
+			return arguments;
+		}
+	}
+
+	/**
+	 * The public methods of a given name.
+	 */
+	protected static class MethodGroup {
+
+		/**
+		 * All methods, in the order of {@link Class#getMethods()}
+		 */
+		protected final MemberAccessor[] all;
+
+		/**
+		 * The methods by arity
+		 */
+		protected final MemberAccessor[][] byArity;
+
+		protected MethodGroup(MemberAccessor[] all) {
+			this.all = all;
+			int maxArity = -1;
+			for (MemberAccessor accessor : all) {
+				maxArity = Math.max(maxArity, accessor.getParameterTypes().length);
+			}
+			this.byArity = new MemberAccessor[maxArity + 1][];
+			for (int i = 0; i <= maxArity; i++) {
+				List<MemberAccessor> temp = new ArrayList<>();
+				for (MemberAccessor accessor : all) {
+					if (accessor.getParameterTypes().length == i) {
+						temp.add(accessor);
+					}
+				}
+				byArity[i] = temp.toArray(NO_ACCESSORS);
+			}
+		}
+	}
+
+	private static final ClassValue<ClassAccessors> ACCESSORS = new ClassValue<ClassAccessors>() {
+		@Override
+		protected ClassAccessors computeValue(Class<?> type) {
+			return new ClassAccessors(type);
+		}
+	};
+
+	/**
+	 * The maximum number of failed lookups cached per kind.
+	 */
+	public static final int MAX_NEGATIVE = 1024;
+
+	private static final MemberAccessor[] NO_ACCESSORS = new MemberAccessor[0];
+
+	private static final MethodGroup NO_METHODS = new MethodGroup(NO_ACCESSORS);
+
+	private static final MemberAccessor NONE = new MemberAccessor(null, ObjectTools.EMPTY_PARAMETERTYPES, false,
+			null, null);
+
+	private static final Invocable NO_INVOCABLE = new Invocable(null, null);
+
+	public static ClassAccessors get(Class<?> clazz) {
+		return ACCESSORS.get(clazz);
+	}
+
+	protected static String toAccessorName(String prefix, String name) {
+		return prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private final Class<?> clazz;
+
+	private volatile Method[] methods;
+
+	private final Map<String, MethodGroup> methodGroups = new ConcurrentHashMap<>();
+
+	private final Map<String, MemberAccessor> fields = new ConcurrentHashMap<>();
+
+	private final Map<String, MemberAccessor> properties = new ConcurrentHashMap<>();
+
+	private final Map<String, Invocable> invocables = new ConcurrentHashMap<>();
+
+	private final Map<Class<? extends Annotation>, MemberAccessor[]> annotated = new ConcurrentHashMap<>();
+
+	private final Map<String, MemberAccessor[]> prefixed = new ConcurrentHashMap<>();
+
+	protected ClassAccessors(Class<?> clazz) {
+		this.clazz = clazz;
+	}
+
+	protected <T> T cache(Map<String, T> map, String name, T value, T none) {
+		if (value == none && map.size() >= MAX_NEGATIVE) {
+			return value;
+		}
+		T previous = map.putIfAbsent(name, value);
+		return previous == null ? value : previous;
+	}
+
+	protected MethodGroup createMethodGroup(String name) {
+		List<MemberAccessor> regular = new ArrayList<>();
+		List<MemberAccessor> bridges = new ArrayList<>();
+		for (Method method : getMethods()) {
+			if (method.getName().equals(name)) {
+				// prefer the most specific declaration like Class.getMethod
+				(method.isBridge() ? bridges : regular).add(MemberAccessor.forMethod(method));
+			}
+		}
+		if (regular.isEmpty() && bridges.isEmpty()) {
+			return NO_METHODS;
+		}
+		regular.addAll(bridges);
+		return new MethodGroup(regular.toArray(NO_ACCESSORS));
+	}
+
+	/**
+	 * The public method name accepting arguments of the given classes. A method
+	 * with exactly these parameter types is preferred, otherwise the first
+	 * method whose parameter types are assignable (see
+	 * {@link ObjectTools#isAssignable(Class, Class)}) is returned.
+	 *
+	 * @param name
+	 * @param classes
+	 * @return The matching method or null
+	 */
+	public MemberAccessor findMethod(String name, Class... classes) {
+		MemberAccessor[] candidates = getMethods(name, classes.length);
+		for (MemberAccessor candidate : candidates) {
+			if (Arrays.equals(candidate.getParameterTypes(), classes)) {
+				return candidate;
+			}
+		}
+		for (MemberAccessor candidate : candidates) {
+			if (ObjectTools.isAssignable(classes, candidate.getParameterTypes())) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	public Class<?> getClazz() {
+		return clazz;
+	}
+
+	/**
+	 * The public field name.
+	 *
+	 * @param name
+	 * @return The public field or null
+	 */
+	public MemberAccessor getField(String name) {
+		MemberAccessor result = fields.get(name);
+		if (result == null) {
+			try {
+				Field field = clazz.getField(name);
+				result = MemberAccessor.forField(field);
+			} catch (NoSuchFieldException | SecurityException e) {
+				result = NONE;
+			}
+			result = cache(fields, name, result, NONE);
+		}
+		return result == NONE ? null : result;
+	}
+
+	/**
+	 * The public getter for property name ("getName" or "isName").
+	 *
+	 * @param name
+	 * @return The getter or null
+	 */
+	public MemberAccessor getGetter(String name) {
+		if (name.isEmpty()) {
+			return null;
+		}
+		MemberAccessor[] candidates = getMethods(toAccessorName(ObjectTools.GET_PREFIX, name), 0);
+		if (candidates.length == 0) {
+			candidates = getMethods(toAccessorName(ObjectTools.IS_PREFIX, name), 0);
+		}
+		return candidates.length == 0 ? null : candidates[0];
+	}
+
+	/**
+	 * The method name annotated with {@link InvocableMethod}, declared in the
+	 * class or its super types.
+	 *
+	 * @param name
+	 * @return The method or null
+	 */
+	public Invocable getInvocable(String name) {
+		Invocable result = invocables.get(name);
+		if (result == null) {
+			Method method = ObjectTools.findInvocableMethod(clazz, name);
+			if (method == null) {
+				result = NO_INVOCABLE;
+			} else {
+				result = new Invocable(MemberAccessor.forMethod(method),
+						ObjectTools.findInvocableMethodInvocableArgumentArray(method));
+			}
+			result = cache(invocables, name, result, NO_INVOCABLE);
+		}
+		return result == NO_INVOCABLE ? null : result;
+	}
+
+	protected Method[] getMethods() {
+		Method[] result = methods;
+		if (result == null) {
+			result = clazz.getMethods();
+			methods = result;
+		}
+		return result;
+	}
+
+	/**
+	 * The public methods name with the given arity, all methods name if arity
+	 * is negative.
+	 *
+	 * @param name
+	 * @param arity
+	 * @return The methods, in the order of {@link Class#getMethods()}
+	 */
+	public MemberAccessor[] getMethods(String name, int arity) {
+		MethodGroup group = methodGroups.get(name);
+		if (group == null) {
+			group = cache(methodGroups, name, createMethodGroup(name), NO_METHODS);
+		}
+		if (arity < 0) {
+			return group.all;
+		}
+		if (arity >= group.byArity.length) {
+			return NO_ACCESSORS;
+		}
+		return group.byArity[arity];
+	}
+
+	/**
+	 * The public methods annotated with annotation.
+	 *
+	 * @param annotation
+	 * @return The methods, in the order of {@link Class#getMethods()}
+	 */
+	public MemberAccessor[] getMethodsAnnotatedWith(Class<? extends Annotation> annotation) {
+		MemberAccessor[] result = annotated.get(annotation);
+		if (result == null) {
+			List<MemberAccessor> temp = new ArrayList<>();
+			for (Method method : getMethods()) {
+				if (method.getAnnotation(annotation) != null) {
+					temp.add(MemberAccessor.forMethod(method));
+				}
+			}
+			result = temp.toArray(NO_ACCESSORS);
+			MemberAccessor[] previous = annotated.putIfAbsent(annotation, result);
+			if (previous != null) {
+				result = previous;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The public methods whose name starts with prefix.
+	 *
+	 * @param prefix
+	 * @return The methods, in the order of {@link Class#getMethods()}
+	 */
+	public MemberAccessor[] getMethodsPrefixed(String prefix) {
+		MemberAccessor[] result = prefixed.get(prefix);
+		if (result == null) {
+			List<MemberAccessor> temp = new ArrayList<>();
+			for (Method method : getMethods()) {
+				if (method.getName().startsWith(prefix)) {
+					temp.add(MemberAccessor.forMethod(method));
+				}
+			}
+			result = cache(prefixed, prefix, temp.isEmpty() ? NO_ACCESSORS : temp.toArray(NO_ACCESSORS),
+					NO_ACCESSORS);
+		}
+		return result;
+	}
+
+	/**
+	 * The accessor for reading property name. This is the getter, the public
+	 * field or the public method name without parameters, in this order.
+	 *
+	 * @param name
+	 * @return The accessor or null
+	 */
+	public MemberAccessor getProperty(String name) {
+		MemberAccessor result = properties.get(name);
+		if (result == null) {
+			result = getGetter(name);
+			if (result == null) {
+				result = getField(name);
+			}
+			if (result == null) {
+				MemberAccessor[] candidates = getMethods(name, 0);
+				result = candidates.length == 0 ? NONE : candidates[0];
+			}
+			result = cache(properties, name, result, NONE);
+		}
+		return result == NONE ? null : result;
+	}
+}
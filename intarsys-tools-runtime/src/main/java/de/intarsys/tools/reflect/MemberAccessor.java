@@ -0,0 +1,210 @@
+package de.intarsys.tools.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A {@link Method} or {@link Field} bound to a {@link MethodHandle}.
+ * <p>
+ * The handle is created once and used for all invocations with matching
+ * arguments. Invocations the handle can't serve (inaccessible members,
+ * arguments requiring a widening conversion or of the wrong type) are
+ * forwarded to the reflective {@link Member}, so that the semantics and
+ * exceptions are the same as with {@link Method#invoke(Object, Object...)} or
+ * {@link Field#get(Object)}.
+ */
+public class MemberAccessor {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	public static MemberAccessor forField(Field field) {
+		MethodHandle getter = null;
+		MethodHandle setter = null;
+		boolean isStatic = Modifier.isStatic(field.getModifiers());
+		try {
+			getter = LOOKUP.unreflectGetter(field);
+			if (isStatic) {
+				getter = MethodHandles.dropArguments(getter, 0, Object.class);
+			}
+			getter = getter.asType(MethodType.genericMethodType(1));
+		} catch (IllegalAccessException e) {
+			getter = null;
+		}
+		try {
+			setter = LOOKUP.unreflectSetter(field);
+			if (isStatic) {
+				setter = MethodHandles.dropArguments(setter, 0, Object.class);
+			}
+			setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		} catch (IllegalAccessException e) {
+			setter = null;
+		}
+		return new MemberAccessor(field, new Class[] { field.getType() }, isStatic, getter, setter);
+	}
+
+	public static MemberAccessor forMethod(Method method) {
+		Class[] parameterTypes = method.getParameterTypes();
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		MethodHandle handle;
+		try {
+			handle = LOOKUP.unreflect(method).asFixedArity();
+			if (isStatic) {
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			}
+			handle = handle.asType(MethodType.genericMethodType(parameterTypes.length + 1))
+					.asSpreader(Object[].class, parameterTypes.length);
+		} catch (IllegalAccessException e) {
+			handle = null;
+		}
+		return new MemberAccessor(method, parameterTypes, isStatic, handle, null);
+	}
+
+	private final Member member;
+
+	private final Class[] parameterTypes;
+
+	private final boolean isStatic;
+
+	/**
+	 * (Object, Object[])Object for methods, (Object)Object for fields
+	 */
+	private final MethodHandle handle;
+
+	/**
+	 * (Object, Object)void for fields
+	 */
+	private final MethodHandle setter;
+
+	protected MemberAccessor(Member member, Class[] parameterTypes, boolean isStatic, MethodHandle handle,
+			MethodHandle setter) {
+		this.member = member;
+		this.parameterTypes = parameterTypes;
+		this.isStatic = isStatic;
+		this.handle = handle;
+		this.setter = setter;
+	}
+
+	protected boolean accepts(Object target, Object[] args) {
+		if (!isStatic && !member.getDeclaringClass().isInstance(target)) {
+			return false;
+		}
+		for (int i = 0; i < args.length; i++) {
+			Object arg = args[i];
+			Class parameterType = parameterTypes[i];
+			if (arg == null) {
+				if (parameterType.isPrimitive()) {
+					return false;
+				}
+			} else if (!ObjectTools.toWrapper(parameterType).isInstance(arg)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the value of the field in target.
+	 *
+	 * @param target
+	 * @return The field value
+	 * @throws IllegalAccessException
+	 * @throws IllegalArgumentException
+	 */
+	public Object get(Object target) throws IllegalAccessException, IllegalArgumentException {
+		Field field = getField();
+		if (handle == null || !accepts(target, NO_ARGS)) {
+			return field.get(target);
+		}
+		try {
+			return handle.invokeExact(target);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	public Field getField() {
+		return (Field) member;
+	}
+
+	public Member getMember() {
+		return member;
+	}
+
+	public Method getMethod() {
+		return (Method) member;
+	}
+
+	/**
+	 * The parameter types of the method or the type of the field.
+	 *
+	 * @return The parameter types
+	 */
+	public Class[] getParameterTypes() {
+		return parameterTypes;
+	}
+
+	/**
+	 * Invoke the method on target.
+	 *
+	 * @param target
+	 * @param args
+	 * @return The invocation result
+	 * @throws IllegalAccessException
+	 * @throws IllegalArgumentException
+	 * @throws InvocationTargetException
+	 */
+	public Object invoke(Object target, Object... args)
+			throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		Object[] tempArgs = args == null ? NO_ARGS : args;
+		if (handle == null || tempArgs.length != parameterTypes.length || !accepts(target, tempArgs)) {
+			return getMethod().invoke(target, tempArgs);
+		}
+		try {
+			return handle.invokeExact(target, tempArgs);
+		} catch (Throwable t) {
+			throw new InvocationTargetException(t);
+		}
+	}
+
+	public boolean isField() {
+		return member instanceof Field;
+	}
+
+	/**
+	 * Set the field in target to value.
+	 *
+	 * @param target
+	 * @param value
+	 * @throws IllegalAccessException
+	 * @throws IllegalArgumentException
+	 */
+	public void set(Object target, Object value) throws IllegalAccessException, IllegalArgumentException {
+		Field field = getField();
+		if (setter == null || !accepts(target, new Object[] { value })) {
+			field.set(target, value);
+			return;
+		}
+		try {
+			setter.invokeExact(target, value);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return member.toString();
+	}
+}
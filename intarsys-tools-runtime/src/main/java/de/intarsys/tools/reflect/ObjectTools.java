@@ -31,9 +31,9 @@ package de.intarsys.tools.reflect;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -57,7 +57,9 @@ import de.intarsys.tools.string.Token;
 /**
  * A tool class for convenient object related tasks.
  * <p>
- * This tool contains some simple reflection implementations.
+ * This tool contains some simple reflection implementations. The members are
+ * resolved once per class and name and then accessed using
+ * {@link java.lang.invoke.MethodHandle}s, see {@link ClassAccessors}.
  * 
  */
 public class ObjectTools {
@@ -121,23 +123,18 @@ public class ObjectTools {
 		if (object instanceof IArgs) {
 			return ((IArgs) object).get(name);
 		}
-		try {
-			Method method = findGetter(object.getClass(), name);
-			return method.invoke(object, (Object[]) null);
-		} catch (Exception e) {
-			ex = ex == null ? e : ex; // NOSONAR
-		}
-		try {
-			Field field = object.getClass().getField(name);
-			return field.get(object);
-		} catch (Exception e) {
-			ex = ex == null ? e : ex; // NOSONAR
-		}
-		try {
-			Method method = object.getClass().getMethod(name, (Class[]) null);
-			return method.invoke(object, (Object[]) null);
-		} catch (Exception e) {
-			ex = ex == null ? e : ex; // NOSONAR
+		MemberAccessor accessor = ClassAccessors.get(object.getClass()).getProperty(name);
+		if (accessor == null) {
+			ex = ex == null ? new MethodNotFoundException(object.getClass(), name) : ex; // NOSONAR
+		} else {
+			try {
+				if (accessor.isField()) {
+					return accessor.get(object);
+				}
+				return accessor.invoke(object);
+			} catch (Exception e) {
+				ex = ex == null ? e : ex; // NOSONAR
+			}
 		}
 		if (ex instanceof FieldException) {
 			throw (FieldException) ex;
@@ -149,11 +146,13 @@ public class ObjectTools {
 		if (object == null) {
 			throw new NullPointerException("object can't be null");
 		}
-		try {
-			Method method = findInserter(getClass(object), name, value);
-			return method.invoke(object, value);
-		} catch (Exception e) {
-			//
+		MemberAccessor accessor = findInserterAccessor(getClass(object), name, value);
+		if (accessor != null) {
+			try {
+				return accessor.invoke(object, value);
+			} catch (Exception e) {
+				//
+			}
 		}
 		Object tempValue = get(object, name);
 		if (tempValue instanceof Collection) {
@@ -184,9 +183,12 @@ public class ObjectTools {
 		if (object instanceof IBasicInvocationSupport) {
 			return ((IBasicInvocationSupport) object).basicInvoke(name, values);
 		}
-		Method method = findMethod(getClass(object), name, false, getClasses(values));
+		MemberAccessor accessor = ClassAccessors.get(getClass(object)).findMethod(name, getClasses(values));
+		if (accessor == null) {
+			throw new MethodNotFoundException(getClass(object), name);
+		}
 		try {
-			return method.invoke(object, values);
+			return accessor.invoke(object, values);
 		} catch (IllegalAccessException e) {
 			throw new MethodAccessException(object.getClass(), name, e);
 		} catch (IllegalArgumentException e) {
@@ -213,11 +215,11 @@ public class ObjectTools {
 		if (object == null) {
 			throw new NullPointerException("object can't be null");
 		}
-		Method method = findInvocableMethod(getClass(object), name);
-		if (method == null) {
+		ClassAccessors.Invocable invocable = ClassAccessors.get(getClass(object)).getInvocable(name);
+		if (invocable == null) {
 			throw new MethodNotFoundException(getClass(object), name);
 		}
-		InvocableArgument[] invocableArguments = findInvocableMethodInvocableArgumentArray(method);
+		InvocableArgument[] invocableArguments = invocable.getArguments();
 		Object[] argValues = new Object[invocableArguments.length];
 		for (int i = 0; i < argValues.length; i++) {
 			InvocableArgument invocableArgument = invocableArguments[i];
@@ -245,7 +247,7 @@ public class ObjectTools {
 			}
 		}
 		try {
-			return method.invoke(object, argValues);
+			return invocable.getAccessor().invoke(object, argValues);
 		} catch (IllegalAccessException e) {
 			throw new MethodAccessException(object.getClass(), name, e);
 		} catch (IllegalArgumentException e) {
@@ -259,11 +261,15 @@ public class ObjectTools {
 		if (object == null) {
 			throw new NullPointerException("object can't be null");
 		}
-		try {
-			Method method = findRemover(getClass(object), name, value);
-			return method.invoke(object, value);
-		} catch (Exception e) {
-			//
+		MemberAccessor accessor = name.isEmpty() ? null
+				: ClassAccessors.get(getClass(object)).findMethod(ClassAccessors.toAccessorName("remove", name),
+						getClass(value));
+		if (accessor != null) {
+			try {
+				return accessor.invoke(object, value);
+			} catch (Exception e) {
+				//
+			}
 		}
 		Object tempValue = get(object, name);
 		if (tempValue instanceof Collection) {
@@ -288,16 +294,23 @@ public class ObjectTools {
 		if (object instanceof IArgs) {
 			return ((IArgs) object).put(name, value);
 		}
-		try {
-			Method method = findSetter(getClass(object), name, value);
-			return method.invoke(object, value);
-		} catch (InvocationTargetException e) {
-			throw new FieldAccessException(object.getClass(), name, e.getCause());
-		} catch (Exception e) {
-			//
+		ClassAccessors accessors = ClassAccessors.get(getClass(object));
+		MemberAccessor accessor = name.isEmpty() ? null
+				: accessors.findMethod(ClassAccessors.toAccessorName("set", name), getClass(value));
+		if (accessor != null) {
+			try {
+				return accessor.invoke(object, value);
+			} catch (InvocationTargetException e) {
+				throw new FieldAccessException(object.getClass(), name, e.getCause());
+			} catch (Exception e) {
+				//
+			}
+		}
+		MemberAccessor field = accessors.getField(name);
+		if (field == null) {
+			throw new FieldAccessException(object.getClass(), name, new NoSuchFieldException(name));
 		}
 		try {
-			Field field = object.getClass().getField(name);
 			Object oldValue = field.get(object);
 			field.set(object, value);
 			return oldValue;
@@ -413,34 +426,33 @@ public class ObjectTools {
 	}
 
 	public static Method findGetter(Class clazz, String name) throws MethodException {
-		try {
-			String methodName = GET_PREFIX + Character.toUpperCase(name.charAt(0)) + name.substring(1);
-			return clazz.getMethod(methodName, (Class[]) null);
-		} catch (Exception e) {
-			//
-		}
-		String methodName = IS_PREFIX + Character.toUpperCase(name.charAt(0)) + name.substring(1);
-		try {
-			return clazz.getMethod(methodName, (Class[]) null);
-		} catch (Exception e) {
+		MemberAccessor accessor = ClassAccessors.get(clazz).getGetter(name);
+		if (accessor == null) {
 			throw new MethodNotFoundException(clazz, name);
 		}
+		return accessor.getMethod();
 	}
 
 	public static Method findInserter(Class clazz, String attribute, Object value) throws MethodException {
-		String methodName;
-		Method result;
-		try {
-			methodName = "add" + Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
-			result = findMethod(clazz, methodName, false, getClass(value));
-		} catch (Exception e) {
-			try {
-				methodName = "insert" + Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
-				result = findMethod(clazz, methodName, false, getClass(value));
-			} catch (Exception nested) {
-				methodName = "register" + Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
-				result = findMethod(clazz, methodName, false, getClass(value));
-			}
+		MemberAccessor accessor = findInserterAccessor(clazz, attribute, value);
+		if (accessor == null) {
+			throw new MethodNotFoundException(clazz, ClassAccessors.toAccessorName("register", attribute));
+		}
+		return accessor.getMethod();
+	}
+
+	protected static MemberAccessor findInserterAccessor(Class clazz, String attribute, Object value) {
+		if (attribute.isEmpty()) {
+			return null;
+		}
+		ClassAccessors accessors = ClassAccessors.get(clazz);
+		Class valueClass = getClass(value);
+		MemberAccessor result = accessors.findMethod(ClassAccessors.toAccessorName("add", attribute), valueClass);
+		if (result == null) {
+			result = accessors.findMethod(ClassAccessors.toAccessorName("insert", attribute), valueClass);
+		}
+		if (result == null) {
+			result = accessors.findMethod(ClassAccessors.toAccessorName("register", attribute), valueClass);
 		}
 		return result;
 	}
@@ -491,37 +503,40 @@ public class ObjectTools {
 
 	public static Method findMethod(Class clazz, String name, boolean wildcard, Class... classes)
 			throws MethodNotFoundException {
-		if (classes != null) {
-			try {
-				return clazz.getMethod(name, classes);
-			} catch (NoSuchMethodException e) {
-				// go on...
+		MemberAccessor accessor = findMethodAccessor(clazz, name, wildcard, classes);
+		if (accessor == null) {
+			throw new MethodNotFoundException(clazz, name);
+		}
+		return accessor.getMethod();
+	}
+
+	protected static MemberAccessor findMethodAccessor(Class clazz, String name, boolean wildcard,
+			Class... classes) {
+		ClassAccessors accessors = ClassAccessors.get(clazz);
+		if (!wildcard) {
+			if (classes == null) {
+				MemberAccessor[] candidates = accessors.getMethods(name, -1);
+				return candidates.length == 0 ? null : candidates[0];
 			}
+			return accessors.findMethod(name, classes);
 		}
-		Method[] methods = clazz.getMethods();
-		for (int i = 0; i < methods.length; i++) {
-			Method method = methods[i];
-			if (wildcard) {
-				if (!method.getName().startsWith(name)) {
-					continue;
-				}
-			} else {
-				if (!method.getName().equals(name)) {
-					continue;
+		if (classes != null) {
+			for (MemberAccessor candidate : accessors.getMethods(name, classes.length)) {
+				if (Arrays.equals(candidate.getParameterTypes(), classes)) {
+					return candidate;
 				}
 			}
+		}
+		for (MemberAccessor candidate : accessors.getMethodsPrefixed(name)) {
 			if (classes == null) {
-				return method;
-			}
-			Class[] parameterTypes = method.getParameterTypes();
-			if (classes.length != parameterTypes.length) {
-				continue;
+				return candidate;
 			}
-			if (isAssignable(classes, parameterTypes)) {
-				return method;
+			Class[] parameterTypes = candidate.getParameterTypes();
+			if (classes.length == parameterTypes.length && isAssignable(classes, parameterTypes)) {
+				return candidate;
 			}
 		}
-		throw new MethodNotFoundException(clazz, name);
+		return null;
 	}
 
 	public static Method findMethodPrefixed(Class clazz, String methodPrefix, Object... parameters)
@@ -541,13 +556,11 @@ public class ObjectTools {
 	}
 
 	public static Method findRemover(Class clazz, String attribute, Object value) throws MethodException {
-		String methodName = "remove" + Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
-		return findMethod(clazz, methodName, false, getClass(value));
+		return findMethod(clazz, ClassAccessors.toAccessorName("remove", attribute), false, getClass(value));
 	}
 
 	public static Method findSetter(Class clazz, String attribute, Object value) throws MethodException {
-		String methodName = "set" + Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
-		return findMethod(clazz, methodName, false, getClass(value));
+		return findMethod(clazz, ClassAccessors.toAccessorName("set", attribute), false, getClass(value));
 	}
 
 	/**
@@ -662,8 +675,7 @@ public class ObjectTools {
 	}
 
 	public static Object invokeMethodAnnotatedWith(Object object, Class annotation) throws MethodException {
-		Class<?> clazz = object.getClass();
-		Method[] methods = clazz.getMethods();
+		MemberAccessor[] methods = ClassAccessors.get(object.getClass()).getMethodsAnnotatedWith(annotation);
 		Object result = null;
 		/*
 		 * documentation states that methods returned are not in any particular
@@ -671,17 +683,15 @@ public class ObjectTools {
 		 * Assume that "super" initialization is to be done first
 		 */
 		for (int index = methods.length - 1; index >= 0; index--) {
-			Method method = methods[index];
-			if (method.getAnnotation(annotation) != null) {
-				try {
-					result = method.invoke(object);
-				} catch (IllegalAccessException e) {
-					throw new MethodAccessException(object.getClass(), method.getName(), e);
-				} catch (IllegalArgumentException e) {
-					throw new MethodInternalException(object.getClass(), method.getName(), e.getCause());
-				} catch (InvocationTargetException e) {
-					throw new MethodExecutionException(object.getClass(), method.getName(), e.getCause());
-				}
+			Method method = methods[index].getMethod();
+			try {
+				result = methods[index].invoke(object);
+			} catch (IllegalAccessException e) {
+				throw new MethodAccessException(object.getClass(), method.getName(), e);
+			} catch (IllegalArgumentException e) {
+				throw new MethodInternalException(object.getClass(), method.getName(), e.getCause());
+			} catch (InvocationTargetException e) {
+				throw new MethodExecutionException(object.getClass(), method.getName(), e.getCause());
 			}
 		}
 		return result;
@@ -703,7 +713,7 @@ public class ObjectTools {
 		return false;
 	}
 
-	private static boolean isAssignable(Class[] classes, Class[] parameterTypes) {
+	protected static boolean isAssignable(Class[] classes, Class[] parameterTypes) {
 		for (int j = 0; j < parameterTypes.length; j++) {
 			Class searchType = classes[j];
 			Class parameterType = parameterTypes[j];
@@ -714,13 +724,21 @@ public class ObjectTools {
 		return true;
 	}
 
+	protected static Class toWrapper(Class clazz) {
+		return clazz.isPrimitive() ? PRIMITIVE_WRAPPER.get(clazz) : clazz;
+	}
+
 	public static Object register(Object registry, Object value) throws MethodException {
 		if (registry instanceof IBasicRegistrySupport) {
 			return ((IBasicRegistrySupport) registry).basicRegister(value);
 		}
-		Method method = findRegister(getClass(registry), value);
+		Class clazz = getClass(registry);
+		MemberAccessor accessor = findMethodAccessor(clazz, "register", true, value.getClass());
+		if (accessor == null) {
+			throw new MethodNotFoundException(clazz, "register");
+		}
 		try {
-			return method.invoke(registry, value);
+			return accessor.invoke(registry, value);
 		} catch (Exception e) {
 			throw new MethodExecutionException(registry.getClass(), "register", e.getCause());
 		}
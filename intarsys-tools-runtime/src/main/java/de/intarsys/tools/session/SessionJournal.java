@@ -0,0 +1,377 @@
+package de.intarsys.tools.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.intarsys.tools.yalf.api.ILogger;
+
+/**
+ * An append-only file of {@link ISession} registrations and attribute changes.
+ * <p>
+ * The file is memory mapped. An append writes the record behind the end
+ * position stored in the file header and then advances the end position. A
+ * partially written record is never visible. Appends are serialized by a lock
+ * on the file header, so processes on the same host may share a journal.
+ * Journals on the same file within a VM share a monitor that is held while
+ * locking the header, as a VM may hold only one lock on a file region.
+ * <p>
+ * Only attributes with a {@link String} key and a value of type
+ * {@link String}, {@link Boolean}, {@link Integer}, {@link Long},
+ * {@link Double} or byte[] are journaled, see
+ * {@link #isJournaled(Object, Object)}. The file size is limited to 2GB, use
+ * {@link #compact()} to remove obsolete records.
+ */
+public class SessionJournal implements Closeable {
+
+	public static final int MAGIC = 0x53455353;
+
+	public static final int VERSION = 1;
+
+	protected static final int HEADER_SIZE = 16;
+
+	protected static final int END_OFFSET = 8;
+
+	protected static final byte RECORD_REGISTER = 1;
+
+	protected static final byte RECORD_SET = 2;
+
+	protected static final byte RECORD_REMOVE = 3;
+
+	protected static final byte RECORD_UNREGISTER = 4;
+
+	protected static final byte VALUE_STRING = 1;
+
+	protected static final byte VALUE_BOOLEAN = 2;
+
+	protected static final byte VALUE_INTEGER = 3;
+
+	protected static final byte VALUE_LONG = 4;
+
+	protected static final byte VALUE_DOUBLE = 5;
+
+	protected static final byte VALUE_BYTES = 6;
+
+	private static final int MIN_MAPPING = 1 << 20;
+
+	private static final ILogger Log = PACKAGE.Log;
+
+	private static final Map<File, Object> Monitors = new ConcurrentHashMap<>();
+
+	/**
+	 * true if the attribute key/value is journaled.
+	 *
+	 * @param key
+	 * @param value
+	 * @return true if the attribute can be stored in a journal
+	 */
+	public static boolean isJournaled(Object key, Object value) {
+		if (!(key instanceof String)) {
+			return false;
+		}
+		return value instanceof String || value instanceof Boolean || value instanceof Integer
+				|| value instanceof Long || value instanceof Double || value instanceof byte[];
+	}
+
+	private final File file;
+
+	private final RandomAccessFile randomAccessFile;
+
+	private final FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	// shared by all journals on the canonical file in this VM
+	private final Object lock;
+
+	public SessionJournal(File file) throws IOException {
+		this.file = file;
+		this.lock = Monitors.computeIfAbsent(file.getCanonicalFile(), key -> new Object());
+		this.randomAccessFile = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		this.channel = randomAccessFile.getChannel();
+		synchronized (lock) {
+			try {
+				FileLock fileLock = channel.lock(0, HEADER_SIZE, false);
+				try {
+					boolean empty = channel.size() < HEADER_SIZE;
+					map(Math.max(channel.size(), MIN_MAPPING));
+					if (empty) {
+						buffer.putInt(0, MAGIC);
+						buffer.putInt(4, VERSION);
+						buffer.putLong(END_OFFSET, HEADER_SIZE);
+					} else {
+						if (buffer.getInt(0) != MAGIC) {
+							throw new IOException(file + " is not a session journal"); //$NON-NLS-1$
+						}
+						if (buffer.getInt(4) != VERSION) {
+							throw new IOException("unsupported session journal version " + buffer.getInt(4)); //$NON-NLS-1$
+						}
+					}
+				} finally {
+					fileLock.release();
+				}
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+	}
+
+	protected void append(byte[] record) throws IOException {
+		synchronized (lock) {
+			FileLock fileLock = channel.lock(0, HEADER_SIZE, false);
+			try {
+				long end = put(buffer.getLong(END_OFFSET), record);
+				buffer.putLong(END_OFFSET, end);
+			} finally {
+				fileLock.release();
+			}
+		}
+	}
+
+	protected Map<String, Map<String, Object>> basicRead() throws IOException {
+		long end = buffer.getLong(END_OFFSET);
+		ensureMapped(end);
+		Map<String, Map<String, Object>> sessions = new LinkedHashMap<>();
+		int position = HEADER_SIZE;
+		while (position < end) {
+			int length = buffer.getInt(position);
+			if (length <= 0 || position + 4L + length > end) {
+				Log.warn("{} corrupt at {}", file, position); //$NON-NLS-1$
+				break;
+			}
+			byte[] record = new byte[length];
+			buffer.get(position + 4, record);
+			position += 4 + length;
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+			byte type = in.readByte();
+			String id = in.readUTF();
+			if (type == RECORD_REGISTER) {
+				sessions.putIfAbsent(id, new LinkedHashMap<>());
+			} else if (type == RECORD_UNREGISTER) {
+				sessions.remove(id);
+			} else {
+				String key = in.readUTF();
+				Map<String, Object> attributes = sessions.get(id);
+				if (attributes == null) {
+					continue;
+				}
+				if (type == RECORD_SET) {
+					attributes.put(key, readValue(in));
+				} else {
+					attributes.remove(key);
+				}
+			}
+		}
+		return sessions;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (!channel.isOpen()) {
+				return;
+			}
+			buffer.force();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Rewrite the journal with the records of the live sessions only.
+	 * <p>
+	 * The records are rewritten in place, a crash while compacting may lose
+	 * the journal.
+	 *
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+		synchronized (lock) {
+			FileLock fileLock = channel.lock(0, HEADER_SIZE, false);
+			try {
+				Map<String, Map<String, Object>> sessions = basicRead();
+				long end = HEADER_SIZE;
+				for (Map.Entry<String, Map<String, Object>> session : sessions.entrySet()) {
+					end = put(end, createRecord(RECORD_REGISTER, session.getKey(), null, null));
+					for (Map.Entry<String, Object> attribute : session.getValue().entrySet()) {
+						end = put(end,
+								createRecord(RECORD_SET, session.getKey(), attribute.getKey(), attribute.getValue()));
+					}
+				}
+				buffer.putLong(END_OFFSET, end);
+				buffer.force();
+			} finally {
+				fileLock.release();
+			}
+		}
+	}
+
+	protected byte[] createRecord(byte type, String id, String key, Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(type);
+		out.writeUTF(id);
+		if (key != null) {
+			out.writeUTF(key);
+		}
+		if (type == RECORD_SET) {
+			writeValue(out, value);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	protected void ensureMapped(long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException(file + " exceeds maximum size"); //$NON-NLS-1$
+		}
+		if (buffer.capacity() < size) {
+			map(Math.min(Integer.MAX_VALUE, Math.max(size, buffer.capacity() * 2L)));
+		}
+	}
+
+	/**
+	 * Force the journal to the storage device.
+	 */
+	public void flush() {
+		synchronized (lock) {
+			buffer.force();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * The number of bytes used.
+	 *
+	 * @return The number of bytes used
+	 */
+	public long getSize() {
+		synchronized (lock) {
+			return buffer.getLong(END_OFFSET);
+		}
+	}
+
+	protected void map(long size) throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	protected long put(long position, byte[] record) throws IOException {
+		long newEnd = position + 4 + record.length;
+		ensureMapped(newEnd);
+		buffer.putInt((int) position, record.length);
+		buffer.put((int) position + 4, record);
+		return newEnd;
+	}
+
+	/**
+	 * The live sessions and their journaled attributes.
+	 *
+	 * @return The attributes by session id, in the order of registration
+	 * @throws IOException
+	 */
+	public Map<String, Map<String, Object>> read() throws IOException {
+		synchronized (lock) {
+			FileLock fileLock = channel.lock(0, HEADER_SIZE, false);
+			try {
+				return basicRead();
+			} finally {
+				fileLock.release();
+			}
+		}
+	}
+
+	protected byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	protected Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case VALUE_STRING:
+			return new String(readBytes(in), StandardCharsets.UTF_8);
+		case VALUE_BOOLEAN:
+			return in.readBoolean();
+		case VALUE_INTEGER:
+			return in.readInt();
+		case VALUE_LONG:
+			return in.readLong();
+		case VALUE_DOUBLE:
+			return in.readDouble();
+		case VALUE_BYTES:
+			return readBytes(in);
+		default:
+			throw new IOException("unknown value type " + type); //$NON-NLS-1$
+		}
+	}
+
+	public void register(String id) throws IOException {
+		append(createRecord(RECORD_REGISTER, id, null, null));
+	}
+
+	public void removeAttribute(String id, String key) throws IOException {
+		append(createRecord(RECORD_REMOVE, id, key, null));
+	}
+
+	/**
+	 * Journal an attribute. The value must be supported, see
+	 * {@link #isJournaled(Object, Object)}.
+	 *
+	 * @param id
+	 * @param key
+	 * @param value
+	 * @throws IOException
+	 */
+	public void setAttribute(String id, String key, Object value) throws IOException {
+		append(createRecord(RECORD_SET, id, key, value));
+	}
+
+	public void unregister(String id) throws IOException {
+		append(createRecord(RECORD_UNREGISTER, id, null, null));
+	}
+
+	protected void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	protected void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof String) {
+			out.writeByte(VALUE_STRING);
+			writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+		} else if (value instanceof Boolean) {
+			out.writeByte(VALUE_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(VALUE_INTEGER);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(VALUE_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(VALUE_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof byte[]) {
+			out.writeByte(VALUE_BYTES);
+			writeBytes(out, (byte[]) value);
+		} else {
+			throw new IOException("value not supported: " + value); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,434 @@
+package de.intarsys.tools.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import de.intarsys.tools.component.ExpirationWatchdog;
+import de.intarsys.tools.component.ExpirationWatchdog.IResourceHolder;
+import de.intarsys.tools.component.IExpirationSupport;
+import de.intarsys.tools.event.AttributeChangedEvent;
+import de.intarsys.tools.event.INotificationListener;
+import de.intarsys.tools.event.INotificationSupport;
+import de.intarsys.tools.yalf.api.ILogger;
+
+/**
+ * An {@link ISessionRegistry} with a hard limit on the number of sessions.
+ * <p>
+ * The sessions are distributed to shards by their id. Each shard holds its
+ * share of the limit and evicts its least recently used session when the share
+ * is exceeded. {@link #getSessions()} streams the shards without copying, the
+ * stream is weakly consistent.
+ * <p>
+ * Using {@link #openJournal(File)} the sessions and their attributes are
+ * recorded in a {@link SessionJournal} and restored when the journal is opened
+ * again. Attribute changes are recorded for sessions supporting
+ * {@link AttributeChangedEvent} notification (like {@link StandardSession})
+ * and only for the attributes supported by the journal. Sessions registered by
+ * other processes sharing the journal are available after {@link #restore()}.
+ * <p>
+ * A session is unregistered in the journal only by the registry that owns it.
+ * The registry owns the sessions it registered and the sessions it restored
+ * when opening the journal. Sessions picked up by a later {@link #restore()}
+ * remain owned by the process that registered them.
+ */
+public class ShardedSessionRegistry implements ISessionRegistry {
+
+	/**
+	 * A registered session in the LRU list of its shard.
+	 */
+	protected static class Node {
+
+		protected final ISession session;
+
+		protected Node previous;
+
+		protected Node next;
+
+		protected Node(ISession session) {
+			this.session = session;
+		}
+	}
+
+	/**
+	 * A partition of the registry with its own lock and LRU list.
+	 */
+	protected static class Shard {
+
+		protected final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+		protected final Object lock = new Object();
+
+		protected final int capacity;
+
+		/**
+		 * The most recently used node
+		 */
+		protected Node head;
+
+		/**
+		 * The least recently used node
+		 */
+		protected Node tail;
+
+		protected Shard(int capacity) {
+			this.capacity = capacity;
+		}
+
+		protected void link(Node node) {
+			node.previous = null;
+			node.next = head;
+			if (head != null) {
+				head.previous = node;
+			}
+			head = node;
+			if (tail == null) {
+				tail = node;
+			}
+		}
+
+		protected void unlink(Node node) {
+			if (node.previous == null) {
+				head = node.next;
+			} else {
+				node.previous.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.previous;
+			} else {
+				node.next.previous = node.previous;
+			}
+			node.previous = null;
+			node.next = null;
+		}
+	}
+
+	public static final int DEFAULT_MAX_SESSIONS = 100000;
+
+	public static final int DEFAULT_SHARDS = 16;
+
+	private static final ILogger Log = PACKAGE.Log;
+
+	private final Shard[] shards;
+
+	private final int maxSessions;
+
+	private final AtomicLong evictedCount = new AtomicLong();
+
+	private volatile SessionJournal journal;
+
+	/**
+	 * The ids of the restored sessions owned by other processes
+	 */
+	private final Set<String> foreign = ConcurrentHashMap.newKeySet();
+
+	private final INotificationListener<AttributeChangedEvent> listenAttributeChanged = this::onAttributeChanged;
+
+	private final ExpirationWatchdog watchdog = new ExpirationWatchdog(new IResourceHolder() {
+		@Override
+		public void expire(IExpirationSupport resource) {
+			unregister((ISession) resource);
+		}
+
+		@Override
+		public int getResourceCount() {
+			return size();
+		}
+
+		@Override
+		public List<IExpirationSupport> getResources() {
+			return getSessions().collect(Collectors.toList());
+		}
+	});
+
+	public ShardedSessionRegistry() {
+		this(DEFAULT_MAX_SESSIONS, DEFAULT_SHARDS);
+	}
+
+	/**
+	 * A registry for at most maxSessions sessions, distributed to about
+	 * shardCount shards.
+	 *
+	 * @param maxSessions
+	 * @param shardCount
+	 */
+	public ShardedSessionRegistry(int maxSessions, int shardCount) {
+		if (maxSessions <= 0) {
+			throw new IllegalArgumentException("maxSessions must be positive"); //$NON-NLS-1$
+		}
+		this.maxSessions = maxSessions;
+		// a power of two, not more shards than sessions
+		int count = Integer.highestOneBit(Math.max(1, Math.min(shardCount, maxSessions)));
+		this.shards = new Shard[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new Shard(maxSessions / count + (i < maxSessions % count ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Close the journal opened with {@link #openJournal(File)}. The sessions
+	 * remain registered.
+	 *
+	 * @throws IOException
+	 */
+	public void closeJournal() throws IOException {
+		SessionJournal tempJournal = journal;
+		if (tempJournal == null) {
+			return;
+		}
+		journal = null;
+		foreign.clear();
+		tempJournal.close();
+	}
+
+	/**
+	 * Create a session restored from the journal.
+	 *
+	 * @param id
+	 * @return The new session
+	 */
+	protected ISession createSession(String id) {
+		return new StandardSession(id);
+	}
+
+	protected void detach(ISession session) {
+		watchdog.cancel(session);
+		if (session instanceof INotificationSupport) {
+			((INotificationSupport) session).removeNotificationListener(AttributeChangedEvent.ID,
+					listenAttributeChanged);
+		}
+		SessionJournal tempJournal = journal;
+		if (tempJournal != null && !foreign.remove(session.getId())) {
+			try {
+				tempJournal.unregister(session.getId());
+			} catch (IOException | RuntimeException e) {
+				Log.warn("{} journal unregister {} failed", this, session, e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * The number of sessions evicted to keep the limit.
+	 *
+	 * @return The number of evicted sessions
+	 */
+	public long getEvictedCount() {
+		return evictedCount.get();
+	}
+
+	/**
+	 * The {@link ExpirationWatchdog} expiring the sessions.
+	 *
+	 * @return The watchdog
+	 */
+	public ExpirationWatchdog getExpirationWatchdog() {
+		return watchdog;
+	}
+
+	public SessionJournal getJournal() {
+		return journal;
+	}
+
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	@Override
+	public Stream<ISession> getSessions() {
+		return Arrays.stream(shards).flatMap(shard -> shard.nodes.values().stream()).map(node -> node.session);
+	}
+
+	protected Shard getShard(String id) {
+		int hash = id.hashCode();
+		return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+	}
+
+	@Override
+	public ISession lookup(String id) {
+		Shard shard = getShard(id);
+		Node node = shard.nodes.get(id);
+		if (node == null || node.session.isExpired()) {
+			throw new SessionExpired("" + id + " expired");
+		}
+		synchronized (shard.lock) {
+			if (shard.nodes.get(id) == node) {
+				shard.unlink(node);
+				shard.link(node);
+			}
+		}
+		ISession result = node.session;
+		result.touch();
+		watchdog.touch(result);
+		return result;
+	}
+
+	protected void onAttributeChanged(AttributeChangedEvent event) {
+		SessionJournal tempJournal = journal;
+		if (tempJournal == null || !(event.getAttribute() instanceof String)) {
+			return;
+		}
+		ISession session = (ISession) event.getSource();
+		String key = (String) event.getAttribute();
+		Object value = event.getNewValue();
+		try {
+			if (SessionJournal.isJournaled(key, value)) {
+				tempJournal.setAttribute(session.getId(), key, value);
+			} else if (SessionJournal.isJournaled(key, event.getOldValue())) {
+				// do not restore a stale value
+				tempJournal.removeAttribute(session.getId(), key);
+			}
+		} catch (IOException | RuntimeException e) {
+			Log.warn("{} journal attribute {} of {} failed", this, key, session, e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Record the sessions in the journal file and restore the sessions
+	 * recorded earlier. The journal is compacted before.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void openJournal(File file) throws IOException {
+		closeJournal();
+		SessionJournal tempJournal = new SessionJournal(file);
+		tempJournal.compact();
+		journal = tempJournal;
+		restore(true);
+	}
+
+	@Override
+	public void register(ISession session) {
+		// a session registered here is owned by this registry
+		foreign.remove(session.getId());
+		Shard shard = getShard(session.getId());
+		Node node = new Node(session);
+		Node previous;
+		Node evicted = null;
+		synchronized (shard.lock) {
+			previous = shard.nodes.put(session.getId(), node);
+			if (previous != null) {
+				shard.unlink(previous);
+			}
+			shard.link(node);
+			if (shard.nodes.size() > shard.capacity) {
+				evicted = shard.tail;
+				shard.unlink(evicted);
+				shard.nodes.remove(evicted.session.getId());
+			}
+		}
+		if (previous != null && previous.session != session) {
+			detach(previous.session);
+		}
+		SessionJournal tempJournal = journal;
+		if (tempJournal != null) {
+			try {
+				tempJournal.register(session.getId());
+			} catch (IOException | RuntimeException e) {
+				Log.warn("{} journal register {} failed", this, session, e); //$NON-NLS-1$
+			}
+		}
+		if (session instanceof INotificationSupport && (previous == null || previous.session != session)) {
+			((INotificationSupport) session).addNotificationListener(AttributeChangedEvent.ID, listenAttributeChanged);
+		}
+		session.touch();
+		watchdog.schedule(session);
+		Log.debug("{} registered {}", this, session);
+		if (evicted != null) {
+			evictedCount.incrementAndGet();
+			detach(evicted.session);
+			evicted.session.dispose();
+			Log.debug("{} evicted {}", this, evicted.session);
+		}
+	}
+
+	/**
+	 * Register the sessions recorded in the journal that are not yet
+	 * registered. These sessions remain owned by the process that registered
+	 * them and are not unregistered in the journal by this registry.
+	 *
+	 * @throws IOException
+	 */
+	public void restore() throws IOException {
+		restore(false);
+	}
+
+	/**
+	 * Register the sessions recorded in the journal that are not yet
+	 * registered.
+	 *
+	 * @param adopt
+	 *            true if this registry takes ownership of the restored
+	 *            sessions
+	 * @throws IOException
+	 */
+	protected void restore(boolean adopt) throws IOException {
+		SessionJournal tempJournal = journal;
+		if (tempJournal == null) {
+			return;
+		}
+		for (Map.Entry<String, Map<String, Object>> entry : tempJournal.read().entrySet()) {
+			String id = entry.getKey();
+			if (getShard(id).nodes.containsKey(id)) {
+				continue;
+			}
+			ISession session = createSession(id);
+			for (Map.Entry<String, Object> attribute : entry.getValue().entrySet()) {
+				session.setAttribute(attribute.getKey(), attribute.getValue());
+			}
+			register(session);
+			if (!adopt) {
+				foreign.add(id);
+			}
+			Log.debug("{} restored {}", this, session);
+		}
+	}
+
+	public void setCleanupInterval(long cleanupInterval) {
+		watchdog.setCleanupInterval(cleanupInterval);
+	}
+
+	/**
+	 * The number of registered sessions.
+	 *
+	 * @return The number of registered sessions
+	 */
+	public int size() {
+		int size = 0;
+		for (Shard shard : shards) {
+			size += shard.nodes.size();
+		}
+		return size;
+	}
+
+	@Override
+	public void unregister(ISession session) {
+		Shard shard = getShard(session.getId());
+		boolean removed = false;
+		synchronized (shard.lock) {
+			Node node = shard.nodes.get(session.getId());
+			if (node != null && node.session == session) {
+				shard.unlink(node);
+				shard.nodes.remove(session.getId());
+				removed = true;
+			}
+		}
+		if (removed) {
+			detach(session);
+		}
+		session.dispose();
+		Log.debug("{} unregistered {}", this, session);
+	}
+
+}
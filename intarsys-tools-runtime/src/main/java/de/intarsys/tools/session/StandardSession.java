@@ -11,6 +11,7 @@ import de.intarsys.tools.event.Event;
 import de.intarsys.tools.event.EventDispatcher;
 import de.intarsys.tools.event.EventType;
 import de.intarsys.tools.event.INotificationListener;
+import de.intarsys.tools.event.INotificationSupport;
 import de.intarsys.tools.oid.IOIDGenerator;
 import de.intarsys.tools.oid.UUIDGenerator;
 import de.intarsys.tools.string.StringTools;
@@ -19,9 +20,11 @@ import de.intarsys.tools.yalf.api.Level;
 
 /**
  * A simple default implementation for {@link ISession}.
+ * <p>
+ * Attribute changes are published as {@link AttributeChangedEvent}.
  *
  */
-public class StandardSession implements ISession {
+public class StandardSession implements ISession, INotificationSupport {
 
 	private static final int DEFAULT_EXPIRE_AFTER = 1000 * 60 * 5;
 
@@ -69,7 +72,9 @@ public class StandardSession implements ISession {
 		setExpiration(getDefaultExpiration());
 	}
 
-	public void addNotificationListener(EventType type, INotificationListener listener) {
+	@Override
+	public <T extends Event> void addNotificationListener(EventType<? extends T> type,
+			INotificationListener<T> listener) {
 		if (isDisposed()) {
 			return;
 		}
@@ -114,6 +119,14 @@ public class StandardSession implements ISession {
 		return expiration;
 	}
 
+	@Override
+	public long getExpirationTime() {
+		if (isDisposed()) {
+			return 0;
+		}
+		return getExpiration().getExpirationTime();
+	}
+
 	@Override
 	public String getId() {
 		return id;
@@ -154,10 +167,16 @@ public class StandardSession implements ISession {
 
 	@Override
 	public Object removeAttribute(Object key) {
-		return attributes.removeAttribute(key);
+		Object oldValue = attributes.removeAttribute(key);
+		if (oldValue != null && dispatcher.hasListener()) {
+			triggerChanged(key, oldValue, null);
+		}
+		return oldValue;
 	}
 
-	public void removeNotificationListener(EventType type, INotificationListener listener) {
+	@Override
+	public <T extends Event> void removeNotificationListener(EventType<? extends T> type,
+			INotificationListener<T> listener) {
 		dispatcher.removeNotificationListener(type, listener);
 	}
 
@@ -166,7 +185,11 @@ public class StandardSession implements ISession {
 		if (isDisposed()) {
 			return null;
 		}
-		return attributes.setAttribute(key, value);
+		Object oldValue = attributes.setAttribute(key, value);
+		if (dispatcher.hasListener()) {
+			triggerChanged(key, oldValue, value);
+		}
+		return oldValue;
 	}
 
 	public void setExpiration(ExpirationPredicate expiration) {
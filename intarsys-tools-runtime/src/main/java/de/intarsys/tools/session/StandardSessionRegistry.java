@@ -34,9 +34,18 @@ public class StandardSessionRegistry implements ISessionRegistry {
 
 	private final Map<String, ISession> sessions = new ConcurrentHashMap<>();
 
+	/**
+	 * The {@link ExpirationWatchdog} expiring the sessions.
+	 *
+	 * @return The watchdog
+	 */
+	public ExpirationWatchdog getExpirationWatchdog() {
+		return watchdog;
+	}
+
 	@Override
 	public Stream<ISession> getSessions() {
-		return new ArrayList<ISession>(sessions.values()).stream();
+		return sessions.values().stream();
 	}
 
 	@Override
@@ -46,14 +55,18 @@ public class StandardSessionRegistry implements ISessionRegistry {
 			throw new SessionExpired("" + id + " expired");
 		}
 		result.touch();
+		watchdog.touch(result);
 		return result;
 	}
 
 	@Override
 	public void register(ISession session) {
-		sessions.put(session.getId(), session);
-		watchdog.wake();
+		ISession previous = sessions.put(session.getId(), session);
+		if (previous != null && previous != session) {
+			watchdog.cancel(previous);
+		}
 		session.touch();
+		watchdog.schedule(session);
 		Log.debug("{} registered {}", this, session);
 	}
 
@@ -64,6 +77,7 @@ public class StandardSessionRegistry implements ISessionRegistry {
 	@Override
 	public void unregister(ISession session) {
 		sessions.remove(session.getId());
+		watchdog.cancel(session);
 		session.dispose();
 		Log.debug("{} unregistered {}", this, session);
 	}
@@ -34,6 +34,10 @@ import java.util.List;
 /**
  * A logger abstraction.
  * 
+ * The message is formatted only if the {@link Level} is loggable. Use the fixed
+ * arity variants for up to four arguments to avoid the varargs array
+ * allocation when not.
+ * 
  */
 public interface ILogger {
 
@@ -41,6 +45,30 @@ public interface ILogger {
 
 	public void debug(String msg, Object... arg);
 
+	public default void debug(String msg, Object arg1) {
+		if (isLoggable(Level.DEBUG)) {
+			debug(msg, new Object[] { arg1 });
+		}
+	}
+
+	public default void debug(String msg, Object arg1, Object arg2) {
+		if (isLoggable(Level.DEBUG)) {
+			debug(msg, new Object[] { arg1, arg2 });
+		}
+	}
+
+	public default void debug(String msg, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(Level.DEBUG)) {
+			debug(msg, new Object[] { arg1, arg2, arg3 });
+		}
+	}
+
+	public default void debug(String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(Level.DEBUG)) {
+			debug(msg, new Object[] { arg1, arg2, arg3, arg4 });
+		}
+	}
+
 	public List<IHandler> getHandlers();
 
 	public Level getLevel();
@@ -49,10 +77,58 @@ public interface ILogger {
 
 	public void info(String msg, Object... arg);
 
+	public default void info(String msg, Object arg1) {
+		if (isLoggable(Level.INFO)) {
+			info(msg, new Object[] { arg1 });
+		}
+	}
+
+	public default void info(String msg, Object arg1, Object arg2) {
+		if (isLoggable(Level.INFO)) {
+			info(msg, new Object[] { arg1, arg2 });
+		}
+	}
+
+	public default void info(String msg, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(Level.INFO)) {
+			info(msg, new Object[] { arg1, arg2, arg3 });
+		}
+	}
+
+	public default void info(String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(Level.INFO)) {
+			info(msg, new Object[] { arg1, arg2, arg3, arg4 });
+		}
+	}
+
 	public boolean isLoggable(Level level);
 
 	public void log(Level level, String msg, Object... arg);
 
+	public default void log(Level level, String msg, Object arg1) {
+		if (isLoggable(level)) {
+			log(level, msg, new Object[] { arg1 });
+		}
+	}
+
+	public default void log(Level level, String msg, Object arg1, Object arg2) {
+		if (isLoggable(level)) {
+			log(level, msg, new Object[] { arg1, arg2 });
+		}
+	}
+
+	public default void log(Level level, String msg, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(level)) {
+			log(level, msg, new Object[] { arg1, arg2, arg3 });
+		}
+	}
+
+	public default void log(Level level, String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(level)) {
+			log(level, msg, new Object[] { arg1, arg2, arg3, arg4 });
+		}
+	}
+
 	public void log(Object event);
 
 	public void removeHandler(IHandler handler);
@@ -61,8 +137,80 @@ public interface ILogger {
 
 	public void severe(String msg, Object... arg);
 
+	public default void severe(String msg, Object arg1) {
+		if (isLoggable(Level.SEVERE)) {
+			severe(msg, new Object[] { arg1 });
+		}
+	}
+
+	public default void severe(String msg, Object arg1, Object arg2) {
+		if (isLoggable(Level.SEVERE)) {
+			severe(msg, new Object[] { arg1, arg2 });
+		}
+	}
+
+	public default void severe(String msg, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(Level.SEVERE)) {
+			severe(msg, new Object[] { arg1, arg2, arg3 });
+		}
+	}
+
+	public default void severe(String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(Level.SEVERE)) {
+			severe(msg, new Object[] { arg1, arg2, arg3, arg4 });
+		}
+	}
+
 	public void trace(String msg, Object... arg);
 
+	public default void trace(String msg, Object arg1) {
+		if (isLoggable(Level.TRACE)) {
+			trace(msg, new Object[] { arg1 });
+		}
+	}
+
+	public default void trace(String msg, Object arg1, Object arg2) {
+		if (isLoggable(Level.TRACE)) {
+			trace(msg, new Object[] { arg1, arg2 });
+		}
+	}
+
+	public default void trace(String msg, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(Level.TRACE)) {
+			trace(msg, new Object[] { arg1, arg2, arg3 });
+		}
+	}
+
+	public default void trace(String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(Level.TRACE)) {
+			trace(msg, new Object[] { arg1, arg2, arg3, arg4 });
+		}
+	}
+
 	public void warn(String msg, Object... arg);
 
+	public default void warn(String msg, Object arg1) {
+		if (isLoggable(Level.WARN)) {
+			warn(msg, new Object[] { arg1 });
+		}
+	}
+
+	public default void warn(String msg, Object arg1, Object arg2) {
+		if (isLoggable(Level.WARN)) {
+			warn(msg, new Object[] { arg1, arg2 });
+		}
+	}
+
+	public default void warn(String msg, Object arg1, Object arg2, Object arg3) {
+		if (isLoggable(Level.WARN)) {
+			warn(msg, new Object[] { arg1, arg2, arg3 });
+		}
+	}
+
+	public default void warn(String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+		if (isLoggable(Level.WARN)) {
+			warn(msg, new Object[] { arg1, arg2, arg3, arg4 });
+		}
+	}
+
 }
@@ -37,6 +37,8 @@ import de.intarsys.tools.yalf.api.ILogger;
  */
 public abstract class CommonLogger implements ILogger {
 
+	private static final Object[] NO_ARGS = new Object[0];
+
 	protected CommonLogger() {
 		super();
 	}
@@ -66,7 +68,7 @@ public abstract class CommonLogger implements ILogger {
 	 * @param msg
 	 */
 	public void debug(String msg) {
-		debug(msg, new Object[0]);
+		debug(msg, NO_ARGS);
 	}
 
 	/**
@@ -151,7 +153,7 @@ public abstract class CommonLogger implements ILogger {
 	 * @param msg
 	 */
 	public void info(String msg) {
-		info(msg, new Object[0]);
+		info(msg, NO_ARGS);
 	}
 
 	/**
@@ -160,7 +162,7 @@ public abstract class CommonLogger implements ILogger {
 	 * @param msg
 	 */
 	public void severe(String msg) {
-		severe(msg, new Object[0]);
+		severe(msg, NO_ARGS);
 	}
 
 	/**
@@ -169,7 +171,7 @@ public abstract class CommonLogger implements ILogger {
 	 * @param msg
 	 */
 	public void trace(String msg) {
-		trace(msg, new Object[0]);
+		trace(msg, NO_ARGS);
 	}
 
 	/**
@@ -178,7 +180,7 @@ public abstract class CommonLogger implements ILogger {
 	 * @param msg
 	 */
 	public void warn(String msg) {
-		warn(msg, new Object[0]);
+		warn(msg, NO_ARGS);
 	}
 
 	/**
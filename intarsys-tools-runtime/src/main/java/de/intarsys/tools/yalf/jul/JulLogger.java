@@ -98,6 +98,9 @@ public class JulLogger extends CommonLogger {
 
 	@Override
 	public void debug(String pattern, Object... arg) {
+		if (!isLoggable(Level.DEBUG)) {
+			return;
+		}
 		LogTuple ft = Format.log(pattern, arg);
 		logger.log(java.util.logging.Level.FINE, ft.getMessage(), ft.getThrowable());
 	}
@@ -131,6 +134,9 @@ public class JulLogger extends CommonLogger {
 
 	@Override
 	public void info(String pattern, Object... arg) {
+		if (!isLoggable(Level.INFO)) {
+			return;
+		}
 		LogTuple ft = Format.log(pattern, arg);
 		logger.log(java.util.logging.Level.INFO, ft.getMessage(), ft.getThrowable());
 	}
@@ -143,6 +149,9 @@ public class JulLogger extends CommonLogger {
 
 	@Override
 	public void log(Level level, String pattern, Object... arg) {
+		if (!isLoggable(level)) {
+			return;
+		}
 		LogTuple ft = Format.log(pattern, arg);
 		logger.log(JulProvider.toLevelJul(level), ft.getMessage(), ft.getThrowable());
 	}
@@ -172,18 +181,27 @@ public class JulLogger extends CommonLogger {
 
 	@Override
 	public void severe(String pattern, Object... arg) {
+		if (!isLoggable(Level.SEVERE)) {
+			return;
+		}
 		LogTuple ft = Format.log(pattern, arg);
 		logger.log(java.util.logging.Level.SEVERE, ft.getMessage(), ft.getThrowable());
 	}
 
 	@Override
 	public void trace(String pattern, Object... arg) {
+		if (!isLoggable(Level.TRACE)) {
+			return;
+		}
 		LogTuple ft = Format.log(pattern, arg);
 		logger.log(java.util.logging.Level.FINEST, ft.getMessage(), ft.getThrowable());
 	}
 
 	@Override
 	public void warn(String pattern, Object... arg) {
+		if (!isLoggable(Level.WARN)) {
+			return;
+		}
 		LogTuple ft = Format.log(pattern, arg);
 		logger.log(java.util.logging.Level.WARNING, ft.getMessage(), ft.getThrowable());
 	}
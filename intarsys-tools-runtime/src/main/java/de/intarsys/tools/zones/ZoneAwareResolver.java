@@ -1,6 +1,7 @@
 package de.intarsys.tools.zones;
 
 import de.intarsys.tools.expression.EvaluationException;
+import de.intarsys.tools.expression.INamespaceAware;
 import de.intarsys.tools.expression.IStringEvaluator;
 import de.intarsys.tools.expression.NamespaceNotFound;
 import de.intarsys.tools.expression.ScopedResolver;
@@ -11,7 +12,7 @@ import de.intarsys.tools.functor.IArgs;
  * {@link IZone}.
  * 
  */
-public class ZoneAwareResolver implements IStringEvaluator {
+public class ZoneAwareResolver implements IStringEvaluator, INamespaceAware {
 
 	private static final ZoneLocal<ScopedResolver> RESOLVER = new ZoneLocal<>();
 
@@ -41,4 +42,10 @@ public class ZoneAwareResolver implements IStringEvaluator {
 		return tempResolver.evaluate(expression, args);
 	}
 
+	@Override
+	public boolean isNamespaceAvailable(String expression) {
+		ScopedResolver tempResolver = RESOLVER.get();
+		return tempResolver != null && tempResolver.isNamespaceAvailable(expression);
+	}
+
 }
@@ -0,0 +1,179 @@
+package de.intarsys.tools.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.intarsys.tools.cache.TestCache.SynchedObject;
+
+@SuppressWarnings({ "MagicNumber", "MultipleStringLiterals" })
+public class TestConcurrentCache {
+
+	protected static class ManualClockCache<T> extends ConcurrentCache<T> {
+
+		private long now;
+
+		public ManualClockCache(long maxWeight) {
+			super(maxWeight);
+		}
+
+		public void advance(long millis) {
+			now += TimeUnit.MILLISECONDS.toNanos(millis);
+		}
+
+		@Override
+		protected long now() {
+			return now;
+		}
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		ConcurrentCache<Integer> cache = new ConcurrentCache<>(1000, 8);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			int offset = t * 500;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					Integer key = offset + (i % 500);
+					if (cache.get(key) == null) {
+						cache.put(key, key);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(cache.size() <= 1000);
+		assertEquals(cache.size(), cache.getWeight());
+		assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+	}
+
+	@Test
+	public void testExpireAfterAccess() {
+		ManualClockCache<String> cache = new ManualClockCache<>(10);
+		cache.setExpireAfterAccess(100, TimeUnit.MILLISECONDS);
+		cache.put("1", "test1");
+		cache.advance(60);
+		assertEquals("test1", cache.get("1"));
+		cache.advance(60);
+		assertEquals("test1", cache.get("1"));
+		cache.advance(100);
+		assertNull(cache.get("1"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getExpirationCount());
+	}
+
+	@Test
+	public void testExpireAfterWrite() {
+		ManualClockCache<String> cache = new ManualClockCache<>(10);
+		cache.setExpireAfterWrite(100, TimeUnit.MILLISECONDS);
+		cache.put("1", "test1");
+		cache.advance(60);
+		assertEquals("test1", cache.get("1"));
+		cache.put("2", "test2");
+		cache.advance(60);
+		assertNull(cache.get("1"));
+		assertEquals("test2", cache.get("2"));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getExpirationCount());
+		cache.advance(100);
+		cache.put("3", "test3");
+		assertNull(cache.get("2"));
+		assertEquals(2, cache.getExpirationCount());
+	}
+
+	@Test
+	public void testLRU() {
+		ConcurrentCache<String> cache = new ConcurrentCache<>(3);
+		cache.put("1", "test1");
+		cache.put("2", "test2");
+		cache.put("3", "test3");
+		assertEquals("test1", cache.get("1"));
+		cache.put("4", "test4");
+		assertEquals("test3", cache.get("3"));
+		cache.put("5", "test5");
+		assertEquals(3, cache.size());
+		assertNull(cache.get("1"));
+		assertNull(cache.get("2"));
+		assertEquals("test3", cache.get("3"));
+		assertEquals("test4", cache.get("4"));
+		assertEquals("test5", cache.get("5"));
+		assertEquals(2, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testNull() {
+		ConcurrentCache<String> cache = new ConcurrentCache<>(3);
+		cache.put(null, "test1");
+		assertEquals("test1", cache.get(null));
+		cache.put("1", null);
+		assertEquals(2, cache.size());
+		cache.remove(null);
+		assertNull(cache.get(null));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testRemove() {
+		ConcurrentCache<String> cache = new ConcurrentCache<>(3);
+		cache.remove("test");
+		assertEquals(0, cache.size());
+		cache.put("1", "test1");
+		assertEquals("test1", cache.get("1"));
+		cache.remove("1");
+		assertNull(cache.get("1"));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void testStatistics() {
+		ConcurrentCache<String> cache = new ConcurrentCache<>(3);
+		cache.put("1", "test1");
+		cache.get("1");
+		cache.get("1");
+		cache.get("2");
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2.0 / 3.0, cache.getHitRatio(), 0.0001);
+		cache.resetStatistics();
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testSynchronizable() {
+		ConcurrentCache<Object> cache = new ConcurrentCache<>(3);
+		Object value1 = new SynchedObject(false);
+		Object value2 = new SynchedObject(true);
+		cache.put("1", value1);
+		assertSame(value1, cache.get("1"));
+		cache.put("2", value2);
+		assertEquals(2, cache.size());
+		assertNull(cache.get("2"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testWeight() {
+		ConcurrentCache<String> cache = new ConcurrentCache<>(10);
+		cache.setWeigher((key, value) -> value.length());
+		cache.put("1", "aaaa");
+		cache.put("2", "bbbb");
+		assertEquals(8, cache.getWeight());
+		cache.put("3", "cccc");
+		assertNull(cache.get("1"));
+		assertEquals(8, cache.getWeight());
+		// too heavy, not cached at all
+		cache.put("4", "ddddddddddddddd");
+		assertNull(cache.get("4"));
+		assertEquals("bbbb", cache.get("2"));
+	}
+}
@@ -0,0 +1,168 @@
+package de.intarsys.tools.component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import de.intarsys.tools.component.ExpirationWatchdog.IResourceHolder;
+import junit.framework.TestCase;
+
+public class TestExpirationWatchdog extends TestCase {
+
+	static class Holder implements IResourceHolder {
+
+		final List<IExpirationSupport> resources = new ArrayList<>();
+
+		final List<IExpirationSupport> expired = new ArrayList<>();
+
+		@Override
+		public void expire(IExpirationSupport resource) {
+			resources.remove(resource);
+			expired.add(resource);
+		}
+
+		@Override
+		public int getResourceCount() {
+			return resources.size();
+		}
+
+		@Override
+		public List<IExpirationSupport> getResources() {
+			return new ArrayList<>(resources);
+		}
+	}
+
+	static class Polled implements IExpirationSupport {
+
+		boolean expired;
+
+		@Override
+		public boolean isExpired() {
+			return expired;
+		}
+
+		@Override
+		public void touch() {
+		}
+	}
+
+	protected ExpirationWatchdog createWatchdog(Holder holder) {
+		ExpirationWatchdog watchdog = new ExpirationWatchdog(holder) {
+			@Override
+			protected void start() {
+				// cleanup is driven by the test
+			}
+		};
+		watchdog.setCleanupInterval(10);
+		return watchdog;
+	}
+
+	public void testExpirationTime() {
+		ExpireTimeout timeout = new ExpireTimeout(100);
+		assertEquals(timeout.getTouched() + 100, timeout.getExpirationTime());
+		assertEquals(IExpirationSupport.EXPIRES_NEVER, new ExpireTimeout(0).getExpirationTime());
+		assertEquals(500, new ExpireAt(500).getExpirationTime());
+		ExpireUsage usage = new ExpireUsage(1);
+		assertEquals(IExpirationSupport.EXPIRES_NEVER, usage.getExpirationTime());
+		usage.touch();
+		assertEquals(0, usage.getExpirationTime());
+		assertEquals(500, new ExpireOr(new ExpireAt(500), new ExpireNever()).getExpirationTime());
+		assertEquals(IExpirationSupport.EXPIRES_NEVER,
+				new ExpireAnd(new ExpireAt(500), new ExpireNever()).getExpirationTime());
+		assertEquals(IExpirationSupport.EXPIRES_UNKNOWN,
+				new ExpireOr(new ExpireAt(500), new ExpirationPredicate() {
+					@Override
+					public ExpirationPredicate copy() {
+						return this;
+					}
+
+					@Override
+					public String getType() {
+						return "test"; //$NON-NLS-1$
+					}
+
+					@Override
+					public long getValue() {
+						return 0;
+					}
+
+					@Override
+					public boolean isExpired() {
+						return false;
+					}
+
+					@Override
+					protected void toString(StringBuilder sb) {
+					}
+
+					@Override
+					public void touch() {
+					}
+				}).getExpirationTime());
+	}
+
+	public void testPolled() {
+		Holder holder = new Holder();
+		ExpirationWatchdog watchdog = createWatchdog(holder);
+		Polled polled = new Polled();
+		Polled unscheduled = new Polled();
+		holder.resources.add(polled);
+		holder.resources.add(unscheduled);
+		watchdog.schedule(polled);
+		watchdog.cleanup();
+		assertEquals(2, watchdog.getExaminedCount());
+		polled.expired = true;
+		unscheduled.expired = true;
+		watchdog.cleanup();
+		assertEquals(2, holder.expired.size());
+		assertEquals(0, watchdog.getScheduledCount());
+	}
+
+	public void testScheduled() throws Exception {
+		Holder holder = new Holder();
+		ExpirationWatchdog watchdog = createWatchdog(holder);
+		List<IExpirationSupport> idle = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			IExpirationSupport resource = new ExpireTimeout(i < 10 ? 20 : 100000);
+			holder.resources.add(resource);
+			watchdog.schedule(resource);
+			if (i < 10) {
+				idle.add(resource);
+			}
+		}
+		ExpireUsage usage = new ExpireUsage(2);
+		holder.resources.add(usage);
+		watchdog.schedule(usage);
+		watchdog.cleanup();
+		assertEquals(0, watchdog.getExaminedCount());
+		Thread.sleep(50);
+		watchdog.cleanup();
+		// only the due resources are examined
+		assertEquals(10, watchdog.getExaminedCount());
+		assertEquals(new HashSet<>(idle), new HashSet<>(holder.expired));
+		assertTrue(watchdog.getExpiryLagMax() >= 0);
+		// usage expires upon touch
+		usage.touch();
+		watchdog.touch(usage);
+		usage.touch();
+		watchdog.touch(usage);
+		Thread.sleep(20);
+		watchdog.cleanup();
+		assertEquals(11, holder.expired.size());
+		assertSame(usage, holder.expired.get(10));
+		assertEquals(11, watchdog.getExpiredCount());
+		assertEquals(90, watchdog.getScheduledCount());
+		// a touch postpones expiration
+		ExpireTimeout timeout = new ExpireTimeout(300);
+		holder.resources.add(timeout);
+		watchdog.schedule(timeout);
+		Thread.sleep(200);
+		timeout.touch();
+		watchdog.touch(timeout);
+		Thread.sleep(200);
+		watchdog.cleanup();
+		assertEquals(11, holder.expired.size());
+		assertTrue(watchdog.cancel(timeout));
+		assertFalse(watchdog.cancel(timeout));
+	}
+}
@@ -0,0 +1,86 @@
+package de.intarsys.tools.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.intarsys.tools.component.TimingWheel.Entry;
+import junit.framework.TestCase;
+
+public class TestTimingWheel extends TestCase {
+
+	public void testAdvance() {
+		TimingWheel<String> wheel = new TimingWheel<>(10, 1000);
+		Entry<String> a = new Entry<>("a"); //$NON-NLS-1$
+		Entry<String> b = new Entry<>("b"); //$NON-NLS-1$
+		wheel.schedule(a, 1025);
+		wheel.schedule(b, 1030);
+		assertEquals(2, wheel.size());
+		List<Entry<String>> due = new ArrayList<>();
+		wheel.advance(1029, due);
+		assertTrue(due.isEmpty());
+		wheel.advance(1030, due);
+		assertEquals(2, due.size());
+		assertFalse(a.isScheduled());
+		assertEquals(0, wheel.size());
+		// past deadlines are due with the next tick
+		due.clear();
+		wheel.schedule(a, 0);
+		wheel.advance(1030, due);
+		assertTrue(due.isEmpty());
+		wheel.advance(1040, due);
+		assertEquals(1, due.size());
+	}
+
+	public void testRandom() {
+		long tick = 5;
+		long start = 1_000_000;
+		TimingWheel<Integer> wheel = new TimingWheel<>(tick, start);
+		Random random = new Random(42);
+		List<Entry<Integer>> entries = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Entry<Integer> entry = new Entry<>(i);
+			// cover all levels and beyond
+			long deadline = start + 1 + (long) (Math.pow(random.nextDouble(), 4) * tick * (1L << 26));
+			wheel.schedule(entry, deadline);
+			entries.add(entry);
+		}
+		for (int i = 0; i < entries.size(); i += 3) {
+			assertTrue(wheel.remove(entries.get(i)));
+		}
+		List<Entry<Integer>> due = new ArrayList<>();
+		long now = start;
+		int count = 0;
+		while (wheel.size() > 0) {
+			now += tick * (1 + random.nextInt(1000));
+			due.clear();
+			wheel.advance(now, due);
+			for (Entry<Integer> entry : due) {
+				assertTrue(entry.getDeadline() <= now);
+				// not later than one advance
+				assertTrue(entry.getDeadline() > now - tick * 1001);
+				assertTrue(entry.getItem() % 3 != 0);
+				count++;
+			}
+		}
+		assertEquals(entries.size() - (entries.size() + 2) / 3, count);
+	}
+
+	public void testReschedule() {
+		TimingWheel<String> wheel = new TimingWheel<>(10, 0);
+		Entry<String> a = new Entry<>("a"); //$NON-NLS-1$
+		wheel.schedule(a, 100);
+		wheel.schedule(a, 100000);
+		assertEquals(1, wheel.size());
+		List<Entry<String>> due = new ArrayList<>();
+		wheel.advance(99999, due);
+		assertTrue(due.isEmpty());
+		wheel.advance(100000, due);
+		assertEquals(1, due.size());
+		assertEquals(100000, a.getDeadline());
+		wheel.schedule(a, 200000);
+		assertTrue(wheel.remove(a));
+		assertFalse(wheel.remove(a));
+		assertEquals(Long.MAX_VALUE, a.getDeadline());
+	}
+}
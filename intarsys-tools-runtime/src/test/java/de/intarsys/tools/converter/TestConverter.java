@@ -194,6 +194,30 @@ public class TestConverter {
 		assertThat(out.getValue(), is(4));
 	}
 
+	@Test
+	public void testToDestRegistration() throws ConversionException {
+		IConverter converter = new DestFromSourceConverter();
+		SourceType in = new SourceType(4);
+		for (int i = 0; i < 2; i++) {
+			try {
+				ConverterRegistry.get().convert(in, DestType.class);
+				fail();
+			} catch (ConversionException e) {
+				// expected, the failure is remembered
+			}
+		}
+		ConverterRegistry.get().registerConverter(converter);
+		DestType out = ConverterRegistry.get().convert(in, DestType.class);
+		assertThat(out.getValue(), is(4));
+		ConverterRegistry.get().unregisterConverter(converter);
+		try {
+			ConverterRegistry.get().convert(in, DestType.class);
+			fail();
+		} catch (ConversionException e) {
+			// expected
+		}
+	}
+
 	@Test
 	public void testToDestSuccess() throws ConversionException {
 		ConverterRegistry.get().registerConverter(new DestFromSourceConverter());
@@ -0,0 +1,117 @@
+package de.intarsys.tools.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestDeferredEventDispatcher extends TestCase {
+
+	static class BatchListener implements IBatchNotificationListener<Event> {
+
+		protected final List<List<Event>> batches = new ArrayList<>();
+
+		@Override
+		public void handleEvent(Event event) {
+			fail();
+		}
+
+		@Override
+		public void handleEvents(List<Event> events) {
+			batches.add(new ArrayList<>(events));
+		}
+	}
+
+	public void testBatch() {
+		Object source = new Object();
+		DeferredEventDispatcher dispatcher = new DeferredEventDispatcher(source);
+		BatchListener all = new BatchListener();
+		BatchListener created = new BatchListener();
+		dispatcher.addNotificationListener(EventType.ALWAYS, all);
+		dispatcher.addNotificationListener(CreatedEvent.ID, created);
+		assertTrue(dispatcher.hasListener());
+		dispatcher.handleEvent(new AttributeChangedEvent(source, "a", null, null));
+		dispatcher.handleEvent(new CreatedEvent(source));
+		dispatcher.flush();
+		assertEquals(1, all.batches.size());
+		assertEquals(2, all.batches.get(0).size());
+		assertEquals(1, created.batches.size());
+		assertEquals(1, created.batches.get(0).size());
+		dispatcher.removeNotificationListener(EventType.ALWAYS, all);
+		dispatcher.removeNotificationListener(CreatedEvent.ID, created);
+		assertFalse(dispatcher.hasListener());
+	}
+
+	public void testCoalescing() {
+		Object source = new Object();
+		List<Event> received = new ArrayList<>();
+		DeferredEventDispatcher dispatcher = new DeferredEventDispatcher(source);
+		dispatcher.addNotificationListener(EventType.ALWAYS, received::add);
+		dispatcher.setCoalescing(true);
+		for (int i = 0; i < 100; i++) {
+			dispatcher.handleEvent(new AttributeChangedEvent(source, "a", i, i + 1));
+			dispatcher.handleEvent(new AttributeChangedEvent(source, "b", -i, -i - 1));
+		}
+		dispatcher.handleEvent(new AttributeChangedEvent(new Object(), "a", null, null));
+		assertEquals(3, dispatcher.size());
+		dispatcher.flush();
+		assertEquals(3, received.size());
+		AttributeChangedEvent a = (AttributeChangedEvent) received.get(0);
+		assertEquals("a", a.getAttribute());
+		assertEquals(0, a.getOldValue());
+		assertEquals(100, a.getNewValue());
+		AttributeChangedEvent b = (AttributeChangedEvent) received.get(1);
+		assertEquals("b", b.getAttribute());
+		assertEquals(-100, b.getNewValue());
+		// a new flush cycle starts over
+		received.clear();
+		dispatcher.handleEvent(new AttributeChangedEvent(source, "a", 100, 101));
+		dispatcher.flush();
+		assertEquals(100, ((AttributeChangedEvent) received.get(0)).getOldValue());
+	}
+
+	public void testOverflow() {
+		Object source = new Object();
+		List<Event> received = new ArrayList<>();
+		DeferredEventDispatcher dispatcher = new DeferredEventDispatcher(source);
+		dispatcher.addNotificationListener(EventType.ALWAYS, received::add);
+		dispatcher.setCapacity(2);
+		// flush
+		for (int i = 0; i < 5; i++) {
+			dispatcher.handleEvent(new AttributeChangedEvent(source, "a", null, i));
+		}
+		assertEquals(4, received.size());
+		assertEquals(1, dispatcher.size());
+		dispatcher.flush();
+		received.clear();
+		// drop oldest
+		dispatcher.setOverflowPolicy(DeferredEventDispatcher.OverflowPolicy.DROP_OLDEST);
+		for (int i = 0; i < 5; i++) {
+			dispatcher.handleEvent(new AttributeChangedEvent(source, "a", null, i));
+		}
+		dispatcher.flush();
+		assertEquals(2, received.size());
+		assertEquals(3, ((AttributeChangedEvent) received.get(0)).getNewValue());
+		assertEquals(3, dispatcher.getDroppedCount());
+		received.clear();
+		// drop newest
+		dispatcher.setOverflowPolicy(DeferredEventDispatcher.OverflowPolicy.DROP_NEWEST);
+		for (int i = 0; i < 5; i++) {
+			dispatcher.handleEvent(new AttributeChangedEvent(source, "a", null, i));
+		}
+		dispatcher.flush();
+		assertEquals(2, received.size());
+		assertEquals(0, ((AttributeChangedEvent) received.get(0)).getNewValue());
+		assertEquals(6, dispatcher.getDroppedCount());
+		// fail
+		dispatcher.setOverflowPolicy(DeferredEventDispatcher.OverflowPolicy.FAIL);
+		dispatcher.handleEvent(new CreatedEvent(source));
+		dispatcher.handleEvent(new CreatedEvent(source));
+		try {
+			dispatcher.handleEvent(new CreatedEvent(source));
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package de.intarsys.tools.eventbus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import de.intarsys.tools.component.IIdentifiable;
+import de.intarsys.tools.event.AttributeChangedEvent;
+import de.intarsys.tools.event.CreatedEvent;
+import de.intarsys.tools.event.EventDispatcher;
+import de.intarsys.tools.event.EventType;
+import de.intarsys.tools.event.INotificationListener;
+import junit.framework.TestCase;
+
+public class TestStandardEventBus extends TestCase {
+
+	static class Source implements IIdentifiable {
+
+		private final String id;
+
+		public Source(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+	}
+
+	protected INotificationListener record(List<String> log, String name) {
+		return event -> log.add(name);
+	}
+
+	public void testAsync() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			StandardEventBus bus = new StandardEventBus();
+			bus.setExecutor(executor);
+			bus.setQueueCapacity(4);
+			int count = 1000;
+			List<Object> received = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch done = new CountDownLatch(count);
+			bus.subscribeAsync(new EventSourceAll(), AttributeChangedEvent.ID, event -> {
+				received.add(((AttributeChangedEvent) event).getNewValue());
+				done.countDown();
+			});
+			Source source = new Source("a");
+			for (int i = 0; i < count; i++) {
+				bus.handleEvent(new AttributeChangedEvent(source, "value", null, Integer.valueOf(i)));
+			}
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			for (int i = 0; i < count; i++) {
+				assertEquals(Integer.valueOf(i), received.get(i));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testAsyncRepublish() throws Exception {
+		// a single thread, blocking it on a full queue would dead lock
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			StandardEventBus bus = new StandardEventBus();
+			bus.setExecutor(executor);
+			bus.setQueueCapacity(2);
+			int count = 10;
+			CountDownLatch done = new CountDownLatch(count);
+			List<Object> received = Collections.synchronizedList(new ArrayList<>());
+			Source republished = new Source("b");
+			bus.subscribeAsync(new EventSourceId("a"), AttributeChangedEvent.ID, event -> {
+				for (int i = 0; i < count; i++) {
+					bus.handleEvent(new AttributeChangedEvent(republished, "x", null, Integer.valueOf(i)));
+				}
+			});
+			bus.subscribeAsync(new EventSourceId("b"), AttributeChangedEvent.ID, event -> {
+				received.add(((AttributeChangedEvent) event).getNewValue());
+				done.countDown();
+			});
+			bus.handleEvent(new AttributeChangedEvent(new Source("a"), "x", null, null));
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			// spilled events keep their order
+			for (int i = 0; i < count; i++) {
+				assertEquals(Integer.valueOf(i), received.get(i));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testDispatch() {
+		StandardEventBus bus = new StandardEventBus();
+		List<String> log = new ArrayList<>();
+		bus.subscribe(new EventSourceAll(), EventType.ALWAYS, record(log, "all"));
+		bus.subscribe(new EventSourceId("b"), AttributeChangedEvent.ID, record(log, "id b"));
+		bus.subscribe(new EventSourceClass(Source.class), AttributeChangedEvent.ID, record(log, "class"));
+		bus.subscribe(new EventSourceClass(String.class), AttributeChangedEvent.ID, record(log, "string"));
+		bus.subscribe(new EventSourceId("a"), AttributeChangedEvent.ID, record(log, "id a"));
+		bus.subscribe(source -> source instanceof Source && ((Source) source).getId().startsWith("a"),
+				AttributeChangedEvent.ID, record(log, "custom"));
+		bus.subscribe(new EventSourceAll(), CreatedEvent.ID, record(log, "created"));
+		bus.handleEvent(new AttributeChangedEvent(new Source("a"), "x", null, null));
+		assertEquals(List.of("all", "class", "id a", "custom"), log);
+		log.clear();
+		bus.handleEvent(new AttributeChangedEvent(new Source("b"), "x", null, null));
+		assertEquals(List.of("all", "id b", "class"), log);
+		log.clear();
+		bus.handleEvent(new AttributeChangedEvent("string", "x", null, null));
+		assertEquals(List.of("all", "string"), log);
+		log.clear();
+		bus.handleEvent(new CreatedEvent(new Source("a")));
+		assertEquals(List.of("all", "created"), log);
+	}
+
+	public void testRegister() {
+		StandardEventBus bus = new StandardEventBus();
+		List<String> log = new ArrayList<>();
+		Source source = new Source("a");
+		EventDispatcher dispatcher = new EventDispatcher(source);
+		INotificationListener local = record(log, "local");
+		dispatcher.addNotificationListener(AttributeChangedEvent.ID, local);
+		bus.register(dispatcher);
+		bus.subscribe(new EventSourceId("a"), AttributeChangedEvent.ID, record(log, "bus"));
+		dispatcher.triggerChanged("x", null, null);
+		assertEquals(List.of("local", "bus"), log);
+		log.clear();
+		dispatcher.triggerEvent(new CreatedEvent(source));
+		assertEquals(List.of(), log);
+		dispatcher.removeNotificationListener(AttributeChangedEvent.ID, local);
+		bus.unregister(dispatcher);
+		dispatcher.triggerChanged("x", null, null);
+		assertEquals(List.of(), log);
+	}
+
+	public void testUnsubscribe() {
+		StandardEventBus bus = new StandardEventBus();
+		List<String> log = new ArrayList<>();
+		INotificationListener listener = record(log, "a");
+		bus.subscribe(new EventSourceAll(), AttributeChangedEvent.ID, listener);
+		bus.handleEvent(new AttributeChangedEvent("s", "x", null, null));
+		assertEquals(1, log.size());
+		bus.unsubscribe(AttributeChangedEvent.ID, listener);
+		bus.handleEvent(new AttributeChangedEvent("s", "x", null, null));
+		assertEquals(1, log.size());
+	}
+}
@@ -0,0 +1,151 @@
+package de.intarsys.tools.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.intarsys.tools.functor.Args;
+import de.intarsys.tools.functor.IArgs;
+import de.intarsys.tools.monitor.CacheMonitor;
+
+@SuppressWarnings({ "MagicNumber", "MultipleStringLiterals" })
+public class TestCacheResolver {
+
+	protected static class CountingResolver implements IStringEvaluator {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Object evaluate(String expression, IArgs args) throws EvaluationException {
+			int value = count.incrementAndGet();
+			if (expression.startsWith("fail")) {
+				throw new EvaluationException(expression);
+			}
+			if (expression.startsWith("missing.")) {
+				throw new NamespaceNotFound(expression);
+			}
+			if (expression.equals("null")) {
+				return null;
+			}
+			return expression + value;
+		}
+	}
+
+	@Test
+	public void testArgsSensitive() throws Exception {
+		CountingResolver counting = new CountingResolver();
+		CacheResolver resolver = new CacheResolver(counting);
+		IArgs args1 = Args.create();
+		args1.put("x", 1);
+		IArgs args2 = Args.create();
+		args2.put("x", 2);
+		assertEquals("a1", resolver.evaluate("a", args1));
+		assertEquals("a1", resolver.evaluate("a", args2));
+		resolver.setArgsSensitive(true);
+		resolver.clear();
+		assertEquals("a2", resolver.evaluate("a", args1));
+		assertEquals("a3", resolver.evaluate("a", args2));
+		assertEquals("a2", resolver.evaluate("a", args1));
+		// equal values share the result
+		IArgs args3 = Args.create();
+		args3.put("x", 1);
+		assertEquals("a2", resolver.evaluate("a", args3));
+		// a reused args with a new value is not served the stale result
+		args1.put("x", 3);
+		assertEquals("a4", resolver.evaluate("a", args1));
+		IArgs nested = Args.create();
+		nested.put("y", "z");
+		args3.put("nested", nested);
+		assertEquals("a5", resolver.evaluate("a", args3));
+		nested.put("y", "w");
+		assertEquals("a6", resolver.evaluate("a", args3));
+	}
+
+	@Test
+	public void testBounded() throws Exception {
+		CountingResolver counting = new CountingResolver();
+		CacheResolver resolver = new CacheResolver(counting, 2);
+		resolver.evaluate("a", Args.create());
+		resolver.evaluate("b", Args.create());
+		resolver.evaluate("c", Args.create());
+		assertEquals(2, resolver.getCache().size());
+		assertEquals("a4", resolver.evaluate("a", Args.create()));
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		CountingResolver counting = new CountingResolver();
+		CacheResolver resolver = new CacheResolver(counting);
+		assertEquals("a1", resolver.evaluate("a", Args.create()));
+		assertEquals("a1", resolver.evaluate("a", Args.create()));
+		assertEquals("b2", resolver.evaluate("b", Args.create()));
+		// null is not cached
+		resolver.evaluate("null", Args.create());
+		resolver.evaluate("null", Args.create());
+		assertEquals(4, counting.count.get());
+		resolver.clear();
+		assertEquals("a5", resolver.evaluate("a", Args.create()));
+	}
+
+	@Test
+	public void testMonitor() throws Exception {
+		CacheResolver resolver = new CacheResolver(new CountingResolver());
+		CacheMonitor monitor = new CacheMonitor("test", resolver.getCache());
+		resolver.evaluate("a", Args.create());
+		resolver.evaluate("a", Args.create());
+		assertEquals(Long.valueOf(1), monitor.getData().get(CacheMonitor.ATTR_HITS));
+		assertEquals(Long.valueOf(1), monitor.getData().get(CacheMonitor.ATTR_MISSES));
+		assertEquals(0.5, (Double) monitor.getData().get(CacheMonitor.ATTR_HITRATIO), 0.0001);
+		monitor.reset();
+		assertEquals(Long.valueOf(0), monitor.getData().get(CacheMonitor.ATTR_HITS));
+	}
+
+	@Test
+	public void testNegative() throws Exception {
+		CountingResolver counting = new CountingResolver();
+		CacheResolver resolver = new CacheResolver(counting);
+		EvaluationException first = null;
+		try {
+			resolver.evaluate("fail", Args.create());
+			fail();
+		} catch (EvaluationException e) {
+			first = e;
+		}
+		try {
+			resolver.evaluate("fail", Args.create());
+			fail();
+		} catch (EvaluationException e) {
+			// not cached by default
+			assertEquals(2, counting.count.get());
+		}
+		resolver.setNegativeTimeToLive(1, TimeUnit.HOURS);
+		try {
+			resolver.evaluate("fail", Args.create());
+			fail();
+		} catch (EvaluationException e) {
+			first = e;
+		}
+		try {
+			resolver.evaluate("fail", Args.create());
+			fail();
+		} catch (EvaluationException e) {
+			assertSame(first, e);
+			assertEquals(3, counting.count.get());
+		}
+		// namespace failures are never cached
+		for (int i = 0; i < 2; i++) {
+			try {
+				resolver.evaluate("missing.x", Args.create());
+				fail();
+			} catch (NamespaceNotFound e) {
+				//
+			}
+		}
+		assertEquals(5, counting.count.get());
+	}
+}
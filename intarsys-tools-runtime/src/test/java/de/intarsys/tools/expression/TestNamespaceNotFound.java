@@ -37,6 +37,23 @@ public class TestNamespaceNotFound {
 		}
 	}
 
+	@Test
+	public void scoped_exceptionResolver() throws Exception {
+		ScopedResolver root = new ScopedResolver();
+		MapResolver resolver1 = new MapResolver(true);
+		resolver1.put("a", MapResolver.createStrict().put("1", "x")); //$NON-NLS-1$ //$NON-NLS-2$
+		MapResolver fallback = new MapResolver(true);
+		fallback.put("b", MapResolver.createStrict().put("2", "y")); //$NON-NLS-1$ //$NON-NLS-2$
+		resolver1.setExceptionResolver(fallback);
+		root.addResolver(resolver1);
+		//
+		assertThat(resolver1.isNamespaceAvailable("a.1"), is(true));
+		assertThat(resolver1.isNamespaceAvailable("b.2"), is(true));
+		assertThat(resolver1.isNamespaceAvailable("c.1"), is(false));
+		assertThat(root.evaluate("a.1", Args.create()), is("x"));
+		assertThat(root.evaluate("b.2", Args.create()), is("y"));
+	}
+
 	@Test
 	public void scoped_nested() throws Exception {
 		ScopedResolver root = new ScopedResolver();
@@ -69,6 +86,37 @@ public class TestNamespaceNotFound {
 		}
 	}
 
+	@Test
+	public void scoped_namespaceAware() throws Exception {
+		ScopedResolver root = new ScopedResolver();
+		MapResolver resolver1 = new MapResolver(true);
+		resolver1.put("a", MapResolver.createStrict().put("1", "x")); //$NON-NLS-1$ //$NON-NLS-2$
+		root.addResolver(resolver1);
+		int[] calls = new int[1];
+		IStringEvaluator legacy = (expression, args) -> {
+			calls[0]++;
+			throw new NamespaceNotFound("legacy");
+		};
+		root.addResolver(legacy);
+		//
+		assertThat(resolver1.isNamespaceAvailable("a.1"), is(true));
+		assertThat(resolver1.isNamespaceAvailable("b.1"), is(false));
+		assertThat(resolver1.isNamespaceAvailable("b"), is(true));
+		assertThat(root.isNamespaceAvailable("b.1"), is(true));
+		assertThat(root.evaluate("a.1", Args.create()), is("x"));
+		try {
+			root.evaluate("b.1", Args.create());
+			fail("should not resolve");
+		} catch (NamespaceNotFound e) {
+			// the legacy resolver is still asked
+			assertThat(calls[0], is(1));
+		}
+		root.removeResolver(legacy);
+		assertThat(root.isNamespaceAvailable("b.1"), is(false));
+		assertThat(root.isNamespaceAvailable("a.1"), is(true));
+		assertThat(new ScopedResolver().isNamespaceAvailable("a"), is(false));
+	}
+
 	@Test
 	public void scoped_single() throws Exception {
 		ScopedResolver root = new ScopedResolver();
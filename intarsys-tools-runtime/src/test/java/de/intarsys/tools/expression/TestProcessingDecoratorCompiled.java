@@ -0,0 +1,150 @@
+package de.intarsys.tools.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.intarsys.tools.functor.Args;
+import de.intarsys.tools.functor.IArgs;
+import de.intarsys.tools.functor.IFunctor;
+import de.intarsys.tools.functor.IFunctorRegistry;
+
+@SuppressWarnings({ "MultipleStringLiterals" })
+public class TestProcessingDecoratorCompiled {
+
+	private final Map<String, IFunctor<?>> functors = new HashMap<>();
+
+	private ProcessingDecorator compiled;
+
+	private ProcessingDecorator interpreted;
+
+	protected Object evaluate(ProcessingDecorator decorator, String expression) {
+		try {
+			return decorator.evaluate(expression, Args.create());
+		} catch (EvaluationException e) {
+			return e.getClass();
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		functors.put("upper", call -> String.valueOf(call.getReceiver()).toUpperCase()); //$NON-NLS-1$
+		ProcessingDecorator.setFormattingFunctors(new IFunctorRegistry() {
+			@Override
+			public IFunctor[] getFunctors() {
+				return functors.values().toArray(new IFunctor[functors.size()]);
+			}
+
+			@Override
+			public IFunctor lookupFunctor(String id) {
+				return functors.get(id);
+			}
+
+			@Override
+			public void registerFunctor(IFunctor service) {
+				// not supported
+			}
+
+			@Override
+			public void unregisterFunctor(IFunctor service) {
+				// not supported
+			}
+		});
+		MapResolver resolver = new MapResolver(false);
+		resolver.put("name", "intarsys"); //$NON-NLS-1$ //$NON-NLS-2$
+		resolver.put("empty", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		resolver.put("flag", Boolean.TRUE); //$NON-NLS-1$
+		resolver.put("reference", "name"); //$NON-NLS-1$ //$NON-NLS-2$
+		compiled = new ProcessingDecorator(resolver);
+		interpreted = new ProcessingDecorator(resolver);
+		interpreted.setCompiled(false);
+	}
+
+	@After
+	public void tearDown() {
+		ProcessingDecorator.setFormattingFunctors(null);
+	}
+
+	@Test
+	public void testDefault() {
+		assertTrue(compiled.isCompiled());
+		assertFalse(interpreted.isCompiled());
+		ProcessingDecorator subclass = new ProcessingDecorator(new MapResolver()) {
+			@Override
+			protected Object evaluatePath(Object value, IArgs args, String path) throws EvaluationException {
+				return path;
+			}
+		};
+		assertTrue(subclass.isCompiled());
+		ProcessingDecorator legacy = new ProcessingDecorator(new MapResolver()) {
+			@Override
+			protected Object evaluateFunctor(Object value, IArgs args, String instruction) {
+				return instruction;
+			}
+		};
+		assertFalse(legacy.isCompiled());
+		legacy.setCompiled(true);
+		assertTrue(legacy.isCompiled());
+	}
+
+	@Test
+	public void testEquivalence() {
+		String[] expressions = new String[] { //
+				"name", //$NON-NLS-1$
+				"\"constant\"", //$NON-NLS-1$
+				"name:", //$NON-NLS-1$
+				"name:#upper", //$NON-NLS-1$
+				"name:#missing", //$NON-NLS-1$
+				"name:?flag", //$NON-NLS-1$
+				"name:?!flag", //$NON-NLS-1$
+				"empty:!\"default\"", //$NON-NLS-1$
+				"unknown:!name:#upper", //$NON-NLS-1$
+				"name:.length", //$NON-NLS-1$
+				"reference:*", //$NON-NLS-1$
+				"unknown", //$NON-NLS-1$
+				"", //$NON-NLS-1$
+		};
+		for (String expression : expressions) {
+			assertEquals(expression, evaluate(interpreted, expression), evaluate(compiled, expression));
+		}
+	}
+
+	@Test
+	public void testHooks() throws EvaluationException {
+		ProcessingDecorator decorator = new ProcessingDecorator(new MapResolver(false)) {
+			@Override
+			protected Object evaluateFunctor(Object value, IArgs args, IFunctor formatter, String[] argStrings) {
+				return String.join("/", argStrings); //$NON-NLS-1$
+			}
+		};
+		assertTrue(decorator.isCompiled());
+		assertEquals("a/b", decorator.evaluate("\"x\":#upper(a,b)", Args.create())); //$NON-NLS-1$ //$NON-NLS-2$
+		decorator.setCompiled(false);
+		assertEquals("a/b", decorator.evaluate("\"x\":#upper(a,b)", Args.create())); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testReregister() {
+		assertEquals("INTARSYS", evaluate(compiled, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+		functors.put("upper", call -> "replaced"); //$NON-NLS-1$ //$NON-NLS-2$
+		// the compiled chain has resolved the functor
+		assertEquals("INTARSYS", evaluate(compiled, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+		ProcessingDecorator.formattingFunctorsChanged();
+		assertEquals("replaced", evaluate(compiled, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("replaced", evaluate(interpreted, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+		functors.remove("upper"); //$NON-NLS-1$
+		ProcessingDecorator.formattingFunctorsChanged();
+		assertEquals(EvaluationException.class, evaluate(compiled, "name:#upper")); //$NON-NLS-1$
+		assertEquals(evaluate(interpreted, "name:#upper"), evaluate(compiled, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+		ProcessingDecorator.setFormattingFunctors(null);
+		assertEquals("intarsys", evaluate(compiled, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("intarsys", evaluate(interpreted, "name:#upper")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -137,4 +137,42 @@ public class TestTaggedStringEvaluator extends TestCase {
 		assertTrue("bar ".equals(result));
 	}
 
+	public void testEvaluateNull() throws Exception {
+		String template;
+		Object result;
+		MapResolver map;
+		TaggedStringEvaluator evaluator;
+		//
+		map = new MapResolver();
+		map.put("foo", "bar");
+		map.put("empty", null);
+		evaluator = TaggedStringEvaluator.decorate(map);
+		template = "${empty}";
+		result = evaluator.evaluate(template, Args.create());
+		assertNull(result);
+		template = "x${empty}y";
+		result = evaluator.evaluate(template, Args.create());
+		assertTrue("xy".equals(result));
+		template = "${empty}${empty}";
+		result = evaluator.evaluate(template, Args.create());
+		assertNull(result);
+	}
+
+	public void testTemplateReuse() throws Exception {
+		TaggedStringTemplate template = TaggedStringTemplate.compile("a ${foo} b ${diedel}", false);
+		assertSame(template, TaggedStringTemplate.compile("a ${foo} b ${diedel}", false));
+		assertEquals(4, template.size());
+		assertEquals("a ", template.getLiteral(0));
+		assertEquals("foo", template.getExpression(1));
+		assertEquals("a ${foo} b ${diedel}", template.toString());
+		//
+		MapResolver map = new MapResolver();
+		TaggedStringEvaluator evaluator = TaggedStringEvaluator.decorate(map);
+		map.put("foo", "bar");
+		map.put("diedel", 42);
+		assertEquals("a bar b 42", evaluator.evaluate("a ${foo} b ${diedel}", Args.create()));
+		map.put("foo", "gnu");
+		assertEquals("a gnu b 42", evaluator.evaluate("a ${foo} b ${diedel}", Args.create()));
+	}
+
 }
@@ -0,0 +1,83 @@
+package de.intarsys.tools.functor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+@SuppressWarnings({ "MagicNumber", "MultipleStringLiterals" })
+public class TestArgPath {
+
+	@Test
+	public void testGet() {
+		IArgs args = Args.create();
+		ArgTools.putPath(args, "a.b.c", "x");
+		ArgTools.putPath(args, "list", Arrays.asList("l0", "l1"));
+		assertEquals("x", ArgPath.compile("a.b.c").get(args));
+		assertEquals("l1", ArgPath.compile("list.1").get(args));
+		assertNull(ArgPath.compile("a.x.c").get(args));
+		assertSame(args, ArgPath.compile("").get(args));
+		assertSame(args, ArgPath.compile(".").get(args));
+		assertSame(args, ArgPath.compile(null).get(args));
+		assertNull(ArgPath.compile("a").get(null));
+	}
+
+	@Test
+	public void testIntern() {
+		assertSame(ArgPath.compile("a.b"), ArgPath.compile("a.b"));
+	}
+
+	@Test
+	public void testIsDefined() {
+		IArgs args = Args.create();
+		ArgTools.putPath(args, "a.b", null);
+		assertTrue(ArgPath.compile("a").isDefined(args));
+		assertTrue(ArgPath.compile("a.b").isDefined(args));
+		assertFalse(ArgPath.compile("a.c").isDefined(args));
+		assertFalse(ArgPath.compile("x.b").isDefined(args));
+		assertTrue(ArgPath.compile("").isDefined(args));
+	}
+
+	@Test
+	public void testParse() {
+		// compatible to split("\\.")
+		assertEquals(3, ArgPath.create("a..b").getSegmentCount());
+		assertEquals(2, ArgPath.create("a.b.").getSegmentCount());
+		assertEquals(2, ArgPath.create(".a").getSegmentCount());
+		assertEquals(1, ArgPath.create("").getSegmentCount());
+		assertEquals(0, ArgPath.create(".").getSegmentCount());
+		assertEquals("b", ArgPath.create("a.b").getLeafName());
+	}
+
+	@Test
+	public void testPut() {
+		IArgs args = Args.create();
+		IArgs leaf = ArgPath.compile("a.b.c").put(args, "x");
+		assertSame(leaf, ArgTools.getPath(args, "a.b"));
+		ArgPath.compile("a.b.d").putIfAbsent(args, () -> "y");
+		ArgPath.compile("a.b.d").putIfAbsent(args, () -> "z");
+		assertEquals("y", ArgTools.getPath(args, "a.b.d"));
+		// intermediate non args values are replaced
+		ArgTools.putPath(args, "s", "x=1");
+		ArgTools.putPath(args, "s.y", "2");
+		assertEquals("1", ArgTools.getPath(args, "s.x"));
+		assertEquals("2", ArgTools.getPath(args, "s.y"));
+		ArgTools.putPath(args, "s.0", "3");
+		assertEquals("3", ArgTools.getPath(args, "s.0"));
+	}
+
+	@Test
+	public void testUndefine() {
+		IArgs args = Args.create();
+		ArgTools.putPath(args, "a.b", "x");
+		ArgTools.undefinePath(args, "a.b");
+		assertFalse(ArgTools.isDefined(args, "a.b"));
+		assertTrue(ArgTools.isDefined(args, "a"));
+		ArgTools.undefinePath(args, "x.y");
+	}
+}
@@ -1,6 +1,7 @@
 package de.intarsys.tools.functor;
 
 import de.intarsys.tools.factory.InstanceSpec;
+import de.intarsys.tools.functor.IArgs.IBinding;
 import junit.framework.TestCase;
 
 public class TestArgs extends TestCase {
@@ -35,6 +36,76 @@ public class TestArgs extends TestCase {
 		assertTrue(((IArgs) copy.get("nested")).get("x").equals("y"));
 	}
 
+	public void testLarge() {
+		Args args = Args.create();
+		for (int i = 0; i < 200; i++) {
+			args.put("key" + i, Integer.valueOf(i));
+		}
+		assertTrue(args.size() == 200);
+		for (int i = 0; i < 200; i++) {
+			assertTrue(args.get("key" + i).equals(Integer.valueOf(i)));
+			assertTrue(args.get(i).equals(Integer.valueOf(i)));
+			assertTrue(args.isDefined("key" + i));
+		}
+		assertTrue(args.get("missing") == null);
+		assertFalse(args.isDefined("missing"));
+		// insertion order
+		int i = 0;
+		for (IBinding binding : args) {
+			assertTrue(binding.getName().equals("key" + i++));
+		}
+		// replace keeps position
+		args.put("key100", "x");
+		assertTrue(args.size() == 200);
+		assertTrue(args.get(100).equals("x"));
+		args.undefine("key100");
+		assertFalse(args.isDefined("key100"));
+		// renamed bindings
+		args.add("unnamed");
+		args.declare("renamed");
+		assertTrue(args.get("renamed").equals("unnamed"));
+		args.bindings().next().setName("first");
+		assertTrue(args.get("first").equals(Integer.valueOf(0)));
+		assertTrue(args.get("key0") == null);
+		// copy
+		IArgs copy = args.copy();
+		assertTrue(copy.get("key150").equals(Integer.valueOf(150)));
+		assertTrue(copy.equals(args));
+		args.clear();
+		assertTrue(args.get("key1") == null);
+		args.put("key1", "y");
+		assertTrue(args.get("key1").equals("y"));
+	}
+
+	public void testLargeShared() throws Exception {
+		Args args = Args.create();
+		for (int i = 0; i < 200; i++) {
+			args.put("key" + i, Integer.valueOf(i));
+		}
+		IArgs copy = args.copy();
+		Args unnamed = new Args((Object[]) new String[] { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j" });
+		unnamed.declare("first");
+		unnamed.declare("second");
+		assertTrue(unnamed.get("second").equals("b"));
+		// concurrent read only access
+		Thread[] threads = new Thread[4];
+		boolean[] failed = new boolean[1];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 200; i++) {
+					if (!copy.isDefined("key" + i) || !Integer.valueOf(i).equals(copy.get("key" + i))) {
+						failed[0] = true;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse(failed[0]);
+	}
+
 	public void testInstanceSpecLegacy() throws Exception {
 		IArgs args;
 		InstanceSpec spec;
@@ -0,0 +1,102 @@
+package de.intarsys.tools.ipc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.intarsys.tools.functor.Args;
+import de.intarsys.tools.functor.IArgs;
+import junit.framework.TestCase;
+
+public class TestIPCMarshaller extends TestCase {
+
+	static class Remote {
+	}
+
+	static class TestMarshaller extends IPCMarshaller {
+
+		int count;
+
+		@Override
+		protected Object marshalObject(Object value) throws IOException {
+			count++;
+			if (value instanceof Remote) {
+				return "remote"; //$NON-NLS-1$
+			}
+			return value;
+		}
+	}
+
+	public void testCopyOnChange() throws Exception {
+		TestMarshaller marshaller = new TestMarshaller();
+		List<Object> list = new ArrayList<>(Arrays.asList("a", 1, new Remote(), 2L)); //$NON-NLS-1$
+		List<Object> result = (List<Object>) marshaller.marshal(list);
+		assertNotSame(list, result);
+		assertEquals(Arrays.asList("a", 1, "remote", 2L), result); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(list.get(2) instanceof Remote);
+		//
+		Object[] array = new Object[] { "a", new Remote() }; //$NON-NLS-1$
+		Object[] resultArray = (Object[]) marshaller.marshal(array);
+		assertNotSame(array, resultArray);
+		assertEquals("a", resultArray[0]); //$NON-NLS-1$
+		assertEquals("remote", resultArray[1]); //$NON-NLS-1$
+		//
+		IArgs args = Args.create();
+		args.put("x", 1); //$NON-NLS-1$
+		args.put("y", new Remote()); //$NON-NLS-1$
+		IArgs resultArgs = (IArgs) marshaller.marshal(args);
+		assertNotSame(args, resultArgs);
+		assertEquals(1, resultArgs.get("x")); //$NON-NLS-1$
+		assertEquals("remote", resultArgs.get("y")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testCycle() throws Exception {
+		TestMarshaller marshaller = new TestMarshaller();
+		List<Object> list = new ArrayList<>();
+		list.add("a"); //$NON-NLS-1$
+		list.add(list);
+		assertSame(list, marshaller.marshal(list));
+		assertSame(list, marshaller.unmarshal(list));
+		// shared containers are processed once
+		Map<String, Object> shared = new HashMap<>();
+		shared.put("r", new Remote()); //$NON-NLS-1$
+		Object[] array = new Object[] { shared, shared };
+		Object[] result = (Object[]) marshaller.marshal(array);
+		assertSame(result[0], result[1]);
+		assertEquals(1, marshaller.count);
+	}
+
+	public void testLeaf() throws Exception {
+		TestMarshaller marshaller = new TestMarshaller();
+		List<Object> list = Arrays.asList("a", 1, 2L, 3.0, true, 'c', new BigDecimal("1.5")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(list, marshaller.marshal(list));
+		assertEquals(0, marshaller.count);
+		assertSame(list, marshaller.unmarshal(list));
+	}
+
+	public void testUnmarshal() throws Exception {
+		StandardIPCScope scope = new StandardIPCScope();
+		IIPCScope previous = IPCScope.lookup();
+		IPCScope.set(scope);
+		try {
+			Object object = new Object();
+			String id = scope.exportObject(object).getId();
+			IPCMarshaller marshaller = new IPCMarshaller();
+			List<Object> list = Arrays.asList("a", id); //$NON-NLS-1$
+			List<Object> result = (List<Object>) marshaller.unmarshal(list);
+			assertNotSame(list, result);
+			assertSame(object, result.get(1));
+			// args are unmarshaled in place
+			IArgs args = Args.create();
+			args.put("x", id); //$NON-NLS-1$
+			assertSame(args, marshaller.unmarshal(args));
+			assertSame(object, args.get("x")); //$NON-NLS-1$
+		} finally {
+			IPCScope.set(previous);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package de.intarsys.tools.ipc;
+
+import junit.framework.TestCase;
+
+public class TestStandardIPCScope extends TestCase {
+
+	public void testExportImport() {
+		StandardIPCScope scope = new StandardIPCScope();
+		Object a = new Object();
+		Object b = new Object();
+		IPCHandle handleA = scope.exportObject(a);
+		IPCHandle handleB = scope.exportObject(b);
+		assertSame(handleA, scope.exportObject(a));
+		assertNotSame(handleA, handleB);
+		assertTrue(handleA.getId().startsWith("ipc://resolve/"));
+		assertFalse(handleA.getId().equals(handleB.getId()));
+		assertSame(handleA, scope.importHandle(handleA.getId()));
+		assertSame(a, scope.importHandle(handleA.getId()).getObject());
+		IPCHandle remote = scope.importHandle("ipc://resolve/remote");
+		assertFalse(remote.isResolved());
+		assertSame(remote, scope.importHandle("ipc://resolve/remote"));
+		Object stub = new Object();
+		remote.resolve(stub);
+		assertSame(remote, scope.exportObject(stub));
+		assertEquals(3, scope.size());
+		assertEquals(3, scope.getObjectCount());
+		// ids of other scopes differ in their prefix
+		assertFalse(new StandardIPCScope().exportObject(a).getId().equals(handleA.getId()));
+		scope.dispose();
+		assertEquals(0, scope.size());
+	}
+
+	public void testTimeToLive() throws Exception {
+		StandardIPCScope scope = new StandardIPCScope();
+		scope.setTimeToLive(20);
+		Object a = new Object();
+		IPCHandle handle = scope.exportObject(a);
+		Thread.sleep(50);
+		scope.expunge();
+		assertEquals(0, scope.size());
+		assertEquals(0, scope.getObjectCount());
+		assertEquals(1, scope.getReleasedCount());
+		assertNotSame(handle, scope.exportObject(a));
+	}
+
+	public void testWeak() throws Exception {
+		StandardIPCScope scope = new StandardIPCScope();
+		scope.setWeak(true);
+		Object kept = new Object();
+		IPCHandle handle = scope.exportObject(kept);
+		scope.exportObject(new Object());
+		assertEquals(2, scope.size());
+		for (int i = 0; i < 50 && scope.size() > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+			scope.expunge();
+		}
+		assertEquals(1, scope.size());
+		assertEquals(1, scope.getReleasedCount());
+		assertSame(handle, scope.exportObject(kept));
+		assertSame(kept, scope.importHandle(handle.getId()).getObject());
+	}
+}
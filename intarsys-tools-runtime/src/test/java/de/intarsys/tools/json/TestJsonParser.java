@@ -0,0 +1,118 @@
+package de.intarsys.tools.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+public class TestJsonParser extends TestCase {
+
+	private static final String SAMPLE = "{ 'a': 'b', \"c\" : [1, -2, 3.5, 1e3, 12345678901, true, FALSE, null, x-y, 007],"
+			+ " d : { 'e\\'\\n\\u0041' : \"a long string value spanning buffers\" }, 'f': [], 'g': {} }";
+
+	protected JsonParser createParser(String source) {
+		// a tiny buffer to cover tokens crossing buffer boundaries
+		return new JsonParser(new StringReader(source), 16);
+	}
+
+	public void testCompareReader() throws IOException {
+		Object expected = new JsonReader(SAMPLE).readValue();
+		Object actual = createParser(SAMPLE).readValue();
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(Json.toJava(expected), Json.toJava(actual));
+	}
+
+	public void testEmpty() throws IOException {
+		assertNull(createParser("").next());
+		assertNull(createParser("  \n ").readValue());
+	}
+
+	public void testErrors() throws IOException {
+		String[] sources = new String[] { "{ 'a' 'b' }", "[1 2]", "{ 'a': 1", "'abc", "[1,]", "{ 'a': \"\\x\" }" };
+		for (String source : sources) {
+			try {
+				JsonParser parser = createParser(source);
+				while (parser.next() != null) {
+					// read
+				}
+				fail("error expected for " + source);
+			} catch (IOException e) {
+				//
+			}
+		}
+	}
+
+	public void testNumbers() throws IOException {
+		JsonParser parser = createParser("[42, -9223372036854775808, 9223372036854775808, 2.5, -0, 1.2.3]");
+		assertEquals(JsonToken.START_ARRAY, parser.next());
+		assertEquals(JsonToken.VALUE_NUMBER_INT, parser.next());
+		assertTrue(parser.isIntValue());
+		assertEquals(42, parser.getIntValue());
+		assertEquals(JsonToken.VALUE_NUMBER_INT, parser.next());
+		assertFalse(parser.isIntValue());
+		assertEquals(Long.MIN_VALUE, parser.getLongValue());
+		// out of range, as in JsonReader
+		assertEquals(JsonToken.VALUE_STRING, parser.next());
+		assertEquals("9223372036854775808", parser.getText());
+		assertEquals(JsonToken.VALUE_NUMBER_FLOAT, parser.next());
+		assertEquals(2.5, parser.getDoubleValue(), 0.0);
+		assertEquals(JsonToken.VALUE_STRING, parser.next());
+		assertEquals(JsonToken.VALUE_STRING, parser.next());
+		assertEquals(JsonToken.END_ARRAY, parser.next());
+		assertNull(parser.next());
+	}
+
+	public void testStreaming() throws IOException {
+		JsonParser parser = createParser(SAMPLE);
+		assertEquals(JsonToken.START_OBJECT, parser.next());
+		assertEquals(JsonToken.FIELD_NAME, parser.next());
+		assertEquals("a", parser.getText());
+		assertEquals(JsonToken.VALUE_STRING, parser.next());
+		assertEquals("b", parser.getText());
+		assertEquals("a", parser.getCurrentName());
+		assertEquals(JsonToken.FIELD_NAME, parser.next());
+		assertEquals(JsonToken.START_ARRAY, parser.next());
+		assertEquals(2, parser.getDepth());
+		parser.skipChildren();
+		assertEquals(JsonToken.END_ARRAY, parser.getCurrentToken());
+		assertEquals("c", parser.getCurrentName());
+		assertEquals(JsonToken.FIELD_NAME, parser.next());
+		assertEquals("d", parser.getText());
+		assertEquals(JsonToken.START_OBJECT, parser.next());
+		assertEquals(JsonToken.FIELD_NAME, parser.next());
+		assertEquals("e'\nA", parser.getText());
+		assertEquals(JsonToken.VALUE_STRING, parser.next());
+		assertEquals("a long string value spanning buffers", parser.getText());
+		assertEquals(JsonToken.END_OBJECT, parser.next());
+		assertEquals(JsonToken.FIELD_NAME, parser.next());
+		Object value = parser.readValue();
+		assertTrue(value instanceof JsonArray);
+		assertEquals("f", parser.getCurrentName());
+		assertEquals(JsonToken.FIELD_NAME, parser.next());
+		assertEquals(JsonToken.START_OBJECT, parser.next());
+		assertEquals(JsonToken.END_OBJECT, parser.next());
+		assertEquals(JsonToken.END_OBJECT, parser.next());
+		assertEquals(0, parser.getDepth());
+		assertNull(parser.next());
+	}
+
+	public void testWriter() throws IOException {
+		String source = "a\"b\\c/</d\u0001\u0085\u2028\u00e4\t";
+		StringWriter sw = new StringWriter();
+		JsonWriter.quote(source, sw);
+		assertEquals("\"a\\\"b\\\\c/<\\/d\\u0001\\u0085\\u2028\u00e4\\t\"", sw.toString());
+		assertEquals(source, new JsonReader(sw.toString()).readValue());
+		//
+		Object value = new JsonReader(SAMPLE).readValue();
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		JsonWriter writer = new JsonWriter(os);
+		writer.write(value, 2, 0);
+		writer.flush();
+		String written = new String(os.toByteArray(), StandardCharsets.UTF_8);
+		assertEquals(JsonWriter.toString(value, 2, 0), written);
+		assertEquals(value.toString(), new JsonParser(written).readValue().toString());
+	}
+}
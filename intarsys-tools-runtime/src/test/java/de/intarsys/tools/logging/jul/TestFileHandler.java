@@ -0,0 +1,123 @@
+package de.intarsys.tools.logging.jul;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+public class TestFileHandler extends TestCase {
+
+	private File dir;
+
+	protected int countLines(File file) throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size();
+	}
+
+	protected Formatter createFormatter() {
+		return new Formatter() {
+			@Override
+			public String format(LogRecord record) {
+				return record.getMessage() + "\n";
+			}
+		};
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = Files.createTempDirectory("filehandler").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	public void testAsync() throws Exception {
+		String pattern = dir.getAbsolutePath() + "/test.log";
+		FileHandler handler = new FileHandler(pattern, 0, 1, false, true);
+		handler.setFormatter(createFormatter());
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					handler.publish(new LogRecord(Level.INFO, "message " + i));
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		handler.close();
+		assertEquals(0, handler.getDroppedCount());
+		assertEquals(0, handler.getQueueDepth());
+		assertEquals(4000, countLines(new File(pattern)));
+	}
+
+	public void testDrop() throws Exception {
+		String pattern = dir.getAbsolutePath() + "/test.log";
+		FileHandler handler = new FileHandler(pattern, 0, 1, false, true);
+		CountDownLatch latch = new CountDownLatch(1);
+		handler.setFormatter(new Formatter() {
+			@Override
+			public String format(LogRecord record) {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					//
+				}
+				return record.getMessage() + "\n";
+			}
+		});
+		handler.setOverflowPolicy(EnumOverflowPolicy.DROP);
+		handler.setOverflowLevel(Level.WARNING);
+		int capacity = handler.getQueueCapacity();
+		for (int i = 0; i < capacity + 100; i++) {
+			handler.publish(new LogRecord(Level.INFO, "message " + i));
+		}
+		assertTrue(handler.getDroppedCount() >= 99);
+		latch.countDown();
+		handler.close();
+		assertEquals(capacity + 100 - handler.getDroppedCount(), countLines(new File(pattern)));
+	}
+
+	public void testRotate() throws Exception {
+		String pattern = dir.getAbsolutePath() + "/test%g.log";
+		FileHandler handler = new FileHandler(pattern, 1000, 3, false, true);
+		handler.setFormatter(createFormatter());
+		for (int i = 0; i < 500; i++) {
+			handler.publish(new LogRecord(Level.INFO, "message " + i));
+		}
+		handler.close();
+		assertTrue(new File(dir, "test1.log").exists());
+		assertTrue(new File(dir, "test2.log").exists());
+		assertTrue(new File(dir, "test0.log").length() < 2000);
+		List<String> lines = Files.readAllLines(new File(dir, "test0.log").toPath(), StandardCharsets.UTF_8);
+		assertEquals("message 499", lines.get(lines.size() - 1));
+	}
+
+	public void testSync() throws Exception {
+		String pattern = dir.getAbsolutePath() + "/test.log";
+		FileHandler handler = new FileHandler(pattern, 0, 1, false, false);
+		handler.setFormatter(createFormatter());
+		handler.publish(new LogRecord(Level.INFO, "message"));
+		assertEquals(1, countLines(new File(pattern)));
+		assertEquals(0, handler.getQueueCapacity());
+		handler.close();
+	}
+}
@@ -0,0 +1,60 @@
+package de.intarsys.tools.logging.jul;
+
+import java.util.Calendar;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import de.intarsys.tools.format.TrivialDateFormat;
+import de.intarsys.tools.string.StringTools;
+
+public class TestSimpleFormatter extends TestCase {
+
+	protected LogRecord createRecord(String loggerName, String message, long millis) {
+		LogRecord record = new LogRecord(Level.INFO, message);
+		record.setLoggerName(loggerName);
+		record.setMillis(millis);
+		return record;
+	}
+
+	public void testDate() {
+		SimpleFormatter formatter = SimpleFormatter.parse("%d %m");
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(2020, Calendar.MARCH, 4, 5, 6, 7);
+		calendar.set(Calendar.MILLISECOND, 0);
+		long base = calendar.getTimeInMillis();
+		int[] offsets = new int[] { 8, 0, 999, 42, 1001 };
+		for (int offset : offsets) {
+			long millis = base + offset;
+			String expected = "[" + new TrivialDateFormat().format(millis) + " ]";
+			String formatted = formatter.format(createRecord("test", "message", millis));
+			assertEquals(expected + " message" + StringTools.LS, formatted);
+		}
+	}
+
+	public void testFields() {
+		SimpleFormatter formatter = SimpleFormatter.parse("%p %c %m");
+		formatter.setWidthName(10);
+		String formatted = formatter.format(createRecord("a.b", "hello {0}", 0));
+		assertEquals("[INFO   ][a.b       ] hello {0}" + StringTools.LS, formatted);
+		formatted = formatter.format(createRecord("de.intarsys.tools.Test", "hello", 0));
+		assertEquals("[INFO   ][...ls.Test] hello" + StringTools.LS, formatted);
+		// configuration changes are compiled again
+		formatter.setShowLevel(false);
+		formatted = formatter.format(createRecord(null, "hello", 0));
+		assertEquals("[<unknown> ] hello" + StringTools.LS, formatted);
+	}
+
+	public void testRecursive() {
+		SimpleFormatter formatter = SimpleFormatter.parse("%p %m");
+		LogRecord record = createRecord("test", "outer {0}", 0);
+		record.setParameters(new Object[] { new Object() {
+			@Override
+			public String toString() {
+				return formatter.format(createRecord("test", "inner", 0)).trim();
+			}
+		} });
+		assertEquals("[INFO   ] outer [INFO   ] inner" + StringTools.LS, formatter.format(record));
+	}
+}
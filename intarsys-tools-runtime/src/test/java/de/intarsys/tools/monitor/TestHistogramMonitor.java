@@ -0,0 +1,123 @@
+package de.intarsys.tools.monitor;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import de.intarsys.tools.infoset.ElementTools;
+import de.intarsys.tools.infoset.IElement;
+import junit.framework.TestCase;
+
+public class TestHistogramMonitor extends TestCase {
+
+	public void testConcurrent() throws Exception {
+		Histogram histogram = new Histogram();
+		int threads = 8;
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				for (int i = 1; i <= 10000; i++) {
+					histogram.record(i);
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		Histogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(threads * 10000L, snapshot.getCount());
+		assertEquals(threads * 50005000L, snapshot.getTotal());
+	}
+
+	public void testConfiguration() throws Exception {
+		String configString = "<monitors>" //
+				+ "<monitor name='Histogram' class='de.intarsys.tools.monitor.HistogramMonitor' precision='7'/>" //
+				+ "</monitors>";
+		IElement element = ElementTools.parseElement(configString);
+		MonitorFactory.createMonitors(element, null);
+		IMonitor monitor = MonitorTools.getMonitor("Histogram"); //$NON-NLS-1$
+		assertTrue(monitor instanceof HistogramMonitor);
+		assertTrue(monitor instanceof TimeMonitor);
+		assertEquals(7, ((HistogramMonitor) monitor).getPrecision());
+	}
+
+	public void testInterval() {
+		Histogram histogram = new Histogram();
+		histogram.record(10);
+		histogram.record(20);
+		assertEquals(2, histogram.getIntervalSnapshot().getCount());
+		histogram.record(30);
+		Histogram.Snapshot interval = histogram.getIntervalSnapshot();
+		assertEquals(1, interval.getCount());
+		assertEquals(30, interval.getMin());
+		assertEquals(3, histogram.getSnapshot().getCount());
+		histogram.reset();
+		assertEquals(0, histogram.getSnapshot().getCount());
+		assertEquals(0, histogram.getIntervalSnapshot().getCount());
+		histogram.record(40);
+		assertEquals(1, histogram.getSnapshot().getCount());
+		assertEquals(40, histogram.getSnapshot().getTotal());
+	}
+
+	public void testMonitor() throws Exception {
+		HistogramMonitor monitor = new HistogramMonitor("test");
+		monitor.setLogCycle(-1);
+		for (int i = 0; i < 5; i++) {
+			ITrace trace = monitor.attach();
+			trace.sample(monitor.getLevel(), "a");
+			Thread.sleep(2);
+			monitor.detach();
+		}
+		Map data = monitor.getData();
+		assertEquals(Long.valueOf(5), data.get(Monitor.ATTR_COUNT));
+		double p50 = ((Double) data.get(HistogramMonitor.ATTR_P50)).doubleValue();
+		assertTrue(p50 >= 1.9);
+		assertTrue(((Double) data.get(HistogramMonitor.ATTR_P999)).doubleValue() >= p50);
+		assertTrue(((Long) data.get(Monitor.ATTR_MIN)).longValue() >= 1);
+		assertTrue(monitor.toTableString().contains("a"));
+		assertEquals(Long.valueOf(5), monitor.getIntervalData().get(Monitor.ATTR_COUNT));
+		assertEquals(Long.valueOf(0), monitor.getIntervalData().get(Monitor.ATTR_COUNT));
+		monitor.reset();
+		assertEquals(Long.valueOf(0), monitor.getData().get(Monitor.ATTR_COUNT));
+	}
+
+	public void testLogCycle() throws Exception {
+		HistogramMonitor monitor = new HistogramMonitor("test"); //$NON-NLS-1$
+		monitor.setLogCycle(2);
+		monitor.attach();
+		monitor.detach();
+		Object first = monitor.getData().get(Monitor.ATTR_FIRST);
+		assertTrue(((Long) first).longValue() > 0);
+		for (int i = 0; i < 4; i++) {
+			monitor.attach();
+			monitor.detach();
+		}
+		assertEquals(first, monitor.getData().get(Monitor.ATTR_FIRST));
+		assertTrue(((Long) monitor.getData().get(Monitor.ATTR_LAST)).longValue() >= ((Long) first).longValue());
+		// the log cycle keeps the statistics
+		assertEquals(Long.valueOf(5), monitor.getData().get(Monitor.ATTR_COUNT));
+		assertEquals(Long.valueOf(5), monitor.getIntervalData().get(Monitor.ATTR_COUNT));
+	}
+
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		Histogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500500000L, snapshot.getTotal());
+		assertEquals(1000, snapshot.getMin(), 1000 / 32.0);
+		assertEquals(1000000, snapshot.getMax(), 1000000 / 32.0);
+		assertEquals(500000, snapshot.getValueAtPercentile(50), 500000 / 32.0);
+		assertEquals(990000, snapshot.getValueAtPercentile(99), 990000 / 32.0);
+		// small values are exact
+		Histogram small = new Histogram();
+		for (int i = 0; i < 64; i++) {
+			small.record(i);
+		}
+		assertEquals(0, small.getSnapshot().getMin());
+		assertEquals(63, small.getSnapshot().getMax());
+		assertEquals(31, small.getSnapshot().getValueAtPercentile(50));
+		small.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, small.getSnapshot().getMax());
+	}
+}
@@ -0,0 +1,89 @@
+package de.intarsys.tools.monitor;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+public class TestMonitorExporter extends TestCase {
+
+	protected StandardMonitorRegistry createRegistry() throws Exception {
+		StandardMonitorRegistry registry = new StandardMonitorRegistry();
+		HistogramMonitor monitor = new HistogramMonitor("export \"test\"");
+		monitor.setLogCycle(-1);
+		for (int i = 0; i < 3; i++) {
+			monitor.attach();
+			monitor.detach();
+		}
+		registry.registerMonitor(monitor);
+		return registry;
+	}
+
+	public void testEndpoint() throws Exception {
+		MonitorExporter exporter = new MonitorExporter(createRegistry());
+		exporter.setPort(0);
+		exporter.start();
+		try {
+			exporter.snapshot();
+			URL url = new URL("http://127.0.0.1:" + exporter.getPort() + "/metrics");
+			String text;
+			try (InputStream is = url.openStream()) {
+				text = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+			}
+			assertTrue(text.contains("intarsys_monitor_count{monitor=\"export \\\"test\\\"\"} 3 "));
+		} finally {
+			exporter.stop();
+		}
+	}
+
+	public void testFile() throws Exception {
+		File file = File.createTempFile("metrics", ".prom");
+		try {
+			MonitorExporter exporter = new MonitorExporter(createRegistry());
+			exporter.setFile(file);
+			exporter.export();
+			String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			assertEquals(exporter.toPrometheus(), text);
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testJmx() throws Exception {
+		MonitorExporter exporter = new MonitorExporter(createRegistry());
+		exporter.setJmx(true);
+		exporter.export();
+		ObjectName name = new ObjectName("de.intarsys:type=Monitor,name=" + ObjectName.quote("export \"test\""));
+		try {
+			Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(name, Monitor.ATTR_COUNT);
+			assertEquals(Double.valueOf(3), value);
+		} finally {
+			exporter.stop();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+
+	public void testSnapshot() throws Exception {
+		StandardMonitorRegistry registry = createRegistry();
+		MonitorExporter exporter = new MonitorExporter(registry);
+		assertEquals("", exporter.toPrometheus());
+		exporter.snapshot();
+		assertEquals(3.0, exporter.getValue("export \"test\"", Monitor.ATTR_COUNT), 0.0);
+		assertTrue(Double.isNaN(exporter.getValue("export \"test\"", "unknown")));
+		String text = exporter.toPrometheus();
+		assertTrue(text.startsWith("# TYPE intarsys_monitor_avg gauge\n"));
+		assertTrue(text.contains("# TYPE intarsys_monitor_p99 gauge\n"));
+		// a new monitor changes the layout
+		CounterMonitor counter = new CounterMonitor("counter");
+		registry.registerMonitor(counter);
+		exporter.snapshot();
+		assertEquals(2, exporter.getMonitorNames().size());
+		assertFalse(exporter.getValues("counter").isEmpty());
+	}
+}
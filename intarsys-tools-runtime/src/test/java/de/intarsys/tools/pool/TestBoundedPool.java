@@ -0,0 +1,211 @@
+package de.intarsys.tools.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class TestBoundedPool extends TestCase {
+
+	static class Factory implements IPoolObjectFactory<int[]>, IPoolObjectValidator<int[]> {
+
+		final AtomicInteger created = new AtomicInteger();
+
+		final AtomicInteger destroyed = new AtomicInteger();
+
+		final AtomicInteger active = new AtomicInteger();
+
+		@Override
+		public void activateObject(int[] obj) {
+			obj[1]++;
+			active.incrementAndGet();
+		}
+
+		@Override
+		public int[] createObject() {
+			return new int[] { created.incrementAndGet(), 0 };
+		}
+
+		@Override
+		public void deactivateObject(int[] obj) {
+			active.decrementAndGet();
+		}
+
+		@Override
+		public void destroyObject(int[] obj) {
+			destroyed.incrementAndGet();
+		}
+
+		@Override
+		public boolean validateObject(int[] obj) {
+			// negative ids are invalid
+			return obj[0] > 0;
+		}
+	}
+
+	public void testClose() throws Exception {
+		Factory factory = new Factory();
+		BoundedPool<int[]> pool = new BoundedPool<>(factory, 0, 2);
+		int[] a = pool.checkout(0);
+		int[] b = pool.checkout(0);
+		pool.checkin(b);
+		pool.close();
+		assertEquals(1, factory.destroyed.get());
+		pool.checkin(a);
+		assertEquals(2, factory.destroyed.get());
+		try {
+			pool.checkout(0);
+			fail();
+		} catch (RuntimeException e) {
+			//
+		}
+	}
+
+	public void testConcurrent() throws Exception {
+		Factory factory = new Factory();
+		BoundedPool<int[]> pool = new BoundedPool<>(factory, 0, 3);
+		int threads = 8;
+		CountDownLatch done = new CountDownLatch(threads);
+		AtomicInteger errors = new AtomicInteger();
+		AtomicInteger maxActive = new AtomicInteger();
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				try {
+					for (int i = 0; i < 2000; i++) {
+						int[] object = pool.checkout(-1);
+						maxActive.accumulateAndGet(factory.active.get(), Math::max);
+						pool.checkin(object);
+					}
+				} catch (Exception e) {
+					errors.incrementAndGet();
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		assertEquals(0, errors.get());
+		assertTrue(maxActive.get() <= 3);
+		assertTrue(factory.created.get() <= 3);
+		assertEquals(0, pool.getBorrowedCount());
+		assertEquals(threads * 2000, pool.getCheckoutCount());
+		pool.close();
+	}
+
+	public void testEvict() throws Exception {
+		Factory factory = new Factory();
+		BoundedPool<int[]> pool = new BoundedPool<>(factory, 1, 4);
+		pool.setEvictionInterval(0);
+		List<int[]> objects = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			objects.add(pool.checkout(0));
+		}
+		for (int[] object : objects) {
+			pool.checkin(object);
+		}
+		assertEquals(3, pool.getIdleCount());
+		pool.evict();
+		assertEquals(3, pool.getSize());
+		pool.setIdleTimeout(0);
+		Thread.sleep(5);
+		pool.evict();
+		// min size is kept
+		assertEquals(1, pool.getSize());
+		assertEquals(2, factory.destroyed.get());
+		pool.close();
+	}
+
+	public void testFill() throws Exception {
+		Factory factory = new Factory();
+		BoundedPool<int[]> pool = new BoundedPool<>(factory, 2, 4);
+		pool.fill();
+		assertEquals(2, pool.getSize());
+		assertEquals(2, pool.getIdleCount());
+		pool.checkout(0);
+		assertEquals(2, factory.created.get());
+		pool.close();
+	}
+
+	public void testMonitor() throws Exception {
+		BoundedPool<int[]> pool = new BoundedPool<>(new Factory(), 0, 2);
+		int[] a = pool.checkout(0);
+		assertEquals(0.5, pool.getUtilization(), 0.0);
+		assertEquals(1, pool.getMaxBorrowedCount());
+		pool.checkin(a);
+		assertEquals(0.0, pool.getUtilization(), 0.0);
+		assertEquals(Long.valueOf(1), pool.createMonitor("pool").getData().get(IPool.ATTR_TOTAL_CHECKOUT_TASKS));
+		pool.resetStatistics();
+		assertEquals(0, pool.getCheckoutCount());
+		pool.close();
+	}
+
+	public void testReuseLocal() throws Exception {
+		Factory factory = new Factory();
+		BoundedPool<int[]> pool = new BoundedPool<>(factory, 0, 4);
+		int[] a = pool.checkout(0);
+		int[] b = pool.checkout(0);
+		pool.checkin(a);
+		pool.checkin(b);
+		// the object checked in last is preferred
+		assertSame(b, pool.checkout(0));
+		assertEquals(1, pool.getLocalCheckoutCount());
+		assertSame(a, pool.checkout(0));
+		assertEquals(2, factory.created.get());
+		assertEquals(2, factory.active.get());
+		pool.close();
+	}
+
+	public void testTimeout() throws Exception {
+		BoundedPool<int[]> pool = new BoundedPool<>(new Factory(), 0, 1);
+		int[] a = pool.checkout(0);
+		try {
+			pool.checkout(0);
+			fail();
+		} catch (TimeoutException e) {
+			//
+		}
+		long start = System.currentTimeMillis();
+		try {
+			pool.checkout(50);
+			fail();
+		} catch (TimeoutException e) {
+			//
+		}
+		assertTrue(System.currentTimeMillis() - start >= 40);
+		assertEquals(2, pool.getTimeoutCount());
+		new Thread(() -> {
+			try {
+				Thread.sleep(20);
+				pool.checkin(a);
+			} catch (Exception e) {
+				//
+			}
+		}).start();
+		assertSame(a, pool.checkout(1000));
+		assertTrue(pool.getMaxWaitTime() > 0);
+		pool.close();
+	}
+
+	public void testValidate() throws Exception {
+		Factory factory = new Factory();
+		BoundedPool<int[]> pool = new BoundedPool<>(factory, 0, 2);
+		int[] a = pool.checkout(0);
+		a[0] = -a[0];
+		pool.checkin(a);
+		int[] b = pool.checkout(0);
+		assertNotSame(a, b);
+		assertEquals(1, factory.destroyed.get());
+		try {
+			pool.checkin(a);
+			fail();
+		} catch (IllegalArgumentException e) {
+			//
+		}
+		pool.destroy(b);
+		assertEquals(0, pool.getSize());
+		pool.close();
+	}
+}
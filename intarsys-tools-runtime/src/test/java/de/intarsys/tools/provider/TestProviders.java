@@ -1,18 +1,44 @@
 package de.intarsys.tools.provider;
 
 import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
+import de.intarsys.tools.converter.IConverter;
+
 public class TestProviders {
 
+	public static class Dummy implements Runnable {
+		@Override
+		public void run() {
+		}
+	}
+
+	private static final String LIST = "# comment\n" //
+			+ "java.lang.Runnable;" + Dummy.class.getName() + "\n" //
+			+ "\n" //
+			+ "java.lang.Runnable ; " + Dummy.class.getName() + " # duplicate\n" //
+			+ "java.lang.Runnable;does.not.Exist\n";
+
 	@Test
 	public void skipInvalid() {
 		ClassLoader classLoader = new ClassLoader() {
@@ -47,4 +73,43 @@ public class TestProviders {
 		providers.next();
 		assertFalse(providers.hasNext());
 	}
+
+	@Test
+	public void testIndex() throws Exception {
+		Map<String, List<String>> services = new LinkedHashMap<>();
+		ProviderIndex.parse(new ByteArrayInputStream(LIST.getBytes(StandardCharsets.UTF_8)), services);
+		assertEquals(List.of(Dummy.class.getName(), "does.not.Exist"), services.get("java.lang.Runnable"));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ProviderIndex.write(services, os);
+		assertEquals(services, ProviderIndex.read(new ByteArrayInputStream(os.toByteArray())));
+		Providers providers = new Providers(new ClassLoader(getClass().getClassLoader()) {
+			// empty, but distinct
+		});
+		providers.registerIndex(new ByteArrayInputStream(os.toByteArray()));
+		Iterator<Runnable> it = providers.lookupProviders(Runnable.class);
+		assertTrue(it.hasNext());
+		assertTrue(it.next() instanceof Dummy);
+		// the missing class is skipped
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testLookup() throws Exception {
+		Providers providers = Providers.get(getClass().getClassLoader());
+		assertTrue(providers.getServiceNames().contains(IConverter.class.getName()));
+		assertFalse(providers.lookupProviders(Runnable.class).hasNext());
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			providers.preload(executor, IConverter.class).get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdown();
+		}
+		Iterator<IConverter> it = providers.lookupProviders(IConverter.class);
+		int count = 0;
+		while (it.hasNext()) {
+			assertNotNull(it.next());
+			count++;
+		}
+		assertTrue(count > 10);
+	}
 }
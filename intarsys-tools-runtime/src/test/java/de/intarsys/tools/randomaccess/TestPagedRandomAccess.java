@@ -0,0 +1,132 @@
+package de.intarsys.tools.randomaccess;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings({ "MagicNumber" })
+public class TestPagedRandomAccess {
+
+	protected static byte[] createBytes(int size) {
+		byte[] bytes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			bytes[i] = (byte) i;
+		}
+		return bytes;
+	}
+
+	@Test
+	public void testAlternating() throws Exception {
+		RandomAccessByteArray ra = new RandomAccessByteArray(createBytes(1000));
+		PagedRandomAccess pra = new PagedRandomAccess(ra, 16, 4);
+		for (int i = 0; i < 10; i++) {
+			pra.seek(990);
+			assertThat(pra.read(), is(990 & 0xff));
+			pra.seek(3);
+			assertThat(pra.read(), is(3));
+		}
+		assertThat(pra.getMisses(), is(2L));
+		assertThat(pra.getHits(), is(18L));
+		pra.close();
+	}
+
+	@Test
+	public void testRandom() throws Exception {
+		// compare with an unbuffered random access
+		Random random = new Random(42);
+		RandomAccessByteArray expected = new RandomAccessByteArray(createBytes(300));
+		RandomAccessByteArray wrapped = new RandomAccessByteArray(createBytes(300));
+		PagedRandomAccess pra = new PagedRandomAccess(new RandomAccessFilter(wrapped) {
+			// just another layer
+		}, 8, 3);
+		byte[] buffer1 = new byte[30];
+		byte[] buffer2 = new byte[30];
+		for (int i = 0; i < 2000; i++) {
+			long offset = random.nextInt((int) expected.getLength() + 1);
+			expected.seek(offset);
+			pra.seek(offset);
+			int length = random.nextInt(30);
+			switch (random.nextInt(5)) {
+			case 0:
+				assertThat(pra.read(), is(expected.read()));
+				break;
+			case 1:
+				int count = expected.read(buffer1, 0, length);
+				assertThat(pra.read(buffer2, 0, length), is(count));
+				count = Math.max(count, 0);
+				assertArrayEquals(Arrays.copyOf(buffer1, count), Arrays.copyOf(buffer2, count));
+				break;
+			case 2:
+				random.nextBytes(buffer1);
+				expected.write(buffer1, 0, length);
+				pra.write(buffer1, 0, length);
+				break;
+			case 3:
+				int value = random.nextInt(256);
+				expected.write(value);
+				pra.write(value);
+				break;
+			default:
+				if (random.nextInt(10) == 0) {
+					// RandomAccessByteArray may reveal old data when growing
+					long newLength = random.nextInt((int) expected.getLength() + 1);
+					expected.setLength(newLength);
+					pra.setLength(newLength);
+				}
+				break;
+			}
+			assertThat(pra.getOffset(), is(expected.getOffset()));
+			assertThat(pra.getLength(), is(expected.getLength()));
+		}
+		pra.flush();
+		assertArrayEquals(expected.toByteArray(), wrapped.toByteArray());
+		pra.close();
+	}
+
+	@Test
+	public void testReadAhead() throws Exception {
+		RandomAccessByteArray ra = new RandomAccessByteArray(createBytes(1000));
+		PagedRandomAccess pra = new PagedRandomAccess(ra, 16, 16);
+		pra.setReadAhead(4);
+		byte[] buffer = new byte[10];
+		int total = 0;
+		int count;
+		while ((count = pra.read(buffer)) > 0) {
+			for (int i = 0; i < count; i++) {
+				assertThat(buffer[i], is((byte) (total + i)));
+			}
+			total += count;
+		}
+		assertThat(total, is(1000));
+		assertThat(pra.getHits() + pra.getMisses(), is(63L));
+		assertThat(pra.getReadAheads() > 40, is(true));
+		assertThat(pra.getEvictions() > 0, is(true));
+		pra.close();
+	}
+
+	@Test
+	public void testViewport() throws Exception {
+		RandomAccessByteArray ra = new RandomAccessByteArray(createBytes(100));
+		RandomAccessViewport viewport = new RandomAccessViewport(ra, 10, 50);
+		PagedRandomAccess pra = new PagedRandomAccess(viewport, 8, 2);
+		assertThat(pra.getLength(), is(50L));
+		pra.seek(5);
+		assertThat(pra.read(), is(15));
+		pra.seek(45);
+		byte[] buffer = new byte[10];
+		assertThat(pra.read(buffer), is(5));
+		assertThat(buffer[4], is((byte) 59));
+		assertThat(pra.read(), is(-1));
+		pra.seek(20);
+		assertThat(pra.read(), is(30));
+		pra.seek(5);
+		assertThat(pra.read(), is(15));
+		assertThat(pra.getEvictions(), is(3L));
+		pra.close();
+	}
+}
@@ -0,0 +1,134 @@
+package de.intarsys.tools.randomaccess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.intarsys.tools.file.FileTools;
+import de.intarsys.tools.locator.FileLocator;
+
+@SuppressWarnings({ "MagicNumber" })
+public class TestRandomAccessNio {
+
+	protected static File createFile(int size) throws IOException {
+		File file = File.createTempFile("randomAccessTest", ".bin");
+		file.deleteOnExit();
+		byte[] bytes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			bytes[i] = (byte) i;
+		}
+		FileTools.write(file, bytes);
+		return file;
+	}
+
+	protected void checkRandomAccess(IRandomAccess ra, File file) throws IOException {
+		try {
+			assertEquals(100, ra.getLength());
+			assertEquals(0, ra.read());
+			assertEquals(1, ra.read());
+			byte[] buffer = new byte[40];
+			// crosses page boundaries for small pages
+			assertEquals(40, ra.read(buffer));
+			assertEquals(2, buffer[0]);
+			assertEquals(41, buffer[39]);
+			ra.seek(90);
+			assertEquals(10, ra.read(buffer));
+			assertEquals(99, buffer[9]);
+			assertEquals(-1, ra.read());
+			assertEquals(-1, ra.read(buffer));
+			assertEquals(0, ra.read(buffer, 0, 0));
+			//
+			ra.seek(10);
+			ra.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20 });
+			assertEquals(30, ra.getOffset());
+			ra.seek(98);
+			ra.write(new byte[] { 77, 78, 79, 80, 81 });
+			ra.write(82);
+			assertEquals(104, ra.getLength());
+			ra.seekBy(-20);
+			assertEquals(84, ra.getOffset());
+			assertEquals(84, ra.read());
+			ra.setLength(50);
+			assertEquals(50, ra.getLength());
+			assertEquals(50, ra.getOffset());
+			ra.setLength(70);
+			ra.seek(49);
+			assertEquals(49, ra.read());
+			assertEquals(0, ra.read());
+			ra.flush();
+		} finally {
+			ra.close();
+		}
+		byte[] bytes = FileTools.getBytes(file);
+		assertEquals(70, bytes.length);
+		assertEquals(1, bytes[10]);
+		assertEquals(20, bytes[29]);
+		assertEquals(30, bytes[30]);
+	}
+
+	@Test
+	public void testFileChannel() throws IOException {
+		File file = createFile(100);
+		checkRandomAccess(new RandomAccessFileChannel(file), file);
+	}
+
+	@Test
+	public void testLocator() throws IOException {
+		File file = createFile(100);
+		FileLocator locator = new FileLocator(file);
+		IRandomAccess ra = locator.getRandomAccess();
+		assertTrue(ra instanceof RandomAccessFile);
+		ra.close();
+		locator.setRandomAccessMode(EnumRandomAccessMode.CHANNEL);
+		ra = locator.getRandomAccess();
+		assertTrue(ra instanceof RandomAccessFileChannel);
+		ra.close();
+		locator.setRandomAccessMode(EnumRandomAccessMode.MAPPED);
+		ra = locator.getRandomAccess();
+		assertTrue(ra instanceof RandomAccessMappedFile);
+		ra.close();
+	}
+
+	@Test
+	public void testMapped() throws IOException {
+		File file = createFile(100);
+		checkRandomAccess(new RandomAccessMappedFile(file), file);
+	}
+
+	@Test
+	public void testMappedAppend() throws IOException {
+		File file = createFile(0);
+		RandomAccessMappedFile ra = new RandomAccessMappedFile(file, false, 1 << 16);
+		try {
+			for (int i = 0; i < 100000; i++) {
+				ra.write(new byte[] { (byte) i, 1, 2 });
+			}
+			assertEquals(300000, ra.getLength());
+			assertTrue(ra.getChannel().size() >= 300000);
+			// grows in chunks, not a mapping per append
+			assertTrue(ra.getMapCount() < 20);
+			ra.seek(3 * 1000);
+			assertEquals((byte) 1000, (byte) ra.read());
+			ra.flush();
+			assertEquals(300000, ra.getChannel().size());
+			ra.seek(ra.getLength());
+			ra.write(3);
+		} finally {
+			ra.close();
+		}
+		byte[] bytes = FileTools.getBytes(file);
+		assertEquals(300001, bytes.length);
+		assertEquals((byte) 99999, bytes[299997]);
+		assertEquals(3, bytes[300000]);
+	}
+
+	@Test
+	public void testMappedPages() throws IOException {
+		File file = createFile(100);
+		checkRandomAccess(new RandomAccessMappedFile(file, false, 16), file);
+	}
+}
@@ -0,0 +1,141 @@
+package de.intarsys.tools.reflect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestObjectTools extends TestCase {
+
+	public static class Bean {
+
+		public static int twice(int value) {
+			return value * 2;
+		}
+
+		public String field = "field";
+
+		public final String constant = "constant";
+
+		private int count;
+
+		private boolean active;
+
+		private final List<String> items = new ArrayList<>();
+
+		public void addItem(String item) {
+			items.add(item);
+		}
+
+		public void fail() {
+			throw new IllegalStateException("fail");
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public List<String> getItems() {
+			return items;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public String name() {
+			return "name";
+		}
+
+		public void registerItem(CharSequence item) {
+			items.add(item.toString());
+		}
+
+		public void setActive(boolean active) {
+			this.active = active;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+	}
+
+	public void testGet() throws Exception {
+		Bean bean = new Bean();
+		bean.setCount(3);
+		bean.setActive(true);
+		for (int i = 0; i < 2; i++) {
+			assertEquals(3, ObjectTools.get(bean, "count"));
+			assertEquals(Boolean.TRUE, ObjectTools.get(bean, "active"));
+			assertEquals("field", ObjectTools.get(bean, "field"));
+			assertEquals("name", ObjectTools.get(bean, "name"));
+			assertEquals(i, ObjectTools.get(bean, "items.size"));
+			try {
+				ObjectTools.get(bean, "missing");
+				fail();
+			} catch (FieldAccessException e) {
+				// expected
+			}
+			bean.addItem("x");
+		}
+		assertNull(ClassAccessors.get(Bean.class).getProperty("missing"));
+		assertNotNull(ObjectTools.findGetter(Bean.class, "active"));
+	}
+
+	public void testInvoke() throws Exception {
+		Bean bean = new Bean();
+		assertEquals(8, ObjectTools.invoke(bean, "twice", 4));
+		ObjectTools.insert(bean, "item", "a");
+		assertEquals(List.of("a"), bean.getItems());
+		try {
+			ObjectTools.invoke(bean, "fail");
+			fail();
+		} catch (MethodExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		try {
+			ObjectTools.invoke(bean, "twice", "a");
+			fail();
+		} catch (MethodNotFoundException e) {
+			// expected
+		}
+	}
+
+	public void testRegister() throws Exception {
+		Bean bean = new Bean();
+		assertEquals("registerItem",
+				ObjectTools.findMethod(Bean.class, "register", true, String.class).getName());
+		ObjectTools.register(bean, "a");
+		ObjectTools.register(bean, "b");
+		assertEquals(2, bean.getItems().size());
+		assertEquals("b", bean.getItems().get(1));
+		try {
+			ObjectTools.register(bean, Integer.valueOf(1));
+			fail();
+		} catch (MethodNotFoundException e) {
+			// expected
+		}
+	}
+
+	public void testSet() throws Exception {
+		Bean bean = new Bean();
+		ObjectTools.set(bean, "count", 5);
+		assertEquals(5, bean.getCount());
+		ObjectTools.set(bean, "active", Boolean.TRUE);
+		assertTrue(bean.isActive());
+		assertEquals("field", ObjectTools.set(bean, "field", "changed"));
+		assertEquals("changed", bean.field);
+		try {
+			ObjectTools.set(bean, "count", null);
+			fail();
+		} catch (FieldAccessException e) {
+			// expected
+		}
+		try {
+			ObjectTools.set(bean, "constant", "x");
+			fail();
+		} catch (FieldAccessException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package de.intarsys.tools.session;
+
+import java.io.File;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import junit.framework.TestCase;
+
+public class TestShardedSessionRegistry extends TestCase {
+
+	protected File createFile() throws Exception {
+		File file = File.createTempFile("sessions", ".journal"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+
+	public void testForeign() throws Exception {
+		File file = createFile();
+		ShardedSessionRegistry owner = new ShardedSessionRegistry(100, 4);
+		owner.openJournal(file);
+		ShardedSessionRegistry other = new ShardedSessionRegistry(100, 4);
+		other.openJournal(file);
+		StandardSession a = new StandardSession("a"); //$NON-NLS-1$
+		owner.register(a);
+		other.restore();
+		ISession foreign = other.lookup("a"); //$NON-NLS-1$
+		assertNotSame(a, foreign);
+		other.unregister(foreign);
+		// still owned by the registering process
+		assertTrue(owner.getJournal().read().containsKey("a")); //$NON-NLS-1$
+		owner.unregister(a);
+		assertFalse(other.getJournal().read().containsKey("a")); //$NON-NLS-1$
+		other.closeJournal();
+		owner.closeJournal();
+	}
+
+	public void testForeignConcurrent() throws Exception {
+		File file = createFile();
+		ShardedSessionRegistry owner = new ShardedSessionRegistry(1000, 4);
+		owner.openJournal(file);
+		ShardedSessionRegistry other = new ShardedSessionRegistry(1000, 4);
+		other.openJournal(file);
+		Thread thread = new Thread(() -> {
+			for (int i = 0; i < 200; i++) {
+				other.register(new StandardSession("other" + i)); //$NON-NLS-1$
+			}
+		});
+		thread.start();
+		for (int i = 0; i < 200; i++) {
+			owner.register(new StandardSession("owner" + i)); //$NON-NLS-1$
+		}
+		thread.join();
+		assertEquals(400, owner.getJournal().read().size());
+		other.closeJournal();
+		owner.closeJournal();
+	}
+
+	public void testJournal() throws Exception {
+		File file = createFile();
+		ShardedSessionRegistry registry = new ShardedSessionRegistry(100, 4);
+		registry.openJournal(file);
+		StandardSession a = new StandardSession("a"); //$NON-NLS-1$
+		StandardSession b = new StandardSession("b"); //$NON-NLS-1$
+		registry.register(a);
+		registry.register(b);
+		a.setAttribute("name", "value"); //$NON-NLS-1$ //$NON-NLS-2$
+		a.setAttribute("count", 1); //$NON-NLS-1$
+		a.setAttribute("count", 2); //$NON-NLS-1$
+		a.setAttribute("removed", 3L); //$NON-NLS-1$
+		a.removeAttribute("removed"); //$NON-NLS-1$
+		// not journaled
+		a.setAttribute(new Object(), "private"); //$NON-NLS-1$
+		a.setAttribute("object", new Object()); //$NON-NLS-1$
+		b.setAttribute("bytes", new byte[] { 1, 2 }); //$NON-NLS-1$
+		registry.unregister(b);
+		long size = registry.getJournal().getSize();
+		registry.closeJournal();
+		//
+		ShardedSessionRegistry restored = new ShardedSessionRegistry(100, 4);
+		restored.openJournal(file);
+		assertTrue(restored.getJournal().getSize() < size);
+		assertEquals(1, restored.size());
+		ISession session = restored.lookup("a"); //$NON-NLS-1$
+		assertNotSame(a, session);
+		assertEquals("value", session.getAttribute("name")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, session.getAttribute("count")); //$NON-NLS-1$
+		assertNull(session.getAttribute("removed")); //$NON-NLS-1$
+		assertNull(session.getAttribute("object")); //$NON-NLS-1$
+		Map<String, Map<String, Object>> sessions = restored.getJournal().read();
+		assertEquals(1, sessions.size());
+		assertEquals(2, sessions.get("a").size()); //$NON-NLS-1$
+		restored.closeJournal();
+	}
+
+	public void testLimit() {
+		ShardedSessionRegistry registry = new ShardedSessionRegistry(8, 4);
+		assertEquals(4, registry.getShardCount());
+		for (int i = 0; i < 100; i++) {
+			registry.register(new StandardSession("s" + i)); //$NON-NLS-1$
+			assertTrue(registry.size() <= 8);
+		}
+		assertEquals(8, registry.size());
+		assertEquals(92, registry.getEvictedCount());
+		assertEquals(8, registry.getSessions().collect(Collectors.toSet()).size());
+		assertEquals(8, registry.getExpirationWatchdog().getScheduledCount());
+	}
+
+	public void testLru() {
+		ShardedSessionRegistry registry = new ShardedSessionRegistry(2, 1);
+		StandardSession a = new StandardSession("a"); //$NON-NLS-1$
+		StandardSession b = new StandardSession("b"); //$NON-NLS-1$
+		StandardSession c = new StandardSession("c"); //$NON-NLS-1$
+		registry.register(a);
+		registry.register(b);
+		assertSame(a, registry.lookup("a")); //$NON-NLS-1$
+		registry.register(c);
+		assertSame(a, registry.lookup("a")); //$NON-NLS-1$
+		assertTrue(b.isDisposed());
+		try {
+			registry.lookup("b"); //$NON-NLS-1$
+			fail();
+		} catch (SessionExpired e) {
+			// expected
+		}
+		registry.unregister(a);
+		assertTrue(a.isDisposed());
+		assertEquals(1, registry.size());
+		assertSame(c, registry.getSessions().findFirst().get());
+	}
+}
@@ -0,0 +1,88 @@
+package de.intarsys.tools.yalf.jul;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.intarsys.tools.yalf.api.ILogger;
+import de.intarsys.tools.yalf.api.Level;
+import de.intarsys.tools.yalf.api.Yalf;
+import de.intarsys.tools.yalf.handler.IMemoryHandler;
+import de.intarsys.tools.yalf.handler.IMemoryHandlerFactory;
+
+public class TestJulLogger {
+
+	static class Counting {
+		int count;
+
+		@Override
+		public String toString() {
+			count++;
+			return "counted";
+		}
+	}
+
+	protected IMemoryHandler createHandler() throws IOException {
+		IMemoryHandlerFactory factory = (IMemoryHandlerFactory) Yalf.get().getFactory(IMemoryHandler.class);
+		factory.setPattern("%m\n");
+		return (IMemoryHandler) factory.createHandler();
+	}
+
+	@Test
+	public void fixedArity() throws IOException {
+		IMemoryHandler handler = createHandler();
+		ILogger logger = Yalf.get().getLogger("test.arity");
+		logger.setLevel(Level.DEBUG);
+		logger.addHandler(handler);
+		logger.debug("{} {} {} {}", "a", "b", "c", "d");
+		logger.info("{}", 1);
+		logger.log(Level.WARN, "{}-{}", "a", "b");
+		logger.warn("{}", new Object[] { "y", "z" });
+		String[] lines = handler.getString().replace("\r", "").split("\n");
+		Assert.assertEquals(4, lines.length);
+		Assert.assertEquals("a b c d", lines[0].trim());
+		Assert.assertEquals("1", lines[1].trim());
+		Assert.assertEquals("a-b", lines[2].trim());
+		Assert.assertEquals("y", lines[3].trim());
+		logger.removeHandler(handler);
+	}
+
+	@Test
+	public void formatOnlyIfLoggable() throws IOException {
+		IMemoryHandler handler = createHandler();
+		ILogger logger = Yalf.get().getLogger("test.format");
+		logger.setLevel(Level.INFO);
+		logger.addHandler(handler);
+		Counting counting = new Counting();
+		logger.debug("{}", counting);
+		logger.trace("{} {}", counting, counting);
+		logger.debug("{} {} {}", new Object[] { counting, counting, counting });
+		logger.log(Level.DEBUG, "{}", counting);
+		Assert.assertEquals(0, counting.count);
+		logger.info("{}", counting);
+		Assert.assertEquals(1, counting.count);
+		logger.removeHandler(handler);
+	}
+
+	@Test
+	public void levelInvalidation() {
+		ILogger parent = Yalf.get().getLogger("test.parent");
+		ILogger child = Yalf.get().getLogger("test.parent.child");
+		child.setLevel(null);
+		parent.setLevel(Level.WARN);
+		Assert.assertFalse(child.isLoggable(Level.INFO));
+		Assert.assertTrue(child.isLoggable(Level.WARN));
+		// inherited level change is visible in child
+		parent.setLevel(Level.DEBUG);
+		Assert.assertTrue(child.isLoggable(Level.DEBUG));
+		Assert.assertFalse(child.isLoggable(Level.TRACE));
+		// direct jul changes are visible at once
+		((JulLogger) parent).getLogger().setLevel(java.util.logging.Level.OFF);
+		Assert.assertFalse(child.isLoggable(Level.SEVERE));
+		((JulLogger) child).getLogger().setLevel(java.util.logging.Level.FINEST);
+		Assert.assertTrue(child.isLoggable(Level.TRACE));
+		child.setLevel(null);
+		parent.setLevel(null);
+	}
+}